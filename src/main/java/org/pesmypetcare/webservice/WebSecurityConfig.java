@@ -1,10 +1,14 @@
 package org.pesmypetcare.webservice;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 /**
  * @author Santiago Del Rey
@@ -21,4 +25,14 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     public void configure(WebSecurity web) {
         web.ignoring().anyRequest();
     }
+
+    /**
+     * Creates the encoder of the user passwords.
+     * @param strength The log rounds of BCrypt, which doubles the hashing time with each unit
+     * @return The password encoder
+     */
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${passwords.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
+    }
 }
@@ -51,6 +51,8 @@ class CollectionPath extends PathBuilder {
             case pets:
             case userMedals:
                 return buildPathToUserInnerCollections(ids[0], collection);
+            case leaderboard:
+                return buildPathToMedalInnerCollections(ids[0], collection);
             default:
                 throw new EnumConstantNotPresentException(Collections.class, collection.name());
         }
@@ -77,6 +79,7 @@ class CollectionPath extends PathBuilder {
             case illnesses:
             case medications:
             case vet_visits:
+            case events:
                 return buildPathToPetInnerCollection(ids[0], ids[1], collection);
             default:
                 throw new EnumConstantNotPresentException(Collections.class, collection.name());
@@ -138,6 +141,19 @@ class CollectionPath extends PathBuilder {
         return new StringBuilder("users/").append(userId).append('/').append(collection.name());
     }
 
+    /**
+     * Builds the path to a inner collection of a medal.
+     *
+     * @param medalName The medal name
+     * @param collection The collection to reach
+     * @return The path
+     */
+    @NonNull
+    private static StringBuilder buildPathToMedalInnerCollections(@NonNull String medalName,
+                                                                  @NonNull Collections collection) {
+        return new StringBuilder("medals/").append(medalName).append('/').append(collection.name());
+    }
+
     /**
      * Builds the path to a pet.
      *
@@ -22,6 +22,9 @@ public enum Collections {
     illnesses,
     medications,
     vet_visits,
+    events,
     medals,
-    userMedals
+    userMedals,
+    leaderboard,
+    jobs
 }
@@ -55,6 +55,8 @@ class DocumentPath extends PathBuilder {
             case pets:
             case userMedals:
                 return buildPathToUserInnerDocument(ids[0], collection, ids[1]);
+            case leaderboard:
+                return buildPathToMedalInnerDocument(ids[0], collection, ids[1]);
             default:
                 throw new EnumConstantNotPresentException(Collections.class, collection.name());
         }
@@ -85,6 +87,7 @@ class DocumentPath extends PathBuilder {
             case illnesses:
             case medications:
             case vet_visits:
+            case events:
                 return buildPathToPetCollection(ids[0], ids[1], collection.name(), ids[2]);
             default:
                 throw new EnumConstantNotPresentException(Collections.class, collection.name());
@@ -200,6 +203,20 @@ class DocumentPath extends PathBuilder {
         return new StringBuilder("medals/").append(medalName);
     }
 
+    /**
+     * Builds the path to a medal inner document.
+     *
+     * @param medalName The medal name
+     * @param collection The inner collection which the document belongs to
+     * @param id The document ID
+     * @return The path
+     */
+    @NonNull
+    private static StringBuilder buildPathToMedalInnerDocument(@NonNull String medalName,
+                                                               @NonNull Collections collection, @NonNull String id) {
+        return buildPathToMedal(medalName).append('/').append(collection.name()).append('/').append(id);
+    }
+
     /**
      * Builds the path to a user inner document.
      *
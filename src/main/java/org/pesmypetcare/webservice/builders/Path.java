@@ -45,11 +45,13 @@ public class Path {
             case used_usernames:
             case users:
             case medals:
+            case jobs:
                 return DOCUMENT_PATH.buildOneLevelPath(collection, ids).toString();
             case forums:
             case forum_names:
             case pets:
             case userMedals:
+            case leaderboard:
             case members:
                 return DOCUMENT_PATH.buildTwoLevelPath(collection, ids).toString();
             case messages:
@@ -61,6 +63,7 @@ public class Path {
             case illnesses:
             case medications:
             case vet_visits:
+            case events:
                 return DOCUMENT_PATH.buildThreeLevelPath(collection, ids).toString();
             default:
                 throw new EnumConstantNotPresentException(Collections.class, collection.name());
@@ -96,12 +99,14 @@ public class Path {
             case used_usernames:
             case users:
             case medals:
+            case jobs:
                 COLLECTION_PATH.throwExceptionIfWrongNumArgs(0, ids.length);
                 return COLLECTION_PATH.buildRootCollectionPath(collection);
             case forums:
             case forum_names:
             case pets:
             case userMedals:
+            case leaderboard:
             case members:
                 return COLLECTION_PATH.buildTwoLevelPath(collection, ids).toString();
             case messages:
@@ -113,6 +118,7 @@ public class Path {
             case illnesses:
             case medications:
             case vet_visits:
+            case events:
                 return COLLECTION_PATH.buildThreeLevelPath(collection, ids).toString();
             default:
                 throw new EnumConstantNotPresentException(Collections.class, collection.name());
@@ -162,6 +168,6 @@ public class Path {
     private static boolean isRootCollection(Collections collection) {
         return collection.equals(Collections.groups) || collection.equals(Collections.groups_names) || collection
             .equals(Collections.tags) || collection.equals(Collections.used_usernames) || collection
-            .equals(Collections.users) || collection.equals(Collections.medals);
+            .equals(Collections.users) || collection.equals(Collections.medals) || collection.equals(Collections.jobs);
     }
 }
@@ -1,5 +1,6 @@
 package org.pesmypetcare.webservice.controller.appmanager;
 import org.pesmypetcare.webservice.entity.appmanager.EventEntity;
+import org.pesmypetcare.webservice.entity.appmanager.EventWriteResult;
 import org.pesmypetcare.webservice.error.CalendarAccessException;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
@@ -97,6 +98,25 @@ public class GoogleCalendarRestController {
         googleCalendarService.createEvent(accessToken, owner, petName, eventEntity);
     }
 
+    /**
+     * Creates several Events in a specified Google Calendar.
+     * @param accessToken oauth2 token needed to access the Google Calendar
+     * @param owner Name of the owner of the pet
+     * @param petName Name of the pet the calendar belongs to
+     * @param eventEntities Events to create
+     * @return The result of each Event, in the same order
+     * @throws CalendarAccessException If an error occurs when accessing the calendar
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the document does not exist
+     */
+    @PostMapping("/events/{owner}/{petName}")
+    public List<EventWriteResult> createEvents(@RequestHeader(TOKEN) String accessToken, @PathVariable String owner,
+                                               @PathVariable String petName,
+                                               @RequestBody List<EventEntity> eventEntities)
+        throws CalendarAccessException, DatabaseAccessException, DocumentException {
+        return googleCalendarService.createEvents(accessToken, owner, petName, eventEntities);
+    }
+
     /**
      * Retrieves an Event in a specified Google Calendar.
      * @param accessToken oauth2 token needed to access the Google Calendar
@@ -132,6 +152,25 @@ public class GoogleCalendarRestController {
         googleCalendarService.updateEvent(accessToken, owner, petName, eventEntity);
     }
 
+    /**
+     * Updates several Events in a specified Google Calendar.
+     * @param accessToken oauth2 token needed to access the Google Calendar
+     * @param owner Name of the owner of the pet
+     * @param petName Name of the pet the calendar belongs to
+     * @param eventEntities New Events that overwrite the past events with the same id
+     * @return The result of each Event, in the same order
+     * @throws CalendarAccessException If an error occurs when accessing the calendar
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the document does not exist
+     */
+    @PutMapping("/events/{owner}/{petName}")
+    public List<EventWriteResult> updateEvents(@RequestHeader(TOKEN) String accessToken, @PathVariable String owner,
+                                               @PathVariable String petName,
+                                               @RequestBody List<EventEntity> eventEntities)
+        throws CalendarAccessException, DatabaseAccessException, DocumentException {
+        return googleCalendarService.updateEvents(accessToken, owner, petName, eventEntities);
+    }
+
     /**
      * Deletes an Event in a specified Google Calendar.
      * @param accessToken oauth2 token needed to access the Google Calendar
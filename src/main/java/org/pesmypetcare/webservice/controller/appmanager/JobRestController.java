@@ -0,0 +1,37 @@
+package org.pesmypetcare.webservice.controller.appmanager;
+
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.service.appmanager.JobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @author Santiago Del Rey
+ */
+@RestController
+@RequestMapping("/jobs")
+public class JobRestController {
+    @Autowired
+    private JobService jobService;
+
+    /**
+     * Gets the state of a background job.
+     *
+     * @param token The personal access token of the user
+     * @param id The identifier of the job
+     * @return The job with its status and progress
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the job does not exist
+     */
+    @GetMapping("/{id}")
+    public JobEntity getJob(@RequestHeader String token, @PathVariable String id)
+        throws DatabaseAccessException, DocumentException {
+        return jobService.getJob(token, id);
+    }
+}
@@ -0,0 +1,32 @@
+package org.pesmypetcare.webservice.controller.appmanager;
+
+import org.pesmypetcare.webservice.utilities.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author Santiago Del Rey
+ */
+@RestController
+public class MetricsRestController {
+    @Autowired
+    private List<MetricsSource> metricsSources;
+
+    /**
+     * Gets the current metrics of all the components that expose them.
+     * @return A map with the metrics of each component grouped by its name
+     */
+    @GetMapping("/metrics")
+    public Map<String, Map<String, Object>> getMetrics() {
+        Map<String, Map<String, Object>> metrics = new TreeMap<>();
+        for (MetricsSource source : metricsSources) {
+            metrics.put(source.getMetricsName(), source.getMetrics());
+        }
+        return metrics;
+    }
+}
@@ -1,12 +1,19 @@
 package org.pesmypetcare.webservice.controller.appmanager;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.pesmypetcare.webservice.entity.appmanager.ImageEntity;
+import org.pesmypetcare.webservice.entity.appmanager.ImageMetadata;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.form.StorageForm;
 import org.pesmypetcare.webservice.service.appmanager.StorageService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -18,7 +25,14 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -27,9 +41,12 @@ import java.util.Map;
 @RestController
 @RequestMapping("/storage")
 public class StorageRestController {
+    private static final String NDJSON = "application/x-ndjson";
     private final String TOKEN = "token";
     @Autowired
     private StorageService storage;
+    @Autowired
+    private ObjectMapper mapper;
 
     /**
      * Saves an image in user storage.
@@ -81,14 +98,16 @@ public class StorageRestController {
      * @param token The personal access token of the user
      * @param user The user's username
      * @param name The image name
-     * @return The image as a base64 encoded byte array
+     * @param request The web request
+     * @return The image as a base64 encoded byte array or null if it has not been modified
+     * @throws DocumentException When the image does not exist
      */
     @GetMapping("/image/{user}")
     @ResponseBody
     public String downloadUserImage(@RequestHeader(TOKEN) String token, @PathVariable String user,
-                                    @RequestParam String name) {
+                                    @RequestParam String name, WebRequest request) throws DocumentException {
         StorageForm form = new StorageForm(user, name);
-        return storage.getImage(form);
+        return downloadImage(form, request);
     }
 
     /**
@@ -97,15 +116,17 @@ public class StorageRestController {
      * @param token The personal access token of the user
      * @param user The user's username
      * @param name The image name
-     * @return The image as a base64 encoded byte array
+     * @param request The web request
+     * @return The image as a base64 encoded byte array or null if it has not been modified
+     * @throws DocumentException When the image does not exist
      */
     @GetMapping("/image/{user}/pets/{name}")
     @ResponseBody
     public String downloadPetImage(@RequestHeader(TOKEN) String token, @PathVariable String user,
-                                   @PathVariable String name) {
+                                   @PathVariable String name, WebRequest request) throws DocumentException {
         String path = user + "/pets";
         StorageForm form = new StorageForm(path, name);
-        return storage.getImage(form);
+        return downloadImage(form, request);
     }
 
     /**
@@ -113,14 +134,79 @@ public class StorageRestController {
      *
      * @param group The group name
      * @param name The image name
-     * @return The image as a base64 encoded byte array
+     * @param request The web request
+     * @return The image as a base64 encoded byte array or null if it has not been modified
+     * @throws DocumentException When the image does not exist
      */
     @GetMapping("/image/groups/{group}")
     @ResponseBody
-    public String downloadGroupImage(@PathVariable String group, @RequestParam String name) {
+    public String downloadGroupImage(@PathVariable String group, @RequestParam String name, WebRequest request)
+        throws DocumentException {
         String path = "Groups/" + group;
         StorageForm form = new StorageForm(path, name);
-        return storage.getImage(form);
+        return downloadImage(form, request);
+    }
+
+    /**
+     * Streams an image from user storage as binary content.
+     *
+     * @param token The personal access token of the user
+     * @param user The user's username
+     * @param name The image name
+     * @param range The requested byte range, if any
+     * @param request The web request
+     * @return The response that streams the image bytes
+     * @throws DocumentException When the image does not exist
+     */
+    @GetMapping("/binary/{user}")
+    public ResponseEntity<StreamingResponseBody> streamUserImage(@RequestHeader(TOKEN) String token,
+                                                                 @PathVariable String user, @RequestParam String name,
+                                                                 @RequestHeader(value = HttpHeaders.RANGE,
+                                                                     required = false) String range,
+                                                                 WebRequest request)
+        throws DocumentException {
+        return streamImage(new StorageForm(user, name), range, request);
+    }
+
+    /**
+     * Streams a pet image from user storage as binary content.
+     *
+     * @param token The personal access token of the user
+     * @param user The user's username
+     * @param name The image name
+     * @param range The requested byte range, if any
+     * @param request The web request
+     * @return The response that streams the image bytes
+     * @throws DocumentException When the image does not exist
+     */
+    @GetMapping("/binary/{user}/pets/{name}")
+    public ResponseEntity<StreamingResponseBody> streamPetImage(@RequestHeader(TOKEN) String token,
+                                                                @PathVariable String user, @PathVariable String name,
+                                                                @RequestHeader(value = HttpHeaders.RANGE,
+                                                                    required = false) String range,
+                                                                WebRequest request)
+        throws DocumentException {
+        return streamImage(new StorageForm(user + "/pets", name), range, request);
+    }
+
+    /**
+     * Streams a group image from storage as binary content.
+     *
+     * @param group The group name
+     * @param name The image name
+     * @param range The requested byte range, if any
+     * @param request The web request
+     * @return The response that streams the image bytes
+     * @throws DocumentException When the image does not exist
+     */
+    @GetMapping("/binary/groups/{group}")
+    public ResponseEntity<StreamingResponseBody> streamGroupImage(@PathVariable String group,
+                                                                  @RequestParam String name,
+                                                                  @RequestHeader(value = HttpHeaders.RANGE,
+                                                                      required = false) String range,
+                                                                  WebRequest request)
+        throws DocumentException {
+        return streamImage(new StorageForm("Groups/" + group, name), range, request);
     }
 
     /**
@@ -156,6 +242,42 @@ public class StorageRestController {
         return storage.getAllPostsImagesFromForum(group, forum);
     }
 
+    /**
+     * Streams all pet profile pictures from user storage as newline delimited JSON. Each line is an object with the
+     * pet name as key and its picture as a base64 encoded byte array, written as soon as the picture is downloaded.
+     *
+     * @param token The personal access token of the user
+     * @param user The user's username
+     * @return The response that streams the pictures
+     * @throws DatabaseAccessException When an error occurs when accessing the database
+     * @throws DocumentException When the pet does not exist
+     */
+    @GetMapping(value = "/stream/{user}/pets", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllPetsImages(@RequestHeader(TOKEN) String token,
+                                                                     @PathVariable String user)
+        throws DatabaseAccessException, DocumentException {
+        return streamImages(storage.getAllPetImagesPaths(user));
+    }
+
+    /**
+     * Streams all posts images from a forum as newline delimited JSON. Each line is an object with the image path as
+     * key and the image as a base64 encoded byte array, written as soon as the image is downloaded.
+     *
+     * @param token The personal access token of the user
+     * @param group The group name
+     * @param forum The forum name
+     * @return The response that streams the images
+     * @throws DatabaseAccessException When an error occurs when accessing the database
+     * @throws DocumentException When either the group or forum do not exist
+     */
+    @GetMapping(value = "/stream/{group}/{forum}", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamAllPostsImages(@RequestHeader(TOKEN) String token,
+                                                                      @PathVariable String group,
+                                                                      @PathVariable String forum)
+        throws DatabaseAccessException, DocumentException {
+        return streamImages(storage.getAllPostsImagesPaths(group, forum));
+    }
+
     /**
      * Deletes an image from user storage.
      *
@@ -167,4 +289,138 @@ public class StorageRestController {
     public void deleteImage(@RequestHeader(TOKEN) String token, @RequestBody StorageForm storageForm) {
         storage.deleteImage(storageForm);
     }
+
+    /**
+     * Downloads an image as a base64 encoded byte array unless the client already has its current version.
+     *
+     * @param form The form with the image path and name
+     * @param request The web request
+     * @return The image as a base64 encoded byte array or null if it has not been modified
+     * @throws DocumentException When the image does not exist
+     */
+    private String downloadImage(StorageForm form, WebRequest request) throws DocumentException {
+        ImageMetadata image = storage.getImageMetadata(form);
+        if (checkNotModified(image, request)) {
+            return null;
+        }
+        return storage.getImage(image);
+    }
+
+    /**
+     * Creates the response that streams an image. When a single byte range is requested only that range is sent
+     * with a partial content status. When the client already has the current version of the image no content is
+     * sent.
+     *
+     * @param form The form with the image path and name
+     * @param range The requested byte range, if any
+     * @param request The web request
+     * @return The response that streams the image bytes
+     * @throws DocumentException When the image does not exist
+     */
+    private ResponseEntity<StreamingResponseBody> streamImage(StorageForm form, String range, WebRequest request)
+        throws DocumentException {
+        ImageMetadata image = storage.getImageMetadata(form);
+        if (checkNotModified(image, request)) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        long size = image.getSize();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(getMediaType(image));
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (range == null) {
+            headers.setContentLength(size);
+            return new ResponseEntity<>(output -> storage.writeImage(image, 0, size, output), headers, HttpStatus.OK);
+        }
+        long start;
+        long end;
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            if (ranges.size() != 1) {
+                throw new IllegalArgumentException("Only a single range is supported");
+            }
+            start = ranges.get(0).getRangeStart(size);
+            end = ranges.get(0).getRangeEnd(size);
+        } catch (IllegalArgumentException e) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        }
+        long offset = start;
+        long length = end - start + 1;
+        headers.setContentLength(length);
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        return new ResponseEntity<>(output -> storage.writeImage(image, offset, length, output), headers,
+            HttpStatus.PARTIAL_CONTENT);
+    }
+
+    /**
+     * Creates the response that streams several images as newline delimited JSON.
+     *
+     * @param paths A map with the keys of the images and their paths
+     * @return The response that streams the images
+     */
+    private ResponseEntity<StreamingResponseBody> streamImages(Map<String, String> paths) {
+        StreamingResponseBody body = output -> {
+            try {
+                storage.fetchImages(paths, (key, image) -> writeImageLine(output, key, image));
+            } catch (DatabaseAccessException e) {
+                throw new IOException(e.getMessage(), e);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    /**
+     * Writes an image as a line of newline delimited JSON and flushes it to the client.
+     *
+     * @param output The stream where to write
+     * @param key The key of the image
+     * @param image The image as a base64 encoded byte array
+     */
+    private void writeImageLine(OutputStream output, String key, String image) {
+        Map<String, String> line = new LinkedHashMap<>();
+        line.put("key", key);
+        line.put("image", image);
+        try {
+            output.write(mapper.writeValueAsBytes(line));
+            output.write('\n');
+            output.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checks whether the client already has the current version of an image. The ETag and Last-Modified headers of
+     * the image are added to the response.
+     *
+     * @param image The image metadata
+     * @param request The web request
+     * @return True if the image has not been modified
+     */
+    private boolean checkNotModified(ImageMetadata image, WebRequest request) {
+        String eTag = null;
+        if (image.getMd5Hash() != null) {
+            eTag = "\"" + image.getMd5Hash() + "\"";
+        } else if (image.getGeneration() != null) {
+            eTag = "\"" + Long.toHexString(image.getGeneration()) + "\"";
+        }
+        long lastModified = image.getUpdateTime() != null ? image.getUpdateTime() : -1;
+        return request.checkNotModified(eTag, lastModified);
+    }
+
+    /**
+     * Gets the media type of an image. When the storage does not know it, it is guessed from the image name.
+     *
+     * @param image The image metadata
+     * @return The media type of the image
+     */
+    private MediaType getMediaType(ImageMetadata image) {
+        String contentType = image.getContentType();
+        if (contentType != null && !MediaType.APPLICATION_OCTET_STREAM_VALUE.equals(contentType)) {
+            return MediaType.parseMediaType(contentType);
+        }
+        return MediaTypeFactory.getMediaType(image.getPath()).orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
 }
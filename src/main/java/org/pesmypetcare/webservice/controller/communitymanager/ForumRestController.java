@@ -2,6 +2,7 @@ package org.pesmypetcare.webservice.controller.communitymanager;
 
 import org.pesmypetcare.webservice.entity.communitymanager.ForumEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.Message;
+import org.pesmypetcare.webservice.entity.communitymanager.MessagePage;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.error.InvalidOperationException;
@@ -30,6 +31,8 @@ import java.util.Map;
 @RestController
 @RequestMapping("/community")
 public class ForumRestController {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
     @Autowired
     private ForumService service;
 
@@ -191,6 +194,30 @@ public class ForumRestController {
         service.unbanMessage(token, parentGroup, forumName, creator, date);
     }
 
+    /**
+     * Gets a page of the messages of a forum from the most recent to the oldest one. The messages do not include
+     * their images. The next page is requested with the cursor returned with the current one.
+     *
+     * @param parentGroup The parent group name
+     * @param forumName The forum name
+     * @param limit The maximum number of messages of the page
+     * @param cursor The cursor returned with the previous page or null to get the first page
+     * @return The page of messages
+     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
+     * @throws DocumentException When either the group or forum do not exist
+     */
+    @GetMapping("/{parentGroup}/{forumName}/messages")
+    @ResponseBody
+    public MessagePage getMessages(@PathVariable String parentGroup, @PathVariable String forumName,
+                                   @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                   @RequestParam(required = false) String cursor)
+        throws DatabaseAccessException, DocumentException {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("The limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return service.getMessagesPage(parentGroup, forumName, cursor, limit);
+    }
+
     /**
      * Adds or remove a like to a message of a forum.
      *
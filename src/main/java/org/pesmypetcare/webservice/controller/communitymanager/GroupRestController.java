@@ -1,10 +1,12 @@
 package org.pesmypetcare.webservice.controller.communitymanager;
 
+import org.pesmypetcare.webservice.entity.communitymanager.Group;
 import org.pesmypetcare.webservice.entity.communitymanager.GroupEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.TagEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.service.communitymanager.GroupService;
+import org.pesmypetcare.webservice.utilities.Versioned;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -17,10 +19,12 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Santiago Del Rey
@@ -57,21 +61,38 @@ public class GroupRestController {
         service.deleteGroup(group);
     }
 
+    /**
+     * Gets all the groups. The request thread is released while the groups and their members are read.
+     *
+     * @return A future with all the groups
+     */
+    @GetMapping(params = "!group")
+    public CompletableFuture<List<Group>> getAllGroups() {
+        return service.getAllGroupsAsync();
+    }
+
     /**
      * Gets a group if a name is specified, otherwise gets all the groups.
+     * A single group carries its ETag header, so a conditional request for a group that has not changed is answered
+     * with 304 Not Modified and no body.
      *
      * @param group The group name
-     * @return The requested group entity or all the groups if none is specified
+     * @param request The web request
+     * @return The requested group entity, all the groups if none is specified or null if it has not been modified
      * @throws DatabaseAccessException If an error occurs when accessing the database
      * @throws DocumentException When the group does not exist
      */
     @GetMapping
-    public Object getGroup(@RequestParam(defaultValue = "all") String group)
+    public Object getGroup(@RequestParam(defaultValue = "all") String group, WebRequest request)
         throws DatabaseAccessException, DocumentException {
         if ("all".equals(group)) {
             return service.getAllGroups();
         }
-        return service.getGroup(group);
+        Versioned<Group> versionedGroup = service.getVersionedGroup(group);
+        if (request.checkNotModified(versionedGroup.getETag())) {
+            return null;
+        }
+        return versionedGroup.getValue();
     }
 
     /**
@@ -1,5 +1,6 @@
 package org.pesmypetcare.webservice.controller.medalmanager;
 
+import org.pesmypetcare.webservice.entity.medalmanager.LeaderboardEntry;
 import org.pesmypetcare.webservice.entity.medalmanager.MedalEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
@@ -11,9 +12,11 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 /**
@@ -30,14 +33,17 @@ public class MedalRestController {
      * Creates a medal on the data base.
      * @param name Name of the medal
      * @param medal The medal entity that contains the attributes of the pet
+     * @return A map with the identifier of the job that gives the medal to the existing users, whose state is
+     * available at /jobs/{id}
      * @throws DatabaseAccessException If an error occurs when accessing the database
      * @throws DocumentException When the document does not exist
      */
     @PostMapping("/{name}")
     @ResponseStatus(HttpStatus.CREATED)
-    public void createMedal(@PathVariable String name, @RequestBody MedalEntity medal)
+    public Map<String, String> createMedal(@PathVariable String name, @RequestBody MedalEntity medal)
         throws DatabaseAccessException, DocumentException {
-        medalService.createMedal(name, medal);
+        String jobId = medalService.createMedal(name, medal);
+        return Collections.singletonMap("job", jobId);
     }
 
     /**
@@ -67,6 +73,36 @@ public class MedalRestController {
         return medalService.getAllMedalsData();
     }
 
+    /**
+     * Gets the users with the greatest progress in a medal.
+     * @param name Name of the medal
+     * @param limit Maximum number of users to return
+     * @return The list of leaderboard entries from the greatest progress to the smallest one
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     */
+    @GetMapping("/{name}/leaderboard")
+    @ResponseStatus(HttpStatus.OK)
+    public List<LeaderboardEntry> getLeaderboard(@PathVariable String name,
+                                                 @RequestParam(defaultValue = "10") int limit)
+        throws DatabaseAccessException {
+        return medalService.getLeaderboard(name, limit);
+    }
+
+    /**
+     * Adds the progress that the users made in a medal before its leaderboard was indexed to its leaderboard.
+     * @param name Name of the medal
+     * @return A map with the identifier of the job that indexes the users, whose state is available at /jobs/{id}
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the job cannot be created
+     */
+    @PostMapping("/{name}/leaderboard")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Map<String, String> indexLeaderboard(@PathVariable String name)
+        throws DatabaseAccessException, DocumentException {
+        String jobId = medalService.indexLeaderboard(name);
+        return Collections.singletonMap("job", jobId);
+    }
+
     /**
      * Gets the value for the specified field of the medal on the database.
      * @param name Name of the medal
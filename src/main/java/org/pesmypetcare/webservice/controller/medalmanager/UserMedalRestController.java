@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Oriol Catalán
@@ -44,17 +45,18 @@ public class UserMedalRestController {
     }
 
     /**
-     * Gets the data from all the specified medals from the database.
+     * Gets the data from all the specified medals from the database. The request thread is released while the
+     * medals are read.
      * @param owner Username of the owner of the medals
-     * @return The List containing all the owner medals data
+     * @return A future with the List containing all the owner medals data
      * @throws DatabaseAccessException If an error occurs when accessing the database
      * @throws DocumentException When the document does not exist
      */
     @GetMapping("/{owner}")
     @ResponseStatus(HttpStatus.OK)
-    public List<UserMedalEntity> getAllMedalsData(@PathVariable String owner)
+    public CompletableFuture<List<UserMedalEntity>> getAllMedalsData(@PathVariable String owner)
         throws DatabaseAccessException, DocumentException {
-        return userMedalService.getAllUserMedalsData(owner);
+        return userMedalService.getAllUserMedalsDataAsync(owner);
     }
 
     /**
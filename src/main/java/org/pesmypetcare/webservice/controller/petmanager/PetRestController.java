@@ -4,6 +4,7 @@ import org.pesmypetcare.webservice.entity.petmanager.PetEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.service.petmanager.PetService;
+import org.pesmypetcare.webservice.utilities.Versioned;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -14,11 +15,14 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Marc Simó
@@ -73,31 +77,38 @@ public class PetRestController {
 
     /**
      * Gets a pet identified by its name and owner.
+     * The response carries the ETag and Last-Modified headers of the pet, so a conditional request for a pet that has
+     * not changed is answered with 304 Not Modified and no body.
      * @param owner Username of the owner of the pet
      * @param name Name of the pet
-     * @return The PetEntity corresponding to the owner's pet data
+     * @param request The web request
+     * @return The PetEntity corresponding to the owner's pet data or null if it has not been modified
      * @throws DatabaseAccessException If an error occurs when accessing the database
      * @throws DocumentException When the document does not exist
      */
     @GetMapping("/{owner}/{name}")
-    @ResponseStatus(HttpStatus.OK)
-    public PetEntity getPetData(@PathVariable String owner, @PathVariable String name)
+    public PetEntity getPetData(@PathVariable String owner, @PathVariable String name, WebRequest request)
         throws DatabaseAccessException, DocumentException {
-        return petService.getPetData(owner, name);
+        Versioned<PetEntity> pet = petService.getVersionedPetData(owner, name);
+        if (request.checkNotModified(pet.getETag(), pet.getLastModified())) {
+            return null;
+        }
+        return pet.getValue();
     }
 
     /**
-     * Gets the data from all the specified pets from the database.
+     * Gets the data from all the specified pets from the database. The request thread is released while the pets
+     * are read.
      * @param owner Username of the owner of the pets
-     * @return The List containing all the owner pets data
+     * @return A future with the List containing all the owner pets data
      * @throws DatabaseAccessException If an error occurs when accessing the database
      * @throws DocumentException When the document does not exist
      */
     @GetMapping("/{owner}")
     @ResponseStatus(HttpStatus.OK)
-    public List<Map<String, Object>> getAllPetsData(@PathVariable String owner)
+    public CompletableFuture<List<Map<String, Object>>> getAllPetsData(@PathVariable String owner)
         throws DatabaseAccessException, DocumentException {
-        return petService.getAllPetsData(owner);
+        return petService.getAllPetsDataAsync(owner);
     }
 
     /**
@@ -188,12 +199,15 @@ public class PetRestController {
     }
 
     /**
-     * Gets all the elements between the keys from the map for the specified field.
+     * Gets all the elements between the keys from the map for the specified field. When a limit is given only one page
+     * of elements is returned, and the next page is requested by passing the key of the last element as after.
      * @param owner Username of the owner of the pets
      * @param name Name of the pet
      * @param field Name of the field
      * @param key1 Start key (This one included)
      * @param key2 End Key (This one included)
+     * @param limit Maximum number of elements to return or null to return all of them
+     * @param after Key of the last element of the previous page or null to get the first page
      * @return The list containing the elements between the keys
      * @throws DatabaseAccessException If an error occurs when accessing the database
      * @throws DocumentException When the document does not exist
@@ -201,11 +215,21 @@ public class PetRestController {
     @GetMapping("/{owner}/{name}/collection/{field}/{key1}/{key2}")
     @ResponseStatus(HttpStatus.OK)
     public List<Map<String, Object>> getFieldCollectionElementsBetweenKeys(@PathVariable String owner,
-           @PathVariable String name, @PathVariable String field, @PathVariable String key1, @PathVariable String key2)
+           @PathVariable String name, @PathVariable String field, @PathVariable String key1, @PathVariable String key2,
+           @RequestParam(required = false) Integer limit, @RequestParam(required = false) String after)
         throws DatabaseAccessException, DocumentException {
         PetEntity.checkCollectionKey(field, key1);
         PetEntity.checkCollectionKey(field, key2);
-        return petService.getFieldCollectionElementsBetweenKeys(owner, name, field, key1, key2);
+        if (limit == null) {
+            return petService.getFieldCollectionElementsBetweenKeys(owner, name, field, key1, key2);
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The limit must be a positive number");
+        }
+        if (after != null) {
+            PetEntity.checkCollectionKey(field, after);
+        }
+        return petService.getFieldCollectionElementsBetweenKeys(owner, name, field, key1, key2, after, limit);
     }
 
     /**
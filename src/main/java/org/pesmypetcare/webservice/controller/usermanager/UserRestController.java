@@ -18,6 +18,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -32,25 +33,22 @@ public class UserRestController {
     private UserService userService;
 
     /**
-     * Deletes the user.
+     * Schedules the deletion of the user, which runs in the background.
      *
      * @param token The personal access token of the user
      * @param username The user's username
      * @param db If true deletes the user only from the database, otherwise deletes the user entirely
+     * @return A map with the identifier of the deletion job, whose state is available at /jobs/{id}
      * @throws DatabaseAccessException If an error occurs when accessing the database
-     * @throws FirebaseAuthException If an error occurs when retrieving the data
-     * @throws DocumentException When the document does not exist
+     * @throws DocumentException When the deletion job cannot be stored
      */
     @DeleteMapping("/{username}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void deleteAccount(@RequestHeader(TOKEN) String token, @PathVariable String username,
-                              @RequestParam(required = false) boolean db)
-        throws DatabaseAccessException, FirebaseAuthException, DocumentException {
-        if (db) {
-            userService.deleteFromDatabase(token, username);
-        } else {
-            userService.deleteById(token, username);
-        }
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Map<String, String> deleteAccount(@RequestHeader(TOKEN) String token, @PathVariable String username,
+                                             @RequestParam(required = false) boolean db)
+        throws DatabaseAccessException, DocumentException {
+        String jobId = userService.scheduleDeletion(token, username, !db);
+        return Collections.singletonMap("job", jobId);
     }
 
     /**
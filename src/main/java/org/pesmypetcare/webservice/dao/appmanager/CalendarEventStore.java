@@ -0,0 +1,61 @@
+package org.pesmypetcare.webservice.dao.appmanager;
+
+import org.pesmypetcare.webservice.entity.appmanager.EventChanges;
+import org.pesmypetcare.webservice.entity.appmanager.EventEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+
+import java.util.List;
+
+/**
+ * Keeps a copy of the events of the calendar of each pet, along with the sync token of the last synchronization, so
+ * only the changes made since then have to be requested to Google Calendar.
+ *
+ * @author Marc Simó
+ */
+public interface CalendarEventStore {
+    /**
+     * Gets the sync token of the last synchronization of the calendar of a pet.
+     *
+     * @param owner The username of the owner of the pet
+     * @param petName The name of the pet
+     * @return The sync token or null if the calendar has never been synchronized
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the pet does not exist
+     */
+    String getSyncToken(String owner, String petName) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Gets the stored events of the calendar of a pet.
+     *
+     * @param owner The username of the owner of the pet
+     * @param petName The name of the pet
+     * @return The list of stored events
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the owner does not exist
+     */
+    List<EventEntity> getEvents(String owner, String petName) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Applies the changes of a synchronization to the stored events and saves its sync token. The changes of a full
+     * synchronization replace all the stored events.
+     *
+     * @param owner The username of the owner of the pet
+     * @param petName The name of the pet
+     * @param changes The changes of the synchronization
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the pet does not exist
+     */
+    void saveChanges(String owner, String petName, EventChanges changes)
+        throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Deletes the stored events of the calendar of a pet and its sync token.
+     *
+     * @param owner The username of the owner of the pet
+     * @param petName The name of the pet
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the pet does not exist
+     */
+    void clear(String owner, String petName) throws DatabaseAccessException, DocumentException;
+}
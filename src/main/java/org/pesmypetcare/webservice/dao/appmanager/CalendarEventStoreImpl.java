@@ -0,0 +1,126 @@
+package org.pesmypetcare.webservice.dao.appmanager;
+
+import com.google.api.services.calendar.model.Event;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.dao.usermanager.UsernameResolver;
+import org.pesmypetcare.webservice.entity.appmanager.EventChanges;
+import org.pesmypetcare.webservice.entity.appmanager.EventEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.BulkWriteBatch;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stores the events of the calendar of a pet in its events collection, with the event ID as document ID, and the
+ * sync token in the pet document next to the calendar ID.
+ *
+ * @author Marc Simó
+ */
+@Repository
+public class CalendarEventStoreImpl implements CalendarEventStore {
+    static final String SYNC_TOKEN_FIELD = "calendarSyncToken";
+    @Autowired
+    private FirestoreCollection dbCol;
+    @Autowired
+    private FirestoreDocument dbDoc;
+    @Autowired
+    private FirestoreBulkWriter bulkWriter;
+    @Autowired
+    private UsernameResolver usernameResolver;
+
+    @Override
+    public String getSyncToken(String owner, String petName) throws DatabaseAccessException, DocumentException {
+        String petPath = Path.ofDocument(Collections.pets, usernameResolver.getUid(owner), petName);
+        return dbDoc.getStringFromDocument(petPath, SYNC_TOKEN_FIELD);
+    }
+
+    @Override
+    public List<EventEntity> getEvents(String owner, String petName) throws DatabaseAccessException,
+        DocumentException {
+        String eventsPath = Path.ofCollection(Collections.events, usernameResolver.getUid(owner), petName);
+        List<EventEntity> events = new ArrayList<>();
+        for (DocumentSnapshot snapshot : dbCol.listAllCollectionDocumentSnapshots(eventsPath)) {
+            events.add(snapshot.toObject(EventEntity.class));
+        }
+        return events;
+    }
+
+    @Override
+    public void saveChanges(String owner, String petName, EventChanges changes)
+        throws DatabaseAccessException, DocumentException {
+        String ownerId = usernameResolver.getUid(owner);
+        BulkWriteBatch batch = bulkWriter.batch();
+        Set<String> changedIds = new HashSet<>();
+        for (Event event : changes.getChangedEvents()) {
+            changedIds.add(event.getId());
+            batch.set(getEventReference(ownerId, petName, event.getId()), new EventEntity(event));
+        }
+        for (String eventId : changes.getDeletedEventIds()) {
+            batch.delete(getEventReference(ownerId, petName, eventId));
+        }
+        if (changes.isFullSync()) {
+            String eventsPath = Path.ofCollection(Collections.events, ownerId, petName);
+            for (DocumentReference stored : dbCol.listAllCollectionDocuments(eventsPath)) {
+                if (!changedIds.contains(stored.getId())) {
+                    batch.delete(stored);
+                }
+            }
+        }
+        if (batch.size() > 0) {
+            bulkWriter.commitBatch(batch);
+        }
+        saveSyncToken(ownerId, petName, changes.getNextSyncToken());
+    }
+
+    @Override
+    public void clear(String owner, String petName) throws DatabaseAccessException, DocumentException {
+        String ownerId = usernameResolver.getUid(owner);
+        BulkWriteBatch batch = bulkWriter.batch();
+        dbCol.deleteCollection(Path.ofCollection(Collections.events, ownerId, petName), batch);
+        bulkWriter.commitBatch(batch);
+        saveSyncToken(ownerId, petName, null);
+    }
+
+    /**
+     * Gets the reference to a stored event.
+     *
+     * @param ownerId The unique identifier of the owner of the pet
+     * @param petName The name of the pet
+     * @param eventId The ID of the event
+     * @return The reference to the event document
+     */
+    private DocumentReference getEventReference(String ownerId, String petName, String eventId) {
+        return dbDoc.getDocumentReference(Path.ofDocument(Collections.events, ownerId, petName, eventId));
+    }
+
+    /**
+     * Saves the sync token of a pet. It is written once the events are stored, so a failed synchronization is
+     * repeated from the previous token.
+     *
+     * @param ownerId The unique identifier of the owner of the pet
+     * @param petName The name of the pet
+     * @param syncToken The sync token
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the pet does not exist
+     */
+    private void saveSyncToken(String ownerId, String petName, String syncToken)
+        throws DatabaseAccessException, DocumentException {
+        WriteBatch batch = dbDoc.batch();
+        dbDoc.updateDocumentFields(batch, Path.ofDocument(Collections.pets, ownerId, petName), SYNC_TOKEN_FIELD,
+            syncToken);
+        dbDoc.commitBatch(batch);
+    }
+}
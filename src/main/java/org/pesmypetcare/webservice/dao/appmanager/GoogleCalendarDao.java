@@ -2,7 +2,10 @@ package org.pesmypetcare.webservice.dao.appmanager;
 
 import com.google.api.services.calendar.model.Calendar;
 import com.google.api.services.calendar.model.Event;
+import org.pesmypetcare.webservice.entity.appmanager.EventChanges;
+import org.pesmypetcare.webservice.entity.appmanager.EventWriteResult;
 import org.pesmypetcare.webservice.error.CalendarAccessException;
+import org.springframework.lang.Nullable;
 
 import java.util.List;
 
@@ -10,6 +13,14 @@ import java.util.List;
  * @author Marc Simó
  */
 public interface GoogleCalendarDao {
+    /**
+     * Error code of the exception thrown when a sync token is no longer valid and a full synchronization is needed.
+     */
+    String SYNC_TOKEN_EXPIRED = "410";
+    /**
+     * Maximum number of calls that Google Calendar accepts in a single batch request.
+     */
+    int MAX_CALLS_PER_BATCH = 50;
 
     /**
      * Creates a Secondary Google Calendar in the account specified by the accessToken.
@@ -37,6 +48,18 @@ public interface GoogleCalendarDao {
      */
     List<Event> getAllEventsFromCalendar(String accessToken, String calendarId) throws CalendarAccessException;
 
+    /**
+     * Returns the Calendar Events that changed since a previous synchronization of a specified Calendar.
+     * @param accessToken oauth2 token needed to access the Google Calendar
+     * @param calendarId Id of the calendar to synchronize
+     * @param syncToken Token of the previous synchronization, or null to list all the Events
+     * @return The changed and deleted Events along with the token for the next synchronization
+     * @throws CalendarAccessException If an error occurs when accessing the calendar, with the error code
+     * {@value #SYNC_TOKEN_EXPIRED} when the sync token is no longer valid
+     */
+    EventChanges getEventChanges(String accessToken, String calendarId, @Nullable String syncToken)
+        throws CalendarAccessException;
+
     /**
      * Creates an Event in a specified Google Calendar.
      * @param accessToken oauth2 token needed to access the Google Calendar
@@ -46,6 +69,18 @@ public interface GoogleCalendarDao {
      */
     void createEvent(String accessToken, String calendarId, Event event) throws CalendarAccessException;
 
+    /**
+     * Creates several Events in a specified Google Calendar, sending up to
+     * {@value #MAX_CALLS_PER_BATCH} of them in each HTTP request.
+     * @param accessToken oauth2 token needed to access the Google Calendar
+     * @param calendarId Id of the calendar where the events are created
+     * @param events Events to create
+     * @return The result of each Event, in the same order
+     * @throws CalendarAccessException If an error occurs when accessing the calendar
+     */
+    List<EventWriteResult> createEvents(String accessToken, String calendarId, List<Event> events)
+        throws CalendarAccessException;
+
     /**
      * Retrieves an Event in a specified Google Calendar.
      * @param accessToken oauth2 token needed to access the Google Calendar
@@ -66,6 +101,18 @@ public interface GoogleCalendarDao {
      */
     void updateEvent(String accessToken, String calendarId, String eventId, Event event) throws CalendarAccessException;
 
+    /**
+     * Updates several Events in a specified Google Calendar, sending up to
+     * {@value #MAX_CALLS_PER_BATCH} of them in each HTTP request.
+     * @param accessToken oauth2 token needed to access the Google Calendar
+     * @param calendarId Id of the calendar where the events are updated
+     * @param events New Events that overwrite the past events with the same id
+     * @return The result of each Event, in the same order
+     * @throws CalendarAccessException If an error occurs when accessing the calendar
+     */
+    List<EventWriteResult> updateEvents(String accessToken, String calendarId, List<Event> events)
+        throws CalendarAccessException;
+
     /**
      * Deletes an Event in a specified Google Calendar.
      * @param accessToken oauth2 token needed to access the Google Calendar
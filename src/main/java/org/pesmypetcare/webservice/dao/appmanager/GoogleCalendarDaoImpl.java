@@ -1,14 +1,25 @@
 package org.pesmypetcare.webservice.dao.appmanager;
 
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.services.calendar.CalendarRequest;
 import com.google.api.services.calendar.model.Calendar;
 import com.google.api.services.calendar.model.Event;
 import com.google.api.services.calendar.model.Events;
+import org.pesmypetcare.webservice.entity.appmanager.EventChanges;
+import org.pesmypetcare.webservice.entity.appmanager.EventWriteResult;
 import org.pesmypetcare.webservice.error.CalendarAccessException;
 import org.pesmypetcare.webservice.thirdpartyservices.CalendarServiceFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -16,17 +27,15 @@ import java.util.List;
  */
 @Repository
 public class GoogleCalendarDaoImpl implements GoogleCalendarDao {
-    private com.google.api.services.calendar.Calendar service;
+    private static final int MAX_EVENTS_PER_PAGE = 2500;
+    private static final int GONE_STATUS_CODE = 410;
+    private static final String CANCELLED_STATUS = "cancelled";
+    @Autowired
     private CalendarServiceFactory factory;
 
-    public GoogleCalendarDaoImpl() {
-        factory = CalendarServiceFactory.getInstance();
-    }
-
-
     @Override
     public String createSecondaryCalendar(String accessToken, Calendar calendar) throws CalendarAccessException {
-        service = factory.initializeService(accessToken);
+        com.google.api.services.calendar.Calendar service = factory.initializeService(accessToken);
         Calendar createdCalendar;
         try {
             createdCalendar = service.calendars().insert(calendar).execute();
@@ -38,7 +47,7 @@ public class GoogleCalendarDaoImpl implements GoogleCalendarDao {
 
     @Override
     public void deleteSecondaryCalendar(String accessToken, String calendarId) throws CalendarAccessException {
-        service = factory.initializeService(accessToken);
+        com.google.api.services.calendar.Calendar service = factory.initializeService(accessToken);
         try {
             service.calendars().delete(calendarId).execute();
         } catch (IOException e) {
@@ -48,7 +57,7 @@ public class GoogleCalendarDaoImpl implements GoogleCalendarDao {
 
     @Override
     public List<Event> getAllEventsFromCalendar(String accessToken, String calendarId) throws CalendarAccessException {
-        service = factory.initializeService(accessToken);
+        com.google.api.services.calendar.Calendar service = factory.initializeService(accessToken);
         List<Event> allEvents = new ArrayList<>();
         // Iterate over the events in the specified calendar, needed because there's a limit for the amount
         // of events
@@ -67,9 +76,42 @@ public class GoogleCalendarDaoImpl implements GoogleCalendarDao {
         return allEvents;
     }
 
+    @Override
+    public EventChanges getEventChanges(String accessToken, String calendarId, @Nullable String syncToken)
+        throws CalendarAccessException {
+        com.google.api.services.calendar.Calendar service = factory.initializeService(accessToken);
+        EventChanges changes = new EventChanges();
+        changes.setFullSync(syncToken == null);
+        String pageToken = null;
+        Events pageEvents;
+        do {
+            try {
+                pageEvents = service.events().list(calendarId).setSyncToken(syncToken).setPageToken(pageToken)
+                    .setMaxResults(MAX_EVENTS_PER_PAGE).execute();
+            } catch (HttpResponseException e) {
+                if (e.getStatusCode() == GONE_STATUS_CODE) {
+                    throw new CalendarAccessException(SYNC_TOKEN_EXPIRED, "The sync token is no longer valid");
+                }
+                throw new CalendarAccessException("Error synchronizing events", e.getMessage());
+            } catch (IOException e) {
+                throw new CalendarAccessException("Error synchronizing events", e.getMessage());
+            }
+            for (Event event : pageEvents.getItems()) {
+                if (CANCELLED_STATUS.equals(event.getStatus())) {
+                    changes.getDeletedEventIds().add(event.getId());
+                } else {
+                    changes.getChangedEvents().add(event);
+                }
+            }
+            pageToken = pageEvents.getNextPageToken();
+        } while (pageToken != null);
+        changes.setNextSyncToken(pageEvents.getNextSyncToken());
+        return changes;
+    }
+
     @Override
     public void createEvent(String accessToken, String calendarId, Event event) throws CalendarAccessException {
-        service = factory.initializeService(accessToken);
+        com.google.api.services.calendar.Calendar service = factory.initializeService(accessToken);
         try {
             service.events().insert(calendarId, event).execute();
         } catch (IOException e) {
@@ -78,9 +120,24 @@ public class GoogleCalendarDaoImpl implements GoogleCalendarDao {
         }
     }
 
+    @Override
+    public List<EventWriteResult> createEvents(String accessToken, String calendarId, List<Event> events)
+        throws CalendarAccessException {
+        com.google.api.services.calendar.Calendar service = factory.initializeService(accessToken);
+        List<CalendarRequest<Event>> requests = new ArrayList<>();
+        try {
+            for (Event event : events) {
+                requests.add(service.events().insert(calendarId, event));
+            }
+        } catch (IOException e) {
+            throw new CalendarAccessException("Error inserting events", e.getMessage());
+        }
+        return executeInBatches(service, requests, events);
+    }
+
     @Override
     public Event retrieveEvent(String accessToken, String calendarId, String eventId) throws CalendarAccessException {
-        service = factory.initializeService(accessToken);
+        com.google.api.services.calendar.Calendar service = factory.initializeService(accessToken);
         Event event;
         try {
             event = service.events().get(calendarId, eventId).execute();
@@ -93,7 +150,7 @@ public class GoogleCalendarDaoImpl implements GoogleCalendarDao {
     @Override
     public void updateEvent(String accessToken, String calendarId, String eventId, Event event)
         throws CalendarAccessException {
-        service = factory.initializeService(accessToken);
+        com.google.api.services.calendar.Calendar service = factory.initializeService(accessToken);
         try {
             service.events().update(calendarId, eventId, event).execute();
         } catch (IOException e) {
@@ -101,13 +158,92 @@ public class GoogleCalendarDaoImpl implements GoogleCalendarDao {
         }
     }
 
+    @Override
+    public List<EventWriteResult> updateEvents(String accessToken, String calendarId, List<Event> events)
+        throws CalendarAccessException {
+        com.google.api.services.calendar.Calendar service = factory.initializeService(accessToken);
+        List<CalendarRequest<Event>> requests = new ArrayList<>();
+        try {
+            for (Event event : events) {
+                requests.add(event.getId() == null ? null : service.events().update(calendarId, event.getId(), event));
+            }
+        } catch (IOException e) {
+            throw new CalendarAccessException("Error updating events", e.getMessage());
+        }
+        return executeInBatches(service, requests, events);
+    }
+
     @Override
     public void deleteEvent(String accessToken, String calendarId, String eventId) throws CalendarAccessException {
-        service = factory.initializeService(accessToken);
+        com.google.api.services.calendar.Calendar service = factory.initializeService(accessToken);
         try {
             service.events().delete(calendarId, eventId).execute();
         } catch (IOException e) {
             throw new CalendarAccessException("Error deleting event", e.getMessage());
         }
     }
+
+    /**
+     * Executes some requests in batches of at most {@value #MAX_CALLS_PER_BATCH} calls. When a batch cannot be sent,
+     * its events and the following ones are reported as failed.
+     *
+     * @param service The client of the calendar
+     * @param requests The request of each event, or null if the event cannot be written
+     * @param events The events to write
+     * @return The result of each event, in the same order
+     */
+    private static List<EventWriteResult> executeInBatches(com.google.api.services.calendar.Calendar service,
+                                                           List<CalendarRequest<Event>> requests, List<Event> events) {
+        EventWriteResult[] results = new EventWriteResult[requests.size()];
+        for (int start = 0; start < requests.size(); start += MAX_CALLS_PER_BATCH) {
+            int end = Math.min(start + MAX_CALLS_PER_BATCH, requests.size());
+            BatchRequest batch = service.batch();
+            try {
+                for (int i = start; i < end; ++i) {
+                    if (requests.get(i) == null) {
+                        results[i] = new EventWriteResult(events.get(i).getId(), "The event has no id");
+                    } else {
+                        requests.get(i).queue(batch, new ResultCallback(results, i, events.get(i).getId()));
+                    }
+                }
+                if (batch.size() > 0) {
+                    batch.execute();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                for (int i = start; i < results.length; ++i) {
+                    if (results[i] == null) {
+                        results[i] = new EventWriteResult(events.get(i).getId(), e.getMessage());
+                    }
+                }
+                break;
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Stores the result of a call of a batch.
+     */
+    private static class ResultCallback extends JsonBatchCallback<Event> {
+        private final EventWriteResult[] results;
+        private final int index;
+        private final String eventId;
+
+        ResultCallback(EventWriteResult[] results, int index, String eventId) {
+            this.results = results;
+            this.index = index;
+            this.eventId = eventId;
+        }
+
+        @Override
+        public void onSuccess(Event event, HttpHeaders responseHeaders) {
+            results[index] = new EventWriteResult(event.getId(), null);
+        }
+
+        @Override
+        public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+            results[index] = new EventWriteResult(eventId, error.getMessage());
+        }
+    }
 }
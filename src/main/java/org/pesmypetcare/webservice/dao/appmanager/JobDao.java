@@ -0,0 +1,109 @@
+package org.pesmypetcare.webservice.dao.appmanager;
+
+import com.google.cloud.firestore.WriteBatch;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Santiago Del Rey
+ */
+public interface JobDao {
+    /**
+     * Error code of the exception thrown when a job is updated by an owner that no longer holds its lease.
+     */
+    String LEASE_LOST = "lease-lost";
+
+    /**
+     * Creates a job on the database.
+     *
+     * @param job The job to create
+     * @return The identifier of the created job
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the write fails
+     */
+    String createJob(JobEntity job) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Adds the creation of a job to a batch, so the job is only stored if the rest of the writes of the batch are.
+     *
+     * @param job The job to create
+     * @param batch The batch where to write
+     * @return The identifier the job will have
+     */
+    String createJob(JobEntity job, WriteBatch batch);
+
+    /**
+     * Gets a job from the database, with its identifier set.
+     *
+     * @param id The identifier of the job
+     * @return The job
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the job does not exist
+     */
+    JobEntity getJob(String id) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Claims a job for an owner during the lease time. A job can be claimed when it has not finished and it has no
+     * owner, it is owned by the same owner or the lease of its owner has expired. If two owners claim a job at the
+     * same time only one of them gets it.
+     *
+     * @param id The identifier of the job
+     * @param owner The identifier of the owner that claims the job
+     * @param leaseMillis The milliseconds that the lease lasts
+     * @return The claimed job, with its identifier set, or null if the job has finished or is leased to another owner
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the job does not exist or the write fails
+     */
+    JobEntity claimJob(String id, String owner, long leaseMillis) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Extends the lease of a job that is still owned by the given owner. The lease is only written if the job has
+     * not changed its owner since it was checked.
+     *
+     * @param id The identifier of the job
+     * @param owner The identifier of the owner
+     * @param leaseMillis The milliseconds that the lease lasts from now
+     * @return True if the lease has been extended, false if the job is owned by another owner
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the job does not exist or the write fails
+     */
+    boolean renewLease(String id, String owner, long leaseMillis) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Updates some fields of a job that is still owned by the given owner and waits until the update is stored. The
+     * fields are only written if the job has not changed its owner since it was checked.
+     *
+     * @param id The identifier of the job
+     * @param owner The identifier of the owner
+     * @param fields The fields to update with their new values
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the write fails, or with the {@link #LEASE_LOST} code when the job is owned by
+     * another owner
+     */
+    void updateJob(String id, String owner, Map<String, Object> fields)
+        throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Stores the position reached inside the current step of a job, so the step resumes from it after a restart.
+     *
+     * @param id The identifier of the job
+     * @param owner The identifier of the owner of the job
+     * @param cursor The position reached, which only the handler of the job understands
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the write fails, or with the {@link #LEASE_LOST} code when the job is owned by
+     * another owner
+     */
+    void saveCursor(String id, String owner, String cursor) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Gets the identifiers of the jobs that are pending or were running.
+     *
+     * @return The list of identifiers
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     */
+    List<String> getUnfinishedJobs() throws DatabaseAccessException;
+}
@@ -0,0 +1,178 @@
+package org.pesmypetcare.webservice.dao.appmanager;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.entity.appmanager.JobStatus;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Stores the background jobs in the jobs collection. The writes are committed before returning, so the state of a
+ * job is never behind the work it has done.
+ * <p>
+ * A job is run by the owner that holds its lease. A claim only succeeds if the job document has not been modified
+ * since it was read, so two owners cannot claim the same job at once. The renewals of the lease and the updates of
+ * the job are written in the same way after checking the owner, so an owner that lost the lease cannot overwrite the
+ * state written by the new one.
+ *
+ * @author Santiago Del Rey
+ */
+@Repository
+public class JobDaoImpl implements JobDao {
+    private static final String STATUS_FIELD = "status";
+    private static final String CURSOR_FIELD = "cursor";
+    private static final String UPDATED_AT_FIELD = "updatedAt";
+    private static final String OWNER_FIELD = "owner";
+    private static final String LEASE_EXPIRES_AT_FIELD = "leaseExpiresAt";
+    private static final int MAX_UPDATE_ATTEMPTS = 5;
+    @Autowired
+    private FirestoreCollection collectionAdapter;
+    @Autowired
+    private FirestoreDocument documentAdapter;
+
+    @Override
+    public String createJob(JobEntity job) throws DatabaseAccessException, DocumentException {
+        WriteBatch batch = documentAdapter.batch();
+        String id = createJob(job, batch);
+        documentAdapter.commitBatch(batch);
+        return id;
+    }
+
+    @Override
+    public String createJob(JobEntity job, WriteBatch batch) {
+        return documentAdapter.createDocument(Path.ofCollection(Collections.jobs), job, batch).getId();
+    }
+
+    @Override
+    public JobEntity getJob(String id) throws DatabaseAccessException, DocumentException {
+        JobEntity job = documentAdapter.getDocumentDataAsObject(Path.ofDocument(Collections.jobs, id),
+            JobEntity.class);
+        job.setId(id);
+        return job;
+    }
+
+    @Override
+    public JobEntity claimJob(String id, String owner, long leaseMillis)
+        throws DatabaseAccessException, DocumentException {
+        DocumentSnapshot snapshot = documentAdapter.getDocumentSnapshot(Path.ofDocument(Collections.jobs, id));
+        JobEntity job = snapshot.toObject(JobEntity.class);
+        job.setId(id);
+        Instant now = Instant.now();
+        if (job.getStatus() == JobStatus.SUCCEEDED || job.getStatus() == JobStatus.FAILED
+            || isLeasedToAnotherOwner(job, owner, now)) {
+            return null;
+        }
+        String leaseExpiresAt = now.plusMillis(leaseMillis).toString();
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(OWNER_FIELD, owner);
+        fields.put(LEASE_EXPIRES_AT_FIELD, leaseExpiresAt);
+        fields.put(UPDATED_AT_FIELD, now.toString());
+        if (!documentAdapter.updateDocumentFieldsIfNotModified(snapshot, fields)) {
+            return null;
+        }
+        job.setOwner(owner);
+        job.setLeaseExpiresAt(leaseExpiresAt);
+        return job;
+    }
+
+    @Override
+    public boolean renewLease(String id, String owner, long leaseMillis)
+        throws DatabaseAccessException, DocumentException {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(LEASE_EXPIRES_AT_FIELD, Instant.now().plusMillis(leaseMillis).toString());
+        return updateOwnedJob(id, owner, fields);
+    }
+
+    @Override
+    public void updateJob(String id, String owner, Map<String, Object> fields)
+        throws DatabaseAccessException, DocumentException {
+        if (!updateOwnedJob(id, owner, fields)) {
+            throw new DocumentException(LEASE_LOST, "The job " + id + " is leased to another owner");
+        }
+    }
+
+    @Override
+    public void saveCursor(String id, String owner, String cursor) throws DatabaseAccessException, DocumentException {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(CURSOR_FIELD, cursor);
+        fields.put(UPDATED_AT_FIELD, Instant.now().toString());
+        updateJob(id, owner, fields);
+    }
+
+    @Override
+    public List<String> getUnfinishedJobs() throws DatabaseAccessException {
+        List<String> ids = new ArrayList<>();
+        for (JobStatus status : new JobStatus[] {JobStatus.PENDING, JobStatus.RUNNING}) {
+            ApiFuture<QuerySnapshot> query = collectionAdapter
+                .getDocumentsWhereEqualTo(Path.ofCollection(Collections.jobs), STATUS_FIELD, status.name());
+            try {
+                for (DocumentSnapshot job : query.get().getDocuments()) {
+                    ids.add(job.getId());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                e.printStackTrace();
+                throw new DatabaseAccessException("retrieval-failed", "The unfinished jobs could not be retrieved");
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+                throw new DatabaseAccessException("retrieval-failed", "The unfinished jobs could not be retrieved");
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Updates some fields of a job if it is owned by the given owner. The update only succeeds if the job has not
+     * been modified since its owner was checked, so it is read again when another write gets in between.
+     *
+     * @param id The identifier of the job
+     * @param owner The identifier of the owner
+     * @param fields The fields to update
+     * @return True if the job has been updated, false if it is owned by another owner
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the job does not exist, the write fails or the job keeps being modified
+     */
+    private boolean updateOwnedJob(String id, String owner, Map<String, Object> fields)
+        throws DatabaseAccessException, DocumentException {
+        String path = Path.ofDocument(Collections.jobs, id);
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; ++attempt) {
+            DocumentSnapshot snapshot = documentAdapter.getDocumentSnapshot(path);
+            if (!owner.equals(snapshot.getString(OWNER_FIELD))) {
+                return false;
+            }
+            if (documentAdapter.updateDocumentFieldsIfNotModified(snapshot, fields)) {
+                return true;
+            }
+        }
+        throw new DocumentException("update-failed", "The job " + id + " kept being modified during the update");
+    }
+
+    /**
+     * Checks whether a job is leased to another owner.
+     *
+     * @param job The job
+     * @param owner The identifier of the owner that wants the job
+     * @param now The current time
+     * @return True if the job has another owner whose lease has not expired
+     */
+    private static boolean isLeasedToAnotherOwner(JobEntity job, String owner, Instant now) {
+        return job.getOwner() != null && !job.getOwner().equals(owner) && job.getLeaseExpiresAt() != null
+            && Instant.parse(job.getLeaseExpiresAt()).isAfter(now);
+    }
+}
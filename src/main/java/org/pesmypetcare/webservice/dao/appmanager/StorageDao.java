@@ -1,11 +1,15 @@
 package org.pesmypetcare.webservice.dao.appmanager;
 
 import org.pesmypetcare.webservice.entity.appmanager.ImageEntity;
+import org.pesmypetcare.webservice.entity.appmanager.ImageMetadata;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.form.StorageForm;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * @author Santiago Del Rey
@@ -50,6 +54,32 @@ public interface StorageDao {
      */
     String downloadImage(StorageForm form);
 
+    /**
+     * Downloads the generation of an image described by its metadata, so the image is not looked up again.
+     * @param image The image metadata
+     * @return The image as a base64 encoded byte array
+     */
+    String downloadImage(ImageMetadata image);
+
+    /**
+     * Gets the metadata of an image without downloading it.
+     * @param form The form with the requested data
+     * @return The image metadata
+     * @throws DocumentException When the image does not exist
+     */
+    ImageMetadata getImageMetadata(StorageForm form) throws DocumentException;
+
+    /**
+     * Writes a range of the bytes of an image to an output stream. The bytes are read from the storage in chunks, so
+     * the image is never held in memory as a whole.
+     * @param image The image metadata
+     * @param offset The position of the first byte to write
+     * @param length The number of bytes to write
+     * @param output The stream where to write
+     * @throws IOException When the image cannot be read or the stream cannot be written
+     */
+    void writeImage(ImageMetadata image, long offset, long length, OutputStream output) throws IOException;
+
     /**
      * Downloads all the images from the pets folder.
      * @param owner The path with the requested data
@@ -70,6 +100,36 @@ public interface StorageDao {
     Map<String, String> downloadAllPostsImagesFromForum(String group, String forum)
         throws DatabaseAccessException, DocumentException;
 
+    /**
+     * Gets the paths of the profile images of all the pets of a user.
+     * @param owner The pets' owner
+     * @return A map with the pets names and the paths to their images
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the document pet does not exist
+     */
+    Map<String, String> getAllPetImagesPaths(String owner) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Gets the paths of the images of all the posts of a forum.
+     * @param group The group name
+     * @param forum The forum name
+     * @return A map with the images paths as both keys and values
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the group or forum does not exist
+     */
+    Map<String, String> getAllPostsImagesPaths(String group, String forum)
+        throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Downloads several images in parallel and hands each one to the consumer as soon as it is available.
+     * The number of parallel downloads is bounded for each call, and the bytes held by downloaded images that have
+     * not been consumed yet are bounded across all the calls. The consumer is always called from the calling thread.
+     * @param paths A map with the keys that identify the images to the consumer and the paths to the images
+     * @param consumer The consumer of the keys and the images as a base64 encoded byte array
+     * @throws DatabaseAccessException When the download is interrupted or fails
+     */
+    void fetchImages(Map<String, String> paths, BiConsumer<String, String> consumer) throws DatabaseAccessException;
+
     /**
      * Deletes an image from the storage.
      * @param form The form with the requested data
@@ -1,12 +1,15 @@
 package org.pesmypetcare.webservice.dao.appmanager;
 
 import com.google.api.client.util.Base64;
+import com.google.cloud.ReadChannel;
 import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.Bucket;
 import org.pesmypetcare.webservice.dao.communitymanager.ForumDao;
 import org.pesmypetcare.webservice.dao.communitymanager.GroupDao;
 import org.pesmypetcare.webservice.dao.petmanager.PetDao;
 import org.pesmypetcare.webservice.entity.appmanager.ImageEntity;
+import org.pesmypetcare.webservice.entity.appmanager.ImageMetadata;
 import org.pesmypetcare.webservice.entity.petmanager.PetEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
@@ -14,11 +17,30 @@ import org.pesmypetcare.webservice.form.StorageForm;
 import org.pesmypetcare.webservice.thirdpartyservices.FirebaseFactory;
 import org.pesmypetcare.webservice.utilities.UTCLocalConverter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
 
 /**
  * @author Santiago Del Rey
@@ -26,7 +48,18 @@ import java.util.Map;
 @Repository
 public class StorageDaoImpl implements StorageDao {
     private static final String GROUPS_ROOT_FOLDER = "Groups/";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final long KILOBYTE = 1024;
+    private static final int DEFAULT_DOWNLOAD_CONCURRENCY = 8;
+    private static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 64L * 1024 * 1024;
     private Bucket storageBucket;
+    @Value("${storage.download.concurrency:" + DEFAULT_DOWNLOAD_CONCURRENCY + "}")
+    private int downloadConcurrency = DEFAULT_DOWNLOAD_CONCURRENCY;
+    @Value("${storage.download.max-in-flight-bytes:" + DEFAULT_MAX_IN_FLIGHT_BYTES + "}")
+    private long maxInFlightBytes = DEFAULT_MAX_IN_FLIGHT_BYTES;
+    private int maxInFlightKiloBytes;
+    private ExecutorService downloadExecutor;
+    private Semaphore inFlightKiloBytes;
     @Autowired
     private PetDao petDao;
     @Autowired
@@ -85,6 +118,51 @@ public class StorageDaoImpl implements StorageDao {
         return Base64.encodeBase64String(img);
     }
 
+    @Override
+    public String downloadImage(ImageMetadata image) {
+        BlobId blobId = BlobId.of(storageBucket.getName(), image.getPath(), image.getGeneration());
+        return Base64.encodeBase64String(storageBucket.getStorage().readAllBytes(blobId));
+    }
+
+    @Override
+    public ImageMetadata getImageMetadata(StorageForm form) throws DocumentException {
+        String path = getImagePath(form);
+        Blob blob = storageBucket.get(path);
+        if (blob == null) {
+            throw new DocumentException("document-not-exists", "The image does not exist");
+        }
+        ImageMetadata image = new ImageMetadata();
+        image.setPath(path);
+        image.setContentType(blob.getContentType());
+        image.setSize(blob.getSize());
+        image.setGeneration(blob.getGeneration());
+        image.setMd5Hash(blob.getMd5());
+        image.setUpdateTime(blob.getUpdateTime());
+        return image;
+    }
+
+    @Override
+    public void writeImage(ImageMetadata image, long offset, long length, OutputStream output) throws IOException {
+        BlobId blobId = BlobId.of(storageBucket.getName(), image.getPath(), image.getGeneration());
+        try (ReadChannel reader = storageBucket.getStorage().reader(blobId)) {
+            reader.seek(offset);
+            ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+            long remaining = length;
+            while (remaining > 0) {
+                buffer.clear();
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                int read = reader.read(buffer);
+                if (read < 0) {
+                    break;
+                }
+                output.write(buffer.array(), 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
     @Override
     public void deleteImage(StorageForm form) {
         String image = getImagePath(form);
@@ -102,26 +180,101 @@ public class StorageDaoImpl implements StorageDao {
     @Override
     public Map<String, String> downloadAllPetImages(String owner) throws DatabaseAccessException, DocumentException {
         Map<String, String> result = new HashMap<>();
+        fetchImages(getAllPetImagesPaths(owner), result::put);
+        return result;
+    }
+
+    @Override
+    public Map<String, String> downloadAllPostsImagesFromForum(String group, String forum)
+        throws DatabaseAccessException, DocumentException {
+        Map<String, String> response = new HashMap<>();
+        fetchImages(getAllPostsImagesPaths(group, forum), response::put);
+        return response;
+    }
+
+    @Override
+    public Map<String, String> getAllPetImagesPaths(String owner) throws DatabaseAccessException, DocumentException {
+        Map<String, String> paths = new LinkedHashMap<>();
         List<Map<String, Object>> pets = petDao.getAllPetsData(owner);
         for (Map<String, Object> pet : pets) {
             PetEntity petEntity = (PetEntity) pet.get("body");
             String path = petEntity.getProfileImageLocation();
-            getPetProfileImageIfItExists(result, pet, path);
+            if (path != null) {
+                paths.put((String) pet.get("name"), path);
+            }
         }
-        return result;
+        return paths;
     }
 
     @Override
-    public Map<String, String> downloadAllPostsImagesFromForum(String group, String forum)
+    public Map<String, String> getAllPostsImagesPaths(String group, String forum)
         throws DatabaseAccessException, DocumentException {
-        List<String> postsImagesPaths = forumDao.getAllPostImagesPaths(group, forum);
-        Map<String, String> response = new HashMap<>();
-        for (String postImagePath : postsImagesPaths) {
-            byte[] image = storageBucket.get(postImagePath).getContent();
-            String base64Image = Base64.encodeBase64String(image);
-            response.put(postImagePath, base64Image);
+        Map<String, String> paths = new LinkedHashMap<>();
+        for (String postImagePath : forumDao.getAllPostImagesPaths(group, forum)) {
+            paths.put(postImagePath, postImagePath);
+        }
+        return paths;
+    }
+
+    @Override
+    public void fetchImages(Map<String, String> paths, BiConsumer<String, String> consumer)
+        throws DatabaseAccessException {
+        CompletionService<FetchedImage> completionService = new ExecutorCompletionService<>(downloadExecutor);
+        Iterator<Map.Entry<String, String>> entries = paths.entrySet().iterator();
+        Queue<FetchedImage> found = new ArrayDeque<>();
+        List<Future<FetchedImage>> pending = new ArrayList<>();
+        int heldPermits = 0;
+        try {
+            submitLookups(entries, completionService, found, pending);
+            while (!pending.isEmpty() || !found.isEmpty()) {
+                heldPermits += submitDownloads(completionService, found, pending, heldPermits);
+                Future<FetchedImage> future = completionService.take();
+                pending.remove(future);
+                FetchedImage image = future.get();
+                if (image.content == null) {
+                    if (image.blob != null) {
+                        found.add(image);
+                    }
+                } else {
+                    try {
+                        consumer.accept(image.key, image.content);
+                    } finally {
+                        heldPermits -= image.permits;
+                        inFlightKiloBytes.release(image.permits);
+                    }
+                }
+                submitLookups(entries, completionService, found, pending);
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new DatabaseAccessException("retrieval-failed", "The images could not be retrieved");
+        } finally {
+            cancelFetches(pending);
+            inFlightKiloBytes.release(heldPermits);
+        }
+    }
+
+    /**
+     * Starts the pool of threads that download the images.
+     */
+    @PostConstruct
+    public void startDownloads() {
+        downloadExecutor = Executors.newFixedThreadPool(downloadConcurrency);
+        maxInFlightKiloBytes = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxInFlightBytes / KILOBYTE));
+        inFlightKiloBytes = new Semaphore(maxInFlightKiloBytes);
+    }
+
+    /**
+     * Stops the pool of threads that download the images.
+     */
+    @PreDestroy
+    public void stopDownloads() {
+        if (downloadExecutor != null) {
+            downloadExecutor.shutdownNow();
         }
-        return response;
     }
 
     /**
@@ -137,17 +290,92 @@ public class StorageDaoImpl implements StorageDao {
     }
 
     /**
-     * Gets the profile image of a pet if it exists.
-     * @param response A map to store the pet name and its image
-     * @param pet The pet data as a map
-     * @param path The path to the image
+     * Submits lookups of the images metadata until the call has as many images pending as parallel downloads, so that a
+     * single call does not fill the queue of the download pool.
+     * @param entries The keys and paths of the images that have not been submitted yet
+     * @param completionService The completion service of the call
+     * @param found The images found by the lookups that are waiting to be downloaded
+     * @param pending The pending fetches of the call
+     */
+    private void submitLookups(Iterator<Map.Entry<String, String>> entries,
+                               CompletionService<FetchedImage> completionService, Queue<FetchedImage> found,
+                               List<Future<FetchedImage>> pending) {
+        while (pending.size() + found.size() < downloadConcurrency && entries.hasNext()) {
+            Map.Entry<String, String> entry = entries.next();
+            pending.add(completionService.submit(
+                () -> new FetchedImage(entry.getKey(), storageBucket.get(entry.getValue()), null, 0)));
+        }
+    }
+
+    /**
+     * Submits the downloads of the images found, in order, reserving their encoded size from the in-flight kilobytes
+     * on the calling thread, so the threads of the download pool never wait for them. When the kilobytes are not
+     * available the call only waits for them if it holds none, otherwise it has to consume its images first to
+     * release them.
+     * @param completionService The completion service of the call
+     * @param found The images found by the lookups that are waiting to be downloaded
+     * @param pending The pending fetches of the call
+     * @param heldPermits The in-flight kilobytes held by the call
+     * @return The in-flight kilobytes reserved for the submitted downloads
+     * @throws InterruptedException When interrupted while waiting for in-flight kilobytes
+     */
+    private int submitDownloads(CompletionService<FetchedImage> completionService, Queue<FetchedImage> found,
+                                List<Future<FetchedImage>> pending, int heldPermits) throws InterruptedException {
+        int reserved = 0;
+        while (!found.isEmpty()) {
+            Blob blob = found.peek().blob;
+            int permits = getPermits(blob.getSize());
+            if (!inFlightKiloBytes.tryAcquire(permits)) {
+                if (heldPermits + reserved > 0) {
+                    break;
+                }
+                inFlightKiloBytes.acquire(permits);
+            }
+            reserved += permits;
+            String key = found.poll().key;
+            pending.add(completionService.submit(
+                () -> new FetchedImage(key, null, Base64.encodeBase64String(blob.getContent()), permits)));
+        }
+        return reserved;
+    }
+
+    /**
+     * Gets the number of in-flight kilobytes an image takes once encoded in base 64.
+     * @param size The image size in bytes
+     * @return The number of permits to reserve
      */
-    private void getPetProfileImageIfItExists(Map<String, String> response, Map<String, Object> pet, String path) {
-        if (path != null) {
-            String name = (String) pet.get("name");
-            byte[] image = storageBucket.get(path).getContent();
-            String base64Image = Base64.encodeBase64String(image);
-            response.put(name, base64Image);
+    private int getPermits(Long size) {
+        if (size == null) {
+            return 1;
+        }
+        long encodedKiloBytes = (size * 4 / 3) / KILOBYTE + 1;
+        return (int) Math.min(encodedKiloBytes, maxInFlightKiloBytes);
+    }
+
+    /**
+     * Cancels the pending fetches.
+     * @param pending The pending fetches
+     */
+    private void cancelFetches(List<Future<FetchedImage>> pending) {
+        for (Future<FetchedImage> future : pending) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * An image found by a lookup, or downloaded and encoded in base 64 together with the in-flight permits it holds.
+     */
+    private static final class FetchedImage {
+        private final String key;
+        private final Blob blob;
+        private final String content;
+        private final int permits;
+
+        private FetchedImage(String key, Blob blob, String content, int permits) {
+            this.key = key;
+            this.blob = blob;
+            this.content = content;
+            this.permits = permits;
         }
     }
 }
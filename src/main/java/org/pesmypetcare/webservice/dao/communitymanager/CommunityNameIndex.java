@@ -0,0 +1,58 @@
+package org.pesmypetcare.webservice.dao.communitymanager;
+
+/**
+ * In-memory index of the group and forum names and the IDs of the documents they refer to.
+ *
+ * @author Santiago Del Rey
+ */
+public interface CommunityNameIndex {
+    /**
+     * Gets the ID of a group from the index.
+     *
+     * @param groupName The group name
+     * @return The group ID or null if the name is not in the index
+     */
+    String getGroupId(String groupName);
+
+    /**
+     * Gets the ID of a forum from the index.
+     *
+     * @param groupName The name of the parent group
+     * @param forumName The forum name
+     * @return The forum ID or null if the name is not in the index
+     */
+    String getForumId(String groupName, String forumName);
+
+    /**
+     * Adds a group name to the index after it has been written to the database.
+     *
+     * @param groupName The group name
+     * @param groupId The group ID
+     */
+    void putGroup(String groupName, String groupId);
+
+    /**
+     * Removes a group name and the names of all its forums from the index after it has been deleted from the
+     * database.
+     *
+     * @param groupName The group name
+     */
+    void removeGroup(String groupName);
+
+    /**
+     * Adds a forum name to the index after it has been written to the database.
+     *
+     * @param groupName The name of the parent group
+     * @param forumName The forum name
+     * @param forumId The forum ID
+     */
+    void putForum(String groupName, String forumName, String forumId);
+
+    /**
+     * Removes a forum name from the index after it has been deleted from the database.
+     *
+     * @param groupName The name of the parent group
+     * @param forumName The forum name
+     */
+    void removeForum(String groupName, String forumName);
+}
@@ -0,0 +1,289 @@
+package org.pesmypetcare.webservice.dao.communitymanager;
+
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.utilities.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the group and forum names index coherent with the database through snapshot listeners on the groups_names
+ * collection and the forum_names collection group, so every node sees the changes made by the others.
+ * <p>
+ * While a listener is not delivering events its part of the index is empty, so every lookup misses and the callers
+ * fall back to reading the name documents. A listener that fails is registered again after an exponential backoff,
+ * and its first snapshot fills its part of the index again.
+ *
+ * @author Santiago Del Rey
+ */
+@Repository
+public class CommunityNameIndexImpl implements CommunityNameIndex, MetricsSource {
+    private static final String GROUP_FIELD = "group";
+    private static final String FORUM_FIELD = "forum";
+    private static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long DEFAULT_MAX_BACKOFF_MILLIS = 60000;
+    private static final int MAX_BACKOFF_SHIFT = 20;
+    @Value("${community-names.listener.initial-backoff-millis:" + DEFAULT_INITIAL_BACKOFF_MILLIS + "}")
+    private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+    @Value("${community-names.listener.max-backoff-millis:" + DEFAULT_MAX_BACKOFF_MILLIS + "}")
+    private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+    private final Map<String, String> groupIds = new ConcurrentHashMap<>();
+    private final Map<String, String> forumIds = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong reconnections = new AtomicLong();
+    private final AtomicInteger groupsFailures = new AtomicInteger();
+    private final AtomicInteger forumsFailures = new AtomicInteger();
+    private volatile boolean groupsListening;
+    private volatile boolean forumsListening;
+    private volatile boolean stopped;
+    private volatile ListenerRegistration groupsRegistration;
+    private volatile ListenerRegistration forumsRegistration;
+    private ScheduledExecutorService reconnectScheduler;
+    @Autowired
+    private FirestoreCollection collectionAdapter;
+
+    /**
+     * Starts listening to the changes on the group and forum names.
+     */
+    @PostConstruct
+    public void startListening() {
+        stopped = false;
+        reconnectScheduler = Executors.newSingleThreadScheduledExecutor();
+        listenToGroupNames();
+        listenToForumNames();
+    }
+
+    /**
+     * Stops listening to the changes on the group and forum names.
+     */
+    @PreDestroy
+    public void stopListening() {
+        stopped = true;
+        if (reconnectScheduler != null) {
+            reconnectScheduler.shutdownNow();
+        }
+        if (groupsRegistration != null) {
+            groupsRegistration.remove();
+        }
+        if (forumsRegistration != null) {
+            forumsRegistration.remove();
+        }
+        groupsListening = false;
+        forumsListening = false;
+    }
+
+    @Override
+    public String getGroupId(String groupName) {
+        return countLookup(groupIds.get(groupName));
+    }
+
+    @Override
+    public String getForumId(String groupName, String forumName) {
+        return countLookup(forumIds.get(forumKey(groupName, forumName)));
+    }
+
+    @Override
+    public void putGroup(String groupName, String groupId) {
+        if (groupsListening) {
+            groupIds.put(groupName, groupId);
+        }
+    }
+
+    @Override
+    public void removeGroup(String groupName) {
+        groupIds.remove(groupName);
+        String prefix = forumKey(groupName, "");
+        forumIds.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    @Override
+    public void putForum(String groupName, String forumName, String forumId) {
+        if (forumsListening) {
+            forumIds.put(forumKey(groupName, forumName), forumId);
+        }
+    }
+
+    @Override
+    public void removeForum(String groupName, String forumName) {
+        forumIds.remove(forumKey(groupName, forumName));
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "community-names-index";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("groups", groupIds.size());
+        metrics.put("forums", forumIds.size());
+        metrics.put("groupsListening", groupsListening);
+        metrics.put("forumsListening", forumsListening);
+        metrics.put("reconnections", reconnections.get());
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        return metrics;
+    }
+
+    /**
+     * Applies the changes on the groups_names collection to the index.
+     *
+     * @param snapshot The snapshot with the changes
+     * @param error The error that stopped the listener, if any
+     */
+    void onGroupNamesEvent(QuerySnapshot snapshot, FirestoreException error) {
+        if (error != null) {
+            error.printStackTrace();
+            groupsListening = false;
+            groupIds.clear();
+            scheduleReconnection(this::listenToGroupNames, groupsFailures);
+            return;
+        }
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            QueryDocumentSnapshot document = change.getDocument();
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                groupIds.remove(document.getId());
+            } else {
+                putIfNotNull(groupIds, document.getId(), document.getString(GROUP_FIELD));
+            }
+        }
+        groupsFailures.set(0);
+        groupsListening = true;
+    }
+
+    /**
+     * Applies the changes on the forum_names collections to the index.
+     *
+     * @param snapshot The snapshot with the changes
+     * @param error The error that stopped the listener, if any
+     */
+    void onForumNamesEvent(QuerySnapshot snapshot, FirestoreException error) {
+        if (error != null) {
+            error.printStackTrace();
+            forumsListening = false;
+            forumIds.clear();
+            scheduleReconnection(this::listenToForumNames, forumsFailures);
+            return;
+        }
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            QueryDocumentSnapshot document = change.getDocument();
+            String groupName = document.getReference().getParent().getParent().getId();
+            String key = forumKey(groupName, document.getId());
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                forumIds.remove(key);
+            } else {
+                putIfNotNull(forumIds, key, document.getString(FORUM_FIELD));
+            }
+        }
+        forumsFailures.set(0);
+        forumsListening = true;
+    }
+
+    /**
+     * Registers the listener of the groups_names collection.
+     */
+    private void listenToGroupNames() {
+        if (!stopped) {
+            groupsRegistration = collectionAdapter.getCollectionReference(Path.ofCollection(Collections.groups_names))
+                .addSnapshotListener(this::onGroupNamesEvent);
+        }
+    }
+
+    /**
+     * Registers the listener of the forum_names collection group.
+     */
+    private void listenToForumNames() {
+        if (!stopped) {
+            forumsRegistration = collectionAdapter.getCollectionGroup(Collections.forum_names.name())
+                .addSnapshotListener(this::onForumNamesEvent);
+        }
+    }
+
+    /**
+     * Schedules the registration of a listener that has failed after an exponential backoff. If the registration
+     * fails too, it is scheduled again.
+     *
+     * @param listen The registration of the listener
+     * @param failures The number of consecutive failures of the listener
+     */
+    private void scheduleReconnection(Runnable listen, AtomicInteger failures) {
+        if (stopped || reconnectScheduler == null) {
+            return;
+        }
+        int shift = Math.min(failures.getAndIncrement(), MAX_BACKOFF_SHIFT);
+        long delay = Math.min(maxBackoffMillis, initialBackoffMillis << shift);
+        try {
+            reconnectScheduler.schedule(() -> {
+                reconnections.incrementAndGet();
+                try {
+                    listen.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    scheduleReconnection(listen, failures);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Builds the key of a forum in the index.
+     *
+     * @param groupName The name of the parent group
+     * @param forumName The forum name
+     * @return The key of the forum
+     */
+    private static String forumKey(String groupName, String forumName) {
+        return groupName + '/' + forumName;
+    }
+
+    /**
+     * Puts the value in the map if it is not null.
+     *
+     * @param map The map where to put the value
+     * @param key The key
+     * @param value The value
+     */
+    private static void putIfNotNull(Map<String, String> map, String key, String value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    /**
+     * Counts a lookup as a hit or a miss depending on its result.
+     *
+     * @param id The ID found in the index
+     * @return The same ID
+     */
+    private String countLookup(String id) {
+        if (id == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return id;
+    }
+}
@@ -2,6 +2,7 @@ package org.pesmypetcare.webservice.dao.communitymanager;
 
 import org.pesmypetcare.webservice.entity.communitymanager.ForumEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.Message;
+import org.pesmypetcare.webservice.entity.communitymanager.MessagePage;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.error.InvalidOperationException;
@@ -141,6 +142,19 @@ public interface ForumDao {
      */
     List<String> getAllPostImagesPaths(String group, String forum) throws DatabaseAccessException, DocumentException;
 
+    /**
+     * Gets a page of the messages of a forum from the most recent to the oldest one.
+     * @param parentGroup The parent group name
+     * @param forumName The forum name
+     * @param cursor The cursor returned with the previous page or null to get the first page
+     * @param limit The maximum number of messages of the page
+     * @return The page of messages without their images
+     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
+     * @throws DocumentException When either the group or forum do not exist
+     */
+    MessagePage getMessagesPage(String parentGroup, String forumName, String cursor, int limit)
+        throws DatabaseAccessException, DocumentException;
+
     /**
      * Adds a user to the likedBy list of a message.
      * @param username The user's username
@@ -7,30 +7,38 @@ import com.google.cloud.firestore.FieldValue;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.WriteBatch;
-import com.google.firebase.messaging.FirebaseMessaging;
-import com.google.firebase.messaging.FirebaseMessagingException;
-import com.google.firebase.messaging.MulticastMessage;
 import org.pesmypetcare.webservice.builders.Collections;
 import org.pesmypetcare.webservice.builders.Path;
 import org.pesmypetcare.webservice.dao.appmanager.StorageDao;
 import org.pesmypetcare.webservice.dao.usermanager.UserDao;
+import org.pesmypetcare.webservice.dao.usermanager.UsernameResolver;
 import org.pesmypetcare.webservice.entity.communitymanager.ForumEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.Message;
 import org.pesmypetcare.webservice.entity.communitymanager.MessageEntity;
+import org.pesmypetcare.webservice.entity.communitymanager.MessagePage;
+import org.pesmypetcare.webservice.entity.communitymanager.MessagePreview;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.error.InvalidOperationException;
-import org.pesmypetcare.webservice.thirdpartyservices.FirebaseFactory;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.BulkWriteBatch;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollectionAsync;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocumentAsync;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreFutures;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.messaging.NotificationDispatcher;
 import org.pesmypetcare.webservice.utilities.UTCLocalConverter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -46,25 +54,40 @@ public class ForumDaoImpl implements ForumDao {
     private static final String BANNED_FIELD = "banned";
     private static final String MESSAGES_BANNED_FIELD = "messagesBanned";
     private static final String GROUP_FIELD = "group";
+    private static final String PUBLICATION_DATE_FIELD = "publicationDate";
+    private static final String[] MESSAGE_PREVIEW_FIELDS = {"creator", PUBLICATION_DATE_FIELD, "text", BANNED_FIELD,
+        LIKED_BY_FIELD, "imagePath"};
+    private static final String CURSOR_SEPARATOR = "\n";
+    private static final String INVALID_CURSOR = "Invalid cursor";
     private static final int COUNTER = 3;
-    private FirebaseMessaging firebaseMessaging;
     @Autowired
     private GroupDao groupDao;
     @Autowired
     private UserDao userDao;
     @Autowired
+    private UsernameResolver usernameResolver;
+    @Autowired
     private StorageDao storageDao;
     @Autowired
     private FirestoreDocument documentAdapter;
     @Autowired
     private FirestoreCollection collectionAdapter;
-
-    public ForumDaoImpl() {
-        firebaseMessaging = FirebaseFactory.getInstance().getFirebaseMessaging();
-    }
+    @Autowired
+    private FirestoreDocumentAsync documentAsync;
+    @Autowired
+    private FirestoreCollectionAsync collectionAsync;
+    @Autowired
+    private CommunityNameIndex nameIndex;
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+    @Autowired
+    private FirestoreBulkWriter bulkWriter;
 
     @Override
     public boolean forumNameInUse(String parentGroup, String forumName) throws DatabaseAccessException {
+        if (nameIndex.getForumId(parentGroup, forumName) != null) {
+            return true;
+        }
         return documentAdapter.documentExists(Path.ofDocument(Collections.forum_names, parentGroup, forumName));
     }
 
@@ -73,8 +96,7 @@ public class ForumDaoImpl implements ForumDao {
         throws DatabaseAccessException, DocumentException {
         forumEntity.setCreationDate(UTCLocalConverter.getCurrentUTC());
         WriteBatch batch = documentAdapter.batch();
-        String parentId = documentAdapter
-            .getStringFromDocument(Path.ofDocument(Collections.groups_names, parentGroup), GROUP_FIELD);
+        String parentId = groupDao.getGroupId(parentGroup);
         DocumentReference forumRef = documentAdapter
             .createDocument(Path.ofCollection(Collections.forums, parentId), forumEntity, batch);
         String name = forumEntity.getName();
@@ -89,17 +111,19 @@ public class ForumDaoImpl implements ForumDao {
             }
         }
         documentAdapter.commitBatch(batch);
+        nameIndex.putForum(parentGroup, name, forumRef.getId());
     }
 
     @Override
     public void deleteForum(String parentGroup, String forumName) throws DatabaseAccessException, DocumentException {
         String groupId = groupDao.getGroupId(parentGroup);
         String forumId = getForumId(parentGroup, forumName);
-        WriteBatch batch = documentAdapter.batch();
+        BulkWriteBatch batch = bulkWriter.batch();
         deleteForumFromAllTags(forumName, batch);
         documentAdapter.deleteDocument(Path.ofDocument(Collections.forums, groupId, forumId), batch);
         documentAdapter.deleteDocument(Path.ofDocument(Collections.forum_names, parentGroup, forumName), batch);
-        documentAdapter.commitBatch(batch);
+        bulkWriter.commitBatch(batch);
+        nameIndex.removeForum(parentGroup, forumName);
     }
 
     @Override
@@ -138,6 +162,8 @@ public class ForumDaoImpl implements ForumDao {
         documentAdapter.deleteDocument(Path.ofDocument(Collections.forum_names, parentGroup, currentName), batch);
         saveForumName(parentGroup, newName, forumId, batch);
         documentAdapter.commitBatch(batch);
+        nameIndex.removeForum(parentGroup, currentName);
+        nameIndex.putForum(parentGroup, newName, forumId);
     }
 
     @Override
@@ -200,8 +226,7 @@ public class ForumDaoImpl implements ForumDao {
             batch.update(messageSnapshot.getReference(), REPORTED_BY_FIELD, FieldValue.arrayUnion(reporter));
             if (messages.size() == COUNTER) {
                 batch.update(messageSnapshot.getReference(), BANNED_FIELD, true);
-                String usernamePath = Path.ofDocument(Collections.used_usernames, creator);
-                String uid = documentAdapter.getStringFromDocument(usernamePath, "user");
+                String uid = usernameResolver.getUid(creator);
                 String path = Path.ofDocument(Collections.users, uid);
                 Long bannnedMessagesCounter = (Long) documentAdapter.getDocumentField(path, MESSAGES_BANNED_FIELD);
                 if (bannnedMessagesCounter == null) {
@@ -225,8 +250,7 @@ public class ForumDaoImpl implements ForumDao {
         WriteBatch batch = documentAdapter.batch();
         batch.update(messageSnapshot.getReference(), REPORTED_BY_FIELD, new ArrayList<String>());
         batch.update(messageSnapshot.getReference(), BANNED_FIELD, false);
-        String usernamePath = Path.ofDocument(Collections.used_usernames, creator);
-        String uid = documentAdapter.getStringFromDocument(usernamePath, "user");
+        String uid = usernameResolver.getUid(creator);
         String path = Path.ofDocument(Collections.users, uid);
         Long bannedMessagesCounter = (Long) documentAdapter.getDocumentField(path, MESSAGES_BANNED_FIELD);
         documentAdapter.updateDocumentFields(batch, path, MESSAGES_BANNED_FIELD, bannedMessagesCounter - 1);
@@ -250,6 +274,33 @@ public class ForumDaoImpl implements ForumDao {
         return imagesPaths;
     }
 
+    @Override
+    public MessagePage getMessagesPage(String parentGroup, String forumName, String cursor, int limit)
+        throws DatabaseAccessException, DocumentException {
+        String groupId = groupDao.getGroupId(parentGroup);
+        String forumId = getForumId(parentGroup, forumName);
+        String startAfterDate = null;
+        String startAfterId = null;
+        if (cursor != null) {
+            String[] position = decodeCursor(cursor);
+            startAfterDate = position[0];
+            startAfterId = position[1];
+        }
+        List<DocumentSnapshot> snapshots = collectionAdapter.getDocumentSnapshotsPageOrderedBy(
+            Path.ofCollection(Collections.messages, groupId, forumId), PUBLICATION_DATE_FIELD, true, startAfterDate,
+            startAfterId, limit + 1, MESSAGE_PREVIEW_FIELDS);
+        List<MessagePreview> messages = new ArrayList<>();
+        for (int i = 0; i < snapshots.size() && i < limit; ++i) {
+            messages.add(snapshots.get(i).toObject(MessagePreview.class));
+        }
+        String nextCursor = null;
+        if (snapshots.size() > limit) {
+            DocumentSnapshot last = snapshots.get(limit - 1);
+            nextCursor = encodeCursor(last.getString(PUBLICATION_DATE_FIELD), last.getId());
+        }
+        return new MessagePage(messages, nextCursor);
+    }
+
     @Override
     public void addUserToLikedByOfMessage(String username, String parentGroup, String forumName, String creator,
                                           String date) throws DatabaseAccessException, DocumentException {
@@ -312,18 +363,54 @@ public class ForumDaoImpl implements ForumDao {
      * @throws DocumentException When the document does not exist
      */
     private String getForumId(String groupName, String forumName) throws DatabaseAccessException, DocumentException {
+        String id = nameIndex.getForumId(groupName, forumName);
+        if (id != null) {
+            return id;
+        }
         return documentAdapter
             .getStringFromDocument(Path.ofDocument(Collections.forum_names, groupName, forumName), FORUM_FIELD);
     }
 
+    /**
+     * Encodes the position of a message as an opaque cursor.
+     *
+     * @param publicationDate The message publication date
+     * @param id The message ID
+     * @return The cursor
+     */
+    private String encodeCursor(String publicationDate, String id) {
+        String position = publicationDate + CURSOR_SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor created by {@link #encodeCursor(String, String)}.
+     *
+     * @param cursor The cursor
+     * @return An array with the publication date and the ID of the message
+     * @throws IllegalArgumentException When the cursor is not valid
+     */
+    private String[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split(CURSOR_SEPARATOR, 2);
+            if (parts.length != 2 || parts[0].isEmpty() || parts[1].isEmpty()) {
+                throw new IllegalArgumentException(INVALID_CURSOR);
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(INVALID_CURSOR);
+        }
+    }
+
     /**
      * Deletes the forum from all the forum lists of tags it uses.
      *
      * @param forum The forum name
-     * @param batch The batch where to write
+     * @param batch The bulk batch where to write
      * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
      */
-    private void deleteForumFromAllTags(String forum, WriteBatch batch) throws DatabaseAccessException {
+    private void deleteForumFromAllTags(String forum, BulkWriteBatch batch) throws DatabaseAccessException {
         try {
             ApiFuture<QuerySnapshot> querySnapshot = collectionAdapter
                 .getDocumentsWhereArrayContains(Path.ofCollection(Collections.tags), FORUMS_FIELD, forum);
@@ -418,55 +505,67 @@ public class ForumDaoImpl implements ForumDao {
     }
 
     /**
-     * Sends a multicast notification to all the users subscribed to the group notifications.
+     * Queues a notification for all the users subscribed to the group notifications. The subscribers are read when
+     * the notification is sent, so the caller does not wait for them. When the queue is full the notification is
+     * dropped and counted in the dispatcher metrics.
      *
      * @param groupId The ID of the group where the forum belong
      * @param groupName The name of the group where the forum belongs
      * @param forumName The name of the forum where the message belongs
      * @param message The message to be notified
+     */
+    private void sendNotificationToSubscribers(String groupId, String groupName, String forumName, Message message) {
+        Map<String, String> notificationData = new HashMap<>();
+        notificationData.put(GROUP_FIELD, groupName);
+        notificationData.put(FORUM_FIELD, forumName);
+        String creator = message.getCreator();
+        notificationData.put("creator", creator);
+        notificationDispatcher.dispatch(notificationData, () -> getSubscribersTokens(groupId, creator));
+    }
+
+    /**
+     * Gets the device tokens of the users subscribed to the group notifications, except the one of the creator of
+     * the message.
+     *
+     * @param groupId The ID of the group
+     * @param creator The username of the creator of the message
+     * @return The list of device tokens
      * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
-     * @throws DocumentException When either the group or forum do not exist
+     * @throws DocumentException When either the group or the creator do not exist
      */
-    private void sendNotificationToSubscribers(String groupId, String groupName, String forumName, Message message)
+    @SuppressWarnings("unchecked")
+    private List<String> getSubscribersTokens(String groupId, String creator)
         throws DatabaseAccessException, DocumentException {
         List<String> deviceTokens = (List<String>) documentAdapter
             .getDocumentField(Path.ofDocument(Collections.groups, groupId), "notification-tokens");
-        String userUid = userDao.getUid(message.getCreator());
-        String userFcmToken = userDao.getField(userUid, "FCM");
-        if (deviceTokens != null) {
-            if (!deviceTokens.isEmpty()) {
-                try {
-                    deviceTokens.remove(userFcmToken);
-                    MulticastMessage multicastMessage = buildMulticastMessage(groupName, forumName, message,
-                        deviceTokens);
-                    firebaseMessaging.sendMulticast(multicastMessage);
-                } catch (FirebaseMessagingException e) {
-                    e.printStackTrace();
-                }
-            }
+        if (deviceTokens == null || deviceTokens.isEmpty()) {
+            return new ArrayList<>();
         }
+        String userUid = userDao.getUid(creator);
+        String userFcmToken = userDao.getField(userUid, "FCM");
+        List<String> tokens = new ArrayList<>(deviceTokens);
+        tokens.remove(userFcmToken);
+        return tokens;
     }
 
     /**
-     * Builds a notification multicast message.
+     * Gets the forum ID without blocking.
      *
-     * @param groupName The name of the group where the forum belongs
-     * @param forumName The name of the forum where the message belongs
-     * @param message The message to be notified
-     * @param deviceTokens The list of device tokes to which send the notification
-     * @return The multicast message
+     * @param groupName The group name
+     * @param forumName The forum name
+     * @return A future with the forum ID that fails with a DocumentException when the forum does not exist
      */
-    private MulticastMessage buildMulticastMessage(String groupName, String forumName, Message message,
-                                                   List<String> deviceTokens) {
-        Map<String, String> notificationData = new HashMap<>();
-        notificationData.put(GROUP_FIELD, groupName);
-        notificationData.put(FORUM_FIELD, forumName);
-        notificationData.put("creator", message.getCreator());
-        return MulticastMessage.builder().putAllData(notificationData).addAllTokens(deviceTokens).build();
+    private CompletableFuture<String> getForumIdAsync(String groupName, String forumName) {
+        String id = nameIndex.getForumId(groupName, forumName);
+        if (id != null) {
+            return CompletableFuture.completedFuture(id);
+        }
+        return documentAsync
+            .getStringFromDocument(Path.ofDocument(Collections.forum_names, groupName, forumName), FORUM_FIELD);
     }
 
     /**
-     * Gets a forum message.
+     * Gets a forum message. The group ID and the forum ID are resolved concurrently.
      *
      * @param parentGroup The parent group name
      * @param forumName The forum name
@@ -478,19 +577,20 @@ public class ForumDaoImpl implements ForumDao {
      */
     private DocumentSnapshot getForumMessage(String parentGroup, String forumName, String creator, String date)
         throws DatabaseAccessException, DocumentException {
-        String groupId = groupDao.getGroupId(parentGroup);
-        String forumId = getForumId(parentGroup, forumName);
+        CompletableFuture<List<QueryDocumentSnapshot>> messagesQuery = groupDao.getGroupIdAsync(parentGroup)
+            .thenCombine(getForumIdAsync(parentGroup, forumName),
+                (groupId, forumId) -> Path.ofCollection(Collections.messages, groupId, forumId))
+            .thenCompose(messagesPath -> collectionAsync
+                .getDocumentsWhereEqualTo(messagesPath, "creator", creator, PUBLICATION_DATE_FIELD, date));
+        List<QueryDocumentSnapshot> messages;
         try {
-            List<QueryDocumentSnapshot> messagesQuery = collectionAdapter
-                .getDocumentsWhereEqualTo(Path.ofCollection(Collections.messages, groupId, forumId), "creator",
-                    creator, "publicationDate", date).get().getDocuments();
-            if (messagesQuery.size() == 0) {
-                throw new DatabaseAccessException("404", "Message Not Found");
-            }
-            return messagesQuery.get(0);
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
+            messages = FirestoreFutures.join(messagesQuery);
+        } catch (DatabaseAccessException e) {
             throw new DatabaseAccessException("retrieval-failed", "Failure when retrieving the message");
         }
+        if (messages.isEmpty()) {
+            throw new DatabaseAccessException("404", "Message Not Found");
+        }
+        return messages.get(0);
     }
 }
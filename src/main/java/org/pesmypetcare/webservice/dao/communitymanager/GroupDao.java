@@ -5,9 +5,11 @@ import org.pesmypetcare.webservice.entity.communitymanager.GroupEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.TagEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.utilities.Versioned;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Santiago Del Rey
@@ -38,6 +40,16 @@ public interface GroupDao {
      */
     Group getGroup(String name) throws DatabaseAccessException, DocumentException;
 
+    /**
+     * Gets a group by its name together with the version it had when it was read.
+     * The version changes whenever the group or any of its members is updated.
+     * @param name The group name
+     * @return The group and its version
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the group does not exist
+     */
+    Versioned<Group> getVersionedGroup(String name) throws DatabaseAccessException, DocumentException;
+
     /**
      * Gets all groups in database.
      * @return A list with all the groups
@@ -45,6 +57,12 @@ public interface GroupDao {
      */
     List<Group> getAllGroups() throws DatabaseAccessException;
 
+    /**
+     * Gets all groups in database without blocking. The members of a bounded number of groups are read concurrently.
+     * @return A future with a list with all the groups
+     */
+    CompletableFuture<List<Group>> getAllGroupsAsync();
+
     /**
      * Updates a group field.
      * @param name     The group name
@@ -111,4 +129,11 @@ public interface GroupDao {
      * @throws DocumentException When the group does not exist
      */
     String getGroupId(String name) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Gets the group id without blocking.
+     * @param name The group name
+     * @return A future with the group id that fails with a DocumentException when the group does not exist
+     */
+    CompletableFuture<String> getGroupIdAsync(String name);
 }
@@ -1,6 +1,7 @@
 package org.pesmypetcare.webservice.dao.communitymanager;
 
 import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.FieldPath;
@@ -16,16 +17,24 @@ import org.pesmypetcare.webservice.entity.communitymanager.GroupEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.TagEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.BulkWriteBatch;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollectionAsync;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocumentAsync;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreFutures;
 import org.pesmypetcare.webservice.utilities.UTCLocalConverter;
+import org.pesmypetcare.webservice.utilities.Versioned;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -40,6 +49,7 @@ public class GroupDaoImpl implements GroupDao {
     private static final String NOTIFICATIONS_FIELD = "notification-tokens";
     private static final String FCM_FIELD = "FCM";
     private static final String DATE_FIELD = "date";
+    private static final int DEFAULT_MEMBERS_READ_CONCURRENCY = 16;
 
     @Autowired
     private UserDao userDao;
@@ -49,6 +59,16 @@ public class GroupDaoImpl implements GroupDao {
     private FirestoreDocument documentAdapter;
     @Autowired
     private FirestoreCollection collectionAdapter;
+    @Autowired
+    private FirestoreDocumentAsync documentAsync;
+    @Autowired
+    private FirestoreCollectionAsync collectionAsync;
+    @Autowired
+    private CommunityNameIndex nameIndex;
+    @Autowired
+    private FirestoreBulkWriter bulkWriter;
+    @Value("${groups.members-read-concurrency:" + DEFAULT_MEMBERS_READ_CONCURRENCY + "}")
+    private int membersReadConcurrency = DEFAULT_MEMBERS_READ_CONCURRENCY;
 
     @Override
     public void createGroup(GroupEntity entity) throws DatabaseAccessException, DocumentException {
@@ -71,18 +91,20 @@ public class GroupDaoImpl implements GroupDao {
         }
         addUserToGroupNotifications(userUid, groupId, batch);
         documentAdapter.commitBatch(batch);
+        nameIndex.putGroup(name, groupId);
     }
 
     @Override
     public void deleteGroup(String name) throws DatabaseAccessException, DocumentException {
         String id = getGroupId(name);
-        WriteBatch batch = documentAdapter.batch();
+        BulkWriteBatch batch = bulkWriter.batch();
         deleteGroupFromAllTags(name, batch);
         deleteAllMembers(name, batch);
         deleteGroupIcon(id);
         documentAdapter.deleteDocument(Path.ofDocument(Collections.groups, id), batch);
         documentAdapter.deleteDocument(Path.ofDocument(Collections.groups_names, name), batch);
-        documentAdapter.commitBatch(batch);
+        bulkWriter.commitBatch(batch);
+        nameIndex.removeGroup(name);
     }
 
     @Override
@@ -93,6 +115,25 @@ public class GroupDaoImpl implements GroupDao {
         return group;
     }
 
+    @Override
+    public Versioned<Group> getVersionedGroup(String name) throws DatabaseAccessException, DocumentException {
+        String id = getGroupId(name);
+        DocumentSnapshot snapshot = documentAdapter.getDocumentSnapshot(Path.ofDocument(Collections.groups, id));
+        List<DocumentSnapshot> membersList = collectionAdapter
+            .listAllCollectionDocumentSnapshots(Path.ofCollection(Collections.members, id));
+        Group group = snapshot.toObject(Group.class);
+        if (group != null) {
+            group.setMembers(toMembers(membersList));
+        }
+        Timestamp updateTime = snapshot.getUpdateTime();
+        for (DocumentSnapshot member : membersList) {
+            if (member.getUpdateTime().compareTo(updateTime) > 0) {
+                updateTime = member.getUpdateTime();
+            }
+        }
+        return new Versioned<>(group, updateTime, membersList.size());
+    }
+
     @Override
     public List<Group> getAllGroups() throws DatabaseAccessException {
         List<DocumentSnapshot> documentSnapshots = collectionAdapter
@@ -106,6 +147,13 @@ public class GroupDaoImpl implements GroupDao {
         return groupList;
     }
 
+    @Override
+    public CompletableFuture<List<Group>> getAllGroupsAsync() {
+        return collectionAsync.listAllCollectionDocumentSnapshots(Path.ofCollection(Collections.groups))
+            .thenCompose(documentSnapshots -> FirestoreFutures.mapAsList(documentSnapshots, membersReadConcurrency,
+                this::getGroupWithMembersAsync));
+    }
+
     @Override
     public void updateField(String name, String field, Object newValue)
         throws DatabaseAccessException, DocumentException {
@@ -122,10 +170,17 @@ public class GroupDaoImpl implements GroupDao {
             saveGroupName((String) newValue, id, batch);
         }
         documentAdapter.commitBatch(batch);
+        if ("name".equals(field)) {
+            nameIndex.removeGroup(name);
+            nameIndex.putGroup((String) newValue, id);
+        }
     }
 
     @Override
     public boolean groupNameInUse(String name) throws DatabaseAccessException {
+        if (nameIndex.getGroupId(name) != null) {
+            return true;
+        }
         return documentAdapter.documentExists(Path.ofDocument(Collections.groups_names, name));
     }
 
@@ -178,9 +233,22 @@ public class GroupDaoImpl implements GroupDao {
 
     @Override
     public String getGroupId(String name) throws DatabaseAccessException, DocumentException {
+        String id = nameIndex.getGroupId(name);
+        if (id != null) {
+            return id;
+        }
         return documentAdapter.getStringFromDocument(Path.ofDocument(Collections.groups_names, name), FIELD_GROUP);
     }
 
+    @Override
+    public CompletableFuture<String> getGroupIdAsync(String name) {
+        String id = nameIndex.getGroupId(name);
+        if (id != null) {
+            return CompletableFuture.completedFuture(id);
+        }
+        return documentAsync.getStringFromDocument(Path.ofDocument(Collections.groups_names, name), FIELD_GROUP);
+    }
+
     /**
      * Saves the user as a member of the group.
      *
@@ -268,6 +336,24 @@ public class GroupDaoImpl implements GroupDao {
         }
     }
 
+    /**
+     * Converts a group document into its group and reads its members without blocking.
+     *
+     * @param document The group document
+     * @return A future with the group with its members or null if the document has no data
+     */
+    private CompletableFuture<Group> getGroupWithMembersAsync(DocumentSnapshot document) {
+        Group group = document.toObject(Group.class);
+        if (group == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String membersPath = Path.ofCollection(Collections.members, document.getId());
+        return collectionAsync.listAllCollectionDocumentSnapshots(membersPath).thenApply(membersList -> {
+            group.setMembers(toMembers(membersList));
+            return group;
+        });
+    }
+
     /**
      * Gets the group members.
      *
@@ -276,9 +362,18 @@ public class GroupDaoImpl implements GroupDao {
      * @throws DatabaseAccessException If an error occurs when accessing the database
      */
     private Map<String, String> getGroupMembers(String id) throws DatabaseAccessException {
+        return toMembers(collectionAdapter
+            .listAllCollectionDocumentSnapshots(Path.ofCollection(Collections.members, id)));
+    }
+
+    /**
+     * Converts the member documents of a group into its members.
+     *
+     * @param membersList The member documents
+     * @return The map with the user and its subscription date
+     */
+    private Map<String, String> toMembers(List<DocumentSnapshot> membersList) {
         Map<String, String> members = new HashMap<>();
-        List<DocumentSnapshot> membersList = collectionAdapter
-            .listAllCollectionDocumentSnapshots(Path.ofCollection(Collections.members, id));
         for (DocumentSnapshot member : membersList) {
             members.put(member.getString("user"), member.getString(DATE_FIELD));
         }
@@ -333,10 +428,10 @@ public class GroupDaoImpl implements GroupDao {
      * Deletes a group from all its tags.
      *
      * @param group The group name
-     * @param batch The batch where to write
+     * @param batch The bulk batch where to write
      * @throws DatabaseAccessException If an error occurs when accessing the database
      */
-    private void deleteGroupFromAllTags(String group, WriteBatch batch) throws DatabaseAccessException {
+    private void deleteGroupFromAllTags(String group, BulkWriteBatch batch) throws DatabaseAccessException {
         ApiFuture<QuerySnapshot> querySnapshot = collectionAdapter
             .getDocumentsWhereArrayContains(Path.ofCollection(Collections.tags), FIELD_GROUPS, group);
         try {
@@ -353,10 +448,10 @@ public class GroupDaoImpl implements GroupDao {
      * Deletes the group from all its members.
      *
      * @param name The group name
-     * @param batch The batch where to write
+     * @param batch The bulk batch where to write
      * @throws DatabaseAccessException If an error occurs when accessing the database
      */
-    private void deleteAllMembers(String name, WriteBatch batch) throws DatabaseAccessException {
+    private void deleteAllMembers(String name, BulkWriteBatch batch) throws DatabaseAccessException {
         ApiFuture<QuerySnapshot> querySnapshot = collectionAdapter
             .getDocumentsWhereArrayContains(Path.ofCollection(Collections.users), GROUP_SUBSCRIPTIONS_FIELDS, name);
         try {
@@ -0,0 +1,28 @@
+package org.pesmypetcare.webservice.dao.medalmanager;
+
+import org.pesmypetcare.webservice.entity.medalmanager.MedalEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+
+import java.util.List;
+
+/**
+ * Keeps the catalog of the available medals in memory.
+ *
+ * @author Santiago Del Rey
+ */
+public interface MedalCatalog {
+    /**
+     * Gets all the available medals. The catalog is read from the database when it has not been loaded yet or it is
+     * too old.
+     *
+     * @return The unmodifiable list of medals
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     */
+    List<MedalEntity> getMedals() throws DatabaseAccessException;
+
+    /**
+     * Discards the catalog, so the next call reads it again from the database. A load that is in progress is not kept
+     * either, since it may have missed the change that caused the invalidation.
+     */
+    void invalidate();
+}
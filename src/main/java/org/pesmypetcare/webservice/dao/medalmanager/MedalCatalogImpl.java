@@ -0,0 +1,122 @@
+package org.pesmypetcare.webservice.dao.medalmanager;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.entity.medalmanager.MedalEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.utilities.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the medals collection in memory and reads it again once it is older than
+ * {@code medals.catalog.refresh-minutes}. A single caller reloads an expired catalog while the others wait for it.
+ * The medals created through this instance invalidate the catalog right away, and a load that started before an
+ * invalidation is returned to its caller but not kept.
+ *
+ * @author Santiago Del Rey
+ */
+@Repository
+public class MedalCatalogImpl implements MedalCatalog, MetricsSource {
+    private static final long DEFAULT_REFRESH_MINUTES = 10;
+    @Value("${medals.catalog.refresh-minutes:" + DEFAULT_REFRESH_MINUTES + "}")
+    private long refreshMinutes = DEFAULT_REFRESH_MINUTES;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+    @Autowired
+    private FirestoreCollection dbCol;
+    private volatile Snapshot snapshot;
+
+    @Override
+    public List<MedalEntity> getMedals() throws DatabaseAccessException {
+        Snapshot current = snapshot;
+        if (isFresh(current)) {
+            hits.incrementAndGet();
+            return current.medals;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (!isFresh(current)) {
+                long loadGeneration = generation.get();
+                current = load();
+                if (generation.get() == loadGeneration) {
+                    snapshot = current;
+                }
+            }
+            return current.medals;
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "medal-catalog";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Snapshot current = snapshot;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", current != null ? current.medals.size() : 0);
+        metrics.put("hits", hits.get());
+        metrics.put("loads", loads.get());
+        return metrics;
+    }
+
+    /**
+     * Checks whether a snapshot of the catalog can still be used.
+     *
+     * @param current The snapshot, or null if there is none
+     * @return True if the snapshot exists and has not expired
+     */
+    private boolean isFresh(Snapshot current) {
+        return current != null
+            && System.nanoTime() - current.loadedAt < TimeUnit.MINUTES.toNanos(refreshMinutes);
+    }
+
+    /**
+     * Reads all the medals from the database.
+     *
+     * @return The new snapshot of the catalog
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     */
+    private Snapshot load() throws DatabaseAccessException {
+        List<DocumentSnapshot> medalsDocuments = dbCol
+            .listAllCollectionDocumentSnapshots(Path.ofCollection(Collections.medals));
+        List<MedalEntity> medals = new ArrayList<>();
+        for (DocumentSnapshot medalDocument : medalsDocuments) {
+            medals.add(medalDocument.toObject(MedalEntity.class));
+        }
+        loads.incrementAndGet();
+        return new Snapshot(java.util.Collections.unmodifiableList(medals), System.nanoTime());
+    }
+
+    /**
+     * Medals read at a given time.
+     */
+    private static final class Snapshot {
+        private final List<MedalEntity> medals;
+        private final long loadedAt;
+
+        private Snapshot(List<MedalEntity> medals, long loadedAt) {
+            this.medals = medals;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -13,7 +13,7 @@ import java.util.Map;
 public interface MedalDao {
 
     /**
-     * Creates a medal on the data base.
+     * Creates a medal on the data base. The medal is not given to the existing users.
      * @param name Name of the medal
      * @param medal The medal entity that contains the attributes of the pet
      * @throws DatabaseAccessException If an error occurs when accessing the database
@@ -0,0 +1,89 @@
+package org.pesmypetcare.webservice.dao.medalmanager;
+
+import com.google.cloud.firestore.WriteBatch;
+import org.pesmypetcare.webservice.entity.medalmanager.LeaderboardEntry;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranks the users of each medal by their progress. Every medal keeps an index with the progress and current level of
+ * its users in the leaderboard collection of the medal, and the best ranked users of the index are kept in memory.
+ *
+ * @author Santiago Del Rey
+ */
+public interface MedalLeaderboard {
+    /**
+     * Gets the best ranked users of a medal, from the greatest progress to the smallest one.
+     *
+     * @param medal The name of the medal
+     * @param limit The maximum number of users to return, which is capped at the size of the leaderboard
+     * @return The list of entries in order
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws IllegalArgumentException When the limit is not positive
+     */
+    List<LeaderboardEntry> getTop(String medal, int limit) throws DatabaseAccessException;
+
+    /**
+     * Adds the update of a ranked field of a user medal to the index of the medal.
+     *
+     * @param batch The batch where the user medal is updated
+     * @param medal The name of the medal
+     * @param uid The unique identifier of the user
+     * @param username The username of the user
+     * @param field The updated field, either the progress or the current level
+     * @param value The new value of the field
+     */
+    void writeEntry(WriteBatch batch, String medal, String uid, String username, String field, Object value);
+
+    /**
+     * Applies a committed update of a ranked field of a user medal to the leaderboard kept in memory.
+     *
+     * @param medal The name of the medal
+     * @param uid The unique identifier of the user
+     * @param username The username of the user
+     * @param field The updated field, either the progress or the current level
+     * @param value The new value of the field
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the entry of a user that joins the leaderboard cannot be read
+     */
+    void updateEntry(String medal, String uid, String username, String field, Object value)
+        throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Creates the index entries of a medal that do not exist yet. The existing entries are kept, since they have been
+     * written by later updates of the user medals.
+     *
+     * @param medal The name of the medal
+     * @param entries The entries to create by the unique identifier of their user
+     * @return The number of entries that have been created
+     * @throws DatabaseAccessException When the creation is interrupted
+     * @throws DocumentException When the creation of any entry fails for a reason other than its existence
+     */
+    int createMissingEntries(String medal, Map<String, LeaderboardEntry> entries)
+        throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Applies the committed deletion of the index entries of a user to the leaderboards kept in memory.
+     *
+     * @param uid The unique identifier of the user
+     */
+    void removeUser(String uid);
+
+    /**
+     * Applies the committed rename of a user in the index entries to the leaderboards kept in memory.
+     *
+     * @param uid The unique identifier of the user
+     * @param newUsername The new username of the user
+     */
+    void renameUser(String uid, String newUsername);
+
+    /**
+     * Discards the leaderboard of a medal kept in memory, so it is read again from its index.
+     *
+     * @param medal The name of the medal
+     */
+    void invalidate(String medal);
+}
@@ -0,0 +1,377 @@
+package org.pesmypetcare.webservice.dao.medalmanager;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.entity.medalmanager.LeaderboardEntry;
+import org.pesmypetcare.webservice.entity.medalmanager.UserMedalEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+import org.pesmypetcare.webservice.utilities.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the top {@code medals.leaderboard.size} users of each medal in memory. A leaderboard is read from the index
+ * of its medal the first time it is requested and then kept up to date with the updates made through this instance.
+ * It is read again once it is older than {@code medals.leaderboard.reload-minutes}, so the updates made through other
+ * instances are eventually shown, and also when the progress of a ranked user decreases, since the user that takes
+ * its place may not be in memory. For the same reason, removing a ranked user only reads its leaderboard again when the
+ * leaderboard does not hold all the users of the index.
+ * <p>
+ * The index entries are stored with the user identifier as ID, and the users with the same progress are ranked by it.
+ *
+ * @author Santiago Del Rey
+ */
+@Repository
+public class MedalLeaderboardImpl implements MedalLeaderboard, MetricsSource {
+    static final String USERNAME_FIELD = "username";
+    private static final int DEFAULT_SIZE = 100;
+    private static final long DEFAULT_RELOAD_MINUTES = 5;
+    private static final Comparator<Ranked> RANKING = Comparator.comparingDouble((Ranked ranked) -> ranked.progress)
+        .thenComparing(ranked -> ranked.uid).reversed();
+    @Value("${medals.leaderboard.size:" + DEFAULT_SIZE + "}")
+    private int size = DEFAULT_SIZE;
+    @Value("${medals.leaderboard.reload-minutes:" + DEFAULT_RELOAD_MINUTES + "}")
+    private long reloadMinutes = DEFAULT_RELOAD_MINUTES;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong incrementalUpdates = new AtomicLong();
+    private final Map<String, Board> boards = new ConcurrentHashMap<>();
+    @Autowired
+    private FirestoreCollection dbCol;
+    @Autowired
+    private FirestoreDocument dbDoc;
+    @Autowired
+    private FirestoreBulkWriter bulkWriter;
+
+    @Override
+    public List<LeaderboardEntry> getTop(String medal, int limit) throws DatabaseAccessException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The limit must be positive");
+        }
+        Board board = boards.get(medal);
+        if (board == null || board.isExpired()) {
+            synchronized (this) {
+                board = boards.get(medal);
+                if (board == null || board.isExpired()) {
+                    board = load(medal);
+                    boards.put(medal, board);
+                }
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+        return board.top(Math.min(limit, size));
+    }
+
+    @Override
+    public void writeEntry(WriteBatch batch, String medal, String uid, String username, String field, Object value) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(USERNAME_FIELD, username);
+        fields.put(field, value);
+        batch.set(dbDoc.getDocumentReference(Path.ofDocument(Collections.leaderboard, medal, uid)), fields,
+            SetOptions.merge());
+    }
+
+    @Override
+    public void updateEntry(String medal, String uid, String username, String field, Object value)
+        throws DatabaseAccessException, DocumentException {
+        Board board = boards.get(medal);
+        if (board == null) {
+            return;
+        }
+        Double number = value instanceof Number ? ((Number) value).doubleValue() : null;
+        if (UserMedalEntity.CURRENT_LEVEL.equals(field)) {
+            if (board.updateCurrentLevel(uid, username, number)) {
+                incrementalUpdates.incrementAndGet();
+            }
+            return;
+        }
+        switch (number == null ? Change.STALE : board.updateProgress(uid, username, number)) {
+            case APPLIED:
+                incrementalUpdates.incrementAndGet();
+                break;
+            case JOINS:
+                DocumentSnapshot entry = dbDoc
+                    .getDocumentSnapshot(Path.ofDocument(Collections.leaderboard, medal, uid));
+                board.add(uid, username, number, entry.getDouble(UserMedalEntity.CURRENT_LEVEL));
+                incrementalUpdates.incrementAndGet();
+                break;
+            case STALE:
+                boards.remove(medal, board);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public int createMissingEntries(String medal, Map<String, LeaderboardEntry> entries)
+        throws DatabaseAccessException, DocumentException {
+        Map<DocumentReference, Object> documents = new LinkedHashMap<>();
+        for (Map.Entry<String, LeaderboardEntry> entry : entries.entrySet()) {
+            documents.put(dbDoc.getDocumentReference(Path.ofDocument(Collections.leaderboard, medal, entry.getKey())),
+                entry.getValue());
+        }
+        return bulkWriter.createIfAbsent(documents);
+    }
+
+    @Override
+    public void removeUser(String uid) {
+        for (Map.Entry<String, Board> entry : boards.entrySet()) {
+            if (entry.getValue().remove(uid) == Change.STALE) {
+                boards.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void renameUser(String uid, String newUsername) {
+        for (Board board : boards.values()) {
+            board.rename(uid, newUsername);
+        }
+    }
+
+    @Override
+    public void invalidate(String medal) {
+        boards.remove(medal);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "medal-leaderboards";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("leaderboards", boards.size());
+        metrics.put("hits", hits.get());
+        metrics.put("loads", loads.get());
+        metrics.put("incrementalUpdates", incrementalUpdates.get());
+        return metrics;
+    }
+
+    /**
+     * Reads the best ranked users of a medal from its index.
+     *
+     * @param medal The name of the medal
+     * @return The leaderboard
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     */
+    private Board load(String medal) throws DatabaseAccessException {
+        List<DocumentSnapshot> entries = dbCol.getDocumentSnapshotsPageOrderedBy(
+            Path.ofCollection(Collections.leaderboard, medal), UserMedalEntity.PROGRESS, true, null, null, size);
+        Board board = new Board(entries.size() < size);
+        for (DocumentSnapshot entry : entries) {
+            board.add(entry.getId(), entry.getString(USERNAME_FIELD), entry.getDouble(UserMedalEntity.PROGRESS),
+                entry.getDouble(UserMedalEntity.CURRENT_LEVEL));
+        }
+        loads.incrementAndGet();
+        return board;
+    }
+
+    /**
+     * Leaderboard of a single medal.
+     */
+    private final class Board {
+        private final TreeSet<Ranked> ranking = new TreeSet<>(RANKING);
+        private final Map<String, Ranked> rankedUsers = new HashMap<>();
+        private final long loadedAt = System.nanoTime();
+        private boolean complete;
+
+        /**
+         * Creates an empty leaderboard.
+         *
+         * @param complete True if the leaderboard will contain all the users of the index
+         */
+        private Board(boolean complete) {
+            this.complete = complete;
+        }
+
+        /**
+         * Checks whether the leaderboard must be read again.
+         *
+         * @return True if the leaderboard is older than the reload interval
+         */
+        private boolean isExpired() {
+            return System.nanoTime() - loadedAt >= TimeUnit.MINUTES.toNanos(reloadMinutes);
+        }
+
+        /**
+         * Gets the best ranked users.
+         *
+         * @param limit The maximum number of users
+         * @return The list of entries in order
+         */
+        private synchronized List<LeaderboardEntry> top(int limit) {
+            List<LeaderboardEntry> entries = new ArrayList<>();
+            Iterator<Ranked> iterator = ranking.iterator();
+            while (entries.size() < limit && iterator.hasNext()) {
+                Ranked ranked = iterator.next();
+                entries.add(new LeaderboardEntry(ranked.username, ranked.progress, ranked.currentLevel));
+            }
+            return entries;
+        }
+
+        /**
+         * Adds a user to the leaderboard and drops the users that fall below its size.
+         *
+         * @param uid The unique identifier of the user
+         * @param username The username of the user
+         * @param progress The progress of the user, or null if the entry has none
+         * @param currentLevel The current level of the user
+         */
+        private synchronized void add(String uid, String username, Double progress, Double currentLevel) {
+            if (progress == null || rankedUsers.containsKey(uid)) {
+                return;
+            }
+            Ranked ranked = new Ranked(uid, username, progress, currentLevel);
+            ranking.add(ranked);
+            rankedUsers.put(uid, ranked);
+            while (ranking.size() > size) {
+                rankedUsers.remove(ranking.pollLast().uid);
+                complete = false;
+            }
+        }
+
+        /**
+         * Updates the progress of a user.
+         *
+         * @param uid The unique identifier of the user
+         * @param username The username of the user
+         * @param progress The new progress
+         * @return How the update changes the leaderboard
+         */
+        private synchronized Change updateProgress(String uid, String username, double progress) {
+            Ranked current = rankedUsers.get(uid);
+            if (current == null) {
+                boolean joins = complete
+                    || RANKING.compare(new Ranked(uid, username, progress, null), ranking.last()) < 0;
+                return joins ? Change.JOINS : Change.IGNORED;
+            }
+            if (progress < current.progress && !complete) {
+                return Change.STALE;
+            }
+            replace(current, new Ranked(uid, username, progress, current.currentLevel));
+            return Change.APPLIED;
+        }
+
+        /**
+         * Updates the current level of a user if it is ranked.
+         *
+         * @param uid The unique identifier of the user
+         * @param username The username of the user
+         * @param currentLevel The new current level
+         * @return True if the user is ranked
+         */
+        private synchronized boolean updateCurrentLevel(String uid, String username, Double currentLevel) {
+            Ranked current = rankedUsers.get(uid);
+            if (current == null) {
+                return false;
+            }
+            replace(current, new Ranked(uid, username, current.progress, currentLevel));
+            return true;
+        }
+
+        /**
+         * Removes a user from the leaderboard.
+         *
+         * @param uid The unique identifier of the user
+         * @return APPLIED if the user was ranked, STALE if an unknown user may take its place, or IGNORED if the user
+         * was not ranked
+         */
+        private synchronized Change remove(String uid) {
+            Ranked current = rankedUsers.remove(uid);
+            if (current == null) {
+                return Change.IGNORED;
+            }
+            ranking.remove(current);
+            return complete ? Change.APPLIED : Change.STALE;
+        }
+
+        /**
+         * Changes the username of a user if it is ranked.
+         *
+         * @param uid The unique identifier of the user
+         * @param newUsername The new username
+         */
+        private synchronized void rename(String uid, String newUsername) {
+            Ranked current = rankedUsers.get(uid);
+            if (current != null) {
+                replace(current, new Ranked(uid, newUsername, current.progress, current.currentLevel));
+            }
+        }
+
+        /**
+         * Replaces the entry of a ranked user.
+         *
+         * @param current The current entry
+         * @param updated The new entry
+         */
+        private void replace(Ranked current, Ranked updated) {
+            ranking.remove(current);
+            ranking.add(updated);
+            rankedUsers.put(updated.uid, updated);
+        }
+    }
+
+    /**
+     * Effect of a progress update or a removal on a leaderboard.
+     */
+    private enum Change {
+        /**
+         * The ranked user was moved to its new position or removed.
+         */
+        APPLIED,
+        /**
+         * The user was not ranked and now enters the leaderboard.
+         */
+        JOINS,
+        /**
+         * The user was not ranked and is still below the leaderboard, or it is removed without being ranked.
+         */
+        IGNORED,
+        /**
+         * The progress of a ranked user decreased or the user was removed, and an unknown user may take its place.
+         */
+        STALE
+    }
+
+    /**
+     * Immutable entry of a leaderboard.
+     */
+    private static final class Ranked {
+        private final String uid;
+        private final String username;
+        private final double progress;
+        private final Double currentLevel;
+
+        private Ranked(String uid, String username, double progress, Double currentLevel) {
+            this.uid = uid;
+            this.username = username;
+            this.progress = progress;
+            this.currentLevel = currentLevel;
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package org.pesmypetcare.webservice.dao.medalmanager;
 
+import org.pesmypetcare.webservice.entity.medalmanager.MedalEntity;
 import org.pesmypetcare.webservice.entity.medalmanager.UserMedalEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.springframework.lang.Nullable;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Oriol Catalán
@@ -44,7 +47,18 @@ public interface UserMedalDao {
         DocumentException;
 
     /**
-     * Updates the medal's field.
+     * Gets the data from all the specified medals from the database without waiting for the medals to be read.
+     * @param owner Username of the owner of the medals
+     * @return A future with the List containing all the owner medals data
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the owner does not exist
+     */
+    CompletableFuture<List<UserMedalEntity>> getAllUserMedalsDataAsync(String owner) throws DatabaseAccessException,
+        DocumentException;
+
+    /**
+     * Updates the medal's field. The progress and the current level are written to the leaderboard of the medal in
+     * the same batch.
      * @param owner Username of the owner of the medal
      * @param name Name of the medal
      * @param field Name of the field to update
@@ -67,11 +81,39 @@ public interface UserMedalDao {
     Object getField(String owner, String name, String field) throws DatabaseAccessException, DocumentException;
 
     /**
-     * Create all user medals when user is created.
+     * Create all user medals when user is created. The medals are taken from the medal catalog and the user medals
+     * that already exist, such as the ones given by a medal backfill, are kept.
      * @param username Username of the user.
      * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
      * @throws DocumentException When the document does not exist
      */
     void createAllUserMedals(String username) throws DatabaseAccessException, DocumentException;
 
+    /**
+     * Gives a medal to a page of users ordered by username. The user medals are only created for the users that do
+     * not have the medal yet, so the progress of the users that already have it is kept.
+     * @param medal The medal to give
+     * @param startAfterUsername The last username of the previous page or null to start with the first user
+     * @param pageSize The maximum number of users of the page
+     * @return The usernames of the users of the page in order, which is empty when there are no more users
+     * @throws DatabaseAccessException When the retrieval or the commit is interrupted
+     * @throws DocumentException When the creation of any user medal fails
+     */
+    List<String> createUserMedalsPage(MedalEntity medal, @Nullable String startAfterUsername, int pageSize)
+        throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Adds the medal of a page of users ordered by username to the leaderboard index of the medal. The index entries
+     * are only created for the users that have the medal and are not in the index yet, so the entries written by the
+     * updates of the user medals are kept.
+     * @param medal The name of the medal
+     * @param startAfterUsername The last username of the previous page or null to start with the first user
+     * @param pageSize The maximum number of users of the page
+     * @return The usernames of the users of the page in order, which is empty when there are no more users
+     * @throws DatabaseAccessException When the retrieval or the commit is interrupted
+     * @throws DocumentException When the retrieval of any user medal or the creation of any entry fails
+     */
+    List<String> indexUserMedalsPage(String medal, @Nullable String startAfterUsername, int pageSize)
+        throws DatabaseAccessException, DocumentException;
+
 }
@@ -1,22 +1,35 @@
 package org.pesmypetcare.webservice.dao.medalmanager;
 
 
+import org.pesmypetcare.webservice.entity.medalmanager.LeaderboardEntry;
 import org.pesmypetcare.webservice.entity.medalmanager.Medal;
 import org.pesmypetcare.webservice.entity.medalmanager.MedalEntity;
 import org.pesmypetcare.webservice.entity.medalmanager.UserMedalEntity;
+import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.WriteBatch;
 import org.pesmypetcare.webservice.builders.Collections;
 import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.dao.usermanager.UsernameResolver;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollectionAsync;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocumentAsync;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreFutures;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 
 /**
@@ -24,109 +37,197 @@ import java.util.List;
  */
 @Repository
 public class UserMedalDaoImpl implements UserMedalDao {
-    private String ownerId;
-    private WriteBatch batch;
-    private String path;
-
+    private static final String USER_FIELD = "user";
+    private static final String DOCUMENT_NOT_EXISTS_CODE = "document-not-exists";
+    private static final int DEFAULT_INDEX_READ_CONCURRENCY = 16;
+    @Value("${medals.leaderboard.backfill-read-concurrency:" + DEFAULT_INDEX_READ_CONCURRENCY + "}")
+    private int indexReadConcurrency = DEFAULT_INDEX_READ_CONCURRENCY;
     @Autowired
     private FirestoreCollection dbCol;
     @Autowired
     private FirestoreDocument dbDoc;
+    @Autowired
+    private FirestoreCollectionAsync dbColAsync;
+    @Autowired
+    private FirestoreDocumentAsync dbDocAsync;
+    @Autowired
+    private UsernameResolver usernameResolver;
+    @Autowired
+    private MedalCatalog medalCatalog;
+    @Autowired
+    private FirestoreBulkWriter bulkWriter;
+    @Autowired
+    private MedalLeaderboard medalLeaderboard;
 
     @Override
     public void createUserMedal(String owner, String name, UserMedalEntity medal) throws DatabaseAccessException,
         DocumentException {
-        initializeWithCollectionPath(owner);
-        dbDoc.createDocumentWithId(path, name, medal, batch);
-        dbDoc.commitBatch(batch);
+        Access access = initializeWithCollectionPath(owner);
+        dbDoc.createDocumentWithId(access.path, name, medal, access.batch);
+        dbDoc.commitBatch(access.batch);
     }
 
     @Override
     public UserMedalEntity getUserMedalData(String owner, String name) throws DatabaseAccessException,
         DocumentException {
-        initializeWithDocumentPath(owner, name);
-        return dbDoc.getDocumentDataAsObject(path, UserMedalEntity.class);
+        Access access = initializeWithDocumentPath(owner, name);
+        return dbDoc.getDocumentDataAsObject(access.path, UserMedalEntity.class);
     }
 
     @Override
     public List<UserMedalEntity> getAllUserMedalsData(String owner) throws DatabaseAccessException,
         DocumentException {
-        initializeWithCollectionPath(owner);
-        List<DocumentSnapshot> medalsDocuments = dbCol.listAllCollectionDocumentSnapshots(path);
-        List<UserMedalEntity> medalList = new ArrayList<>();
+        Access access = initializeWithCollectionPath(owner);
+        return toUserMedals(dbCol.listAllCollectionDocumentSnapshots(access.path));
+    }
 
-        for (DocumentSnapshot medalDocument : medalsDocuments) {
-            medalList.add(medalDocument.toObject(UserMedalEntity.class));
-        }
-        return medalList;
+    @Override
+    public CompletableFuture<List<UserMedalEntity>> getAllUserMedalsDataAsync(String owner)
+        throws DatabaseAccessException, DocumentException {
+        String medalsPath = Path.ofCollection(Collections.userMedals, usernameResolver.getUid(owner));
+        return dbColAsync.listAllCollectionDocumentSnapshots(medalsPath).thenApply(this::toUserMedals);
     }
 
     @Override
     public void updateField(String owner, String name, String field, Object value)
         throws DatabaseAccessException, DocumentException {
         checkField(field);
-        initializeWithDocumentPath(owner, name);
-        dbDoc.updateDocumentFields(batch, path, field, value);
-        batch.commit();
+        String ownerId = usernameResolver.getUid(owner);
+        WriteBatch batch = dbCol.batch();
+        dbDoc.updateDocumentFields(batch, Path.ofDocument(Collections.userMedals, ownerId, name), field, value);
+        boolean ranked = UserMedalEntity.PROGRESS.equals(field) || UserMedalEntity.CURRENT_LEVEL.equals(field);
+        if (ranked) {
+            medalLeaderboard.writeEntry(batch, name, ownerId, owner, field, value);
+        }
+        dbDoc.commitBatch(batch);
+        if (ranked) {
+            medalLeaderboard.updateEntry(name, ownerId, owner, field, value);
+        }
     }
 
     @Override
     public Object getField(String owner, String name, String field) throws DatabaseAccessException,
         DocumentException {
-        String medalPath = Path.ofDocument(Collections.userMedals, getUserId(owner), name);
+        String medalPath = Path.ofDocument(Collections.userMedals, usernameResolver.getUid(owner), name);
         return dbDoc.getDocumentField(medalPath, field);
     }
 
     @Override
     public void createAllUserMedals(String username) throws DatabaseAccessException, DocumentException {
-        path = Path.ofCollection(Collections.medals);
-        List<DocumentSnapshot> medalsDocuments = dbCol.listAllCollectionDocumentSnapshots(path);
-        UserMedalEntity userMedal;
-        for (DocumentSnapshot medalDocument : medalsDocuments) {
-            MedalEntity medal = medalDocument.toObject(MedalEntity.class);
-            userMedal = new UserMedalEntity(medal.getName(), 0., 0.,
+        String ownerId = usernameResolver.getUid(username);
+        Map<DocumentReference, Object> userMedals = new LinkedHashMap<>();
+        for (MedalEntity medal : medalCatalog.getMedals()) {
+            UserMedalEntity userMedal = new UserMedalEntity(medal.getName(), 0., 0.,
                 new ArrayList<>(), new Medal(medal));
-            createUserMedal(username, medal.getName(), userMedal);
+            userMedals.put(dbDoc.getDocumentReference(Path.ofDocument(Collections.userMedals, ownerId,
+                medal.getName())), userMedal);
         }
+        bulkWriter.createIfAbsent(userMedals);
+    }
+
+    @Override
+    public List<String> createUserMedalsPage(MedalEntity medal, @Nullable String startAfterUsername, int pageSize)
+        throws DatabaseAccessException, DocumentException {
+        List<DocumentSnapshot> users = dbCol.getDocumentSnapshotsPageBetweenIds(
+            Path.ofCollection(Collections.used_usernames), null, null, startAfterUsername, pageSize);
+        UserMedalEntity userMedal = new UserMedalEntity(medal.getName(), 0., 0., new ArrayList<>(), new Medal(medal));
+        Map<DocumentReference, Object> userMedals = new LinkedHashMap<>();
+        List<String> usernames = new ArrayList<>();
+        for (DocumentSnapshot user : users) {
+            String medalPath = Path.ofDocument(Collections.userMedals, user.getString(USER_FIELD), medal.getName());
+            userMedals.put(dbDoc.getDocumentReference(medalPath), userMedal);
+            usernames.add(user.getId());
+        }
+        bulkWriter.createIfAbsent(userMedals);
+        return usernames;
+    }
+
+    @Override
+    public List<String> indexUserMedalsPage(String medal, @Nullable String startAfterUsername, int pageSize)
+        throws DatabaseAccessException, DocumentException {
+        List<DocumentSnapshot> users = dbCol.getDocumentSnapshotsPageBetweenIds(
+            Path.ofCollection(Collections.used_usernames), null, null, startAfterUsername, pageSize);
+        List<DocumentSnapshot> userMedals = FirestoreFutures.join(FirestoreFutures.mapAsList(users,
+            indexReadConcurrency, user -> getUserMedalIfExists(user.getString(USER_FIELD), medal)));
+        Map<String, LeaderboardEntry> entries = new LinkedHashMap<>();
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < users.size(); ++i) {
+            DocumentSnapshot user = users.get(i);
+            DocumentSnapshot userMedal = userMedals.get(i);
+            Double progress = userMedal == null ? null : userMedal.getDouble(UserMedalEntity.PROGRESS);
+            if (progress != null) {
+                entries.put(user.getString(USER_FIELD), new LeaderboardEntry(user.getId(), progress,
+                    userMedal.getDouble(UserMedalEntity.CURRENT_LEVEL)));
+            }
+            usernames.add(user.getId());
+        }
+        if (!entries.isEmpty()) {
+            medalLeaderboard.createMissingEntries(medal, entries);
+        }
+        return usernames;
     }
 
     /**
-     * Initializes the ownerId, batch and path variables for the access, the path is set to the medal document.
+     * Reads a user medal without failing when the user does not have the medal.
+     * @param ownerId The unique identifier of the user
+     * @param medal The name of the medal
+     * @return A future with the snapshot of the user medal, or null if the user does not have the medal
+     */
+    private CompletableFuture<DocumentSnapshot> getUserMedalIfExists(String ownerId, String medal) {
+        return dbDocAsync.getDocumentSnapshot(Path.ofDocument(Collections.userMedals, ownerId, medal))
+            .handle((snapshot, error) -> {
+                if (error == null) {
+                    return snapshot;
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                if (cause instanceof DocumentException
+                    && DOCUMENT_NOT_EXISTS_CODE.equals(((DocumentException) cause).getErrorCode())) {
+                    return null;
+                }
+                throw error instanceof CompletionException ? (CompletionException) error
+                    : new CompletionException(error);
+            });
+    }
+
+    /**
+     * Creates the access for a call, the path is set to the medal document.
      * @param owner Owner of the medal
      * @param medalName Medal name
+     * @return The access with a new batch and the path
      * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
      * @throws DocumentException When the document does not exist
      */
-    private void initializeWithDocumentPath(String owner, String medalName) throws DatabaseAccessException,
+    private Access initializeWithDocumentPath(String owner, String medalName) throws DatabaseAccessException,
         DocumentException {
-        ownerId = getUserId(owner);
-        batch = dbCol.batch();
-        path = Path.ofDocument(Collections.userMedals, ownerId, medalName);
+        String ownerId = usernameResolver.getUid(owner);
+        return new Access(dbCol.batch(), Path.ofDocument(Collections.userMedals, ownerId, medalName));
     }
 
     /**
-     * Initializes the ownerId, batch and path variables for the access, the path is set to the user's medal collection.
-     * @param owner Owner of the medals
-     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
-     * @throws DocumentException When the document does not exist
+     * Converts the medal documents of a user into its medals.
+     * @param medalsDocuments The medal documents
+     * @return The List containing the medals
      */
-    private void initializeWithCollectionPath(String owner) throws DatabaseAccessException,
-        DocumentException {
-        ownerId = getUserId(owner);
-        batch = dbCol.batch();
-        path = Path.ofCollection(Collections.userMedals, ownerId);
+    private List<UserMedalEntity> toUserMedals(List<DocumentSnapshot> medalsDocuments) {
+        List<UserMedalEntity> medalList = new ArrayList<>();
+        for (DocumentSnapshot medalDocument : medalsDocuments) {
+            medalList.add(medalDocument.toObject(UserMedalEntity.class));
+        }
+        return medalList;
     }
 
     /**
-     * Returns the id of a user specifying its username.
-     * @param username Name of the user
-     * @return The user's id
+     * Creates the access for a call, the path is set to the user's medal collection.
+     * @param owner Owner of the medals
+     * @return The access with a new batch and the path
      * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
      * @throws DocumentException When the document does not exist
      */
-    private String getUserId(String username) throws DatabaseAccessException, DocumentException {
-        String usernamePath = Path.ofDocument(Collections.used_usernames, username);
-        return dbDoc.getStringFromDocument(usernamePath, "user");
+    private Access initializeWithCollectionPath(String owner) throws DatabaseAccessException,
+        DocumentException {
+        String ownerId = usernameResolver.getUid(owner);
+        return new Access(dbCol.batch(), Path.ofCollection(Collections.userMedals, ownerId));
     }
 
     /**
@@ -139,4 +240,16 @@ public class UserMedalDaoImpl implements UserMedalDao {
         }
     }
 
+    /**
+     * Batch and path of a single user medal access.
+     */
+    private static final class Access {
+        private final WriteBatch batch;
+        private final String path;
+
+        private Access(WriteBatch batch, String path) {
+            this.batch = batch;
+            this.path = path;
+        }
+    }
 }
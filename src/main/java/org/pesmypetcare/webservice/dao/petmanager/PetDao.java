@@ -3,9 +3,13 @@ package org.pesmypetcare.webservice.dao.petmanager;
 import org.pesmypetcare.webservice.entity.petmanager.PetEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.utilities.Versioned;
+import org.springframework.lang.Nullable;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
 
 /**
  * @author Marc Simó
@@ -39,6 +43,16 @@ public interface PetDao {
      */
     void deleteAllPets(String owner) throws DatabaseAccessException, DocumentException;
 
+    /**
+     * Deletes all the pets of the specified owner from database reporting the progress of the deletion.
+     * @param owner Username of the owner of the pets
+     * @param progress The callback that receives the number of documents deleted so far, or null
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the document does not exist
+     */
+    void deleteAllPets(String owner, @Nullable LongConsumer progress) throws DatabaseAccessException,
+        DocumentException;
+
     /**
      * Gets a pet identified by its name and owner.
      * @param owner Username of the owner of the pet
@@ -49,6 +63,17 @@ public interface PetDao {
      */
     PetEntity getPetData(String owner, String name) throws DatabaseAccessException, DocumentException;
 
+    /**
+     * Gets a pet identified by its name and owner together with the version it had when it was read.
+     * @param owner Username of the owner of the pet
+     * @param name Name of the pet
+     * @return The PetEntity corresponding to the owner's pet data and its version
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the document does not exist
+     */
+    Versioned<PetEntity> getVersionedPetData(String owner, String name)
+        throws DatabaseAccessException, DocumentException;
+
     /**
      * Gets the data from all the specified pets from the database.
      * @param owner Username of the owner of the pets
@@ -58,6 +83,16 @@ public interface PetDao {
      */
     List<Map<String, Object>> getAllPetsData(String owner) throws DatabaseAccessException, DocumentException;
 
+    /**
+     * Gets the data from all the specified pets from the database without waiting for the pets to be read.
+     * @param owner Username of the owner of the pets
+     * @return A future with the List containing all the owner pets data
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the owner does not exist
+     */
+    CompletableFuture<List<Map<String, Object>>> getAllPetsDataAsync(String owner)
+        throws DatabaseAccessException, DocumentException;
+
     /**
      * Gets the value for the specified field of the pet on the database.
      * @param owner Username of the owner of the pets
@@ -131,6 +166,24 @@ public interface PetDao {
                                                                     String key1, String key2)
         throws DatabaseAccessException, DocumentException;
 
+    /**
+     * Gets a page of the elements between the keys from the map for the specified field.
+     * @param owner Username of the owner of the pets
+     * @param name Name of the pet
+     * @param field Name of the field
+     * @param key1 Start key (This one included)
+     * @param key2 End Key (This one included)
+     * @param startAfterKey Key of the last element of the previous page or null to get the first page
+     * @param limit Maximum number of elements of the page
+     * @return The map containing the elements of the page ordered by their key
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the document does not exist
+     */
+    List<Map<String, Object>> getFieldCollectionElementsBetweenKeys(String owner, String name, String field,
+                                                                    String key1, String key2, String startAfterKey,
+                                                                    int limit)
+        throws DatabaseAccessException, DocumentException;
+
     /**
      * Adds an element to the map for the specified field of the pet on the database.
      * @param owner Username of the owner of the pets
@@ -6,32 +6,45 @@ import org.pesmypetcare.webservice.builders.Collections;
 import org.pesmypetcare.webservice.builders.Path;
 import org.pesmypetcare.webservice.dao.appmanager.StorageDao;
 import org.pesmypetcare.webservice.dao.appmanager.StorageDaoImpl;
+import org.pesmypetcare.webservice.dao.usermanager.UsernameResolver;
 import org.pesmypetcare.webservice.entity.petmanager.PetEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.BulkWriteBatch;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollectionAsync;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreTreeDeleter;
+import org.pesmypetcare.webservice.utilities.Versioned;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
 
 /**
  * @author Marc Simó
  */
 @Repository
 public class PetDaoImpl implements PetDao {
-    private String ownerId;
-    private WriteBatch batch;
-    private String path;
-
     @Autowired
     private FirestoreCollection dbCol;
     @Autowired
     private FirestoreDocument dbDoc;
+    @Autowired
+    private FirestoreCollectionAsync dbColAsync;
+    @Autowired
+    private UsernameResolver usernameResolver;
+    @Autowired
+    private FirestoreBulkWriter bulkWriter;
+    @Autowired
+    private FirestoreTreeDeleter treeDeleter;
 
     private StorageDao storageDao;
 
@@ -50,26 +63,30 @@ public class PetDaoImpl implements PetDao {
     @Override
     public void createPet(String owner, String name, PetEntity petEntity) throws DatabaseAccessException,
         DocumentException {
-        initializeWithCollectionPath(owner);
-        dbDoc.createDocumentWithId(path, name, petEntity, batch);
-        dbDoc.commitBatch(batch);
+        Access access = initializeWithCollectionPath(owner);
+        dbDoc.createDocumentWithId(access.path, name, petEntity, access.batch);
+        dbDoc.commitBatch(access.batch);
     }
 
     @Override
     public void deleteByOwnerAndName(String owner, String name) throws DatabaseAccessException, DocumentException {
-        initializeWithDocumentPath(owner, name);
-        String imageLocation = dbDoc.getStringFromDocument(path, "profileImageLocation");
-        dbDoc.deleteDocument(path, batch);
-        dbDoc.commitBatch(batch);
+        Access access = initializeWithDocumentPath(owner, name);
+        String imageLocation = dbDoc.getStringFromDocument(access.path, "profileImageLocation");
+        treeDeleter.deleteDocument(access.path, null);
         deleteProfileImage(imageLocation);
     }
 
     @Override
     public void deleteAllPets(String owner) throws DatabaseAccessException, DocumentException {
-        initializeWithCollectionPath(owner);
-        List<DocumentSnapshot> petsDocuments = dbCol.listAllCollectionDocumentSnapshots(path);
-        dbCol.deleteCollection(path, batch);
-        dbDoc.commitBatch(batch);
+        deleteAllPets(owner, null);
+    }
+
+    @Override
+    public void deleteAllPets(String owner, @Nullable LongConsumer progress) throws DatabaseAccessException,
+        DocumentException {
+        Access access = initializeWithCollectionPath(owner);
+        List<DocumentSnapshot> petsDocuments = dbCol.listAllCollectionDocumentSnapshots(access.path);
+        treeDeleter.deleteCollection(access.path, progress);
         for (DocumentSnapshot petDocument : petsDocuments) {
             String imageLocation = petDocument.getString("profileImageLocation");
             deleteProfileImage(imageLocation);
@@ -78,129 +95,141 @@ public class PetDaoImpl implements PetDao {
 
     @Override
     public PetEntity getPetData(String owner, String name) throws DatabaseAccessException, DocumentException {
-        initializeWithDocumentPath(owner, name);
-        return dbDoc.getDocumentDataAsObject(path, PetEntity.class);
+        Access access = initializeWithDocumentPath(owner, name);
+        return dbDoc.getDocumentDataAsObject(access.path, PetEntity.class);
+    }
+
+    @Override
+    public Versioned<PetEntity> getVersionedPetData(String owner, String name)
+        throws DatabaseAccessException, DocumentException {
+        Access access = initializeWithDocumentPath(owner, name);
+        DocumentSnapshot snapshot = dbDoc.getDocumentSnapshot(access.path);
+        return new Versioned<>(snapshot.toObject(PetEntity.class), snapshot.getUpdateTime());
     }
 
     @Override
     public List<Map<String, Object>> getAllPetsData(String owner) throws DatabaseAccessException, DocumentException {
-        initializeWithCollectionPath(owner);
-        List<DocumentSnapshot> petsDocuments = dbCol.listAllCollectionDocumentSnapshots(path);
-        List<Map<String, Object>> externalList = new ArrayList<>();
+        Access access = initializeWithCollectionPath(owner);
+        return toPetsData(dbCol.listAllCollectionDocumentSnapshots(access.path));
+    }
 
-        for (DocumentSnapshot petDocument : petsDocuments) {
-            Map<String, Object> internalList = new HashMap<>();
-            internalList.put("name", petDocument.getId());
-            internalList.put("body", petDocument.toObject(PetEntity.class));
-            externalList.add(internalList);
-        }
-        return externalList;
+    @Override
+    public CompletableFuture<List<Map<String, Object>>> getAllPetsDataAsync(String owner)
+        throws DatabaseAccessException, DocumentException {
+        String petsPath = Path.ofCollection(Collections.pets, usernameResolver.getUid(owner));
+        return dbColAsync.listAllCollectionDocumentSnapshots(petsPath).thenApply(this::toPetsData);
     }
 
     @Override
     public Object getSimpleField(String owner, String name, String field)
         throws DatabaseAccessException, DocumentException {
-        String petPath = Path.ofDocument(Collections.pets, getUserId(owner), name);
+        String petPath = Path.ofDocument(Collections.pets, usernameResolver.getUid(owner), name);
         return dbDoc.getDocumentField(petPath, field);
     }
 
     @Override
     public void updateSimpleField(String owner, String name, String field, Object value)
         throws DatabaseAccessException, DocumentException {
-        initializeWithDocumentPath(owner, name);
-        dbDoc.updateDocumentFields(batch, path, field, value);
-        dbDoc.commitBatch(batch);
+        Access access = initializeWithDocumentPath(owner, name);
+        dbDoc.updateDocumentFields(access.batch, access.path, field, value);
+        dbDoc.commitBatch(access.batch);
     }
 
     @Override
     public void deleteFieldCollection(String owner, String name, String field)
         throws DatabaseAccessException, DocumentException {
-        initializeFieldWithCollectionPath(owner, name, field);
-        dbCol.deleteCollection(path, batch);
-        dbDoc.commitBatch(batch);
+        Access access = initializeFieldWithCollectionPath(owner, name, field);
+        BulkWriteBatch batch = bulkWriter.batch();
+        dbCol.deleteCollection(access.path, batch);
+        bulkWriter.commitBatch(batch);
     }
 
     @Override
     public void deleteFieldCollectionElementsPreviousToKey(String owner, String name, String field, String key)
         throws DatabaseAccessException, DocumentException {
-        initializeFieldWithCollectionPath(owner, name, field);
-        List<DocumentSnapshot> fieldsDocuments = dbCol.listAllCollectionDocumentSnapshots(path);
-
+        Access access = initializeFieldWithCollectionPath(owner, name, field);
+        List<DocumentSnapshot> fieldsDocuments = dbCol.listDocumentSnapshotsBeforeId(access.path, key);
+        BulkWriteBatch batch = bulkWriter.batch();
         for (DocumentSnapshot fieldDocument : fieldsDocuments) {
-            String documentKey = fieldDocument.getId();
-            if (documentKey.compareTo(key) < 0) {
-                batch.delete(fieldDocument.getReference());
-            }
+            batch.delete(fieldDocument.getReference());
         }
-        dbDoc.commitBatch(batch);
+        bulkWriter.commitBatch(batch);
     }
 
     @Override
     public List<Map<String, Object>> getFieldCollection(String owner, String name, String field)
         throws DatabaseAccessException, DocumentException {
-        initializeFieldWithCollectionPath(owner, name, field);
-        List<DocumentSnapshot> fieldsDocuments = dbCol.listAllCollectionDocumentSnapshots(path);
-        List<Map<String, Object>> externalList = new ArrayList<>();
-
-        for (DocumentSnapshot fieldDocument : fieldsDocuments) {
-            Map<String, Object> internalList = new HashMap<>();
-            internalList.put("key", fieldDocument.getId());
-            internalList.put("body", fieldDocument.getData());
-            externalList.add(internalList);
-        }
-        return externalList;
+        Access access = initializeFieldWithCollectionPath(owner, name, field);
+        List<DocumentSnapshot> fieldsDocuments = dbCol.listAllCollectionDocumentSnapshots(access.path);
+        return toFieldCollectionElements(fieldsDocuments);
     }
 
     @Override
     public List<Map<String, Object>> getFieldCollectionElementsBetweenKeys(String owner, String name, String field,
                                                                            String key1, String key2)
         throws DatabaseAccessException, DocumentException {
-        initializeFieldWithCollectionPath(owner, name, field);
-        List<DocumentSnapshot> fieldsDocuments = dbCol.listAllCollectionDocumentSnapshots(path);
-        List<Map<String, Object>> externalList = new ArrayList<>();
+        Access access = initializeFieldWithCollectionPath(owner, name, field);
+        List<DocumentSnapshot> fieldsDocuments = dbCol.listDocumentSnapshotsBetweenIds(access.path, key1, key2);
+        return toFieldCollectionElements(fieldsDocuments);
+    }
 
-        for (DocumentSnapshot fieldDocument : fieldsDocuments) {
-            String key = fieldDocument.getId();
-            if (key1.compareTo(key) <= 0 && key2.compareTo(key) >= 0) {
-                Map<String, Object> internalList = new HashMap<>();
-                internalList.put("key", fieldDocument.getId());
-                internalList.put("body", fieldDocument.getData());
-                externalList.add(internalList);
-            }
-        }
-        return externalList;
+    @Override
+    public List<Map<String, Object>> getFieldCollectionElementsBetweenKeys(String owner, String name, String field,
+                                                                           String key1, String key2,
+                                                                           String startAfterKey, int limit)
+        throws DatabaseAccessException, DocumentException {
+        Access access = initializeFieldWithCollectionPath(owner, name, field);
+        List<DocumentSnapshot> fieldsDocuments = dbCol.getDocumentSnapshotsPageBetweenIds(access.path, key1, key2,
+            startAfterKey, limit);
+        return toFieldCollectionElements(fieldsDocuments);
     }
 
     @Override
     public void addFieldCollectionElement(String owner, String name, String field, String key, Map<String, Object> body)
         throws DatabaseAccessException, DocumentException {
-        initializeFieldWithCollectionPath(owner, name, field);
-        dbDoc.createDocumentWithId(path, key, body, batch);
-        dbDoc.commitBatch(batch);
+        Access access = initializeFieldWithCollectionPath(owner, name, field);
+        dbDoc.createDocumentWithId(access.path, key, body, access.batch);
+        dbDoc.commitBatch(access.batch);
     }
 
     @Override
     public void deleteFieldCollectionElement(String owner, String name, String field, String key)
         throws DatabaseAccessException, DocumentException {
-        initializeFieldWithDocumentPath(owner, name, field, key);
-        dbDoc.deleteDocument(path, batch);
-        dbDoc.commitBatch(batch);
+        Access access = initializeFieldWithDocumentPath(owner, name, field, key);
+        dbDoc.deleteDocument(access.path, access.batch);
+        dbDoc.commitBatch(access.batch);
     }
 
     @Override
     public void updateFieldCollectionElement(String owner, String name, String field, String key,
                                              Map<String, Object> body)
         throws DatabaseAccessException, DocumentException {
-        initializeFieldWithDocumentPath(owner, name, field, key);
-        dbDoc.updateDocumentFields(path, body, batch);
-        dbDoc.commitBatch(batch);
+        Access access = initializeFieldWithDocumentPath(owner, name, field, key);
+        dbDoc.updateDocumentFields(access.path, body, access.batch);
+        dbDoc.commitBatch(access.batch);
     }
 
     @Override
     public Map<String, Object> getFieldCollectionElement(String owner, String name, String field, String key)
         throws DatabaseAccessException, DocumentException {
-        initializeFieldWithDocumentPath(owner, name, field, key);
-        return dbDoc.getDocumentData(path);
+        Access access = initializeFieldWithDocumentPath(owner, name, field, key);
+        return dbDoc.getDocumentData(access.path);
+    }
+
+    /**
+     * Converts the documents of a field collection to the list of elements with their key and body.
+     * @param fieldsDocuments The documents of the field collection
+     * @return The list of elements
+     */
+    private List<Map<String, Object>> toFieldCollectionElements(List<DocumentSnapshot> fieldsDocuments) {
+        List<Map<String, Object>> externalList = new ArrayList<>();
+        for (DocumentSnapshot fieldDocument : fieldsDocuments) {
+            Map<String, Object> internalList = new HashMap<>();
+            internalList.put("key", fieldDocument.getId());
+            internalList.put("body", fieldDocument.getData());
+            externalList.add(internalList);
+        }
+        return externalList;
     }
 
     /**
@@ -214,76 +243,91 @@ public class PetDaoImpl implements PetDao {
     }
 
     /**
-     * Initializes the ownerId, batch and path variables for the access, the path is set to the pet document.
+     * Converts the pet documents into the name and data of each pet.
+     * @param petsDocuments The pet documents
+     * @return The List containing the name and the data of each pet
+     */
+    private List<Map<String, Object>> toPetsData(List<DocumentSnapshot> petsDocuments) {
+        List<Map<String, Object>> externalList = new ArrayList<>();
+        for (DocumentSnapshot petDocument : petsDocuments) {
+            Map<String, Object> internalList = new HashMap<>();
+            internalList.put("name", petDocument.getId());
+            internalList.put("body", petDocument.toObject(PetEntity.class));
+            externalList.add(internalList);
+        }
+        return externalList;
+    }
+
+    /**
+     * Creates the access for a call, the path is set to the pet document.
      * @param owner Owner of the pet
      * @param petName Pet name
+     * @return The access with a new batch and the path
      * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
      * @throws DocumentException When the document does not exist
      */
-    private void initializeWithDocumentPath(String owner, String petName) throws DatabaseAccessException,
+    private Access initializeWithDocumentPath(String owner, String petName) throws DatabaseAccessException,
         DocumentException {
-        ownerId = getUserId(owner);
-        batch = dbCol.batch();
-        path = Path.ofDocument(Collections.pets, ownerId, petName);
+        String ownerId = usernameResolver.getUid(owner);
+        return new Access(dbCol.batch(), Path.ofDocument(Collections.pets, ownerId, petName));
     }
 
     /**
-     * Initializes the ownerId, batch and path variables for the access, the path is set to the user's pet collection.
+     * Creates the access for a call, the path is set to the user's pet collection.
      * @param owner Owner of the pets
+     * @return The access with a new batch and the path
      * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
      * @throws DocumentException When the document does not exist
      */
-    private void initializeWithCollectionPath(String owner) throws DatabaseAccessException,
+    private Access initializeWithCollectionPath(String owner) throws DatabaseAccessException,
         DocumentException {
-        ownerId = getUserId(owner);
-        batch = dbCol.batch();
-        path = Path.ofCollection(Collections.pets, ownerId);
+        String ownerId = usernameResolver.getUid(owner);
+        return new Access(dbCol.batch(), Path.ofCollection(Collections.pets, ownerId));
     }
 
     /**
-     * Initializes the collection, ownerId, batch and path variables for the access, the path is set to the user's
-     * pet field document identified by key.
+     * Creates the access for a call, the path is set to the user's pet field document identified by key.
      * @param owner Owner of the pet
      * @param petName Pet name
      * @param collectionName Name of the collection
      * @param key Id of the document we access
+     * @return The access with a new batch and the path
      * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
      * @throws DocumentException When the document does not exist
      */
-    private void initializeFieldWithDocumentPath(String owner, String petName, String collectionName, String key)
+    private Access initializeFieldWithDocumentPath(String owner, String petName, String collectionName, String key)
         throws DatabaseAccessException, DocumentException {
         Collections collection = Path.collectionOfField(collectionName);
-        ownerId = getUserId(owner);
-        batch = dbCol.batch();
-        path = Path.ofDocument(collection, ownerId, petName, key);
+        String ownerId = usernameResolver.getUid(owner);
+        return new Access(dbCol.batch(), Path.ofDocument(collection, ownerId, petName, key));
     }
 
     /**
-     * Initializes the collection, ownerId, batch and path variables for the access, the path is set to the user's
-     * pet field collection.
+     * Creates the access for a call, the path is set to the user's pet field collection.
      * @param owner Owner of the pet
      * @param petName Pet name
      * @param collectionName Name of the collection
+     * @return The access with a new batch and the path
      * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
      * @throws DocumentException When the document does not exist
      */
-    private void initializeFieldWithCollectionPath(String owner, String petName, String collectionName)
+    private Access initializeFieldWithCollectionPath(String owner, String petName, String collectionName)
         throws DatabaseAccessException, DocumentException {
         Collections collection = Path.collectionOfField(collectionName);
-        ownerId = getUserId(owner);
-        batch = dbCol.batch();
-        path = Path.ofCollection(collection, ownerId, petName);
+        String ownerId = usernameResolver.getUid(owner);
+        return new Access(dbCol.batch(), Path.ofCollection(collection, ownerId, petName));
     }
 
     /**
-     * Returns the id of a user specifying its username.
-     * @param username Name of the user
-     * @return The user's id
-     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
-     * @throws DocumentException When the document does not exist
+     * The batch and path used by a single call. Each call creates its own so that concurrent calls never share them.
      */
-    private String getUserId(String username) throws DatabaseAccessException, DocumentException {
-        String usernamePath = Path.ofDocument(Collections.used_usernames, username);
-        return dbDoc.getStringFromDocument(usernamePath, "user");
+    private static final class Access {
+        private final WriteBatch batch;
+        private final String path;
+
+        private Access(WriteBatch batch, String path) {
+            this.batch = batch;
+            this.path = path;
+        }
     }
 }
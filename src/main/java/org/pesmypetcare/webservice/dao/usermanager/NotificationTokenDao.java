@@ -0,0 +1,21 @@
+package org.pesmypetcare.webservice.dao.usermanager;
+
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+
+import java.util.Collection;
+
+/**
+ * @author Santiago Del Rey
+ */
+public interface NotificationTokenDao {
+    /**
+     * Deletes a set of device tokens from the groups notification lists and from the users that own them.
+     *
+     * @param tokens The device tokens to delete
+     * @return The number of documents that have been updated
+     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
+     * @throws DocumentException When the update fails
+     */
+    int deleteTokens(Collection<String> tokens) throws DatabaseAccessException, DocumentException;
+}
@@ -0,0 +1,79 @@
+package org.pesmypetcare.webservice.dao.usermanager;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.BulkWriteBatch;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Deletes the device tokens that the messaging service no longer accepts. The queries of all the tokens are sent at
+ * once before waiting for any of them, and the writes of all the tokens are committed together in a bulk batch.
+ *
+ * @author Santiago Del Rey
+ */
+@Repository
+public class NotificationTokenDaoImpl implements NotificationTokenDao {
+    private static final String NOTIFICATIONS_FIELD = "notification-tokens";
+    private static final String FCM_FIELD = "FCM";
+    @Autowired
+    private FirestoreCollection collectionAdapter;
+    @Autowired
+    private FirestoreBulkWriter bulkWriter;
+
+    @Override
+    public int deleteTokens(Collection<String> tokens) throws DatabaseAccessException, DocumentException {
+        Map<String, ApiFuture<QuerySnapshot>> groupQueries = new LinkedHashMap<>();
+        Map<String, ApiFuture<QuerySnapshot>> userQueries = new LinkedHashMap<>();
+        for (String token : tokens) {
+            groupQueries.put(token, collectionAdapter
+                .getDocumentsWhereArrayContains(Path.ofCollection(Collections.groups), NOTIFICATIONS_FIELD, token));
+            userQueries.put(token, collectionAdapter
+                .getDocumentsWhereEqualTo(Path.ofCollection(Collections.users), FCM_FIELD, token));
+        }
+        BulkWriteBatch batch = bulkWriter.batch();
+        for (String token : tokens) {
+            for (QueryDocumentSnapshot group : getDocuments(groupQueries.get(token))) {
+                batch.update(group.getReference(), NOTIFICATIONS_FIELD, FieldValue.arrayRemove(token));
+            }
+            for (QueryDocumentSnapshot user : getDocuments(userQueries.get(token))) {
+                batch.update(user.getReference(), FCM_FIELD, FieldValue.delete());
+            }
+        }
+        int updated = batch.size();
+        if (updated > 0) {
+            bulkWriter.commitBatch(batch);
+        }
+        return updated;
+    }
+
+    /**
+     * Gets the documents of a query result.
+     *
+     * @param query The query result
+     * @return The list of documents
+     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
+     */
+    private List<QueryDocumentSnapshot> getDocuments(ApiFuture<QuerySnapshot> query) throws DatabaseAccessException {
+        try {
+            return query.get().getDocuments();
+        } catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            throw new DatabaseAccessException("retrieval-failed", "The documents could not be retrieved");
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.pesmypetcare.webservice.dao.usermanager;
+
+import org.pesmypetcare.webservice.error.ServiceOverloadedException;
+
+/**
+ * @author Santiago Del Rey
+ */
+public interface PasswordHasher {
+    /**
+     * Hashes a password.
+     *
+     * @param rawPassword The password to hash
+     * @return The hashed password
+     * @throws ServiceOverloadedException When there are too many passwords waiting to be hashed
+     */
+    String encode(String rawPassword);
+}
@@ -0,0 +1,98 @@
+package org.pesmypetcare.webservice.dao.usermanager;
+
+import org.pesmypetcare.webservice.error.ServiceOverloadedException;
+import org.pesmypetcare.webservice.utilities.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hashes the passwords in a dedicated pool of threads fed by a bounded queue, so a burst of signups cannot use all the
+ * CPU of the service. When the queue is full the password is rejected instead of waiting.
+ *
+ * @author Santiago Del Rey
+ */
+@Repository
+public class PasswordHasherImpl implements PasswordHasher, MetricsSource {
+    private static final int DEFAULT_THREADS = 2;
+    private static final int DEFAULT_QUEUE_CAPACITY = 50;
+    private static final String OVERLOADED_CODE = "hashing-overloaded";
+    @Value("${passwords.hashing-threads:" + DEFAULT_THREADS + "}")
+    private int threads = DEFAULT_THREADS;
+    @Value("${passwords.hashing-queue-capacity:" + DEFAULT_QUEUE_CAPACITY + "}")
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private final AtomicLong hashed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Starts the threads that hash the passwords.
+     */
+    @PostConstruct
+    public void startHashing() {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity));
+    }
+
+    /**
+     * Stops the threads once the queued passwords have been hashed.
+     */
+    @PreDestroy
+    public void stopHashing() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public String encode(String rawPassword) {
+        Future<String> hash;
+        try {
+            hash = executor.submit(() -> passwordEncoder.encode(rawPassword));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new ServiceOverloadedException(OVERLOADED_CODE, "Too many passwords are being processed");
+        }
+        try {
+            String encoded = hash.get();
+            hashed.incrementAndGet();
+            return encoded;
+        } catch (InterruptedException e) {
+            hash.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException(OVERLOADED_CODE, "The password hashing was interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The password hashing failed", e.getCause());
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "password-hasher";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queued", executor.getQueue().size());
+        metrics.put("active", executor.getActiveCount());
+        metrics.put("hashed", hashed.get());
+        metrics.put("rejected", rejected.get());
+        return metrics;
+    }
+}
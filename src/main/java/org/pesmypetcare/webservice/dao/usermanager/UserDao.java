@@ -5,13 +5,28 @@ import com.google.firebase.auth.FirebaseAuthException;
 import org.pesmypetcare.webservice.entity.usermanager.UserEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.springframework.lang.Nullable;
 
 import java.util.List;
+import java.util.function.LongConsumer;
 
 /**
  * @author Santiago Del Rey
  */
 public interface UserDao {
+    /**
+     * Type of the jobs that finish the username updates whose copies do not fit in a single write batch.
+     */
+    String USERNAME_UPDATE_JOB = "username-update";
+    /**
+     * Parameter of the username update jobs with the previous username.
+     */
+    String USERNAME_PARAMETER = "username";
+    /**
+     * Parameter of the username update jobs with the new username.
+     */
+    String NEW_USERNAME_PARAMETER = "newUsername";
+
     /**
      * Creates a user on the database.
      *
@@ -42,6 +57,82 @@ public interface UserDao {
      */
     void deleteById(String uid) throws DatabaseAccessException, FirebaseAuthException, DocumentException;
 
+    /**
+     * Deletes all the pets of the user. Deleting the pets of a user without pets does nothing.
+     *
+     * @param username The user's username
+     * @param progress The callback that receives the number of documents deleted so far, or null
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the deletion fails
+     */
+    void deleteUserPets(String username, @Nullable LongConsumer progress)
+        throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Deletes all the user files on the storage.
+     *
+     * @param uid The user's unique identifier
+     */
+    void deleteUserStorage(String uid);
+
+    /**
+     * Deletes all the user likes to messages.
+     *
+     * @param username The user's username
+     * @return The number of messages that were liked by the user
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the update of the messages fails
+     */
+    int deleteUserLikes(String username) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Deletes the user from the leaderboards of all the medals.
+     *
+     * @param username The user's username
+     * @return The number of leaderboard entries deleted
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the deletion of the entries fails
+     */
+    int deleteUserLeaderboardEntries(String username) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Replaces a username with a new one in the groups, forums, messages and leaderboards that still hold it. It can
+     * be called again after a failure, since the documents that were already updated no longer hold the username.
+     *
+     * @param username The previous username
+     * @param newUsername The new username
+     * @return The number of documents updated
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the update of any document fails
+     */
+    int updateUsernameCopies(String username, String newUsername) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Releases the username of a user and waits until the deletion is stored.
+     *
+     * @param username The user's username
+     * @throws DatabaseAccessException When the wait is interrupted
+     * @throws DocumentException When the deletion fails
+     */
+    void deleteUsername(String username) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Deletes the document of a user and waits until the deletion is stored.
+     *
+     * @param uid The user's unique identifier
+     * @throws DatabaseAccessException When the wait is interrupted
+     * @throws DocumentException When the deletion fails
+     */
+    void deleteUserDocument(String uid) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Deletes the authentication account of a user. Deleting an account that no longer exists does nothing.
+     *
+     * @param uid The user's unique identifier
+     * @throws FirebaseAuthException If an error occurs when deleting the account
+     */
+    void deleteAuthentication(String uid) throws FirebaseAuthException;
+
     /**
      * Gets the data of the specified user.
      *
@@ -52,7 +143,9 @@ public interface UserDao {
     UserEntity getUserData(String uid) throws DatabaseAccessException;
 
     /**
-     * Updates a user field.
+     * Updates a user field. A new username is written together with all its copies in a single batch. When the
+     * copies do not fit in it, the user is renamed at once and a {@value #USERNAME_UPDATE_JOB} job is stored in the
+     * same batch to update the copies and release the previous username afterwards.
      *
      * @param username The user's username
      * @param field The field to update
@@ -64,7 +157,8 @@ public interface UserDao {
         throws FirebaseAuthException, DatabaseAccessException;
 
     /**
-     * Checks if a username is already in use.
+     * Checks if a username is already in use. The usernames that are certainly available are answered without
+     * accessing the database.
      *
      * @param username The username to check
      * @return True if the username is already in use
@@ -10,30 +10,40 @@ import com.google.cloud.firestore.Query;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
 import com.google.firebase.auth.UserRecord;
 import org.pesmypetcare.webservice.builders.Collections;
 import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.dao.appmanager.JobDao;
 import org.pesmypetcare.webservice.dao.appmanager.StorageDao;
+import org.pesmypetcare.webservice.dao.medalmanager.MedalLeaderboard;
 import org.pesmypetcare.webservice.dao.medalmanager.UserMedalDao;
 import org.pesmypetcare.webservice.dao.petmanager.PetDao;
 import org.pesmypetcare.webservice.dao.petmanager.PetDaoImpl;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
 import org.pesmypetcare.webservice.entity.usermanager.UserEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.thirdpartyservices.FirebaseFactory;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.BulkWriteBatch;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.function.LongConsumer;
 
 /**
  * @author Santiago Del Rey
@@ -53,6 +63,8 @@ public class UserDaoImpl implements UserDao {
     private static final String FCM = "FCM";
     private static final String NOTIFICATIONS_FIELD = "notification-tokens";
     private static final String WRITE_FAILED_CODE = "write-failed";
+    private static final String USER_NOT_FOUND_CODE = "user-not-found";
+    private static final int USERNAME_UPDATE_WRITES = 3;
     private FirebaseAuth myAuth;
     private CollectionReference users;
     private CollectionReference usedUsernames;
@@ -65,6 +77,18 @@ public class UserDaoImpl implements UserDao {
     private FirestoreCollection collectionAdapter;
     @Autowired
     private FirestoreDocument documentAdapter;
+    @Autowired
+    private UsernameResolver usernameResolver;
+    @Autowired
+    private FirestoreBulkWriter bulkWriter;
+    @Autowired
+    private PasswordHasher passwordHasher;
+    @Autowired
+    private UsernameFilter usernameFilter;
+    @Autowired
+    private MedalLeaderboard medalLeaderboard;
+    @Autowired
+    private JobDao jobDao;
 
     public UserDaoImpl() {
         FirebaseFactory firebaseFactory = FirebaseFactory.getInstance();
@@ -78,14 +102,16 @@ public class UserDaoImpl implements UserDao {
     public void createUser(String uid, UserEntity userEntity) throws DatabaseAccessException, FirebaseAuthException,
         DocumentException {
         String username = userEntity.getUsername();
-        if (!existsUsername(username)) {
+        if (!isUsernameStored(username)) {
             WriteBatch batch = db.batch();
             saveUsername(uid, username, batch);
-            String encodedPassword = new BCryptPasswordEncoder().encode(userEntity.getPassword());
+            String encodedPassword = passwordHasher.encode(userEntity.getPassword());
             userEntity.setPassword(encodedPassword);
             batch.set(users.document(uid), userEntity);
             try {
                 batch.commit().get();
+                usernameResolver.invalidate(username);
+                usernameFilter.add(username);
                 userMedalDao.createAllUserMedals(username);
                 updateDisplayName(uid, username);
             } catch (InterruptedException | ExecutionException e) {
@@ -102,19 +128,87 @@ public class UserDaoImpl implements UserDao {
         DocumentSnapshot userDoc = getDocumentSnapshot(users, uid);
         throwExceptionIfUserDoesNotExist(userDoc);
         String username = (String) userDoc.get(USERNAME_FIELD);
-        petDao.deleteAllPets(username);
+        deleteUserPets(username, null);
         deleteUserStorage(uid);
-        WriteBatch batch = collectionAdapter.batch();
-        deleteUserLikes(username, batch);
-        collectionAdapter.commitBatch(batch);
-        usedUsernames.document(Objects.requireNonNull(username)).delete();
-        users.document(uid).delete();
+        deleteUserLikes(username);
+        deleteUsername(username);
+        deleteUserDocument(uid);
     }
 
     @Override
     public void deleteById(String uid) throws FirebaseAuthException, DatabaseAccessException, DocumentException {
         deleteFromDatabase(uid);
-        myAuth.deleteUser(uid);
+        deleteAuthentication(uid);
+    }
+
+    @Override
+    public void deleteUserPets(String username, @Nullable LongConsumer progress)
+        throws DatabaseAccessException, DocumentException {
+        petDao.deleteAllPets(username, progress);
+    }
+
+    @Override
+    public void deleteUserStorage(String uid) {
+        StorageDao storageDao = ((PetDaoImpl) petDao).getStorageDao();
+        storageDao.deleteImageByName(uid + "/profile-image.png");
+    }
+
+    @Override
+    public int deleteUserLikes(String username) throws DatabaseAccessException, DocumentException {
+        BulkWriteBatch batch = bulkWriter.batch();
+        deleteUserLikes(username, batch);
+        int likes = batch.size();
+        bulkWriter.commitBatch(batch);
+        return likes;
+    }
+
+    @Override
+    public int deleteUserLeaderboardEntries(String username) throws DatabaseAccessException, DocumentException {
+        ApiFuture<QuerySnapshot> entries = collectionAdapter
+            .getCollectionGroupDocumentsWhereEqualTo(Collections.leaderboard.name(), USERNAME_FIELD, username);
+        BulkWriteBatch batch = bulkWriter.batch();
+        Set<String> uids = new HashSet<>();
+        try {
+            for (DocumentSnapshot entry : entries.get().getDocuments()) {
+                batch.delete(entry.getReference());
+                uids.add(entry.getId());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+            throw new DatabaseAccessException(UPDATE_FAILED_CODE, "The deletion of the leaderboard entries failed");
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            throw new DatabaseAccessException(UPDATE_FAILED_CODE, "The deletion of the leaderboard entries failed");
+        }
+        bulkWriter.commitBatch(batch);
+        for (String uid : uids) {
+            medalLeaderboard.removeUser(uid);
+        }
+        return batch.size();
+    }
+
+    @Override
+    public void deleteUsername(String username) throws DatabaseAccessException, DocumentException {
+        awaitDeletion(usedUsernames.document(Objects.requireNonNull(username)).delete(),
+            "The username could not be released");
+        usernameResolver.invalidate(username);
+    }
+
+    @Override
+    public void deleteUserDocument(String uid) throws DatabaseAccessException, DocumentException {
+        awaitDeletion(users.document(uid).delete(), "The user document could not be deleted");
+    }
+
+    @Override
+    public void deleteAuthentication(String uid) throws FirebaseAuthException {
+        try {
+            myAuth.deleteUser(uid);
+        } catch (FirebaseAuthException e) {
+            if (!USER_NOT_FOUND_CODE.equals(e.getErrorCode())) {
+                throw e;
+            }
+        }
     }
 
     @Override
@@ -145,8 +239,7 @@ public class UserDaoImpl implements UserDao {
 
     @Override
     public boolean existsUsername(String username) throws DatabaseAccessException {
-        DocumentSnapshot usernameDoc = getDocumentSnapshot(usedUsernames, username);
-        return usernameDoc.exists();
+        return usernameFilter.mightBeTaken(username) && isUsernameStored(username);
     }
 
     @Override
@@ -158,9 +251,11 @@ public class UserDaoImpl implements UserDao {
 
     @Override
     public String getUid(String username) throws DatabaseAccessException {
-        DocumentSnapshot usernameDoc = getDocumentSnapshot(usedUsernames, username);
-        throwExceptionIfUserDoesNotExist(usernameDoc);
-        return (String) usernameDoc.get(USER_KEY);
+        try {
+            return usernameResolver.getUid(username);
+        } catch (DocumentException e) {
+            throw new DatabaseAccessException(INVALID_USER, USER_DOES_NOT_EXIST_MESSAGE);
+        }
     }
 
     @Override
@@ -228,38 +323,35 @@ public class UserDaoImpl implements UserDao {
         return userDoc;
     }
 
-    /**
-     * Deletes all the user files on the storage.
-     *
-     * @param uid The user unique identifier
-     */
-    private void deleteUserStorage(String uid) {
-        StorageDao storageDao = ((PetDaoImpl) petDao).getStorageDao();
-        storageDao.deleteImageByName(uid + "/profile-image.png");
-    }
-
     /**
      * Deletes all the user likes to messages.
      *
      * @param username The user's username
-     * @param batch The batch where to write
+     * @param batch The bulk batch where to write
      * @throws DatabaseAccessException If an error occurs when accessing the database
      */
-    private void deleteUserLikes(String username, WriteBatch batch) throws DatabaseAccessException {
+    private void deleteUserLikes(String username, BulkWriteBatch batch) throws DatabaseAccessException {
         ApiFuture<QuerySnapshot> documentSnapshots = collectionAdapter
             .getCollectionGroupDocumentsWhereArrayContains(Collections.messages.name(), FIELD_LIKED_BY, username);
         try {
             for (DocumentSnapshot document : documentSnapshots.get().getDocuments()) {
                 batch.update(document.getReference(), FIELD_LIKED_BY, FieldValue.arrayRemove(username));
             }
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+            throw new DatabaseAccessException(UPDATE_FAILED_CODE, "The deletion of the user likes failed");
+        } catch (ExecutionException e) {
             e.printStackTrace();
             throw new DatabaseAccessException(UPDATE_FAILED_CODE, "The deletion of the user likes failed");
         }
     }
 
     /**
-     * Updates the user's username.
+     * Updates the user's username. The username reservations, the user document and the username copies in the
+     * groups, forums, messages and leaderboards of the user are written in a single batch when they fit in it.
+     * Otherwise, the new username and the user document are written with a job that updates the copies, and the
+     * previous username is kept reserved until the job releases it.
      *
      * @param uid The unique identifier of the user
      * @param newUsername The new username for the account
@@ -268,28 +360,84 @@ public class UserDaoImpl implements UserDao {
      */
     private void updateUsername(String uid, String newUsername) throws DatabaseAccessException, FirebaseAuthException {
         DocumentSnapshot usernameDoc = getDocumentSnapshot(usedUsernames, newUsername);
-        if (!usernameDoc.exists()) {
-            String username = myAuth.getUser(uid).getDisplayName();
-            WriteBatch batch = db.batch();
-            updateNameOnSubscriptions(username, newUsername, batch);
-            updateNameOnCreatedGroups(username, newUsername, batch);
-            updateNameOnCreatedForums(username, newUsername, batch);
-            updateNameOnCreatedMessages(username, newUsername, batch);
-            deleteOldUsername(uid, batch);
-            saveUsername(uid, newUsername, batch);
-            Map<String, Object> data = new HashMap<>();
-            data.put(USERNAME_FIELD, newUsername);
-            batch.update(users.document(uid), data);
-            try {
+        if (usernameDoc.exists()) {
+            throw new DatabaseAccessException(INVALID_USERNAME, USED_USERNAME_MESSAGE);
+        }
+        String username = myAuth.getUser(uid).getDisplayName();
+        BulkWriteBatch writes = getUsernameCopies(username, newUsername);
+        Map<String, Object> data = new HashMap<>();
+        data.put(USERNAME_FIELD, newUsername);
+        Map<String, Object> usernameData = getUsernameData(uid);
+        try {
+            if (writes.size() + USERNAME_UPDATE_WRITES <= FirestoreBulkWriter.MAX_WRITES_PER_BATCH) {
+                writes.delete(usedUsernames.document(username));
+                writes.set(usedUsernames.document(newUsername), usernameData);
+                writes.update(users.document(uid), data);
+                bulkWriter.commitAtomically(writes);
+                usernameResolver.invalidate(username);
+                medalLeaderboard.renameUser(uid, newUsername);
+            } else {
+                WriteBatch batch = db.batch();
+                batch.set(usedUsernames.document(newUsername), usernameData);
+                batch.update(users.document(uid), data);
+                jobDao.createJob(newUsernameUpdateJob(username, newUsername), batch);
                 batch.commit().get();
-                updateDisplayName(uid, newUsername);
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
-                throw new DatabaseAccessException(UPDATE_FAILED_CODE, "The username update failed");
             }
-        } else {
-            throw new DatabaseAccessException(INVALID_USERNAME, USED_USERNAME_MESSAGE);
+        } catch (DocumentException | ExecutionException e) {
+            e.printStackTrace();
+            throw new DatabaseAccessException(UPDATE_FAILED_CODE, "The username update failed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseAccessException(UPDATE_FAILED_CODE, "The username update failed");
         }
+        usernameResolver.invalidate(newUsername);
+        usernameFilter.add(newUsername);
+        updateDisplayName(uid, newUsername);
+    }
+
+    @Override
+    public int updateUsernameCopies(String username, String newUsername)
+        throws DatabaseAccessException, DocumentException {
+        BulkWriteBatch copies = getUsernameCopies(username, newUsername);
+        bulkWriter.commitBatch(copies);
+        medalLeaderboard.renameUser(usernameResolver.getUid(newUsername), newUsername);
+        return copies.size();
+    }
+
+    /**
+     * Gets the updates of the username copies in the groups, forums, messages and leaderboards of a user.
+     *
+     * @param username The current username
+     * @param newUsername The new username
+     * @return The bulk batch with the updates
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     */
+    private BulkWriteBatch getUsernameCopies(String username, String newUsername) throws DatabaseAccessException {
+        BulkWriteBatch copies = bulkWriter.batch();
+        updateNameOnSubscriptions(username, newUsername, copies);
+        updateNameOnCreatedGroups(username, newUsername, copies);
+        updateNameOnCreatedForums(username, newUsername, copies);
+        updateNameOnCreatedMessages(username, newUsername, copies);
+        updateNameOnLeaderboards(username, newUsername, copies);
+        return copies;
+    }
+
+    /**
+     * Creates the job that finishes a username update.
+     *
+     * @param username The previous username
+     * @param newUsername The new username
+     * @return The job
+     */
+    private static JobEntity newUsernameUpdateJob(String username, String newUsername) {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(USERNAME_PARAMETER, username);
+        parameters.put(NEW_USERNAME_PARAMETER, newUsername);
+        JobEntity job = new JobEntity(USERNAME_UPDATE_JOB, parameters);
+        String now = Instant.now().toString();
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        return job;
     }
 
     /**
@@ -297,10 +445,10 @@ public class UserDaoImpl implements UserDao {
      *
      * @param username The current username
      * @param newUsername The new username
-     * @param batch The batch of writes
+     * @param batch The bulk batch of writes
      * @throws DatabaseAccessException If an error occurs when accessing the database
      */
-    private void updateNameOnSubscriptions(String username, String newUsername, WriteBatch batch)
+    private void updateNameOnSubscriptions(String username, String newUsername, BulkWriteBatch batch)
         throws DatabaseAccessException {
         Query query = db.collectionGroup("members").whereEqualTo(USER_KEY, username);
         ApiFuture<QuerySnapshot> querySnapshot = query.get();
@@ -311,7 +459,11 @@ public class UserDaoImpl implements UserDao {
                 data.put(USER_KEY, newUsername);
                 batch.update(ref, data);
             }
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+            throw new DatabaseAccessException(UPDATE_FAILED_CODE, "Failure when updating name in subscriptions");
+        } catch (ExecutionException e) {
             e.printStackTrace();
             throw new DatabaseAccessException(UPDATE_FAILED_CODE, "Failure when updating name in subscriptions");
         }
@@ -322,10 +474,10 @@ public class UserDaoImpl implements UserDao {
      *
      * @param username The current username
      * @param newUsername The new username
-     * @param batch The batch of writes
+     * @param batch The bulk batch of writes
      * @throws DatabaseAccessException If an error occurs when accessing the database
      */
-    private void updateNameOnCreatedGroups(String username, String newUsername, WriteBatch batch)
+    private void updateNameOnCreatedGroups(String username, String newUsername, BulkWriteBatch batch)
         throws DatabaseAccessException {
         Query query = db.collection("groups").whereEqualTo("creator", username);
         ApiFuture<QuerySnapshot> querySnapshot = query.get();
@@ -336,7 +488,11 @@ public class UserDaoImpl implements UserDao {
                 data.put("creator", newUsername);
                 batch.update(ref, data);
             }
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+            throw new DatabaseAccessException(UPDATE_FAILED_CODE, "Failure when updating name in created groups");
+        } catch (ExecutionException e) {
             e.printStackTrace();
             throw new DatabaseAccessException(UPDATE_FAILED_CODE, "Failure when updating name in created groups");
         }
@@ -347,10 +503,10 @@ public class UserDaoImpl implements UserDao {
      *
      * @param username The current username
      * @param newUsername The new username
-     * @param batch The batch of writes
+     * @param batch The bulk batch of writes
      * @throws DatabaseAccessException If an error occurs when accessing the database
      */
-    private void updateNameOnCreatedForums(String username, String newUsername, WriteBatch batch)
+    private void updateNameOnCreatedForums(String username, String newUsername, BulkWriteBatch batch)
         throws DatabaseAccessException {
         Query query = db.collectionGroup("forums").whereEqualTo("creator", username);
         ApiFuture<QuerySnapshot> querySnapshot = query.get();
@@ -361,7 +517,11 @@ public class UserDaoImpl implements UserDao {
                 data.put("creator", newUsername);
                 batch.update(ref, data);
             }
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+            throw new DatabaseAccessException(UPDATE_FAILED_CODE, "Failure when updating name in created groups");
+        } catch (ExecutionException e) {
             e.printStackTrace();
             throw new DatabaseAccessException(UPDATE_FAILED_CODE, "Failure when updating name in created groups");
         }
@@ -372,10 +532,10 @@ public class UserDaoImpl implements UserDao {
      *
      * @param username The current username
      * @param newUsername The new username
-     * @param batch The batch of writes
+     * @param batch The bulk batch of writes
      * @throws DatabaseAccessException If an error occurs when accessing the database
      */
-    private void updateNameOnCreatedMessages(String username, String newUsername, WriteBatch batch)
+    private void updateNameOnCreatedMessages(String username, String newUsername, BulkWriteBatch batch)
         throws DatabaseAccessException {
         Query query = db.collectionGroup("messages").whereEqualTo("creator", username);
         ApiFuture<QuerySnapshot> querySnapshot = query.get();
@@ -386,12 +546,44 @@ public class UserDaoImpl implements UserDao {
                 data.put("creator", newUsername);
                 batch.update(ref, data);
             }
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+            throw new DatabaseAccessException(UPDATE_FAILED_CODE, "Failure when updating name in created messages");
+        } catch (ExecutionException e) {
             e.printStackTrace();
             throw new DatabaseAccessException(UPDATE_FAILED_CODE, "Failure when updating name in created messages");
         }
     }
 
+    /**
+     * Updates the username on the leaderboards of all the medals.
+     *
+     * @param username The current username
+     * @param newUsername The new username
+     * @param batch The bulk batch of writes
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     */
+    private void updateNameOnLeaderboards(String username, String newUsername, BulkWriteBatch batch)
+        throws DatabaseAccessException {
+        Query query = db.collectionGroup(Collections.leaderboard.name()).whereEqualTo(USERNAME_FIELD, username);
+        ApiFuture<QuerySnapshot> querySnapshot = query.get();
+        try {
+            Map<String, Object> data = new HashMap<>();
+            data.put(USERNAME_FIELD, newUsername);
+            for (DocumentSnapshot document : querySnapshot.get().getDocuments()) {
+                batch.update(document.getReference(), data);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+            throw new DatabaseAccessException(UPDATE_FAILED_CODE, "Failure when updating name in leaderboards");
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            throw new DatabaseAccessException(UPDATE_FAILED_CODE, "Failure when updating name in leaderboards");
+        }
+    }
+
     /**
      * Updates the user's email.
      *
@@ -415,12 +607,23 @@ public class UserDaoImpl implements UserDao {
      */
     private void updatePassword(String uid, String newPassword) throws FirebaseAuthException {
         UserRecord.UpdateRequest updateRequest = getUserRecord(uid);
-        String encodedPassword = new BCryptPasswordEncoder().encode(newPassword);
+        String encodedPassword = passwordHasher.encode(newPassword);
         updateRequest.setPassword(encodedPassword);
         myAuth.updateUserAsync(updateRequest);
         users.document(uid).update(PASSWORD_FIELD, encodedPassword);
     }
 
+    /**
+     * Checks in the database if a username is in use.
+     *
+     * @param username The username to check
+     * @return True if the username is in use
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     */
+    private boolean isUsernameStored(String username) throws DatabaseAccessException {
+        return getDocumentSnapshot(usedUsernames, username).exists();
+    }
+
     /**
      * Saves the username inside the used usernames collection.
      *
@@ -428,21 +631,21 @@ public class UserDaoImpl implements UserDao {
      * @param batch The batch of writes
      */
     private void saveUsername(String uid, String username, WriteBatch batch) {
-        Map<String, String> docData = new HashMap<>();
-        docData.put(USER_KEY, uid);
-        batch.set(usedUsernames.document(username), docData);
+        batch.set(usedUsernames.document(username), getUsernameData(uid));
     }
 
     /**
-     * Deletes the old username from the database.
+     * Creates the data of a used username document. The time the username is taken lets the username filters of the
+     * other instances of the service learn about it.
      *
-     * @param uid The unique identifier of the user
-     * @param batch The batch of writes
-     * @throws FirebaseAuthException If an error occurs when retrieving the data
+     * @param uid The unique identifier of the user that takes the username
+     * @return The data of the document
      */
-    private void deleteOldUsername(String uid, WriteBatch batch) throws FirebaseAuthException {
-        String oldUsername = myAuth.getUser(uid).getDisplayName();
-        batch.delete(usedUsernames.document(oldUsername));
+    private Map<String, Object> getUsernameData(String uid) {
+        Map<String, Object> usernameData = new HashMap<>();
+        usernameData.put(USER_KEY, uid);
+        usernameData.put(UsernameFilter.TAKEN_AT_FIELD, FieldValue.serverTimestamp());
+        return usernameData;
     }
 
     /**
@@ -481,6 +684,28 @@ public class UserDaoImpl implements UserDao {
         }
     }
 
+    /**
+     * Waits until a deletion is stored.
+     *
+     * @param deletion The future of the deletion
+     * @param message The message of the exception when the deletion fails
+     * @throws DatabaseAccessException When the wait is interrupted
+     * @throws DocumentException When the deletion fails
+     */
+    private void awaitDeletion(ApiFuture<WriteResult> deletion, String message)
+        throws DatabaseAccessException, DocumentException {
+        try {
+            deletion.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+            throw new DatabaseAccessException("deletion-failed", message);
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            throw new DocumentException("deletion-failed", message);
+        }
+    }
+
     /**
      * Updates the FCM token in all the groups the user is subscribed to.
      * @param token The new FCM token
@@ -504,6 +729,7 @@ public class UserDaoImpl implements UserDao {
                 }
             }
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new DatabaseAccessException(WRITE_FAILED_CODE, e.getMessage());
         } catch (ExecutionException e) {
             throw new DocumentException(WRITE_FAILED_CODE, e.getMessage());
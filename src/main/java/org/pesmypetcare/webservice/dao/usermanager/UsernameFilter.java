@@ -0,0 +1,28 @@
+package org.pesmypetcare.webservice.dao.usermanager;
+
+/**
+ * @author Santiago Del Rey
+ */
+public interface UsernameFilter {
+    /**
+     * Field of the used username documents with the server time the username was taken, which the filters of every
+     * instance of the service listen to.
+     */
+    String TAKEN_AT_FIELD = "takenAt";
+
+    /**
+     * Checks if a username might be in use. A negative answer is certain, while a positive one has to be confirmed
+     * with the database.
+     *
+     * @param username The username to check
+     * @return False if the username is certainly not in use
+     */
+    boolean mightBeTaken(String username);
+
+    /**
+     * Records a username that has just been taken. It must be called every time a username is created or renamed.
+     *
+     * @param username The username
+     */
+    void add(String username);
+}
@@ -0,0 +1,244 @@
+package org.pesmypetcare.webservice.dao.usermanager;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.utilities.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a Bloom filter of the usernames in use, so most of the usernames that are available are answered from memory.
+ * <p>
+ * The filter is built from the used usernames collection at startup and rebuilt periodically. A Bloom filter cannot
+ * forget a username, so the deleted ones are only dropped in the next rebuild. The usernames taken through other
+ * instances of the service are picked up by a listener on the usernames taken since the build started, so the filter
+ * is only trusted while that listener is active. Until the first build finishes and its listener receives the first
+ * snapshot, and whenever the listener fails, every username is reported as possibly taken and has to be checked in
+ * the database.
+ *
+ * @author Santiago Del Rey
+ */
+@Repository
+public class UsernameFilterImpl implements UsernameFilter, MetricsSource {
+    private static final int DEFAULT_EXPECTED_USERNAMES = 100000;
+    private static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.01;
+    private static final long DEFAULT_REBUILD_INTERVAL_MINUTES = 60;
+    private static final long DEFAULT_CLOCK_SKEW_MILLIS = 60000;
+    private static final long DEFAULT_LISTENER_RETRY_SECONDS = 30;
+    @Value("${usernames.filter.expected-usernames:" + DEFAULT_EXPECTED_USERNAMES + "}")
+    private int expectedUsernames = DEFAULT_EXPECTED_USERNAMES;
+    @Value("${usernames.filter.false-positive-probability:" + DEFAULT_FALSE_POSITIVE_PROBABILITY + "}")
+    private double falsePositiveProbability = DEFAULT_FALSE_POSITIVE_PROBABILITY;
+    @Value("${usernames.filter.rebuild-interval-minutes:" + DEFAULT_REBUILD_INTERVAL_MINUTES + "}")
+    private long rebuildIntervalMinutes = DEFAULT_REBUILD_INTERVAL_MINUTES;
+    @Value("${usernames.filter.clock-skew-millis:" + DEFAULT_CLOCK_SKEW_MILLIS + "}")
+    private long clockSkewMillis = DEFAULT_CLOCK_SKEW_MILLIS;
+    @Value("${usernames.filter.listener-retry-seconds:" + DEFAULT_LISTENER_RETRY_SECONDS + "}")
+    private long listenerRetrySeconds = DEFAULT_LISTENER_RETRY_SECONDS;
+    private final AtomicLong negatives = new AtomicLong();
+    private final AtomicLong positives = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong listenerFailures = new AtomicLong();
+    @Autowired
+    private FirestoreCollection collectionAdapter;
+    private volatile BloomFilter<CharSequence> filter;
+    private volatile Set<String> addedDuringRebuild;
+    private volatile boolean listening;
+    private int listenerGeneration;
+    private ListenerRegistration registration;
+    private ScheduledExecutorService rebuildScheduler;
+
+    /**
+     * Schedules the first build of the filter and its periodic rebuilds.
+     */
+    @PostConstruct
+    public void startFiltering() {
+        rebuildScheduler = Executors.newSingleThreadScheduledExecutor();
+        rebuildScheduler.scheduleWithFixedDelay(this::rebuild, 0, rebuildIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops the rebuilds of the filter and the listener of the new usernames.
+     */
+    @PreDestroy
+    public void stopFiltering() {
+        if (rebuildScheduler != null) {
+            rebuildScheduler.shutdownNow();
+        }
+        stopListening();
+    }
+
+    @Override
+    public boolean mightBeTaken(String username) {
+        BloomFilter<CharSequence> current = filter;
+        if (current != null && listening && !current.mightContain(username)) {
+            negatives.incrementAndGet();
+            return false;
+        }
+        positives.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void add(String username) {
+        BloomFilter<CharSequence> current = filter;
+        if (current != null) {
+            current.put(username);
+        }
+        Set<String> added = addedDuringRebuild;
+        if (added != null) {
+            added.add(username);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "usernames-filter";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        BloomFilter<CharSequence> current = filter;
+        metrics.put("ready", current != null && listening);
+        metrics.put("approximateUsernames", current != null ? current.approximateElementCount() : 0);
+        metrics.put("negatives", negatives.get());
+        metrics.put("positives", positives.get());
+        metrics.put("rebuilds", rebuilds.get());
+        metrics.put("listenerFailures", listenerFailures.get());
+        return metrics;
+    }
+
+    /**
+     * Builds a new filter with the usernames stored in the database and replaces the current one. The usernames added
+     * while the collection is being listed are added to the new filter as well. Before listing the collection the
+     * listener is moved to the usernames taken since then, with a margin for the clock skew with the server.
+     */
+    void rebuild() {
+        Set<String> added = ConcurrentHashMap.newKeySet();
+        addedDuringRebuild = added;
+        try {
+            listenToNewUsernames(Timestamp.ofTimeMicroseconds(
+                TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis() - clockSkewMillis)));
+            List<String> usernames = new ArrayList<>();
+            for (DocumentReference username : collectionAdapter
+                .listAllCollectionDocuments(Path.ofCollection(Collections.used_usernames))) {
+                usernames.add(username.getId());
+            }
+            BloomFilter<CharSequence> rebuilt = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                Math.max(expectedUsernames, 2 * usernames.size()), falsePositiveProbability);
+            usernames.forEach(rebuilt::put);
+            added.forEach(rebuilt::put);
+            filter = rebuilt;
+            // The usernames added before the swap only reached the old filter
+            added.forEach(rebuilt::put);
+            rebuilds.incrementAndGet();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            addedDuringRebuild = null;
+        }
+    }
+
+    /**
+     * Replaces the listener of the new usernames by one on the usernames taken since the given time. The filter is not
+     * trusted until the new listener receives its first snapshot.
+     *
+     * @param since The time from which the usernames are listened to
+     */
+    private synchronized void listenToNewUsernames(Timestamp since) {
+        stopListening();
+        int generation = ++listenerGeneration;
+        registration = collectionAdapter.getCollectionReference(Path.ofCollection(Collections.used_usernames))
+            .whereGreaterThanOrEqualTo(TAKEN_AT_FIELD, since)
+            .addSnapshotListener((snapshot, error) -> onNewUsernames(generation, since, snapshot, error));
+    }
+
+    /**
+     * Stops listening to the new usernames and stops trusting the filter.
+     */
+    private synchronized void stopListening() {
+        listening = false;
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    /**
+     * Adds the usernames taken through any instance of the service to the filter. When the listener fails the filter
+     * is not trusted until a new listener on the same usernames receives its first snapshot. The events of the
+     * listeners that have already been replaced are ignored.
+     *
+     * @param generation The generation of the listener
+     * @param since The time from which the usernames are listened to
+     * @param snapshot The usernames taken since then
+     * @param error The error of the listener, if any
+     */
+    private synchronized void onNewUsernames(int generation, Timestamp since, @Nullable QuerySnapshot snapshot,
+                                             @Nullable FirestoreException error) {
+        if (generation != listenerGeneration) {
+            return;
+        }
+        if (error != null || snapshot == null) {
+            if (error != null) {
+                error.printStackTrace();
+            }
+            listenerFailures.incrementAndGet();
+            stopListening();
+            if (rebuildScheduler != null && !rebuildScheduler.isShutdown()) {
+                rebuildScheduler.schedule(() -> retryListening(generation, since), listenerRetrySeconds,
+                    TimeUnit.SECONDS);
+            }
+            return;
+        }
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            if (change.getType() != DocumentChange.Type.REMOVED) {
+                add(change.getDocument().getId());
+            }
+        }
+        listening = true;
+    }
+
+    /**
+     * Listens again to the usernames of a failed listener unless a rebuild has replaced it in the meantime.
+     *
+     * @param generation The generation of the failed listener
+     * @param since The time from which the usernames were listened to
+     */
+    private synchronized void retryListening(int generation, Timestamp since) {
+        if (generation == listenerGeneration) {
+            try {
+                listenToNewUsernames(since);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                onNewUsernames(listenerGeneration, since, null, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.pesmypetcare.webservice.dao.usermanager;
+
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+
+/**
+ * @author Santiago Del Rey
+ */
+public interface UsernameResolver {
+    /**
+     * Gets the unique identifier of the user with the specified username.
+     *
+     * @param username The user's username
+     * @return The user's unique identifier
+     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
+     * @throws DocumentException When the username does not exist
+     */
+    String getUid(String username) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Discards the cached identifier of the specified username. It must be called every time a username is created,
+     * renamed or deleted.
+     *
+     * @param username The user's username
+     */
+    void invalidate(String username);
+}
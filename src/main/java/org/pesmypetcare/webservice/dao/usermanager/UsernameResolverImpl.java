@@ -0,0 +1,74 @@
+package org.pesmypetcare.webservice.dao.usermanager;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+import org.pesmypetcare.webservice.utilities.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves usernames to user identifiers keeping the recently resolved ones in a bounded cache whose entries expire
+ * after a while.
+ *
+ * @author Santiago Del Rey
+ */
+@Repository
+public class UsernameResolverImpl implements UsernameResolver, MetricsSource {
+    private static final String USER_FIELD = "user";
+    private FirestoreDocument dbDoc;
+    private Cache<String, String> cache;
+
+    @Autowired
+    public UsernameResolverImpl(FirestoreDocument dbDoc,
+                                @Value("${usernames.cache.maximum-size:10000}") long maximumSize,
+                                @Value("${usernames.cache.expire-after-write-seconds:30}") long expirationSeconds) {
+        this.dbDoc = dbDoc;
+        cache = CacheBuilder.newBuilder().maximumSize(maximumSize)
+            .expireAfterWrite(expirationSeconds, TimeUnit.SECONDS).recordStats().build();
+    }
+
+    @Override
+    public String getUid(String username) throws DatabaseAccessException, DocumentException {
+        String uid = cache.getIfPresent(username);
+        if (uid == null) {
+            uid = dbDoc.getStringFromDocument(Path.ofDocument(Collections.used_usernames, username), USER_FIELD);
+            if (uid != null) {
+                cache.put(username, uid);
+            }
+        }
+        return uid;
+    }
+
+    @Override
+    public void invalidate(String username) {
+        cache.invalidate(username);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "usernames-cache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", cache.size());
+        metrics.put("hits", stats.hitCount());
+        metrics.put("misses", stats.missCount());
+        metrics.put("hitRate", stats.hitRate());
+        metrics.put("evictions", stats.evictionCount());
+        return metrics;
+    }
+}
@@ -0,0 +1,20 @@
+package org.pesmypetcare.webservice.entity.appmanager;
+
+import com.google.api.services.calendar.model.Event;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Events of a calendar that changed since the last synchronization, along with the token to request the next changes.
+ *
+ * @author Marc Simó
+ */
+@Data
+public class EventChanges {
+    private List<Event> changedEvents = new ArrayList<>();
+    private List<String> deletedEventIds = new ArrayList<>();
+    private String nextSyncToken;
+    private boolean fullSync;
+}
@@ -0,0 +1,30 @@
+package org.pesmypetcare.webservice.entity.appmanager;
+
+import lombok.Data;
+
+/**
+ * Result of writing one of the events of a batch.
+ *
+ * @author Marc Simó
+ */
+@Data
+public class EventWriteResult {
+    private String eventId;
+    private String error;
+
+    public EventWriteResult() { }
+
+    public EventWriteResult(String eventId, String error) {
+        this.eventId = eventId;
+        this.error = error;
+    }
+
+    /**
+     * Checks whether the event was written.
+     *
+     * @return True if the write did not fail
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+}
@@ -0,0 +1,18 @@
+package org.pesmypetcare.webservice.entity.appmanager;
+
+import lombok.Data;
+
+/**
+ * Metadata of an image kept in the storage, read without downloading its content.
+ *
+ * @author Santiago Del Rey
+ */
+@Data
+public class ImageMetadata {
+    private String path;
+    private String contentType;
+    private long size;
+    private Long generation;
+    private String md5Hash;
+    private Long updateTime;
+}
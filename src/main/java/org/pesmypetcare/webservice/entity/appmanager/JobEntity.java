@@ -0,0 +1,46 @@
+package org.pesmypetcare.webservice.entity.appmanager;
+
+import com.google.cloud.firestore.annotation.Exclude;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Background job stored in the database, so that it survives a restart of the service.
+ *
+ * @author Santiago Del Rey
+ */
+@Data
+public class JobEntity {
+    @Exclude
+    private String id;
+    private String type;
+    private JobStatus status;
+    private Map<String, String> parameters;
+    private List<String> completedSteps;
+    private String currentStep;
+    private String cursor;
+    private long progress;
+    private String error;
+    private String owner;
+    private String leaseExpiresAt;
+    private String createdAt;
+    private String updatedAt;
+
+    public JobEntity() { }
+
+    /**
+     * Creates a pending job of the given type.
+     * @param type The type of the job, which selects the handler that runs it
+     * @param parameters The parameters of the job
+     */
+    public JobEntity(String type, Map<String, String> parameters) {
+        this.type = type;
+        this.parameters = new HashMap<>(parameters);
+        status = JobStatus.PENDING;
+        completedSteps = new ArrayList<>();
+    }
+}
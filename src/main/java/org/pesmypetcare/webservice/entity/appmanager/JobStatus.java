@@ -0,0 +1,13 @@
+package org.pesmypetcare.webservice.entity.appmanager;
+
+/**
+ * States of a background job.
+ *
+ * @author Santiago Del Rey
+ */
+public enum JobStatus {
+    PENDING,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
@@ -0,0 +1,28 @@
+package org.pesmypetcare.webservice.entity.communitymanager;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A page of forum messages and the cursor to request the next one.
+ *
+ * @author Santiago Del Rey
+ */
+@Data
+public class MessagePage {
+    private List<MessagePreview> messages;
+    private String nextCursor;
+
+    public MessagePage() { }
+
+    /**
+     * Creates a message page.
+     * @param messages The messages of the page
+     * @param nextCursor The cursor of the next page or null if this is the last one
+     */
+    public MessagePage(List<MessagePreview> messages, String nextCursor) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,20 @@
+package org.pesmypetcare.webservice.entity.communitymanager;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Lightweight view of a forum message used when listing the messages of a forum. It does not contain the image.
+ *
+ * @author Santiago Del Rey
+ */
+@Data
+public class MessagePreview {
+    private String creator;
+    private String publicationDate;
+    private String text;
+    private boolean banned;
+    private List<String> likedBy;
+    private String imagePath;
+}
@@ -0,0 +1,23 @@
+package org.pesmypetcare.webservice.entity.medalmanager;
+
+import lombok.Data;
+
+/**
+ * Position of a user in the leaderboard of a medal.
+ *
+ * @author Santiago Del Rey
+ */
+@Data
+public class LeaderboardEntry {
+    private String username;
+    private Double progress;
+    private Double currentLevel;
+
+    public LeaderboardEntry() { }
+
+    public LeaderboardEntry(String username, Double progress, Double currentLevel) {
+        this.username = username;
+        this.progress = progress;
+        this.currentLevel = currentLevel;
+    }
+}
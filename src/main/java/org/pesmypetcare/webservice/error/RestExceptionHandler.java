@@ -3,6 +3,7 @@ package org.pesmypetcare.webservice.error;
 import com.google.firebase.auth.FirebaseAuthException;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -15,6 +16,7 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 @Order(Ordered.HIGHEST_PRECEDENCE)
 @ControllerAdvice
 public class RestExceptionHandler extends ResponseEntityExceptionHandler {
+    private static final String RETRY_AFTER_SECONDS = "1";
 
     /**
      * Creates the http response for the FirebaseAuthException class.
@@ -96,6 +98,18 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return new ResponseEntity<>(errorBody, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    /**
+     * Creates the http response for the ServiceOverloadedException class.
+     * @param ex The exception from which to create the response
+     * @return The response entity created from the exception
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    protected ResponseEntity<Object> handleServiceOverloaded(ServiceOverloadedException ex) {
+        ErrorBody errorBody = new ErrorBody(ex.getErrorCode(), ex);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).body(errorBody);
+    }
+
     /**
      * Creates the http response for the DocumentException class.
      * @param ex The exception from which to create the response
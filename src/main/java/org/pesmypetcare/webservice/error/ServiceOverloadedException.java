@@ -0,0 +1,31 @@
+package org.pesmypetcare.webservice.error;
+
+/**
+ * Thrown when a bounded resource of the service is saturated and the request cannot be queued. Unlike the other
+ * exceptions it is unchecked, because any request that uses the resource may be rejected and the client only has to
+ * try again later.
+ *
+ * @author Santiago Del Rey
+ */
+public class ServiceOverloadedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    private final String errorCode;
+
+    /**
+     * Creates a service overloaded exception with the specified error code and detailed message.
+     * @param errorCode The error code for the exception
+     * @param detailedMessage A clarifying description of the error
+     */
+    public ServiceOverloadedException(String errorCode, String detailedMessage) {
+        super(detailedMessage);
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Gets the error code for the exception.
+     * @return The error code for the exception
+     */
+    public String getErrorCode() {
+        return errorCode;
+    }
+}
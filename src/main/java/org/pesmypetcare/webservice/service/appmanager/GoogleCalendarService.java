@@ -1,6 +1,7 @@
 package org.pesmypetcare.webservice.service.appmanager;
 
 import org.pesmypetcare.webservice.entity.appmanager.EventEntity;
+import org.pesmypetcare.webservice.entity.appmanager.EventWriteResult;
 import org.pesmypetcare.webservice.error.CalendarAccessException;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
@@ -37,7 +38,8 @@ public interface GoogleCalendarService {
         throws CalendarAccessException, DatabaseAccessException, DocumentException;
 
     /**
-     * Returns all Calendar Events from a specified Calendar.
+     * Returns all Calendar Events from a specified Calendar. Only the changes since the last call are requested to
+     * Google Calendar and applied to the stored copy of the Events.
      * @param accessToken oauth2 token needed to access the Google Calendar
      * @param owner Name of the owner of the pet
      * @param petName Name of the pet the calendar belongs to
@@ -62,6 +64,21 @@ public interface GoogleCalendarService {
     void createEvent(String accessToken, String owner, String petName, EventEntity eventEntity)
         throws CalendarAccessException, DatabaseAccessException, DocumentException;
 
+    /**
+     * Creates several Events in a specified Google Calendar with as few requests as possible.
+     * @param accessToken oauth2 token needed to access the Google Calendar
+     * @param owner Name of the owner of the pet
+     * @param petName Name of the pet the calendar belongs to
+     * @param eventEntities Events to create
+     * @return The result of each Event, in the same order
+     * @throws CalendarAccessException If an error occurs when accessing the calendar
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the document does not exist
+     */
+    List<EventWriteResult> createEvents(String accessToken, String owner, String petName,
+                                        List<EventEntity> eventEntities)
+        throws CalendarAccessException, DatabaseAccessException, DocumentException;
+
     /**
      * Retrieves an Event in a specified Google Calendar.
      * @param accessToken oauth2 token needed to access the Google Calendar
@@ -89,6 +106,21 @@ public interface GoogleCalendarService {
     void updateEvent(String accessToken, String owner, String petName, EventEntity eventEntity)
         throws CalendarAccessException, DatabaseAccessException, DocumentException;
 
+    /**
+     * Updates several Events in a specified Google Calendar with as few requests as possible.
+     * @param accessToken oauth2 token needed to access the Google Calendar
+     * @param owner Name of the owner of the pet
+     * @param petName Name of the pet the calendar belongs to
+     * @param eventEntities New Events that overwrite the past events with the same id
+     * @return The result of each Event, in the same order
+     * @throws CalendarAccessException If an error occurs when accessing the calendar
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the document does not exist
+     */
+    List<EventWriteResult> updateEvents(String accessToken, String owner, String petName,
+                                        List<EventEntity> eventEntities)
+        throws CalendarAccessException, DatabaseAccessException, DocumentException;
+
     /**
      * Deletes an Event in a specified Google Calendar.
      * @param accessToken oauth2 token needed to access the Google Calendar
@@ -2,17 +2,24 @@ package org.pesmypetcare.webservice.service.appmanager;
 
 import com.google.api.services.calendar.model.Calendar;
 import com.google.api.services.calendar.model.Event;
+import org.pesmypetcare.webservice.dao.appmanager.CalendarEventStore;
 import org.pesmypetcare.webservice.dao.appmanager.GoogleCalendarDao;
 import org.pesmypetcare.webservice.dao.petmanager.PetDao;
+import org.pesmypetcare.webservice.entity.appmanager.EventChanges;
 import org.pesmypetcare.webservice.entity.appmanager.EventEntity;
+import org.pesmypetcare.webservice.entity.appmanager.EventWriteResult;
 import org.pesmypetcare.webservice.error.CalendarAccessException;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * @author Marc Simó
@@ -26,6 +33,9 @@ public class GoogleCalendarServiceImpl implements GoogleCalendarService {
     @Autowired
     private PetDao petDao;
 
+    @Autowired
+    private CalendarEventStore eventStore;
+
     @Override
     public void createSecondaryCalendar(String accessToken, String owner, String petName)
         throws CalendarAccessException, DatabaseAccessException, DocumentException {
@@ -48,18 +58,30 @@ public class GoogleCalendarServiceImpl implements GoogleCalendarService {
         String calendarId = (String) petDao.getSimpleField(owner, petName, CALENDAR_ID);
         googleCalendarDao.deleteSecondaryCalendar(accessToken, calendarId);
         petDao.updateSimpleField(owner, petName, CALENDAR_ID, null);
+        eventStore.clear(owner, petName);
     }
 
     @Override
     public List<EventEntity> getAllEventsFromCalendar(String accessToken, String owner, String petName)
         throws CalendarAccessException, DatabaseAccessException, DocumentException {
         String calendarId = (String) petDao.getSimpleField(owner, petName, CALENDAR_ID);
-        List<Event> eventList = googleCalendarDao.getAllEventsFromCalendar(accessToken, calendarId);
-        List<EventEntity> eventEntityList = new ArrayList<>();
-        for (Event event : eventList) {
-            eventEntityList.add(new EventEntity(event));
+        String syncToken = eventStore.getSyncToken(owner, petName);
+        EventChanges changes = getEventChanges(accessToken, calendarId, syncToken);
+        Map<String, EventEntity> events = new LinkedHashMap<>();
+        if (!changes.isFullSync()) {
+            for (EventEntity storedEvent : eventStore.getEvents(owner, petName)) {
+                events.put(storedEvent.getId(), storedEvent);
+            }
+        }
+        for (Event event : changes.getChangedEvents()) {
+            events.put(event.getId(), new EventEntity(event));
         }
-        return eventEntityList;
+        events.keySet().removeAll(changes.getDeletedEventIds());
+        if (changes.isFullSync() || !changes.getChangedEvents().isEmpty() || !changes.getDeletedEventIds().isEmpty()
+            || !Objects.equals(syncToken, changes.getNextSyncToken())) {
+            eventStore.saveChanges(owner, petName, changes);
+        }
+        return new ArrayList<>(events.values());
     }
 
     @Override
@@ -69,6 +91,14 @@ public class GoogleCalendarServiceImpl implements GoogleCalendarService {
         googleCalendarDao.createEvent(accessToken, calendarId, eventEntity.convertToEvent());
     }
 
+    @Override
+    public List<EventWriteResult> createEvents(String accessToken, String owner, String petName,
+                                               List<EventEntity> eventEntities)
+        throws CalendarAccessException, DatabaseAccessException, DocumentException {
+        String calendarId = (String) petDao.getSimpleField(owner, petName, CALENDAR_ID);
+        return googleCalendarDao.createEvents(accessToken, calendarId, convertToEvents(eventEntities));
+    }
+
     @Override
     public EventEntity retrieveEvent(String accessToken, String owner, String petName, String eventId)
         throws CalendarAccessException, DatabaseAccessException, DocumentException {
@@ -84,10 +114,56 @@ public class GoogleCalendarServiceImpl implements GoogleCalendarService {
         googleCalendarDao.updateEvent(accessToken, calendarId, eventEntity.getId(), eventEntity.convertToEvent());
     }
 
+    @Override
+    public List<EventWriteResult> updateEvents(String accessToken, String owner, String petName,
+                                               List<EventEntity> eventEntities)
+        throws CalendarAccessException, DatabaseAccessException, DocumentException {
+        String calendarId = (String) petDao.getSimpleField(owner, petName, CALENDAR_ID);
+        return googleCalendarDao.updateEvents(accessToken, calendarId, convertToEvents(eventEntities));
+    }
+
     @Override
     public void deleteEvent(String accessToken, String owner, String petName, String eventId)
         throws CalendarAccessException, DatabaseAccessException, DocumentException {
         String calendarId = (String) petDao.getSimpleField(owner, petName, CALENDAR_ID);
         googleCalendarDao.deleteEvent(accessToken, calendarId, eventId);
     }
+
+    /**
+     * Converts some event entities to Google Calendar events.
+     *
+     * @param eventEntities The event entities
+     * @return The events in the same order
+     */
+    private static List<Event> convertToEvents(List<EventEntity> eventEntities) {
+        List<Event> events = new ArrayList<>();
+        for (EventEntity eventEntity : eventEntities) {
+            events.add(eventEntity.convertToEvent());
+        }
+        return events;
+    }
+
+    /**
+     * Gets the changes of a calendar since its last synchronization. When there is no previous synchronization or its
+     * sync token has expired, all the events of the calendar are listed.
+     *
+     * @param accessToken oauth2 token needed to access the Google Calendar
+     * @param calendarId Id of the calendar
+     * @param syncToken Token of the last synchronization, or null if there is none
+     * @return The changes of the calendar
+     * @throws CalendarAccessException If an error occurs when accessing the calendar
+     */
+    private EventChanges getEventChanges(String accessToken, String calendarId, @Nullable String syncToken)
+        throws CalendarAccessException {
+        if (syncToken != null) {
+            try {
+                return googleCalendarDao.getEventChanges(accessToken, calendarId, syncToken);
+            } catch (CalendarAccessException e) {
+                if (!GoogleCalendarDao.SYNC_TOKEN_EXPIRED.equals(e.getErrorCode())) {
+                    throw e;
+                }
+            }
+        }
+        return googleCalendarDao.getEventChanges(accessToken, calendarId, null);
+    }
 }
@@ -0,0 +1,46 @@
+package org.pesmypetcare.webservice.service.appmanager;
+
+import com.google.firebase.auth.FirebaseAuthException;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Runs the jobs of a type as a sequence of steps. Each step must be idempotent: a step that fails or is interrupted
+ * by a restart of the service is run again from the start, or from the cursor of the job if the step saved one.
+ * The cursor is cleared when a step completes.
+ *
+ * @author Santiago Del Rey
+ */
+public interface JobHandler {
+    /**
+     * Gets the type of the jobs that the handler runs.
+     *
+     * @return The type of the jobs
+     */
+    String getType();
+
+    /**
+     * Gets the steps of a job in the order they must be run.
+     *
+     * @param job The job
+     * @return The names of the steps
+     */
+    List<String> getSteps(JobEntity job);
+
+    /**
+     * Runs a step of a job.
+     *
+     * @param job The job
+     * @param step The name of the step
+     * @param progress The callback that receives the number of units of work done in the step so far
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When a document cannot be read or written
+     * @throws FirebaseAuthException If an error occurs when accessing the authentication service
+     */
+    void runStep(JobEntity job, String step, LongConsumer progress)
+        throws DatabaseAccessException, DocumentException, FirebaseAuthException;
+}
@@ -0,0 +1,35 @@
+package org.pesmypetcare.webservice.service.appmanager;
+
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+
+import java.util.Map;
+
+/**
+ * @author Santiago Del Rey
+ */
+public interface JobService {
+    /**
+     * Stores a new job and queues it to run in the background.
+     *
+     * @param type The type of the job
+     * @param parameters The parameters of the job
+     * @return The identifier of the job
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the job cannot be stored
+     * @throws IllegalArgumentException When there is no handler for the type
+     */
+    String submit(String type, Map<String, String> parameters) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Gets the state of a job.
+     *
+     * @param token The personal access token of the user
+     * @param id The identifier of the job
+     * @return The job with its status and progress
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the job does not exist
+     */
+    JobEntity getJob(String token, String id) throws DatabaseAccessException, DocumentException;
+}
@@ -0,0 +1,408 @@
+package org.pesmypetcare.webservice.service.appmanager;
+
+import com.google.cloud.firestore.FieldValue;
+import com.google.firebase.auth.FirebaseAuthException;
+import org.pesmypetcare.webservice.dao.appmanager.JobDao;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.entity.appmanager.JobStatus;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.utilities.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the background jobs with a pool of workers. The state of every job is stored in the database after each of
+ * its steps, so the jobs that were pending or running when the service stopped are resumed from their first
+ * unfinished step when it starts again.
+ * <p>
+ * A step that fails is run again after a linear backoff until the maximum number of attempts is reached, and then the
+ * whole job fails. The progress of a running job is kept in memory and stored at the end of each step.
+ * <p>
+ * An instance only runs the jobs it has claimed. It renews the lease of its running jobs every third of
+ * {@code jobs.lease-millis} and looks for unfinished jobs whose lease has expired once per lease, so the jobs of an
+ * instance that stopped are resumed by the others. Every update of a job is only written while the instance still
+ * owns it, and a job whose lease is lost is stopped without changing its state, which belongs to the new owner.
+ * The jobs interrupted by a shutdown are not marked as failed either, so they stay running until they are resumed.
+ *
+ * @author Santiago Del Rey
+ */
+@Service
+public class JobServiceImpl implements JobService, MetricsSource {
+    static final String STATUS_FIELD = "status";
+    static final String COMPLETED_STEPS_FIELD = "completedSteps";
+    static final String CURRENT_STEP_FIELD = "currentStep";
+    static final String CURSOR_FIELD = "cursor";
+    static final String PROGRESS_FIELD = "progress";
+    static final String ERROR_FIELD = "error";
+    static final String UPDATED_AT_FIELD = "updatedAt";
+    private static final int DEFAULT_WORKERS = 2;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long DEFAULT_RETRY_BACKOFF_MILLIS = 1000;
+    private static final long DEFAULT_LEASE_MILLIS = 60000;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+    @Value("${jobs.workers:" + DEFAULT_WORKERS + "}")
+    private int workers = DEFAULT_WORKERS;
+    @Value("${jobs.max-attempts:" + DEFAULT_MAX_ATTEMPTS + "}")
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    @Value("${jobs.retry-backoff-millis:" + DEFAULT_RETRY_BACKOFF_MILLIS + "}")
+    private long retryBackoffMillis = DEFAULT_RETRY_BACKOFF_MILLIS;
+    @Value("${jobs.lease-millis:" + DEFAULT_LEASE_MILLIS + "}")
+    private long leaseMillis = DEFAULT_LEASE_MILLIS;
+    private final String owner = UUID.randomUUID().toString();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong lostLeases = new AtomicLong();
+    private final Map<String, RunningJob> runningJobs = new ConcurrentHashMap<>();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    @Autowired
+    private JobDao jobDao;
+    @Autowired
+    private List<JobHandler> handlers;
+    private ExecutorService executor;
+    private ScheduledExecutorService leaseScheduler;
+
+    /**
+     * Starts the workers, the renewal of the leases and the search of the jobs that were not finished.
+     */
+    @PostConstruct
+    public void startRunning() {
+        executor = Executors.newFixedThreadPool(workers);
+        leaseScheduler = Executors.newSingleThreadScheduledExecutor();
+        long renewalMillis = Math.max(1, leaseMillis / 3);
+        leaseScheduler.scheduleWithFixedDelay(this::renewLeases, renewalMillis, renewalMillis, TimeUnit.MILLISECONDS);
+        leaseScheduler.scheduleWithFixedDelay(this::resumeUnfinishedJobs, 0, leaseMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the workers. The jobs they were running are left as running and resumed once their lease expires.
+     */
+    @PreDestroy
+    public void stopRunning() {
+        if (leaseScheduler != null) {
+            leaseScheduler.shutdownNow();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public String submit(String type, Map<String, String> parameters)
+        throws DatabaseAccessException, DocumentException {
+        if (getHandler(type) == null) {
+            throw new IllegalArgumentException("There is no handler for the jobs of type " + type);
+        }
+        JobEntity job = new JobEntity(type, parameters);
+        String now = Instant.now().toString();
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        String id = jobDao.createJob(job);
+        submitted.incrementAndGet();
+        queue(id);
+        return id;
+    }
+
+    @Override
+    public JobEntity getJob(String token, String id) throws DatabaseAccessException, DocumentException {
+        JobEntity job = jobDao.getJob(id);
+        RunningJob running = runningJobs.get(id);
+        if (running != null) {
+            job.setProgress(running.progress.get());
+        }
+        return job;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "jobs";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("submitted", submitted.get());
+        metrics.put("running", runningJobs.size());
+        metrics.put("succeeded", succeeded.get());
+        metrics.put("failed", failed.get());
+        metrics.put("retried", retried.get());
+        metrics.put("lostLeases", lostLeases.get());
+        return metrics;
+    }
+
+    /**
+     * Claims a job and runs its unfinished steps. A job that is already running in this instance, that has finished
+     * or that is leased to another instance is ignored.
+     *
+     * @param id The identifier of the job
+     */
+    void run(String id) {
+        RunningJob running = new RunningJob(Thread.currentThread());
+        if (runningJobs.putIfAbsent(id, running) != null) {
+            return;
+        }
+        AtomicLong progress = running.progress;
+        try {
+            JobEntity job = jobDao.claimJob(id, owner, leaseMillis);
+            if (job == null) {
+                return;
+            }
+            JobHandler handler = getHandler(job.getType());
+            if (handler == null) {
+                fail(id, "There is no handler for the jobs of type " + job.getType(), progress);
+                return;
+            }
+            progress.set(job.getProgress());
+            Map<String, Object> fields = new HashMap<>();
+            fields.put(STATUS_FIELD, JobStatus.RUNNING.name());
+            updateJob(id, fields);
+            Set<String> completedSteps = new HashSet<>();
+            if (job.getCompletedSteps() != null) {
+                completedSteps.addAll(job.getCompletedSteps());
+            }
+            for (String step : handler.getSteps(job)) {
+                if (!completedSteps.contains(step)) {
+                    runStep(id, job, handler, step, running);
+                }
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put(STATUS_FIELD, JobStatus.SUCCEEDED.name());
+            result.put(PROGRESS_FIELD, progress.get());
+            updateJob(id, result);
+            succeeded.incrementAndGet();
+        } catch (DatabaseAccessException | DocumentException | FirebaseAuthException | RuntimeException e) {
+            if (!isStopped(running, e)) {
+                e.printStackTrace();
+                fail(id, e.getMessage(), progress);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.finish();
+            runningJobs.remove(id);
+        }
+    }
+
+    /**
+     * Gets the handler of the jobs of a type.
+     *
+     * @param type The type of the jobs
+     * @return The handler, or null if there is none
+     */
+    private JobHandler getHandler(String type) {
+        for (JobHandler handler : handlers) {
+            if (handler.getType().equals(type)) {
+                return handler;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs a step of a job, retrying it when it fails, and records it as completed. A step is not retried once the
+     * job has been stopped.
+     *
+     * @param id The identifier of the job
+     * @param job The job
+     * @param handler The handler of the job
+     * @param step The name of the step
+     * @param running The state of the job in this instance
+     * @throws DatabaseAccessException If an error occurs when accessing the database in the last attempt
+     * @throws DocumentException When a document cannot be read or written in the last attempt
+     * @throws FirebaseAuthException If an error occurs when accessing the authentication service in the last attempt
+     * @throws InterruptedException When the wait between attempts is interrupted
+     */
+    private void runStep(String id, JobEntity job, JobHandler handler, String step, RunningJob running)
+        throws DatabaseAccessException, DocumentException, FirebaseAuthException, InterruptedException {
+        AtomicLong progress = running.progress;
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(CURRENT_STEP_FIELD, step);
+        updateJob(id, fields);
+        for (int attempt = 1; ; ++attempt) {
+            long done = progress.get();
+            try {
+                handler.runStep(job, step, stepDone -> progress.accumulateAndGet(done + stepDone, Math::max));
+                job.setCursor(null);
+                break;
+            } catch (DatabaseAccessException | DocumentException | FirebaseAuthException e) {
+                if (attempt >= maxAttempts || isStopped(running, e)) {
+                    throw e;
+                }
+                e.printStackTrace();
+                retried.incrementAndGet();
+                TimeUnit.MILLISECONDS.sleep(retryBackoffMillis * attempt);
+            }
+        }
+        Map<String, Object> completion = new HashMap<>();
+        completion.put(CURRENT_STEP_FIELD, null);
+        completion.put(CURSOR_FIELD, null);
+        completion.put(COMPLETED_STEPS_FIELD, FieldValue.arrayUnion(step));
+        completion.put(PROGRESS_FIELD, progress.get());
+        updateJob(id, completion);
+    }
+
+    /**
+     * Checks whether a job has been stopped, either because its lease has been lost or because this instance is
+     * shutting down. A stopped job is left as running.
+     *
+     * @param running The state of the job in this instance
+     * @param error The error that ended the job
+     * @return True if the job has been stopped
+     */
+    private boolean isStopped(RunningJob running, Exception error) {
+        if (error instanceof DocumentException && JobDao.LEASE_LOST.equals(((DocumentException) error).getErrorCode())
+            && running.stop()) {
+            lostLeases.incrementAndGet();
+        }
+        return running.isStopped() || Thread.currentThread().isInterrupted() || executor.isShutdown();
+    }
+
+    /**
+     * Marks a job as failed.
+     *
+     * @param id The identifier of the job
+     * @param error The description of the error
+     * @param progress The progress of the job
+     */
+    private void fail(String id, String error, AtomicLong progress) {
+        failed.incrementAndGet();
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(STATUS_FIELD, JobStatus.FAILED.name());
+        fields.put(ERROR_FIELD, error);
+        fields.put(PROGRESS_FIELD, progress.get());
+        try {
+            updateJob(id, fields);
+        } catch (DatabaseAccessException | DocumentException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Updates some fields of a job owned by this instance together with its update time.
+     *
+     * @param id The identifier of the job
+     * @param fields The fields to update
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the update fails or the lease of the job has been lost
+     */
+    private void updateJob(String id, Map<String, Object> fields) throws DatabaseAccessException, DocumentException {
+        fields.put(UPDATED_AT_FIELD, Instant.now().toString());
+        jobDao.updateJob(id, owner, fields);
+    }
+
+    /**
+     * Queues a job to be run by a worker, unless it is already queued.
+     *
+     * @param id The identifier of the job
+     */
+    private void queue(String id) {
+        if (queued.add(id)) {
+            executor.execute(() -> {
+                queued.remove(id);
+                run(id);
+            });
+        }
+    }
+
+    /**
+     * Queues the jobs that are pending or running and are not running in this instance. The ones leased to another
+     * instance are skipped when they are claimed.
+     */
+    void resumeUnfinishedJobs() {
+        try {
+            for (String id : jobDao.getUnfinishedJobs()) {
+                if (!runningJobs.containsKey(id)) {
+                    queue(id);
+                }
+            }
+        } catch (DatabaseAccessException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Extends the leases of the jobs running in this instance, and stops the jobs whose lease has been lost.
+     */
+    void renewLeases() {
+        for (Map.Entry<String, RunningJob> entry : runningJobs.entrySet()) {
+            try {
+                if (!jobDao.renewLease(entry.getKey(), owner, leaseMillis) && entry.getValue().stop()) {
+                    lostLeases.incrementAndGet();
+                }
+            } catch (DatabaseAccessException | DocumentException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * State of a job running in this instance: its progress and the worker that runs it, which is interrupted when
+     * the job is stopped.
+     */
+    private static final class RunningJob {
+        private final AtomicLong progress = new AtomicLong();
+        private Thread worker;
+        private volatile boolean stopped;
+
+        private RunningJob(Thread worker) {
+            this.worker = worker;
+        }
+
+        /**
+         * Stops the job and interrupts its worker if it is still running it.
+         *
+         * @return True if the job had not been stopped before
+         */
+        private synchronized boolean stop() {
+            if (stopped) {
+                return false;
+            }
+            stopped = true;
+            if (worker != null) {
+                worker.interrupt();
+            }
+            return true;
+        }
+
+        /**
+         * Checks whether the job has been stopped.
+         *
+         * @return True if the job has been stopped
+         */
+        private boolean isStopped() {
+            return stopped;
+        }
+
+        /**
+         * Releases the worker, which is no longer interrupted when the job is stopped.
+         */
+        private synchronized void finish() {
+            worker = null;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package org.pesmypetcare.webservice.service.appmanager;
 
 import org.pesmypetcare.webservice.entity.appmanager.ImageEntity;
+import org.pesmypetcare.webservice.entity.appmanager.ImageMetadata;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.form.StorageForm;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * @author Santiago Del Rey
@@ -44,6 +48,31 @@ public interface StorageService {
      */
     String getImage(StorageForm form);
 
+    /**
+     * Gets the image described by its metadata from the storage.
+     * @param image The image metadata
+     * @return The image as a base64 encoded byte array
+     */
+    String getImage(ImageMetadata image);
+
+    /**
+     * Gets the metadata of an image from the storage without downloading it.
+     * @param form The form with the request data
+     * @return The image metadata
+     * @throws DocumentException When the image does not exist
+     */
+    ImageMetadata getImageMetadata(StorageForm form) throws DocumentException;
+
+    /**
+     * Writes a range of the bytes of an image to an output stream.
+     * @param image The image metadata
+     * @param offset The position of the first byte to write
+     * @param length The number of bytes to write
+     * @param output The stream where to write
+     * @throws IOException When the image cannot be read or the stream cannot be written
+     */
+    void writeImage(ImageMetadata image, long offset, long length, OutputStream output) throws IOException;
+
     /**
      * Deletes an image from the storage.
      * @param form The form with the request data
@@ -69,4 +98,32 @@ public interface StorageService {
      */
     Map<String, String> getAllPostsImagesFromForum(String group, String forum)
         throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Gets the paths of the profile images of all the pets of a user.
+     * @param owner The pets' owner
+     * @return A map with the pets names and the paths to their images
+     * @throws DatabaseAccessException When an error occurs when accessing the database
+     * @throws DocumentException When the pet does not exist
+     */
+    Map<String, String> getAllPetImagesPaths(String owner) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Gets the paths of the images of all the posts of a forum.
+     * @param group The group name
+     * @param forum The forum name
+     * @return A map with the images paths as both keys and values
+     * @throws DatabaseAccessException When an error occurs when accessing the database
+     * @throws DocumentException When the either the group or forum do not exist
+     */
+    Map<String, String> getAllPostsImagesPaths(String group, String forum)
+        throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Downloads several images in parallel and hands each one to the consumer as soon as it is available.
+     * @param paths A map with the keys that identify the images to the consumer and the paths to the images
+     * @param consumer The consumer of the keys and the images as a base64 encoded byte array
+     * @throws DatabaseAccessException When the download is interrupted or fails
+     */
+    void fetchImages(Map<String, String> paths, BiConsumer<String, String> consumer) throws DatabaseAccessException;
 }
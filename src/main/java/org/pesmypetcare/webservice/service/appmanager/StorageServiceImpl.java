@@ -3,13 +3,17 @@ package org.pesmypetcare.webservice.service.appmanager;
 import org.pesmypetcare.webservice.dao.appmanager.StorageDao;
 import org.pesmypetcare.webservice.dao.communitymanager.GroupDao;
 import org.pesmypetcare.webservice.entity.appmanager.ImageEntity;
+import org.pesmypetcare.webservice.entity.appmanager.ImageMetadata;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.form.StorageForm;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * @author Santiago Del Rey
@@ -45,6 +49,21 @@ public class StorageServiceImpl implements StorageService {
         return storageDao.downloadImage(form);
     }
 
+    @Override
+    public String getImage(ImageMetadata image) {
+        return storageDao.downloadImage(image);
+    }
+
+    @Override
+    public ImageMetadata getImageMetadata(StorageForm form) throws DocumentException {
+        return storageDao.getImageMetadata(form);
+    }
+
+    @Override
+    public void writeImage(ImageMetadata image, long offset, long length, OutputStream output) throws IOException {
+        storageDao.writeImage(image, offset, length, output);
+    }
+
     @Override
     public Map<String, String> getAllPetImages(String owner) throws DatabaseAccessException, DocumentException {
         return storageDao.downloadAllPetImages(owner);
@@ -56,6 +75,23 @@ public class StorageServiceImpl implements StorageService {
         return storageDao.downloadAllPostsImagesFromForum(group, forum);
     }
 
+    @Override
+    public Map<String, String> getAllPetImagesPaths(String owner) throws DatabaseAccessException, DocumentException {
+        return storageDao.getAllPetImagesPaths(owner);
+    }
+
+    @Override
+    public Map<String, String> getAllPostsImagesPaths(String group, String forum)
+        throws DatabaseAccessException, DocumentException {
+        return storageDao.getAllPostsImagesPaths(group, forum);
+    }
+
+    @Override
+    public void fetchImages(Map<String, String> paths, BiConsumer<String, String> consumer)
+        throws DatabaseAccessException {
+        storageDao.fetchImages(paths, consumer);
+    }
+
     @Override
     public void deleteImage(StorageForm form) {
         storageDao.deleteImage(form);
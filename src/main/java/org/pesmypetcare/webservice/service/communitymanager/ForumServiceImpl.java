@@ -4,6 +4,7 @@ import org.pesmypetcare.webservice.dao.communitymanager.ForumDao;
 import org.pesmypetcare.webservice.dao.communitymanager.GroupDao;
 import org.pesmypetcare.webservice.entity.communitymanager.ForumEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.Message;
+import org.pesmypetcare.webservice.entity.communitymanager.MessagePage;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.error.InvalidOperationException;
@@ -126,6 +127,16 @@ public class ForumServiceImpl implements ForumService {
         }
     }
 
+    @Override
+    public MessagePage getMessagesPage(String parentGroup, String forumName, String cursor, int limit)
+        throws DatabaseAccessException, DocumentException {
+        if (!forumDao.forumNameInUse(parentGroup, forumName)) {
+            throw new DocumentException(DOCUMENT_NOT_EXISTS, FORUM_DOES_NOT_EXISTS);
+        } else {
+            return forumDao.getMessagesPage(parentGroup, forumName, cursor, limit);
+        }
+    }
+
     @Override
     public void addUserToLikedByOfMessage(String token, String username, String parentGroup, String forumName,
                                           String creator, String date)
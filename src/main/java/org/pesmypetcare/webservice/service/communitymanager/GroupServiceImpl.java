@@ -6,11 +6,13 @@ import org.pesmypetcare.webservice.entity.communitymanager.GroupEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.TagEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.utilities.Versioned;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Santiago Del Rey
@@ -49,11 +51,25 @@ public class GroupServiceImpl implements GroupService {
         }
     }
 
+    @Override
+    public Versioned<Group> getVersionedGroup(String name) throws DatabaseAccessException, DocumentException {
+        if (!groupDao.groupNameInUse(name)) {
+            throw new DocumentException(INVALID_NAME_CODE, NAME_DOES_NOT_EXISTS);
+        } else {
+            return groupDao.getVersionedGroup(name);
+        }
+    }
+
     @Override
     public List<Group> getAllGroups() throws DatabaseAccessException {
         return groupDao.getAllGroups();
     }
 
+    @Override
+    public CompletableFuture<List<Group>> getAllGroupsAsync() {
+        return groupDao.getAllGroupsAsync();
+    }
+
     @Override
     public void updateField(String name, String field, String newValue)
         throws DatabaseAccessException, DocumentException {
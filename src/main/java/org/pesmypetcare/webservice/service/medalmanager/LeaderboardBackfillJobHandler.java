@@ -0,0 +1,71 @@
+package org.pesmypetcare.webservice.service.medalmanager;
+
+import org.pesmypetcare.webservice.dao.appmanager.JobDao;
+import org.pesmypetcare.webservice.dao.medalmanager.MedalLeaderboard;
+import org.pesmypetcare.webservice.dao.medalmanager.UserMedalDao;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.service.appmanager.JobHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Adds the user medals that were stored before the leaderboard index of their medal existed to the index. The users
+ * are read in pages of {@code medals.leaderboard.backfill-page-size} usernames and the last username of each indexed
+ * page is saved as the cursor of the job, so an interrupted backfill only indexes again the page it was working on.
+ *
+ * @author Santiago Del Rey
+ */
+@Service
+public class LeaderboardBackfillJobHandler implements JobHandler {
+    public static final String TYPE = "leaderboard-backfill";
+    public static final String MEDAL_PARAMETER = "medal";
+    static final String USERS_STEP = "users";
+    private static final int DEFAULT_PAGE_SIZE = 500;
+    @Value("${medals.leaderboard.backfill-page-size:" + DEFAULT_PAGE_SIZE + "}")
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    @Autowired
+    private UserMedalDao userMedalDao;
+    @Autowired
+    private MedalLeaderboard medalLeaderboard;
+    @Autowired
+    private JobDao jobDao;
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public List<String> getSteps(JobEntity job) {
+        return Collections.singletonList(USERS_STEP);
+    }
+
+    @Override
+    public void runStep(JobEntity job, String step, LongConsumer progress)
+        throws DatabaseAccessException, DocumentException {
+        if (!USERS_STEP.equals(step)) {
+            throw new IllegalArgumentException("Unknown step " + step);
+        }
+        String medal = job.getParameters().get(MEDAL_PARAMETER);
+        long users = 0;
+        List<String> page;
+        do {
+            page = userMedalDao.indexUserMedalsPage(medal, job.getCursor(), pageSize);
+            if (!page.isEmpty()) {
+                String cursor = page.get(page.size() - 1);
+                jobDao.saveCursor(job.getId(), job.getOwner(), cursor);
+                job.setCursor(cursor);
+                users += page.size();
+                progress.accept(users);
+            }
+        } while (page.size() == pageSize);
+        medalLeaderboard.invalidate(medal);
+    }
+}
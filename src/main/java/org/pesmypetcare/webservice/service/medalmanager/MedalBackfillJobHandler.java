@@ -0,0 +1,71 @@
+package org.pesmypetcare.webservice.service.medalmanager;
+
+import org.pesmypetcare.webservice.dao.appmanager.JobDao;
+import org.pesmypetcare.webservice.dao.medalmanager.MedalDao;
+import org.pesmypetcare.webservice.dao.medalmanager.UserMedalDao;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.entity.medalmanager.MedalEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.service.appmanager.JobHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Gives a new medal to all the existing users. The users are read in pages of {@code medals.backfill.page-size}
+ * usernames and the last username of each written page is saved as the cursor of the job, so an interrupted backfill
+ * only writes again the page it was working on.
+ *
+ * @author Santiago Del Rey
+ */
+@Service
+public class MedalBackfillJobHandler implements JobHandler {
+    public static final String TYPE = "medal-backfill";
+    public static final String MEDAL_PARAMETER = "medal";
+    static final String USERS_STEP = "users";
+    private static final int DEFAULT_PAGE_SIZE = 2000;
+    @Value("${medals.backfill.page-size:" + DEFAULT_PAGE_SIZE + "}")
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    @Autowired
+    private MedalDao medalDao;
+    @Autowired
+    private UserMedalDao userMedalDao;
+    @Autowired
+    private JobDao jobDao;
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public List<String> getSteps(JobEntity job) {
+        return Collections.singletonList(USERS_STEP);
+    }
+
+    @Override
+    public void runStep(JobEntity job, String step, LongConsumer progress)
+        throws DatabaseAccessException, DocumentException {
+        if (!USERS_STEP.equals(step)) {
+            throw new IllegalArgumentException("Unknown step " + step);
+        }
+        MedalEntity medal = medalDao.getMedalData(job.getParameters().get(MEDAL_PARAMETER));
+        long users = 0;
+        List<String> page;
+        do {
+            page = userMedalDao.createUserMedalsPage(medal, job.getCursor(), pageSize);
+            if (!page.isEmpty()) {
+                String cursor = page.get(page.size() - 1);
+                jobDao.saveCursor(job.getId(), job.getOwner(), cursor);
+                job.setCursor(cursor);
+                users += page.size();
+                progress.accept(users);
+            }
+        } while (page.size() == pageSize);
+    }
+}
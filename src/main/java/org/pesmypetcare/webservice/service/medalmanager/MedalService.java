@@ -1,5 +1,6 @@
 package org.pesmypetcare.webservice.service.medalmanager;
 
+import org.pesmypetcare.webservice.entity.medalmanager.LeaderboardEntry;
 import org.pesmypetcare.webservice.entity.medalmanager.MedalEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
@@ -13,13 +14,14 @@ import java.util.Map;
 public interface MedalService {
 
     /**
-     * Creates a medal on the data base.
+     * Creates a medal on the data base and schedules a job that gives it to all the existing users.
      * @param name Name of the medal
      * @param medal The medal entity that contains the attributes of the pet
+     * @return The identifier of the job that gives the medal to the users
      * @throws DatabaseAccessException If an error occurs when accessing the database
      * @throws DocumentException When the document does not exist
      */
-    void createMedal(String name, MedalEntity medal) throws DatabaseAccessException, DocumentException;
+    String createMedal(String name, MedalEntity medal) throws DatabaseAccessException, DocumentException;
 
     /**
      * Gets a medal identified by its name.
@@ -47,4 +49,22 @@ public interface MedalService {
      * @throws DocumentException When the document does not exist
      */
     Object getField(String name, String field) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Gets the users with the greatest progress in a medal.
+     * @param name Name of the medal
+     * @param limit Maximum number of users to return
+     * @return The list of leaderboard entries from the greatest progress to the smallest one
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     */
+    List<LeaderboardEntry> getLeaderboard(String name, int limit) throws DatabaseAccessException;
+
+    /**
+     * Adds the progress that the users made in a medal before its leaderboard was indexed to its leaderboard.
+     * @param name Name of the medal
+     * @return The identifier of the job that indexes the users
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the job cannot be created
+     */
+    String indexLeaderboard(String name) throws DatabaseAccessException, DocumentException;
 }
@@ -1,12 +1,16 @@
 package org.pesmypetcare.webservice.service.medalmanager;
 
 import org.pesmypetcare.webservice.dao.medalmanager.MedalDao;
+import org.pesmypetcare.webservice.dao.medalmanager.MedalLeaderboard;
+import org.pesmypetcare.webservice.entity.medalmanager.LeaderboardEntry;
 import org.pesmypetcare.webservice.entity.medalmanager.MedalEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.service.appmanager.JobService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -17,10 +21,16 @@ import java.util.Map;
 public class MedalServiceImpl implements MedalService {
     @Autowired
     private MedalDao medalDao;
+    @Autowired
+    private JobService jobService;
+    @Autowired
+    private MedalLeaderboard medalLeaderboard;
 
     @Override
-    public void createMedal(String name, MedalEntity medal) throws DatabaseAccessException, DocumentException {
+    public String createMedal(String name, MedalEntity medal) throws DatabaseAccessException, DocumentException {
         medalDao.createMedal(name, medal);
+        return jobService.submit(MedalBackfillJobHandler.TYPE,
+            Collections.singletonMap(MedalBackfillJobHandler.MEDAL_PARAMETER, name));
     }
 
     @Override
@@ -37,4 +47,15 @@ public class MedalServiceImpl implements MedalService {
     public Object getField(String name, String field) throws DatabaseAccessException, DocumentException {
         return medalDao.getField(name, field);
     }
+
+    @Override
+    public List<LeaderboardEntry> getLeaderboard(String name, int limit) throws DatabaseAccessException {
+        return medalLeaderboard.getTop(name, limit);
+    }
+
+    @Override
+    public String indexLeaderboard(String name) throws DatabaseAccessException, DocumentException {
+        return jobService.submit(LeaderboardBackfillJobHandler.TYPE,
+            Collections.singletonMap(LeaderboardBackfillJobHandler.MEDAL_PARAMETER, name));
+    }
 }
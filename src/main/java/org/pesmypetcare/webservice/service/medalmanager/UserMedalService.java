@@ -5,6 +5,7 @@ import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Oriol Catalán
@@ -42,6 +43,16 @@ public interface UserMedalService {
     List<UserMedalEntity> getAllUserMedalsData(String owner) throws DatabaseAccessException,
         DocumentException;
 
+    /**
+     * Gets the data from all the specified medals from the database without waiting for the medals to be read.
+     * @param owner Username of the owner of the medals
+     * @return A future with the List containing all the owner medals data
+     * @throws DatabaseAccessException If an error occurs when accessing the database
+     * @throws DocumentException When the owner does not exist
+     */
+    CompletableFuture<List<UserMedalEntity>> getAllUserMedalsDataAsync(String owner) throws DatabaseAccessException,
+        DocumentException;
+
     /**
      * Updates the medal's field.
      * @param owner Username of the owner of the medal
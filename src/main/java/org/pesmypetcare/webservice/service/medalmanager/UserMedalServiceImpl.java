@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Oriol Catalán
@@ -35,6 +36,12 @@ public class UserMedalServiceImpl implements UserMedalService {
         return userMedalDao.getAllUserMedalsData(owner);
     }
 
+    @Override
+    public CompletableFuture<List<UserMedalEntity>> getAllUserMedalsDataAsync(String owner)
+        throws DatabaseAccessException, DocumentException {
+        return userMedalDao.getAllUserMedalsDataAsync(owner);
+    }
+
     @Override
     public void updateField(String owner, String name, String field, Object value) throws DatabaseAccessException,
         DocumentException {
@@ -4,11 +4,13 @@ import org.pesmypetcare.webservice.dao.petmanager.PetDao;
 import org.pesmypetcare.webservice.entity.petmanager.PetEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.utilities.Versioned;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Marc Simó
@@ -40,11 +42,23 @@ public class PetServiceImpl implements PetService {
         return petDao.getPetData(owner, name);
     }
 
+    @Override
+    public Versioned<PetEntity> getVersionedPetData(String owner, String name)
+        throws DatabaseAccessException, DocumentException {
+        return petDao.getVersionedPetData(owner, name);
+    }
+
     @Override
     public List<Map<String, Object>> getAllPetsData(String owner) throws DatabaseAccessException, DocumentException {
         return petDao.getAllPetsData(owner);
     }
 
+    @Override
+    public CompletableFuture<List<Map<String, Object>>> getAllPetsDataAsync(String owner)
+        throws DatabaseAccessException, DocumentException {
+        return petDao.getAllPetsDataAsync(owner);
+    }
+
     @Override
     public Object getSimpleField(String owner, String name, String field)
         throws DatabaseAccessException, DocumentException {
@@ -82,6 +96,14 @@ public class PetServiceImpl implements PetService {
         return petDao.getFieldCollectionElementsBetweenKeys(owner, name, field, key1, key2);
     }
 
+    @Override
+    public List<Map<String, Object>> getFieldCollectionElementsBetweenKeys(String owner, String name, String field,
+                                                                           String key1, String key2,
+                                                                           String startAfterKey, int limit)
+        throws DatabaseAccessException, DocumentException {
+        return petDao.getFieldCollectionElementsBetweenKeys(owner, name, field, key1, key2, startAfterKey, limit);
+    }
+
     @Override
     public void addFieldCollectionElement(String owner, String name, String field, String key, Map<String, Object> body)
         throws DatabaseAccessException, DocumentException {
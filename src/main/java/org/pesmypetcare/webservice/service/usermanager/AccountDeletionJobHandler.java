@@ -0,0 +1,87 @@
+package org.pesmypetcare.webservice.service.usermanager;
+
+import com.google.firebase.auth.FirebaseAuthException;
+import org.pesmypetcare.webservice.dao.usermanager.UserDao;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.service.appmanager.JobHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Deletes a user account step by step. The username is released after the pets are deleted, because the pets are
+ * found through it, and the user document is deleted last but for the authentication account, so a failed deletion
+ * can always be resumed.
+ *
+ * @author Santiago Del Rey
+ */
+@Service
+public class AccountDeletionJobHandler implements JobHandler {
+    public static final String TYPE = "account-deletion";
+    public static final String UID_PARAMETER = "uid";
+    public static final String USERNAME_PARAMETER = "username";
+    public static final String AUTHENTICATION_PARAMETER = "authentication";
+    static final String PETS_STEP = "pets";
+    static final String STORAGE_STEP = "storage";
+    static final String LIKES_STEP = "likes";
+    static final String LEADERBOARDS_STEP = "leaderboards";
+    static final String USERNAME_STEP = "username";
+    static final String USER_STEP = "user";
+    static final String AUTHENTICATION_STEP = "authentication";
+    private static final List<String> DATABASE_STEPS = Arrays.asList(PETS_STEP, STORAGE_STEP, LIKES_STEP,
+        LEADERBOARDS_STEP, USERNAME_STEP, USER_STEP);
+    @Autowired
+    private UserDao userDao;
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public List<String> getSteps(JobEntity job) {
+        List<String> steps = new ArrayList<>(DATABASE_STEPS);
+        if (Boolean.parseBoolean(job.getParameters().get(AUTHENTICATION_PARAMETER))) {
+            steps.add(AUTHENTICATION_STEP);
+        }
+        return steps;
+    }
+
+    @Override
+    public void runStep(JobEntity job, String step, LongConsumer progress)
+        throws DatabaseAccessException, DocumentException, FirebaseAuthException {
+        String uid = job.getParameters().get(UID_PARAMETER);
+        String username = job.getParameters().get(USERNAME_PARAMETER);
+        switch (step) {
+            case PETS_STEP:
+                userDao.deleteUserPets(username, progress);
+                break;
+            case STORAGE_STEP:
+                userDao.deleteUserStorage(uid);
+                break;
+            case LIKES_STEP:
+                progress.accept(userDao.deleteUserLikes(username));
+                break;
+            case LEADERBOARDS_STEP:
+                progress.accept(userDao.deleteUserLeaderboardEntries(username));
+                break;
+            case USERNAME_STEP:
+                userDao.deleteUsername(username);
+                break;
+            case USER_STEP:
+                userDao.deleteUserDocument(uid);
+                break;
+            case AUTHENTICATION_STEP:
+                userDao.deleteAuthentication(uid);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown step " + step);
+        }
+    }
+}
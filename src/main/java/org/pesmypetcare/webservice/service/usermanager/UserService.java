@@ -46,6 +46,19 @@ public interface UserService {
      */
     void deleteById(String token, String uid) throws DatabaseAccessException, FirebaseAuthException, DocumentException;
 
+    /**
+     * Schedules the deletion of a user in the background.
+     *
+     * @param token The user's personal access token
+     * @param uid The unique identifier of the user
+     * @param authentication If true deletes the authentication account as well, otherwise only the database data
+     * @return The identifier of the deletion job
+     * @throws DatabaseAccessException If an error occurs when accessing the database or the user does not exist
+     * @throws DocumentException When the job cannot be stored
+     */
+    String scheduleDeletion(String token, String uid, boolean authentication)
+        throws DatabaseAccessException, DocumentException;
+
 
     /**
      * Gets the data of the specified user.
@@ -7,12 +7,15 @@ import org.pesmypetcare.webservice.dao.usermanager.UserDao;
 import org.pesmypetcare.webservice.entity.usermanager.UserEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.service.appmanager.JobService;
 import org.pesmypetcare.webservice.thirdpartyservices.FirebaseFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Santiago Del Rey
@@ -23,6 +26,8 @@ public class UserServiceImpl implements UserService {
 
     @Autowired
     private UserDao userDao;
+    @Autowired
+    private JobService jobService;
 
     public UserServiceImpl() {
         this.auth = FirebaseFactory.getInstance().getFirebaseAuth();
@@ -45,6 +50,17 @@ public class UserServiceImpl implements UserService {
         userDao.deleteById(uid);
     }
 
+    @Override
+    public String scheduleDeletion(String token, String uid, boolean authentication)
+        throws DatabaseAccessException, DocumentException {
+        UserEntity user = userDao.getUserData(uid);
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(AccountDeletionJobHandler.UID_PARAMETER, uid);
+        parameters.put(AccountDeletionJobHandler.USERNAME_PARAMETER, user.getUsername());
+        parameters.put(AccountDeletionJobHandler.AUTHENTICATION_PARAMETER, String.valueOf(authentication));
+        return jobService.submit(AccountDeletionJobHandler.TYPE, parameters);
+    }
+
     @Override
     public UserEntity getUserData(String token, String uid) throws DatabaseAccessException {
         return userDao.getUserData(uid);
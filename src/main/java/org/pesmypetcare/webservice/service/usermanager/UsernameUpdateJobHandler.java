@@ -0,0 +1,55 @@
+package org.pesmypetcare.webservice.service.usermanager;
+
+import org.pesmypetcare.webservice.dao.usermanager.UserDao;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.service.appmanager.JobHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Finishes a username update whose copies did not fit in a single write batch. The copies are updated first and the
+ * previous username is released last, so nobody can take it while some documents still hold it.
+ *
+ * @author Santiago Del Rey
+ */
+@Service
+public class UsernameUpdateJobHandler implements JobHandler {
+    static final String COPIES_STEP = "copies";
+    static final String USERNAME_STEP = "username";
+    private static final List<String> STEPS = Arrays.asList(COPIES_STEP, USERNAME_STEP);
+    @Autowired
+    private UserDao userDao;
+
+    @Override
+    public String getType() {
+        return UserDao.USERNAME_UPDATE_JOB;
+    }
+
+    @Override
+    public List<String> getSteps(JobEntity job) {
+        return STEPS;
+    }
+
+    @Override
+    public void runStep(JobEntity job, String step, LongConsumer progress)
+        throws DatabaseAccessException, DocumentException {
+        String username = job.getParameters().get(UserDao.USERNAME_PARAMETER);
+        switch (step) {
+            case COPIES_STEP:
+                progress.accept(userDao.updateUsernameCopies(username,
+                    job.getParameters().get(UserDao.NEW_USERNAME_PARAMETER)));
+                break;
+            case USERNAME_STEP:
+                userDao.deleteUsername(username);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown step " + step);
+        }
+    }
+}
@@ -2,44 +2,114 @@ package org.pesmypetcare.webservice.thirdpartyservices;
 
 import com.google.api.client.auth.oauth2.BearerToken;
 import com.google.api.client.auth.oauth2.Credential;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
 import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import org.pesmypetcare.webservice.utilities.MetricsSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
-import java.security.GeneralSecurityException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * Builds the Google Calendar clients of the users. All the clients share a single HTTP transport backed by a pool of
+ * persistent connections, and the client of each access token is kept in a bounded cache until the token expires, so
+ * the consecutive requests of a user reuse the same client.
+ *
  * @author Marc Simó
  */
-public class CalendarServiceFactory {
-    private static CalendarServiceFactory instance;
-    private static final HttpTransport HTTP_TRANSPORT;
+@Component
+public class CalendarServiceFactory implements MetricsSource {
+    private static final String APPLICATION_NAME = "My Pet Care";
     private static final JsonFactory JSON_FACTORY = JacksonFactory.getDefaultInstance();
-    static {
-        HttpTransport temp = null;
-        try {
-            temp = GoogleNetHttpTransport.newTrustedTransport();
-        } catch (GeneralSecurityException | IOException e) {
-            e.printStackTrace();
-        }
-        HTTP_TRANSPORT = temp;
-    }
+    private static final long DEFAULT_MAXIMUM_CLIENTS = 1000;
+    private static final long DEFAULT_TOKEN_LIFETIME_MINUTES = 60;
+    private static final int DEFAULT_MAX_CONNECTIONS = 50;
+    private static final int DEFAULT_CONNECTION_TTL_SECONDS = 300;
+    @Value("${calendar.clients.maximum-size:" + DEFAULT_MAXIMUM_CLIENTS + "}")
+    private long maximumClients = DEFAULT_MAXIMUM_CLIENTS;
+    @Value("${calendar.clients.token-lifetime-minutes:" + DEFAULT_TOKEN_LIFETIME_MINUTES + "}")
+    private long tokenLifetimeMinutes = DEFAULT_TOKEN_LIFETIME_MINUTES;
+    @Value("${calendar.http.max-connections:" + DEFAULT_MAX_CONNECTIONS + "}")
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    @Value("${calendar.http.connection-ttl-seconds:" + DEFAULT_CONNECTION_TTL_SECONDS + "}")
+    private int connectionTtlSeconds = DEFAULT_CONNECTION_TTL_SECONDS;
+    private HttpTransport httpTransport;
+    private LoadingCache<String, com.google.api.services.calendar.Calendar> clients;
 
-    private CalendarServiceFactory() { }
+    /**
+     * Creates the shared HTTP transport and the cache of clients.
+     */
+    @PostConstruct
+    public void initialize() {
+        httpTransport = new ApacheHttpTransport(ApacheHttpTransport.newDefaultHttpClientBuilder()
+            .setMaxConnTotal(maxConnections).setMaxConnPerRoute(maxConnections)
+            .setConnectionTimeToLive(connectionTtlSeconds, TimeUnit.SECONDS).build());
+        clients = CacheBuilder.newBuilder().maximumSize(maximumClients)
+            .expireAfterWrite(tokenLifetimeMinutes, TimeUnit.MINUTES).recordStats()
+            .build(CacheLoader.from(this::buildService));
+    }
 
-    public static CalendarServiceFactory getInstance() {
-        if (instance == null) {
-            instance = new CalendarServiceFactory();
+    /**
+     * Closes the pooled connections of the shared HTTP transport.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (httpTransport != null) {
+            try {
+                httpTransport.shutdown();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
-        return instance;
     }
 
+    /**
+     * Gets the Google Calendar client of an access token, building it the first time the token is used.
+     *
+     * @param accessToken The access token of the user
+     * @return The client that acts on behalf of the user
+     */
     public com.google.api.services.calendar.Calendar initializeService(String accessToken) {
+        return clients.getUnchecked(accessToken);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "calendar-clients";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        CacheStats stats = clients.stats();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", clients.size());
+        metrics.put("hits", stats.hitCount());
+        metrics.put("misses", stats.missCount());
+        metrics.put("evictions", stats.evictionCount());
+        return metrics;
+    }
+
+    /**
+     * Builds a new Google Calendar client on the shared HTTP transport.
+     *
+     * @param accessToken The access token of the user
+     * @return The client that acts on behalf of the user
+     */
+    private com.google.api.services.calendar.Calendar buildService(String accessToken) {
         Credential credential =
             new Credential(BearerToken.authorizationHeaderAccessMethod()).setAccessToken(accessToken);
-        return new com.google.api.services.calendar.Calendar.Builder(HTTP_TRANSPORT, JSON_FACTORY,
-            credential).setApplicationName("My Pet Care").build();
+        return new com.google.api.services.calendar.Calendar.Builder(httpTransport, JSON_FACTORY, credential)
+            .setApplicationName(APPLICATION_NAME).build();
     }
 }
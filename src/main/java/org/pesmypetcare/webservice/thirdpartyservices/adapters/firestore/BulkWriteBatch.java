@@ -0,0 +1,102 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.WriteBatch;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Unbounded sequence of writes that is committed by a {@link FirestoreBulkWriter}. Unlike a WriteBatch it can hold
+ * any number of writes, which are split into several write batches when committed. The writes of different batches
+ * are not applied atomically.
+ *
+ * @author Santiago Del Rey
+ */
+public class BulkWriteBatch {
+    private final List<Consumer<WriteBatch>> writes = new ArrayList<>();
+
+    /**
+     * Creates a document.
+     *
+     * @param documentReference The DocumentReference to create
+     * @param pojo The POJO that will be used to populate the document contents
+     * @return The instance for chaining
+     */
+    public BulkWriteBatch create(@NonNull DocumentReference documentReference, @NonNull Object pojo) {
+        writes.add(batch -> batch.create(documentReference, pojo));
+        return this;
+    }
+
+    /**
+     * Overwrites the document referred to by the reference. If the document does not exist yet, it will be created.
+     *
+     * @param documentReference The DocumentReference to overwrite
+     * @param pojo The POJO or map that will be used to populate the document contents
+     * @return The instance for chaining
+     */
+    public BulkWriteBatch set(@NonNull DocumentReference documentReference, @NonNull Object pojo) {
+        writes.add(batch -> batch.set(documentReference, pojo));
+        return this;
+    }
+
+    /**
+     * Updates the fields of the document referred to by the reference.
+     *
+     * @param documentReference The DocumentReference to update
+     * @param fields A map containing the fields and values with which to update the document
+     * @return The instance for chaining
+     */
+    public BulkWriteBatch update(@NonNull DocumentReference documentReference, @NonNull Map<String, Object> fields) {
+        writes.add(batch -> batch.update(documentReference, fields));
+        return this;
+    }
+
+    /**
+     * Updates a field of the document referred to by the reference.
+     *
+     * @param documentReference The DocumentReference to update
+     * @param field The field to update
+     * @param value The new value of the field
+     * @return The instance for chaining
+     */
+    public BulkWriteBatch update(@NonNull DocumentReference documentReference, @NonNull String field,
+                                 @Nullable Object value) {
+        writes.add(batch -> batch.update(documentReference, field, value));
+        return this;
+    }
+
+    /**
+     * Deletes the document referred to by the reference.
+     *
+     * @param documentReference The DocumentReference to delete
+     * @return The instance for chaining
+     */
+    public BulkWriteBatch delete(@NonNull DocumentReference documentReference) {
+        writes.add(batch -> batch.delete(documentReference));
+        return this;
+    }
+
+    /**
+     * Gets the number of writes.
+     *
+     * @return The number of writes
+     */
+    public int size() {
+        return writes.size();
+    }
+
+    /**
+     * Gets the writes in the order they were added. Each of them adds itself to the write batch it is given.
+     *
+     * @return The list of writes
+     */
+    List<Consumer<WriteBatch>> getWrites() {
+        return Collections.unmodifiableList(writes);
+    }
+}
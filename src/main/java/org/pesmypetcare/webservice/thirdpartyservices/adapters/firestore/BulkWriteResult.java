@@ -0,0 +1,98 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of committing a {@link BulkWriteBatch}. Each write batch succeeds or fails as a whole, so the failures are
+ * reported per batch.
+ *
+ * @author Santiago Del Rey
+ */
+public class BulkWriteResult {
+    private final List<BatchFailure> failures = new ArrayList<>();
+    private int batches;
+    private int writes;
+
+    /**
+     * Gets the number of write batches that have been committed.
+     *
+     * @return The number of committed batches, including the failed ones
+     */
+    public int getBatches() {
+        return batches;
+    }
+
+    /**
+     * Gets the number of writes that have been applied.
+     *
+     * @return The number of writes of the batches that succeeded
+     */
+    public int getWrites() {
+        return writes;
+    }
+
+    /**
+     * Gets the batches that failed.
+     *
+     * @return The list of failures in the order of the batches
+     */
+    public List<BatchFailure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Checks whether all the batches have been committed successfully.
+     *
+     * @return True if no batch failed
+     */
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * Records a batch that has been committed successfully.
+     *
+     * @param batchWrites The number of writes of the batch
+     */
+    void addSuccess(int batchWrites) {
+        ++batches;
+        writes += batchWrites;
+    }
+
+    /**
+     * Records a batch that failed.
+     *
+     * @param failure The failure of the batch
+     */
+    void addFailure(BatchFailure failure) {
+        ++batches;
+        failures.add(failure);
+    }
+
+    /**
+     * Write batch that could not be committed.
+     */
+    @Data
+    public static class BatchFailure {
+        private int batch;
+        private int writes;
+        private String message;
+
+        /**
+         * Creates a batch failure.
+         *
+         * @param batch The position of the batch, starting at 0
+         * @param writes The number of writes of the batch
+         * @param message The reason of the failure
+         */
+        public BatchFailure(int batch, int writes, String message) {
+            this.batch = batch;
+            this.writes = writes;
+            this.message = message;
+        }
+    }
+}
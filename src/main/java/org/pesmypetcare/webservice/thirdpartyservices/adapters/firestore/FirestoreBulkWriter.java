@@ -0,0 +1,68 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import com.google.cloud.firestore.DocumentReference;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.springframework.lang.NonNull;
+
+import java.util.Map;
+
+/**
+ * Commits an arbitrary number of writes, which a single WriteBatch cannot hold.
+ *
+ * @author Santiago Del Rey
+ */
+public interface FirestoreBulkWriter {
+    /**
+     * The maximum number of writes of a single WriteBatch.
+     */
+    int MAX_WRITES_PER_BATCH = 500;
+
+    /**
+     * Creates an empty bulk write batch.
+     *
+     * @return A BulkWriteBatch to which add the writes
+     */
+    BulkWriteBatch batch();
+
+    /**
+     * Commits the writes of a bulk write batch. The writes are split into write batches that are committed
+     * concurrently, so they are not applied atomically.
+     *
+     * @param batch The batch to commit
+     * @return The result with the batches that failed
+     * @throws DatabaseAccessException When the commit is interrupted
+     */
+    BulkWriteResult commit(@NonNull BulkWriteBatch batch) throws DatabaseAccessException;
+
+    /**
+     * Commits the writes of a bulk write batch and fails if any of its write batches fails.
+     *
+     * @param batch The batch to commit
+     * @throws DatabaseAccessException When the commit is interrupted
+     * @throws DocumentException When the commit of any of the write batches fails
+     */
+    void commitBatch(@NonNull BulkWriteBatch batch) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Commits the writes of a bulk write batch in a single write batch, so either all of them are applied or none.
+     *
+     * @param batch The batch to commit, with at most {@value #MAX_WRITES_PER_BATCH} writes
+     * @throws DatabaseAccessException When the commit is interrupted
+     * @throws DocumentException When the commit fails
+     * @throws IllegalArgumentException When the batch has more writes than a single write batch can hold
+     */
+    void commitAtomically(@NonNull BulkWriteBatch batch) throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Creates the documents that do not exist yet. Each document is created on its own, so a document that already
+     * exists is left untouched and does not make the creation of the others fail.
+     *
+     * @param documents The references of the documents to create and the POJOs that populate their contents
+     * @return The number of documents that have been created
+     * @throws DatabaseAccessException When the creation is interrupted
+     * @throws DocumentException When the creation of any document fails for a reason other than its existence
+     */
+    int createIfAbsent(@NonNull Map<DocumentReference, Object> documents)
+        throws DatabaseAccessException, DocumentException;
+}
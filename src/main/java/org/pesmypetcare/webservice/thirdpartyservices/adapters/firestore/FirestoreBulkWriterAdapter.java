@@ -0,0 +1,307 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.FirebaseFactory;
+import org.pesmypetcare.webservice.utilities.MetricsSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Splits the writes into batches of at most {@value FirestoreBulkWriter#MAX_WRITES_PER_BATCH} writes, which is the
+ * limit of a single commit, and commits several of them at the same time.
+ * <p>
+ * The rate of writes follows the 500/50/5 rule: the writes start at 500 per second and the rate increases by 50%
+ * every 5 minutes, so a large cascade does not overload the documents it touches. The rate is shared by all the
+ * calls, so several cascades at the same time do not add up their rates, and it starts again at 500 writes per second
+ * after a whole period without writes.
+ *
+ * @author Santiago Del Rey
+ */
+@Repository
+public class FirestoreBulkWriterAdapter implements FirestoreBulkWriter, MetricsSource {
+    static final double RAMP_FACTOR = 1.5;
+    static final long RAMP_PERIOD_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final int DEFAULT_MAX_CONCURRENT_BATCHES = 10;
+    private static final int DEFAULT_INITIAL_WRITES_PER_SECOND = 500;
+    private static final int DEFAULT_MAX_WRITES_PER_SECOND = 10000;
+    private static final String WRITE_FAILED_CODE = "write-failed";
+    @Value("${firestore.bulk-writer.max-concurrent-batches:" + DEFAULT_MAX_CONCURRENT_BATCHES + "}")
+    private int maxConcurrentBatches = DEFAULT_MAX_CONCURRENT_BATCHES;
+    @Value("${firestore.bulk-writer.initial-writes-per-second:" + DEFAULT_INITIAL_WRITES_PER_SECOND + "}")
+    private int initialWritesPerSecond = DEFAULT_INITIAL_WRITES_PER_SECOND;
+    @Value("${firestore.bulk-writer.max-writes-per-second:" + DEFAULT_MAX_WRITES_PER_SECOND + "}")
+    private int maxWritesPerSecond = DEFAULT_MAX_WRITES_PER_SECOND;
+    private final AtomicLong committedBatches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private Firestore db;
+    private WriteRamp ramp;
+
+    public FirestoreBulkWriterAdapter() {
+        db = FirebaseFactory.getInstance().getFirestore();
+    }
+
+    /**
+     * Starts the rate of writes shared by all the calls.
+     */
+    @PostConstruct
+    public void startRamp() {
+        ramp = new WriteRamp(initialWritesPerSecond, maxWritesPerSecond);
+    }
+
+    @Override
+    public BulkWriteBatch batch() {
+        return new BulkWriteBatch();
+    }
+
+    @Override
+    public BulkWriteResult commit(@NonNull BulkWriteBatch batch) throws DatabaseAccessException {
+        List<Consumer<WriteBatch>> batchWrites = batch.getWrites();
+        BulkWriteResult result = new BulkWriteResult();
+        Deque<PendingBatch> pending = new ArrayDeque<>();
+        try {
+            for (int start = 0; start < batchWrites.size(); start += MAX_WRITES_PER_BATCH) {
+                if (pending.size() >= maxConcurrentBatches) {
+                    await(pending.poll(), result);
+                }
+                List<Consumer<WriteBatch>> chunk = batchWrites
+                    .subList(start, Math.min(batchWrites.size(), start + MAX_WRITES_PER_BATCH));
+                ramp.acquire(chunk.size());
+                WriteBatch writeBatch = db.batch();
+                chunk.forEach(write -> write.accept(writeBatch));
+                pending.add(new PendingBatch(start / MAX_WRITES_PER_BATCH, chunk.size(), writeBatch.commit()));
+            }
+            while (!pending.isEmpty()) {
+                await(pending.poll(), result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseAccessException(WRITE_FAILED_CODE, e.getMessage());
+        }
+        return result;
+    }
+
+    @Override
+    public void commitBatch(@NonNull BulkWriteBatch batch) throws DatabaseAccessException, DocumentException {
+        BulkWriteResult result = commit(batch);
+        if (!result.isSuccessful()) {
+            BulkWriteResult.BatchFailure failure = result.getFailures().get(0);
+            throw new DocumentException(WRITE_FAILED_CODE,
+                result.getFailures().size() + " of " + result.getBatches() + " write batches failed: "
+                    + failure.getMessage());
+        }
+    }
+
+    @Override
+    public void commitAtomically(@NonNull BulkWriteBatch batch) throws DatabaseAccessException, DocumentException {
+        List<Consumer<WriteBatch>> batchWrites = batch.getWrites();
+        if (batchWrites.size() > MAX_WRITES_PER_BATCH) {
+            throw new IllegalArgumentException("A single write batch cannot hold " + batchWrites.size() + " writes");
+        }
+        WriteBatch writeBatch = db.batch();
+        batchWrites.forEach(write -> write.accept(writeBatch));
+        try {
+            writeBatch.commit().get();
+            committedBatches.incrementAndGet();
+            writes.addAndGet(batchWrites.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseAccessException(WRITE_FAILED_CODE, e.getMessage());
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            failedBatches.incrementAndGet();
+            throw new DocumentException(WRITE_FAILED_CODE, e.getMessage());
+        }
+    }
+
+    @Override
+    public int createIfAbsent(@NonNull Map<DocumentReference, Object> documents)
+        throws DatabaseAccessException, DocumentException {
+        Deque<ApiFuture<WriteResult>> pending = new ArrayDeque<>();
+        CreationResult result = new CreationResult();
+        try {
+            for (Map.Entry<DocumentReference, Object> document : documents.entrySet()) {
+                if (pending.size() >= MAX_WRITES_PER_BATCH) {
+                    awaitCreation(pending.poll(), result);
+                }
+                ramp.acquire(1);
+                pending.add(document.getKey().create(document.getValue()));
+            }
+            while (!pending.isEmpty()) {
+                awaitCreation(pending.poll(), result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseAccessException(WRITE_FAILED_CODE, e.getMessage());
+        }
+        if (result.failures > 0) {
+            throw new DocumentException(WRITE_FAILED_CODE,
+                result.failures + " of " + documents.size() + " creations failed: " + result.failure);
+        }
+        return result.created;
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "firestore-bulk-writer";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("committedBatches", committedBatches.get());
+        metrics.put("failedBatches", failedBatches.get());
+        metrics.put("writes", writes.get());
+        return metrics;
+    }
+
+    /**
+     * Gets the rate of writes allowed once some time has passed since the start of the writes.
+     *
+     * @param initialRate The writes per second allowed at the start
+     * @param maxRate The maximum writes per second
+     * @param elapsedNanos The nanoseconds since the start of the writes
+     * @return The writes per second allowed
+     */
+    static double rampedRate(double initialRate, double maxRate, long elapsedNanos) {
+        long periods = elapsedNanos / RAMP_PERIOD_NANOS;
+        return Math.min(maxRate, initialRate * Math.pow(RAMP_FACTOR, periods));
+    }
+
+    /**
+     * Waits for a write batch to be committed and records its outcome.
+     *
+     * @param batch The pending batch
+     * @param result The result where to record the outcome
+     * @throws InterruptedException When the wait is interrupted
+     */
+    private void await(PendingBatch batch, BulkWriteResult result) throws InterruptedException {
+        try {
+            batch.future.get();
+            result.addSuccess(batch.writes);
+            committedBatches.incrementAndGet();
+            writes.addAndGet(batch.writes);
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            result.addFailure(new BulkWriteResult.BatchFailure(batch.index, batch.writes, e.getMessage()));
+            failedBatches.incrementAndGet();
+        }
+    }
+
+    /**
+     * Waits for the creation of a document and records its outcome. A document that already existed is not a failure.
+     *
+     * @param future The future of the creation
+     * @param result The result where to record the outcome
+     * @throws InterruptedException When the wait is interrupted
+     */
+    private void awaitCreation(ApiFuture<WriteResult> future, CreationResult result) throws InterruptedException {
+        try {
+            future.get();
+            ++result.created;
+            writes.incrementAndGet();
+        } catch (ExecutionException e) {
+            if (!FirestoreFutures.hasStatusCode(e.getCause(), StatusCode.Code.ALREADY_EXISTS)) {
+                e.printStackTrace();
+                ++result.failures;
+                if (result.failure == null) {
+                    result.failure = e.getMessage();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write batch whose commit has been sent but not confirmed yet.
+     */
+    private static final class PendingBatch {
+        private final int index;
+        private final int writes;
+        private final ApiFuture<List<WriteResult>> future;
+
+        private PendingBatch(int index, int writes, ApiFuture<List<WriteResult>> future) {
+            this.index = index;
+            this.writes = writes;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Outcome of creating documents that may already exist.
+     */
+    private static final class CreationResult {
+        private int created;
+        private int failures;
+        private String failure;
+    }
+
+    /**
+     * Limits the writes of all the calls to the ramped rate. The writes allowed in a second can be sent at once, and
+     * the writes that exceed the allowance are reserved so that the callers wait in turn.
+     */
+    private static final class WriteRamp {
+        private final double initialRate;
+        private final double maxRate;
+        private long start;
+        private long lastRefill;
+        private double available;
+
+        private WriteRamp(double initialRate, double maxRate) {
+            this.initialRate = initialRate;
+            this.maxRate = maxRate;
+            start = System.nanoTime();
+            lastRefill = start;
+            available = initialRate;
+        }
+
+        /**
+         * Takes the given number of writes from the allowance, waiting until there are enough.
+         *
+         * @param writes The number of writes
+         * @throws InterruptedException When the wait is interrupted
+         */
+        private void acquire(int writes) throws InterruptedException {
+            long waitNanos = reserve(writes);
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+
+        /**
+         * Takes the given number of writes from the allowance, which may leave it in debt.
+         *
+         * @param writes The number of writes
+         * @return The nanoseconds to wait until the debt is paid
+         */
+        private synchronized long reserve(int writes) {
+            long now = System.nanoTime();
+            if (now - lastRefill >= RAMP_PERIOD_NANOS) {
+                start = now;
+            }
+            double rate = rampedRate(initialRate, maxRate, now - start);
+            available = Math.min(rate, available + rate * (now - lastRefill) / TimeUnit.SECONDS.toNanos(1));
+            lastRefill = now;
+            available -= writes;
+            return available < 0 ? (long) (-available / rate * TimeUnit.SECONDS.toNanos(1)) : 0;
+        }
+    }
+}
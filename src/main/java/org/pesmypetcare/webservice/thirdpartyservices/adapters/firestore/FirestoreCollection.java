@@ -6,6 +6,7 @@ import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.WriteBatch;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
@@ -75,6 +76,8 @@ public interface FirestoreCollection {
 
     /**
      * Retrieves the list of document snapshots in this collection.
+     * The documents are read in chunks ordered by their ID, so listing a collection costs one request per chunk
+     * instead of one request per document. Missing documents are not included.
      *
      * @param path A slash-separated path to a collection
      * @return The list of document snapshots in this collection
@@ -83,6 +86,82 @@ public interface FirestoreCollection {
     @NonNull
     List<DocumentSnapshot> listAllCollectionDocumentSnapshots(@NonNull String path) throws DatabaseAccessException;
 
+    /**
+     * Creates the query of the next chunk of an ordered query that is read in chunks, so every listing reads the same
+     * number of documents per request. The next chunk starts after the last document of the previous one.
+     *
+     * @param query The ordered query
+     * @param previousChunk The documents of the previous chunk or null to get the first chunk
+     * @return The query of the next chunk or null when the previous chunk was the last one
+     */
+    @Nullable
+    Query getNextChunkQuery(@NonNull Query query, @Nullable List<QueryDocumentSnapshot> previousChunk);
+
+    /**
+     * Retrieves the document snapshots of a collection whose ID is within the given range, both ends included.
+     * The range is resolved by Firestore, so only the documents inside it are read.
+     *
+     * @param path A slash-separated path to a collection
+     * @param startId The first ID of the range or null to start at the first document
+     * @param endId The last ID of the range or null to end at the last document
+     * @return The list of document snapshots in the range ordered by their ID
+     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
+     */
+    @NonNull
+    List<DocumentSnapshot> listDocumentSnapshotsBetweenIds(@NonNull String path, @Nullable String startId,
+                                                           @Nullable String endId) throws DatabaseAccessException;
+
+    /**
+     * Retrieves the document snapshots of a collection whose ID is smaller than the given one.
+     *
+     * @param path A slash-separated path to a collection
+     * @param id The ID where the range ends (This one not included)
+     * @return The list of document snapshots before the ID ordered by their ID
+     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
+     */
+    @NonNull
+    List<DocumentSnapshot> listDocumentSnapshotsBeforeId(@NonNull String path, @NonNull String id)
+        throws DatabaseAccessException;
+
+    /**
+     * Retrieves a single page of the document snapshots of a collection whose ID is within the given range, both ends
+     * included.
+     *
+     * @param path A slash-separated path to a collection
+     * @param startId The first ID of the range or null to start at the first document
+     * @param endId The last ID of the range or null to end at the last document
+     * @param startAfterId The ID of the last document of the previous page or null to get the first page. An ID before
+     * the start of the range also gets the first page
+     * @param pageSize The maximum number of documents of the page
+     * @return The list of document snapshots of the page ordered by their ID
+     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
+     */
+    @NonNull
+    List<DocumentSnapshot> getDocumentSnapshotsPageBetweenIds(@NonNull String path, @Nullable String startId,
+                                                              @Nullable String endId, @Nullable String startAfterId,
+                                                              int pageSize) throws DatabaseAccessException;
+
+    /**
+     * Retrieves a single page of the documents of a collection ordered by a field and then by their ID, so documents
+     * with the same field value keep a stable order between pages. Only the selected fields are read.
+     *
+     * @param collectionPath A slash-separated path to a collection
+     * @param field The name of the field to order by
+     * @param descending True to order from the greatest value to the smallest one
+     * @param startAfterValue The field value of the last document of the previous page or null to get the first page
+     * @param startAfterId The ID of the last document of the previous page or null to get the first page
+     * @param pageSize The maximum number of documents of the page
+     * @param selectedFields The fields to read from each document or none to read them all
+     * @return The list of document snapshots of the page
+     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
+     */
+    @NonNull
+    List<DocumentSnapshot> getDocumentSnapshotsPageOrderedBy(@NonNull String collectionPath, @NonNull String field,
+                                                             boolean descending, @Nullable Object startAfterValue,
+                                                             @Nullable String startAfterId, int pageSize,
+                                                             String... selectedFields)
+        throws DatabaseAccessException;
+
     /**
      * Creates and returns a new Query that includes all documents in the database that are contained in a
      * collection or subcollection with the given {@code collectionId}.
@@ -94,12 +173,12 @@ public interface FirestoreCollection {
     Query getCollectionGroup(@NonNull String collectionId);
 
     /**
-     * Deletes the Collection referred to by this path.
+     * Deletes the Collection referred to by this path together with the inner collections of its documents.
      *
      * @param path A slash-separated path to a collection
-     * @param batch The batch where to write
+     * @param batch The bulk batch where to write
      */
-    void deleteCollection(@NonNull String path, @NonNull WriteBatch batch);
+    void deleteCollection(@NonNull String path, @NonNull BulkWriteBatch batch);
 
     /**
      * Returns the result of the query with the additional filter that documents must contain the specified fields
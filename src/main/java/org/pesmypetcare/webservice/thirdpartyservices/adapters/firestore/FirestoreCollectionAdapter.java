@@ -7,12 +7,13 @@ import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.WriteBatch;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.thirdpartyservices.FirebaseFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
@@ -27,9 +28,10 @@ import java.util.concurrent.ExecutionException;
 @Repository
 public class FirestoreCollectionAdapter implements FirestoreCollection {
     private static final String INVALID_FIELD_MESSAGE = "Invalid field. Field must not be null or empty";
+    private static final int DEFAULT_READ_CHUNK_SIZE = 300;
     private Firestore db;
-    @Autowired
-    private FirestoreDocument documentAdapter;
+    @Value("${firestore.read-chunk-size:" + DEFAULT_READ_CHUNK_SIZE + "}")
+    private int readChunkSize = DEFAULT_READ_CHUNK_SIZE;
 
     public FirestoreCollectionAdapter() {
         db = FirebaseFactory.getInstance().getFirestore();
@@ -45,6 +47,7 @@ public class FirestoreCollectionAdapter implements FirestoreCollection {
         try {
             batch.commit().get();
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new DatabaseAccessException("write-failed", e.getMessage());
         } catch (ExecutionException e) {
             throw new DocumentException("write-failed", e.getMessage());
@@ -79,14 +82,62 @@ public class FirestoreCollectionAdapter implements FirestoreCollection {
     @Override
     public List<DocumentSnapshot> listAllCollectionDocumentSnapshots(@NonNull String path)
         throws DatabaseAccessException {
-        Iterable<DocumentReference> iterable = listAllCollectionDocuments(path);
-        List<DocumentSnapshot> snapshots = new ArrayList<>();
-        for (DocumentReference doc : iterable) {
-            try {
-                snapshots.add(documentAdapter.getDocumentSnapshot(doc.getPath()));
-            } catch (DocumentException ignore) { }
+        Query query = db.collection(path).orderBy(FieldPath.documentId());
+        return listQueryDocumentSnapshots(query);
+    }
+
+    @NonNull
+    @Override
+    public List<DocumentSnapshot> listDocumentSnapshotsBetweenIds(@NonNull String path, @Nullable String startId,
+                                                                  @Nullable String endId)
+        throws DatabaseAccessException {
+        return listQueryDocumentSnapshots(rangeQuery(path, startId, endId));
+    }
+
+    @NonNull
+    @Override
+    public List<DocumentSnapshot> listDocumentSnapshotsBeforeId(@NonNull String path, @NonNull String id)
+        throws DatabaseAccessException {
+        Query query = db.collection(path).orderBy(FieldPath.documentId()).endBefore(id);
+        return listQueryDocumentSnapshots(query);
+    }
+
+    @NonNull
+    @Override
+    public List<DocumentSnapshot> getDocumentSnapshotsPageBetweenIds(@NonNull String path, @Nullable String startId,
+                                                                     @Nullable String endId,
+                                                                     @Nullable String startAfterId, int pageSize)
+        throws DatabaseAccessException {
+        Query query = db.collection(path).orderBy(FieldPath.documentId());
+        if (startAfterId != null && (startId == null || startAfterId.compareTo(startId) >= 0)) {
+            query = query.startAfter(startAfterId);
+        } else if (startId != null) {
+            query = query.startAt(startId);
         }
-        return snapshots;
+        if (endId != null) {
+            query = query.endAt(endId);
+        }
+        return new ArrayList<>(getQueryDocuments(query.limit(pageSize)));
+    }
+
+    @NonNull
+    @Override
+    public List<DocumentSnapshot> getDocumentSnapshotsPageOrderedBy(@NonNull String collectionPath,
+                                                                    @NonNull String field, boolean descending,
+                                                                    @Nullable Object startAfterValue,
+                                                                    @Nullable String startAfterId, int pageSize,
+                                                                    String... selectedFields)
+        throws DatabaseAccessException {
+        Query.Direction direction = descending ? Query.Direction.DESCENDING : Query.Direction.ASCENDING;
+        Query query = db.collection(collectionPath).orderBy(field, direction).orderBy(FieldPath.documentId(),
+            direction);
+        if (startAfterValue != null && startAfterId != null) {
+            query = query.startAfter(startAfterValue, startAfterId);
+        }
+        if (selectedFields.length > 0) {
+            query = query.select(selectedFields);
+        }
+        return new ArrayList<>(getQueryDocuments(query.limit(pageSize)));
     }
 
     @Override
@@ -95,7 +146,7 @@ public class FirestoreCollectionAdapter implements FirestoreCollection {
     }
 
     @Override
-    public void deleteCollection(@NonNull String path, @NonNull WriteBatch batch) {
+    public void deleteCollection(@NonNull String path, @NonNull BulkWriteBatch batch) {
         Iterable<DocumentReference> documents = getCollectionReference(path).listDocuments();
         for (DocumentReference doc : documents) {
             Iterable<CollectionReference> innerCollections = doc.listCollections();
@@ -189,6 +240,78 @@ public class FirestoreCollectionAdapter implements FirestoreCollection {
         return concatenateWhereArrayContainsFieldPath(query, moreFieldsAndValues);
     }
 
+    @Nullable
+    @Override
+    public Query getNextChunkQuery(@NonNull Query query, @Nullable List<QueryDocumentSnapshot> previousChunk) {
+        if (previousChunk == null) {
+            return query.limit(readChunkSize);
+        }
+        if (previousChunk.size() < readChunkSize) {
+            return null;
+        }
+        return query.startAfter(previousChunk.get(previousChunk.size() - 1)).limit(readChunkSize);
+    }
+
+    /**
+     * Retrieves all the documents matched by the query reading them in chunks of {@code readChunkSize} documents.
+     * <p>
+     * Each chunk is fetched with a single request and the next one starts after the last document of the previous
+     * chunk, so the query must be ordered.
+     *
+     * @param query The ordered query to execute
+     * @return The list of document snapshots matched by the query
+     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
+     */
+    private List<DocumentSnapshot> listQueryDocumentSnapshots(Query query) throws DatabaseAccessException {
+        List<DocumentSnapshot> snapshots = new ArrayList<>();
+        Query chunkQuery = getNextChunkQuery(query, null);
+        while (chunkQuery != null) {
+            List<QueryDocumentSnapshot> chunk = getQueryDocuments(chunkQuery);
+            snapshots.addAll(chunk);
+            chunkQuery = getNextChunkQuery(query, chunk);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Creates a query over the documents of a collection ordered by their ID and restricted to an inclusive ID range.
+     *
+     * @param path A slash-separated path to a collection
+     * @param startId The first ID of the range or null to start at the first document
+     * @param endId The last ID of the range or null to end at the last document
+     * @return The ordered range query
+     */
+    private Query rangeQuery(String path, String startId, String endId) {
+        Query query = db.collection(path).orderBy(FieldPath.documentId());
+        if (startId != null) {
+            query = query.startAt(startId);
+        }
+        if (endId != null) {
+            query = query.endAt(endId);
+        }
+        return query;
+    }
+
+    /**
+     * Executes a query and waits for its documents.
+     *
+     * @param query The query to execute
+     * @return The documents matched by the query
+     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
+     */
+    private List<QueryDocumentSnapshot> getQueryDocuments(Query query) throws DatabaseAccessException {
+        try {
+            return query.get().get().getDocuments();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+            throw new DatabaseAccessException("retrieval-failed", "The documents could not be retrieved");
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            throw new DatabaseAccessException("retrieval-failed", "The documents could not be retrieved");
+        }
+    }
+
     /**
      * Checks that the number of arguments received is correct.
      *
@@ -0,0 +1,80 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of the queries of {@link FirestoreCollection}. The futures fail with a
+ * DatabaseAccessException when the query fails.
+ *
+ * @author Santiago Del Rey
+ */
+public interface FirestoreCollectionAsync {
+    /**
+     * Gets all the document snapshots of a collection. The documents are read in chunks, and each chunk is requested
+     * when the previous one arrives.
+     *
+     * @param path A slash-separated path to a collection
+     * @return A future with the list of the document snapshots of the collection
+     */
+    @NonNull
+    CompletableFuture<List<DocumentSnapshot>> listAllCollectionDocumentSnapshots(@NonNull String path);
+
+    /**
+     * Executes a query.
+     *
+     * @param query The query to execute
+     * @return A future with the documents that match the query
+     */
+    @NonNull
+    CompletableFuture<List<QueryDocumentSnapshot>> getDocuments(@NonNull Query query);
+
+    /**
+     * Gets the documents of a collection whose fields are equal to the specified values.
+     *
+     * @param collectionPath A slash-separated path to a collection
+     * @param field The name of the field to compare
+     * @param value The value for comparison
+     * @param moreFieldsAndValues Additional field and value pairs
+     * @return A future with the documents that match the query
+     */
+    @NonNull
+    CompletableFuture<List<QueryDocumentSnapshot>> getDocumentsWhereEqualTo(@NonNull String collectionPath,
+                                                                            @NonNull String field,
+                                                                            @Nullable Object value,
+                                                                            Object... moreFieldsAndValues);
+
+    /**
+     * Gets the documents of a collection whose array field contains the specified value.
+     *
+     * @param collectionPath A slash-separated path to a collection
+     * @param field The name of the array field
+     * @param value The value that must be contained in the array
+     * @param moreFieldsAndValues Additional field and value pairs to compare for equality
+     * @return A future with the documents that match the query
+     */
+    @NonNull
+    CompletableFuture<List<QueryDocumentSnapshot>> getDocumentsWhereArrayContains(@NonNull String collectionPath,
+                                                                                  @NonNull String field,
+                                                                                  @NonNull Object value,
+                                                                                  Object... moreFieldsAndValues);
+
+    /**
+     * Gets the documents of all the collections with the given ID whose fields are equal to the specified values.
+     *
+     * @param collectionId The ID of the collections
+     * @param field The name of the field to compare
+     * @param value The value for comparison
+     * @param moreFieldsAndValues Additional field and value pairs
+     * @return A future with the documents that match the query
+     */
+    @NonNull
+    CompletableFuture<List<QueryDocumentSnapshot>> getCollectionGroupDocumentsWhereEqualTo(
+        @NonNull String collectionId, @NonNull String field, @Nullable Object value, Object... moreFieldsAndValues);
+}
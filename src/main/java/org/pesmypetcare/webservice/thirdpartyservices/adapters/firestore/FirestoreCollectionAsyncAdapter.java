@@ -0,0 +1,107 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.pesmypetcare.webservice.thirdpartyservices.FirebaseFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Completes the queries without blocking. The filtered queries are built with {@link FirestoreCollection}.
+ *
+ * @author Santiago Del Rey
+ */
+@Repository
+public class FirestoreCollectionAsyncAdapter implements FirestoreCollectionAsync {
+    private static final String QUERY_FAILED_CODE = "retrieval-failed";
+    private static final String QUERY_FAILED = "The documents could not be retrieved";
+    private Firestore db;
+    @Autowired
+    private FirestoreCollection collectionAdapter;
+
+    public FirestoreCollectionAsyncAdapter() {
+        db = FirebaseFactory.getInstance().getFirestore();
+    }
+
+    @NonNull
+    @Override
+    public CompletableFuture<List<DocumentSnapshot>> listAllCollectionDocumentSnapshots(@NonNull String path) {
+        Query query = db.collection(path).orderBy(FieldPath.documentId());
+        return listQueryDocumentSnapshots(query, collectionAdapter.getNextChunkQuery(query, null), new ArrayList<>());
+    }
+
+    @NonNull
+    @Override
+    public CompletableFuture<List<QueryDocumentSnapshot>> getDocuments(@NonNull Query query) {
+        return toDocuments(query.get());
+    }
+
+    @NonNull
+    @Override
+    public CompletableFuture<List<QueryDocumentSnapshot>> getDocumentsWhereEqualTo(@NonNull String collectionPath,
+                                                                                   @NonNull String field,
+                                                                                   @Nullable Object value,
+                                                                                   Object... moreFieldsAndValues) {
+        return toDocuments(
+            collectionAdapter.getDocumentsWhereEqualTo(collectionPath, field, value, moreFieldsAndValues));
+    }
+
+    @NonNull
+    @Override
+    public CompletableFuture<List<QueryDocumentSnapshot>> getDocumentsWhereArrayContains(
+        @NonNull String collectionPath, @NonNull String field, @NonNull Object value, Object... moreFieldsAndValues) {
+        return toDocuments(
+            collectionAdapter.getDocumentsWhereArrayContains(collectionPath, field, value, moreFieldsAndValues));
+    }
+
+    @NonNull
+    @Override
+    public CompletableFuture<List<QueryDocumentSnapshot>> getCollectionGroupDocumentsWhereEqualTo(
+        @NonNull String collectionId, @NonNull String field, @Nullable Object value, Object... moreFieldsAndValues) {
+        return toDocuments(collectionAdapter
+            .getCollectionGroupDocumentsWhereEqualTo(collectionId, field, value, moreFieldsAndValues));
+    }
+
+    /**
+     * Retrieves the documents matched by the query from the given chunk onwards. The chunks are the same ones that
+     * {@link FirestoreCollection} reads, so the query must be ordered.
+     *
+     * @param query The ordered query to execute
+     * @param chunkQuery The query of the next chunk
+     * @param snapshots The document snapshots read so far
+     * @return A future with the list of document snapshots matched by the query
+     */
+    private CompletableFuture<List<DocumentSnapshot>> listQueryDocumentSnapshots(Query query, Query chunkQuery,
+                                                                                 List<DocumentSnapshot> snapshots) {
+        return toDocuments(chunkQuery.get()).thenCompose(chunk -> {
+            snapshots.addAll(chunk);
+            Query nextChunkQuery = collectionAdapter.getNextChunkQuery(query, chunk);
+            if (nextChunkQuery == null) {
+                return CompletableFuture.completedFuture(snapshots);
+            }
+            return listQueryDocumentSnapshots(query, nextChunkQuery, snapshots);
+        });
+    }
+
+    /**
+     * Converts the future of a query into a future with its documents.
+     *
+     * @param future The future of the query
+     * @return A future with the documents that match the query
+     */
+    private CompletableFuture<List<QueryDocumentSnapshot>> toDocuments(ApiFuture<QuerySnapshot> future) {
+        return FirestoreFutures.toCompletableFuture(future, QUERY_FAILED_CODE, QUERY_FAILED)
+            .thenApply(QuerySnapshot::getDocuments);
+    }
+}
@@ -234,6 +234,19 @@ public interface FirestoreDocument {
      */
     void updateDocumentFields(@NonNull String path, @NonNull Map<String, Object> fields);
 
+    /**
+     * Updates fields in the document of a snapshot only if the document has not been modified since the snapshot was
+     * read, and waits until the update is stored.
+     *
+     * @param snapshot The snapshot of the document
+     * @param fields A map of the fields and values for the document
+     * @return True if the document has been updated, false if it had been modified since the snapshot was read
+     * @throws DatabaseAccessException When the update is interrupted
+     * @throws DocumentException When the update fails for another reason
+     */
+    boolean updateDocumentFieldsIfNotModified(@NonNull DocumentSnapshot snapshot, @NonNull Map<String, Object> fields)
+        throws DatabaseAccessException, DocumentException;
+
     /**
      * Updates the fields in the document referred to by this path. If the document
      * doesn't exist yet, the update will fail.
@@ -292,6 +305,15 @@ public interface FirestoreDocument {
      */
     void deleteDocument(@NonNull String path, @NonNull WriteBatch batch);
 
+    /**
+     * Deletes the document referred to by this path. If the document has inner collections they will be also deleted,
+     * regardless of how many documents they have.
+     *
+     * @param path A slash-separated path to a document
+     * @param batch The bulk batch where to write
+     */
+    void deleteDocument(@NonNull String path, @NonNull BulkWriteBatch batch);
+
     /**
      * Deletes the document referred to by this path. If the document has inner collections they will be also deleted.
      *
@@ -1,13 +1,16 @@
 package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.gax.rpc.StatusCode;
 import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
 import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.GeoPoint;
+import com.google.cloud.firestore.Precondition;
 import com.google.cloud.firestore.WriteBatch;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
@@ -17,8 +20,10 @@ import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 /**
  * @author Santiago Del Rey
@@ -43,6 +48,7 @@ public class FirestoreDocumentAdapter implements FirestoreDocument {
         try {
             batch.commit().get();
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             throw new DatabaseAccessException("write-failed", e.getMessage());
         } catch (ExecutionException e) {
             throw new DocumentException("write-failed", e.getMessage());
@@ -78,7 +84,11 @@ public class FirestoreDocumentAdapter implements FirestoreDocument {
                 throw new DocumentException("document-not-exists", "The document does not exist");
             }
             return snapshot;
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+            throw new DatabaseAccessException(RETRIEVAL_FAILED_CODE, DOCUMENT_NOT_RETRIEVED);
+        } catch (ExecutionException e) {
             e.printStackTrace();
             throw new DatabaseAccessException(RETRIEVAL_FAILED_CODE, DOCUMENT_NOT_RETRIEVED);
         }
@@ -95,7 +105,11 @@ public class FirestoreDocumentAdapter implements FirestoreDocument {
         try {
             DocumentSnapshot snapshot = future.get();
             return documentSnapshotExists(snapshot);
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+            throw new DatabaseAccessException(RETRIEVAL_FAILED_CODE, DOCUMENT_NOT_RETRIEVED);
+        } catch (ExecutionException e) {
             e.printStackTrace();
             throw new DatabaseAccessException(RETRIEVAL_FAILED_CODE, DOCUMENT_NOT_RETRIEVED);
         }
@@ -197,6 +211,26 @@ public class FirestoreDocumentAdapter implements FirestoreDocument {
         getDocumentReference(path).update(fields);
     }
 
+    @Override
+    public boolean updateDocumentFieldsIfNotModified(@NonNull DocumentSnapshot snapshot,
+                                                     @NonNull Map<String, Object> fields)
+        throws DatabaseAccessException, DocumentException {
+        try {
+            snapshot.getReference().update(fields, Precondition.updatedAt(snapshot.getUpdateTime())).get();
+            return true;
+        } catch (ExecutionException e) {
+            if (FirestoreFutures.hasStatusCode(e.getCause(), StatusCode.Code.FAILED_PRECONDITION)) {
+                return false;
+            }
+            e.printStackTrace();
+            throw new DocumentException("update-failed", "The document could not be updated");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+            throw new DatabaseAccessException("update-failed", "The update was interrupted");
+        }
+    }
+
     @Override
     public void updateDocumentFields(@NonNull WriteBatch batch, @NonNull String path, @NonNull FieldPath fieldPath,
                                      @Nullable Object value, Object... moreFieldsAndValues) {
@@ -226,7 +260,14 @@ public class FirestoreDocumentAdapter implements FirestoreDocument {
     @Override
     public void deleteDocument(@NonNull String path, @NonNull WriteBatch batch) {
         DocumentReference doc = getDocumentReference(path);
-        deleteDocumentCollections(doc, batch);
+        deleteDocumentCollections(doc, batch::delete);
+        batch.delete(doc);
+    }
+
+    @Override
+    public void deleteDocument(@NonNull String path, @NonNull BulkWriteBatch batch) {
+        DocumentReference doc = getDocumentReference(path);
+        deleteDocumentCollections(doc, batch::delete);
         batch.delete(doc);
     }
 
@@ -241,56 +282,56 @@ public class FirestoreDocumentAdapter implements FirestoreDocument {
     @Override
     public Object getDocumentField(@NonNull String path, @NonNull String field)
         throws DatabaseAccessException, DocumentException {
-        return getDocumentSnapshot(path).get(field);
+        return getDocumentSnapshot(path, FieldMask.of(field)).get(field);
     }
 
     @Nullable
     @Override
     public Object getDocumentField(@NonNull String path, @NonNull FieldPath fieldPath)
         throws DatabaseAccessException, DocumentException {
-        return getDocumentSnapshot(path).get(fieldPath);
+        return getDocumentSnapshot(path, FieldMask.of(fieldPath)).get(fieldPath);
     }
 
     @Nullable
     @Override
     public Double getDoubleFromDocument(@NonNull String path, @NonNull String field)
         throws DatabaseAccessException, DocumentException {
-        return getDocumentSnapshot(path).getDouble(field);
+        return getDocumentSnapshot(path, FieldMask.of(field)).getDouble(field);
     }
 
     @Nullable
     @Override
     public Date getDateFromDocument(@NonNull String path, @NonNull String field)
         throws DatabaseAccessException, DocumentException {
-        return getDocumentSnapshot(path).getDate(field);
+        return getDocumentSnapshot(path, FieldMask.of(field)).getDate(field);
     }
 
     @Override
     @Nullable
     public Boolean getBooleanFromDocument(@NonNull String path, @NonNull String field)
         throws DatabaseAccessException, DocumentException {
-        return getDocumentSnapshot(path).getBoolean(field);
+        return getDocumentSnapshot(path, FieldMask.of(field)).getBoolean(field);
     }
 
     @Nullable
     @Override
     public GeoPoint getGeoPointFromDocument(@NonNull String path, @NonNull String field)
         throws DatabaseAccessException, DocumentException {
-        return getDocumentSnapshot(path).getGeoPoint(field);
+        return getDocumentSnapshot(path, FieldMask.of(field)).getGeoPoint(field);
     }
 
     @Nullable
     @Override
     public String getStringFromDocument(@NonNull String path, @NonNull String field)
         throws DatabaseAccessException, DocumentException {
-        return getDocumentSnapshot(path).getString(field);
+        return getDocumentSnapshot(path, FieldMask.of(field)).getString(field);
     }
 
     @Nullable
     @Override
     public Timestamp getTimestampFromDocument(@NonNull String path, @NonNull String field)
         throws DatabaseAccessException, DocumentException {
-        return getDocumentSnapshot(path).getTimestamp(field);
+        return getDocumentSnapshot(path, FieldMask.of(field)).getTimestamp(field);
     }
 
     @Nullable
@@ -309,28 +350,58 @@ public class FirestoreDocumentAdapter implements FirestoreDocument {
     @Override
     public boolean documentContains(@NonNull String path, @NonNull String field)
         throws DatabaseAccessException, DocumentException {
-        return getDocumentSnapshot(path).contains(field);
+        return getDocumentSnapshot(path, FieldMask.of(field)).contains(field);
     }
 
     @Override
     public boolean documentContains(@NonNull String path, @NonNull FieldPath fieldPath)
         throws DatabaseAccessException, DocumentException {
-        return getDocumentSnapshot(path).contains(fieldPath);
+        return getDocumentSnapshot(path, FieldMask.of(fieldPath)).contains(fieldPath);
+    }
+
+    /**
+     * A snapshot of the document referenced by this path that only holds the fields of the mask, so the rest of the
+     * document is not transferred.
+     *
+     * @param path A slash-separated path to a document
+     * @param fieldMask The fields to retrieve
+     * @return The DocumentSnapshot instance with the requested fields
+     * @throws DatabaseAccessException When the retrieval is interrupted or the execution fails
+     * @throws DocumentException When the document does not exist
+     */
+    private DocumentSnapshot getDocumentSnapshot(String path, FieldMask fieldMask)
+        throws DatabaseAccessException, DocumentException {
+        ApiFuture<List<DocumentSnapshot>> future = db.getAll(new DocumentReference[] {db.document(path)}, fieldMask);
+        try {
+            DocumentSnapshot snapshot = future.get().get(0);
+            if (!documentSnapshotExists(snapshot)) {
+                throw new DocumentException("document-not-exists", "The document does not exist");
+            }
+            return snapshot;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace();
+            throw new DatabaseAccessException(RETRIEVAL_FAILED_CODE, DOCUMENT_NOT_RETRIEVED);
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            throw new DatabaseAccessException(RETRIEVAL_FAILED_CODE, DOCUMENT_NOT_RETRIEVED);
+        }
     }
 
     /**
      * Deletes all the document inner collections referred to by this DocumentReference.
      *
      * @param reference The DocumentReference to delete
-     * @param batch The batch where to write
+     * @param delete The deletion of a single document
      */
-    private void deleteDocumentCollections(@NonNull DocumentReference reference, @NonNull WriteBatch batch) {
+    private void deleteDocumentCollections(@NonNull DocumentReference reference,
+                                           @NonNull Consumer<DocumentReference> delete) {
         Iterable<CollectionReference> collections = reference.listCollections();
         for (CollectionReference collection : collections) {
             Iterable<DocumentReference> documents = collection.listDocuments();
             for (DocumentReference document : documents) {
-                deleteDocumentCollections(document, batch);
-                batch.delete(document);
+                deleteDocumentCollections(document, delete);
+                delete.accept(document);
             }
         }
     }
@@ -0,0 +1,67 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import org.springframework.lang.NonNull;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link FirestoreDocument}. The futures fail with the same DatabaseAccessException or
+ * DocumentException that the blocking methods throw, which {@link FirestoreFutures#join(CompletableFuture)} rethrows.
+ *
+ * @author Santiago Del Rey
+ */
+public interface FirestoreDocumentAsync {
+    /**
+     * Commits a write batch.
+     *
+     * @param batch The batch to commit
+     * @return A future with the results of the writes that fails with a DocumentException when the commit fails
+     */
+    @NonNull
+    CompletableFuture<List<WriteResult>> commitBatch(@NonNull WriteBatch batch);
+
+    /**
+     * A snapshot to the Document referenced by this path.
+     *
+     * @param path A slash-separated path to a document
+     * @return A future with the DocumentSnapshot instance that fails with a DocumentException when the document does
+     * not exist
+     */
+    @NonNull
+    CompletableFuture<DocumentSnapshot> getDocumentSnapshot(@NonNull String path);
+
+    /**
+     * Returns the value at the field or null if the field doesn't exist.
+     *
+     * @param path A slash-separated path to a document
+     * @param field The path to the field
+     * @return A future with the value at the given field or null
+     */
+    @NonNull
+    CompletableFuture<Object> getDocumentField(@NonNull String path, @NonNull String field);
+
+    /**
+     * Returns the value of the field as a String.
+     *
+     * @param path A slash-separated path to a document
+     * @param field The path to the field
+     * @return A future with the value of the field
+     */
+    @NonNull
+    CompletableFuture<String> getStringFromDocument(@NonNull String path, @NonNull String field);
+
+    /**
+     * Returns the contents of the document converted to a POJO.
+     *
+     * @param path A slash-separated path to a document
+     * @param valueType The Java class to create
+     * @param <T> The type of the object
+     * @return A future with the contents of the document in an object of type T
+     */
+    @NonNull
+    <T> CompletableFuture<T> getDocumentDataAsObject(@NonNull String path, @NonNull Class<T> valueType);
+}
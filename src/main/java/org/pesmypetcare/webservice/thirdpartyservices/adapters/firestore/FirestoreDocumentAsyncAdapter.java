@@ -0,0 +1,102 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.FirebaseFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * @author Santiago Del Rey
+ */
+@Repository
+public class FirestoreDocumentAsyncAdapter implements FirestoreDocumentAsync {
+    private static final String DOCUMENT_NOT_RETRIEVED = "The document could not be retrieved";
+    private static final String RETRIEVAL_FAILED_CODE = "retrieval-failed";
+    private static final String WRITE_FAILED_CODE = "write-failed";
+    private Firestore db;
+
+    public FirestoreDocumentAsyncAdapter() {
+        db = FirebaseFactory.getInstance().getFirestore();
+    }
+
+    @NonNull
+    @Override
+    public CompletableFuture<List<WriteResult>> commitBatch(@NonNull WriteBatch batch) {
+        CompletableFuture<List<WriteResult>> result = new CompletableFuture<>();
+        FirestoreFutures.toCompletableFuture(batch.commit(), WRITE_FAILED_CODE, "The batch could not be committed")
+            .whenComplete((writeResults, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(new DocumentException(WRITE_FAILED_CODE, error.getMessage()));
+                } else {
+                    result.complete(writeResults);
+                }
+            });
+        return result;
+    }
+
+    @NonNull
+    @Override
+    public CompletableFuture<DocumentSnapshot> getDocumentSnapshot(@NonNull String path) {
+        return toExistingSnapshot(FirestoreFutures.toCompletableFuture(db.document(path).get(), RETRIEVAL_FAILED_CODE,
+            DOCUMENT_NOT_RETRIEVED));
+    }
+
+    @NonNull
+    @Override
+    public CompletableFuture<Object> getDocumentField(@NonNull String path, @NonNull String field) {
+        return getDocumentSnapshot(path, FieldMask.of(field)).thenApply(snapshot -> snapshot.get(field));
+    }
+
+    @NonNull
+    @Override
+    public CompletableFuture<String> getStringFromDocument(@NonNull String path, @NonNull String field) {
+        return getDocumentSnapshot(path, FieldMask.of(field)).thenApply(snapshot -> snapshot.getString(field));
+    }
+
+    @NonNull
+    @Override
+    public <T> CompletableFuture<T> getDocumentDataAsObject(@NonNull String path, @NonNull Class<T> valueType) {
+        return getDocumentSnapshot(path).thenApply(snapshot -> snapshot.toObject(valueType));
+    }
+
+    /**
+     * A snapshot of the document referenced by this path that only holds the fields of the mask, so the rest of the
+     * document is not transferred.
+     *
+     * @param path A slash-separated path to a document
+     * @param fieldMask The fields to retrieve
+     * @return A future with the DocumentSnapshot instance with the requested fields
+     */
+    private CompletableFuture<DocumentSnapshot> getDocumentSnapshot(String path, FieldMask fieldMask) {
+        ApiFuture<List<DocumentSnapshot>> future = db.getAll(new DocumentReference[] {db.document(path)}, fieldMask);
+        return toExistingSnapshot(FirestoreFutures.toCompletableFuture(future, RETRIEVAL_FAILED_CODE,
+            DOCUMENT_NOT_RETRIEVED).thenApply(snapshots -> snapshots.get(0)));
+    }
+
+    /**
+     * Fails the future of a snapshot when the document does not exist.
+     *
+     * @param future The future of the snapshot
+     * @return A future with the snapshot that fails with a DocumentException when the document does not exist
+     */
+    private CompletableFuture<DocumentSnapshot> toExistingSnapshot(CompletableFuture<DocumentSnapshot> future) {
+        return future.thenApply(snapshot -> {
+            if (!snapshot.exists()) {
+                throw new CompletionException(
+                    new DocumentException("document-not-exists", "The document does not exist"));
+            }
+            return snapshot;
+        });
+    }
+}
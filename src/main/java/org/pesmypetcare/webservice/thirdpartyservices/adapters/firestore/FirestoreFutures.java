@@ -0,0 +1,195 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.springframework.lang.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Bridges the futures returned by Firestore with CompletableFuture and inspects the errors with which they fail.
+ *
+ * @author Santiago Del Rey
+ */
+public class FirestoreFutures {
+    private FirestoreFutures() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Converts a Firestore future into a CompletableFuture. The future is completed in the thread that completes the
+     * Firestore future, so the stages chained to it must not block.
+     *
+     * @param future The Firestore future
+     * @param errorCode The error code of the exception with which the future fails
+     * @param errorMessage The message of the exception with which the future fails
+     * @param <T> The type of the result
+     * @return A CompletableFuture that completes with the result of the Firestore future or fails with a
+     * DatabaseAccessException
+     */
+    @NonNull
+    public static <T> CompletableFuture<T> toCompletableFuture(@NonNull ApiFuture<T> future,
+                                                               @NonNull String errorCode,
+                                                               @NonNull String errorMessage) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        ApiFutures.addCallback(future, new ApiFutureCallback<T>() {
+            @Override
+            public void onFailure(Throwable t) {
+                t.printStackTrace();
+                result.completeExceptionally(new DatabaseAccessException(errorCode, errorMessage));
+            }
+
+            @Override
+            public void onSuccess(T value) {
+                result.complete(value);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    /**
+     * Combines several futures into one with all their results.
+     *
+     * @param futures The futures to combine
+     * @param <T> The type of the results
+     * @return A future with the results in the order of the futures that fails if any of them fails
+     */
+    @NonNull
+    public static <T> CompletableFuture<List<T>> allAsList(@NonNull List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<T> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Applies an asynchronous operation to every item keeping at most the given number of operations in flight. The
+     * next operation starts when one of the running operations completes, so no thread is blocked while waiting.
+     *
+     * @param items The items
+     * @param maxConcurrency The maximum number of operations in flight
+     * @param operation The operation to apply to each item
+     * @param <T> The type of the items
+     * @param <R> The type of the results
+     * @return A future with the results in the order of the items that fails as soon as any operation fails
+     */
+    @NonNull
+    public static <T, R> CompletableFuture<List<R>> mapAsList(@NonNull List<T> items, int maxConcurrency,
+                                                              @NonNull Function<T, CompletableFuture<R>> operation) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("The maximum concurrency must be positive");
+        }
+        CompletableFuture<List<R>> result = new CompletableFuture<>();
+        if (items.isEmpty()) {
+            result.complete(new ArrayList<>());
+            return result;
+        }
+        Object[] results = new Object[items.size()];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        for (int i = 0; i < Math.min(maxConcurrency, items.size()); ++i) {
+            startNext(items, operation, results, next, completed, result);
+        }
+        return result;
+    }
+
+    /**
+     * Starts the operation of the next item that has not been started yet, if any. When the operation completes the
+     * following item is started.
+     *
+     * @param items The items
+     * @param operation The operation to apply to each item
+     * @param results The results of the operations by item position
+     * @param next The position of the next item to start
+     * @param completed The number of operations completed
+     * @param result The future with all the results
+     * @param <T> The type of the items
+     * @param <R> The type of the results
+     */
+    @SuppressWarnings("unchecked")
+    private static <T, R> void startNext(List<T> items, Function<T, CompletableFuture<R>> operation,
+                                         Object[] results, AtomicInteger next, AtomicInteger completed,
+                                         CompletableFuture<List<R>> result) {
+        int position = next.getAndIncrement();
+        if (position >= items.size() || result.isDone()) {
+            return;
+        }
+        CompletableFuture<R> future;
+        try {
+            future = operation.apply(items.get(position));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error);
+                return;
+            }
+            results[position] = value;
+            if (completed.incrementAndGet() == items.size()) {
+                result.complete(new ArrayList<>((List<R>) (List<?>) Arrays.asList(results)));
+            } else {
+                startNext(items, operation, results, next, completed, result);
+            }
+        });
+    }
+
+    /**
+     * Waits for a future and rethrows the exception with which it failed.
+     *
+     * @param future The future
+     * @param <T> The type of the result
+     * @return The result of the future
+     * @throws DatabaseAccessException When the future fails with a DatabaseAccessException or any unexpected error
+     * @throws DocumentException When the future fails with a DocumentException
+     */
+    public static <T> T join(@NonNull CompletableFuture<T> future) throws DatabaseAccessException, DocumentException {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof DatabaseAccessException) {
+                throw (DatabaseAccessException) cause;
+            }
+            if (cause instanceof DocumentException) {
+                throw (DocumentException) cause;
+            }
+            cause.printStackTrace();
+            throw new DatabaseAccessException("retrieval-failed", cause.getMessage());
+        }
+    }
+
+    /**
+     * Checks whether an operation failed with the given status code.
+     *
+     * @param error The error of the operation
+     * @param code The status code
+     * @return True if the error or any of its causes is an ApiException with the status code
+     */
+    public static boolean hasStatusCode(Throwable error, @NonNull StatusCode.Code code) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException && ((ApiException) cause).getStatusCode().getCode() == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
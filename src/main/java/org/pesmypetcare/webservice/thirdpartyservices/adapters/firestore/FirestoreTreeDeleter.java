@@ -0,0 +1,44 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Deletes whole trees of documents, i.e. documents together with all the documents of their inner collections at
+ * any depth.
+ *
+ * @author Santiago Del Rey
+ */
+public interface FirestoreTreeDeleter {
+    /**
+     * Deletes the document referred to by this path and all its inner collections. The method returns once all the
+     * deletions have been confirmed.
+     *
+     * @param path A slash-separated path to a document
+     * @param progress The callback that receives the number of documents deleted so far after each deletion, or
+     * null. It may be called from several threads at the same time
+     * @return The number of deleted documents
+     * @throws DatabaseAccessException When the deletion is interrupted
+     * @throws DocumentException When any of the deletions fails
+     */
+    long deleteDocument(@NonNull String path, @Nullable LongConsumer progress)
+        throws DatabaseAccessException, DocumentException;
+
+    /**
+     * Deletes all the documents of the collection referred to by this path and all their inner collections. The
+     * method returns once all the deletions have been confirmed.
+     *
+     * @param path A slash-separated path to a collection
+     * @param progress The callback that receives the number of documents deleted so far after each deletion, or
+     * null. It may be called from several threads at the same time
+     * @return The number of deleted documents
+     * @throws DatabaseAccessException When the deletion is interrupted
+     * @throws DocumentException When any of the deletions fails
+     */
+    long deleteCollection(@NonNull String path, @Nullable LongConsumer progress)
+        throws DatabaseAccessException, DocumentException;
+}
@@ -0,0 +1,357 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.FirebaseFactory;
+import org.pesmypetcare.webservice.utilities.MetricsSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Deletes the trees of documents without blocking on the deletions: the inner collections of a document are deleted
+ * in parallel, and so are the documents of each page of a collection. A document is deleted once all its inner
+ * collections are empty, and every deletion is awaited, so a failure is never lost.
+ * <p>
+ * The documents of a collection are listed in pages of {@code firestore.read-chunk-size} document references, which
+ * include the missing documents that only hold inner collections. The listings block, so they run in a pool of
+ * {@code firestore.tree-delete.parallelism} threads. The deletions are sent asynchronously and at most
+ * {@code firestore.tree-delete.max-pending-deletes} of them are pending at any time across all the calls.
+ *
+ * @author Santiago Del Rey
+ */
+@Repository
+public class FirestoreTreeDeleterAdapter implements FirestoreTreeDeleter, MetricsSource {
+    private static final int DEFAULT_PARALLELISM = 8;
+    private static final int DEFAULT_MAX_PENDING_DELETES = 500;
+    private static final int DEFAULT_PAGE_SIZE = 300;
+    private static final String DELETION_FAILED_CODE = "deletion-failed";
+    @Value("${firestore.tree-delete.parallelism:" + DEFAULT_PARALLELISM + "}")
+    private int parallelism = DEFAULT_PARALLELISM;
+    @Value("${firestore.tree-delete.max-pending-deletes:" + DEFAULT_MAX_PENDING_DELETES + "}")
+    private int maxPendingDeletes = DEFAULT_MAX_PENDING_DELETES;
+    @Value("${firestore.read-chunk-size:" + DEFAULT_PAGE_SIZE + "}")
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private final AtomicLong deletedDocuments = new AtomicLong();
+    private final AtomicLong failedDeletions = new AtomicLong();
+    private final Set<CompletableFuture<Long>> running = ConcurrentHashMap.newKeySet();
+    private Firestore db;
+    private volatile boolean stopped;
+    private ExecutorService listingPool;
+    private DeletePermits deletePermits;
+
+    public FirestoreTreeDeleterAdapter() {
+        db = FirebaseFactory.getInstance().getFirestore();
+    }
+
+    /**
+     * Starts the pool that lists the documents to delete.
+     */
+    @PostConstruct
+    public void startDeleting() {
+        listingPool = Executors.newFixedThreadPool(parallelism);
+        deletePermits = new DeletePermits(maxPendingDeletes);
+    }
+
+    /**
+     * Stops the pool that lists the documents to delete. The calls that are still waiting for a deletion fail.
+     */
+    @PreDestroy
+    public void stopDeleting() {
+        stopped = true;
+        if (listingPool != null) {
+            listingPool.shutdownNow();
+        }
+        for (CompletableFuture<Long> deletion : running) {
+            deletion.completeExceptionally(new RejectedExecutionException("The deleter has been stopped"));
+        }
+    }
+
+    @Override
+    public long deleteDocument(@NonNull String path, @Nullable LongConsumer progress)
+        throws DatabaseAccessException, DocumentException {
+        DocumentReference document = db.document(path);
+        return delete(() -> deleteDocumentTree(document, new Progress(progress)));
+    }
+
+    @Override
+    public long deleteCollection(@NonNull String path, @Nullable LongConsumer progress)
+        throws DatabaseAccessException, DocumentException {
+        CollectionReference collection = db.collection(path);
+        return delete(() -> deleteCollectionTree(collection, new Progress(progress)));
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "firestore-tree-deleter";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("deletedDocuments", deletedDocuments.get());
+        metrics.put("failedDeletions", failedDeletions.get());
+        return metrics;
+    }
+
+    /**
+     * Starts a deletion and waits for it.
+     *
+     * @param deletion The start of the deletion
+     * @return The number of deleted documents
+     * @throws DatabaseAccessException When the deletion is interrupted or the deleter has been stopped
+     * @throws DocumentException When any of the deletions fails
+     */
+    private long delete(DeletionStart deletion) throws DatabaseAccessException, DocumentException {
+        CompletableFuture<Long> future = null;
+        try {
+            future = deletion.start();
+            running.add(future);
+            if (stopped) {
+                future.completeExceptionally(new RejectedExecutionException("The deleter has been stopped"));
+            }
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedDeletions.incrementAndGet();
+            throw new DatabaseAccessException(DELETION_FAILED_CODE, "The deletion was interrupted");
+        } catch (RejectedExecutionException e) {
+            failedDeletions.incrementAndGet();
+            throw new DatabaseAccessException(DELETION_FAILED_CODE, "The deleter has been stopped");
+        } catch (ExecutionException e) {
+            failedDeletions.incrementAndGet();
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof RejectedExecutionException) {
+                throw new DatabaseAccessException(DELETION_FAILED_CODE, "The deleter has been stopped");
+            }
+            cause.printStackTrace();
+            throw new DocumentException(DELETION_FAILED_CODE, cause.getMessage());
+        } finally {
+            if (future != null) {
+                running.remove(future);
+            }
+        }
+    }
+
+    /**
+     * Deletes a document after deleting its inner collections in parallel.
+     *
+     * @param document The document to delete
+     * @param progress The progress of the call
+     * @return A future with the number of deleted documents
+     */
+    private CompletableFuture<Long> deleteDocumentTree(DocumentReference document, Progress progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            List<CompletableFuture<Long>> collections = new ArrayList<>();
+            for (CollectionReference collection : document.listCollections()) {
+                collections.add(deleteCollectionTree(collection, progress));
+            }
+            return collections;
+        }, listingPool).thenCompose(FirestoreTreeDeleterAdapter::sum)
+            .thenCompose(deleted -> deleteSingleDocument(document).thenApplyAsync(ignored -> {
+                deletedDocuments.incrementAndGet();
+                progress.deleted();
+                return deleted + 1;
+            }, listingPool));
+    }
+
+    /**
+     * Deletes all the documents of a collection, one page of document references at a time. The documents of a page
+     * are deleted in parallel before listing the next one.
+     *
+     * @param collection The collection to delete
+     * @param progress The progress of the call
+     * @return A future with the number of deleted documents
+     */
+    private CompletableFuture<Long> deleteCollectionTree(CollectionReference collection, Progress progress) {
+        return CompletableFuture.supplyAsync(() -> collection.listDocuments().iterator(), listingPool)
+            .thenCompose(documents -> deletePages(documents, progress, 0));
+    }
+
+    /**
+     * Deletes the remaining pages of documents of a collection.
+     *
+     * @param documents The documents of the collection that have not been listed yet
+     * @param progress The progress of the call
+     * @param deletedSoFar The number of documents deleted by the previous pages
+     * @return A future with the number of deleted documents
+     */
+    private CompletableFuture<Long> deletePages(Iterator<DocumentReference> documents, Progress progress,
+                                                long deletedSoFar) {
+        return CompletableFuture.supplyAsync(() -> nextPage(documents), listingPool).thenCompose(page -> {
+            List<CompletableFuture<Long>> deletions = new ArrayList<>();
+            for (DocumentReference document : page) {
+                deletions.add(deleteDocumentTree(document, progress));
+            }
+            return sum(deletions).thenCompose(deleted -> page.size() == pageSize
+                ? deletePages(documents, progress, deletedSoFar + deleted)
+                : CompletableFuture.completedFuture(deletedSoFar + deleted));
+        });
+    }
+
+    /**
+     * Gets the next page of documents.
+     *
+     * @param documents The documents of the collection that have not been listed yet
+     * @return At most a page of documents
+     */
+    private List<DocumentReference> nextPage(Iterator<DocumentReference> documents) {
+        List<DocumentReference> page = new ArrayList<>();
+        while (page.size() < pageSize && documents.hasNext()) {
+            page.add(documents.next());
+        }
+        return page;
+    }
+
+    /**
+     * Deletes a single document once the number of pending deletions allows it.
+     *
+     * @param document The document
+     * @return A future that completes when the deletion is confirmed
+     */
+    private CompletableFuture<Void> deleteSingleDocument(DocumentReference document) {
+        return deletePermits.acquire().thenCompose(ignored -> {
+            CompletableFuture<Void> deletion;
+            try {
+                deletion = FirestoreFutures.toCompletableFuture(document.delete(), DELETION_FAILED_CODE,
+                    "The document " + document.getPath() + " could not be deleted").thenApply(result -> null);
+            } catch (RuntimeException e) {
+                deletePermits.release();
+                throw e;
+            }
+            return deletion.whenComplete((result, error) -> deletePermits.release());
+        });
+    }
+
+    /**
+     * Adds the documents deleted by several deletions.
+     *
+     * @param deletions The deletions
+     * @return A future with the number of deleted documents that fails if any deletion fails
+     */
+    private static CompletableFuture<Long> sum(List<CompletableFuture<Long>> deletions) {
+        return FirestoreFutures.allAsList(deletions).thenApply(counts -> {
+            long deleted = 0;
+            for (long count : counts) {
+                deleted += count;
+            }
+            return deleted;
+        });
+    }
+
+    /**
+     * Gets the original failure of a stage.
+     *
+     * @param error The failure of the stage
+     * @return The failure without the completion wrappers
+     */
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Start of a deletion, which may be rejected when the deleter has been stopped.
+     */
+    @FunctionalInterface
+    private interface DeletionStart {
+        /**
+         * Starts the deletion.
+         *
+         * @return A future with the number of deleted documents
+         */
+        CompletableFuture<Long> start();
+    }
+
+    /**
+     * Number of documents deleted by a single call, which is reported to its callback.
+     */
+    private static final class Progress {
+        private final AtomicLong deleted = new AtomicLong();
+        private final LongConsumer callback;
+
+        private Progress(LongConsumer callback) {
+            this.callback = callback;
+        }
+
+        /**
+         * Records a deleted document.
+         */
+        private void deleted() {
+            long total = deleted.incrementAndGet();
+            if (callback != null) {
+                callback.accept(total);
+            }
+        }
+    }
+
+    /**
+     * Permits of the pending deletions, which are given to the waiting deletions in order without blocking any
+     * thread.
+     */
+    private static final class DeletePermits {
+        private final Queue<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+        private int available;
+
+        private DeletePermits(int permits) {
+            available = permits;
+        }
+
+        /**
+         * Takes a permit.
+         *
+         * @return A future that completes when the permit is taken
+         */
+        private synchronized CompletableFuture<Void> acquire() {
+            if (available > 0) {
+                --available;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> permit = new CompletableFuture<>();
+            waiting.add(permit);
+            return permit;
+        }
+
+        /**
+         * Gives back a permit, which goes to the first waiting deletion if any.
+         */
+        private void release() {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    ++available;
+                    return;
+                }
+            }
+            next.complete(null);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.messaging;
+
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.springframework.lang.NonNull;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends push notifications in the background, so the callers do not wait for the recipients to be resolved nor for
+ * the notifications to be delivered.
+ *
+ * @author Santiago Del Rey
+ */
+public interface NotificationDispatcher {
+    /**
+     * Queues a data notification for a set of devices.
+     * The device tokens are resolved by the dispatcher when the notification leaves the queue.
+     *
+     * @param data The data of the notification
+     * @param recipients The resolver of the device tokens to which send the notification
+     * @return True if the notification has been queued or false if the queue is full
+     */
+    boolean dispatch(@NonNull Map<String, String> data, @NonNull RecipientsResolver recipients);
+
+    /**
+     * Resolves the device tokens to which send a notification.
+     */
+    @FunctionalInterface
+    interface RecipientsResolver {
+        /**
+         * Gets the device tokens to which send the notification.
+         *
+         * @return The list of device tokens
+         * @throws DatabaseAccessException If an error occurs when accessing the database
+         * @throws DocumentException When a document needed to resolve the tokens does not exist
+         */
+        List<String> getTokens() throws DatabaseAccessException, DocumentException;
+    }
+}
@@ -0,0 +1,296 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.messaging;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.SendResponse;
+import org.pesmypetcare.webservice.dao.usermanager.NotificationTokenDao;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.FirebaseFactory;
+import org.pesmypetcare.webservice.utilities.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Repository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Dispatches the notifications through Firebase Cloud Messaging with a pool of workers fed by a bounded queue.
+ * <p>
+ * The device tokens are sent in multicasts of at most {@value #MAX_TOKENS_PER_MULTICAST} tokens, which is the limit
+ * of a single multicast. The tokens that fail with a transient error are sent again after an exponential backoff
+ * until the maximum number of attempts is reached. The tokens that the messaging service reports as unregistered or
+ * not found are collected and periodically deleted from the database in a single pass by a thread of their own, so
+ * later notifications are only sent to real devices and the retries are never delayed by the pruning. Other
+ * permanent errors, such as an invalid argument, are counted as failures and do not delete the token.
+ *
+ * @author Santiago Del Rey
+ */
+@Repository
+public class NotificationDispatcherImpl implements NotificationDispatcher, MetricsSource {
+    static final int MAX_TOKENS_PER_MULTICAST = 500;
+    private static final List<String> RETRYABLE_ERROR_CODES = Arrays.asList("internal-error", "server-unavailable",
+        "message-rate-exceeded");
+    private static final List<String> UNREGISTERED_TOKEN_ERROR_CODES = Arrays.asList(
+        "registration-token-not-registered", "not-found");
+    private static final int DEFAULT_WORKERS = 2;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    private static final int DEFAULT_MAX_ATTEMPTS = 4;
+    private static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 500;
+    private static final long DEFAULT_PRUNE_INTERVAL_SECONDS = 60;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+    @Value("${notifications.workers:" + DEFAULT_WORKERS + "}")
+    private int workers = DEFAULT_WORKERS;
+    @Value("${notifications.queue-capacity:" + DEFAULT_QUEUE_CAPACITY + "}")
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    @Value("${notifications.max-attempts:" + DEFAULT_MAX_ATTEMPTS + "}")
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    @Value("${notifications.initial-backoff-millis:" + DEFAULT_INITIAL_BACKOFF_MILLIS + "}")
+    private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+    @Value("${notifications.prune-interval-seconds:" + DEFAULT_PRUNE_INTERVAL_SECONDS + "}")
+    private long pruneIntervalSeconds = DEFAULT_PRUNE_INTERVAL_SECONDS;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong invalidTokens = new AtomicLong();
+    private final AtomicLong prunedTokens = new AtomicLong();
+    private final AtomicLong prunedDocuments = new AtomicLong();
+    private final Set<String> tokensToPrune = ConcurrentHashMap.newKeySet();
+    private FirebaseMessaging firebaseMessaging;
+    @Autowired
+    private NotificationTokenDao notificationTokenDao;
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService retryScheduler;
+    private ScheduledExecutorService pruneScheduler;
+
+    public NotificationDispatcherImpl() {
+        firebaseMessaging = FirebaseFactory.getInstance().getFirebaseMessaging();
+    }
+
+    /**
+     * Starts the workers that send the notifications, the scheduler of the retries and the pruning of the tokens.
+     */
+    @PostConstruct
+    public void startDispatching() {
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity));
+        retryScheduler = Executors.newSingleThreadScheduledExecutor();
+        pruneScheduler = Executors.newSingleThreadScheduledExecutor();
+        pruneScheduler.scheduleWithFixedDelay(this::pruneInvalidTokens, pruneIntervalSeconds, pruneIntervalSeconds,
+            TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the workers once the queued notifications have been sent and deletes the invalid tokens they found. The
+     * pending retries are dropped.
+     */
+    @PreDestroy
+    public void stopDispatching() {
+        if (retryScheduler != null) {
+            retryScheduler.shutdownNow();
+        }
+        if (pruneScheduler != null) {
+            pruneScheduler.shutdownNow();
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        pruneInvalidTokens();
+    }
+
+    @Override
+    public boolean dispatch(@NonNull Map<String, String> data, @NonNull RecipientsResolver recipients) {
+        return submit(() -> resolveAndSend(data, recipients));
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "notification-dispatcher";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queued", executor.getQueue().size());
+        metrics.put("rejected", rejected.get());
+        metrics.put("sent", sent.get());
+        metrics.put("retried", retried.get());
+        metrics.put("failed", failed.get());
+        metrics.put("invalidTokens", invalidTokens.get());
+        metrics.put("prunedTokens", prunedTokens.get());
+        metrics.put("prunedDocuments", prunedDocuments.get());
+        return metrics;
+    }
+
+    /**
+     * Deletes from the database the invalid tokens found since the last time. If the deletion fails they are kept
+     * for the next time.
+     */
+    void pruneInvalidTokens() {
+        if (tokensToPrune.isEmpty()) {
+            return;
+        }
+        List<String> tokens = new ArrayList<>(tokensToPrune);
+        tokensToPrune.removeAll(tokens);
+        try {
+            prunedDocuments.addAndGet(notificationTokenDao.deleteTokens(tokens));
+            prunedTokens.addAndGet(tokens.size());
+        } catch (DatabaseAccessException | DocumentException | RuntimeException e) {
+            e.printStackTrace();
+            tokensToPrune.addAll(tokens);
+        }
+    }
+
+    /**
+     * Queues a task for the workers.
+     *
+     * @param task The task to queue
+     * @return True if the task has been queued or false if the queue is full
+     */
+    private boolean submit(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Resolves the device tokens of a notification and sends it to them in chunks.
+     *
+     * @param data The data of the notification
+     * @param recipients The resolver of the device tokens
+     */
+    private void resolveAndSend(Map<String, String> data, RecipientsResolver recipients) {
+        List<String> tokens;
+        try {
+            tokens = recipients.getTokens();
+        } catch (DatabaseAccessException | DocumentException e) {
+            e.printStackTrace();
+            failed.incrementAndGet();
+            return;
+        }
+        if (tokens == null) {
+            return;
+        }
+        tokens = tokens.stream().filter(token -> token != null && !token.isEmpty()).collect(Collectors.toList());
+        for (int i = 0; i < tokens.size(); i += MAX_TOKENS_PER_MULTICAST) {
+            List<String> chunk = tokens.subList(i, Math.min(tokens.size(), i + MAX_TOKENS_PER_MULTICAST));
+            send(data, new ArrayList<>(chunk), 1);
+        }
+    }
+
+    /**
+     * Sends a notification to a chunk of device tokens and schedules a retry for the ones that failed with a
+     * transient error.
+     *
+     * @param data The data of the notification
+     * @param tokens The device tokens, no more than the multicast limit
+     * @param attempt The number of the attempt, starting at 1
+     */
+    private void send(Map<String, String> data, List<String> tokens, int attempt) {
+        MulticastMessage message = MulticastMessage.builder().putAllData(data).addAllTokens(tokens).build();
+        List<String> retryTokens = new ArrayList<>();
+        try {
+            BatchResponse response = firebaseMessaging.sendMulticast(message);
+            List<SendResponse> responses = response.getResponses();
+            for (int i = 0; i < responses.size(); ++i) {
+                SendResponse sendResponse = responses.get(i);
+                if (sendResponse.isSuccessful()) {
+                    sent.incrementAndGet();
+                } else if (isRetryable(sendResponse.getException())) {
+                    retryTokens.add(tokens.get(i));
+                } else if (isUnregisteredToken(sendResponse.getException())) {
+                    invalidTokens.incrementAndGet();
+                    tokensToPrune.add(tokens.get(i));
+                } else {
+                    failed.incrementAndGet();
+                }
+            }
+        } catch (FirebaseMessagingException e) {
+            if (!isRetryable(e)) {
+                e.printStackTrace();
+                failed.addAndGet(tokens.size());
+                return;
+            }
+            retryTokens = tokens;
+        }
+        if (!retryTokens.isEmpty()) {
+            scheduleRetry(data, retryTokens, attempt);
+        }
+    }
+
+    /**
+     * Schedules the next attempt to send a notification after an exponential backoff with jitter.
+     *
+     * @param data The data of the notification
+     * @param tokens The device tokens that have to be retried
+     * @param attempt The number of the attempt that failed
+     */
+    private void scheduleRetry(Map<String, String> data, List<String> tokens, int attempt) {
+        if (attempt >= maxAttempts) {
+            failed.addAndGet(tokens.size());
+            return;
+        }
+        long backoff = initialBackoffMillis << (attempt - 1);
+        long delay = backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        retried.addAndGet(tokens.size());
+        try {
+            retryScheduler.schedule(() -> {
+                if (!submit(() -> send(data, tokens, attempt + 1))) {
+                    failed.addAndGet(tokens.size());
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            failed.addAndGet(tokens.size());
+        }
+    }
+
+    /**
+     * Checks whether a messaging error is transient, so sending the notification again may succeed.
+     *
+     * @param exception The messaging error
+     * @return True if the error is transient
+     */
+    private static boolean isRetryable(FirebaseMessagingException exception) {
+        return exception != null && RETRYABLE_ERROR_CODES.contains(exception.getErrorCode());
+    }
+
+    /**
+     * Checks whether a messaging error of a single device means that its token is no longer registered.
+     *
+     * @param exception The messaging error
+     * @return True if the token is not registered
+     */
+    private static boolean isUnregisteredToken(FirebaseMessagingException exception) {
+        return exception != null && UNREGISTERED_TOKEN_ERROR_CODES.contains(exception.getErrorCode());
+    }
+}
@@ -0,0 +1,24 @@
+package org.pesmypetcare.webservice.utilities;
+
+import java.util.Map;
+
+/**
+ * Component that exposes internal metrics through the metrics endpoint.
+ *
+ * @author Santiago Del Rey
+ */
+public interface MetricsSource {
+    /**
+     * Gets the name under which the metrics are grouped.
+     *
+     * @return The name of the metrics group
+     */
+    String getMetricsName();
+
+    /**
+     * Gets a snapshot of the current metrics values.
+     *
+     * @return A map with the metric names as keys and their current values
+     */
+    Map<String, Object> getMetrics();
+}
@@ -0,0 +1,61 @@
+package org.pesmypetcare.webservice.utilities;
+
+import com.google.cloud.Timestamp;
+import lombok.Data;
+import org.springframework.lang.Nullable;
+
+/**
+ * Value read from the database together with the version it had when it was read, so clients can revalidate
+ * their copy with a conditional request.
+ *
+ * @param <T> The type of the value
+ * @author Santiago Del Rey
+ */
+@Data
+public class Versioned<T> {
+    private T value;
+    private String eTag;
+    private Long lastModified;
+
+    /**
+     * Creates a versioned value from the last time it was updated.
+     *
+     * @param value The value
+     * @param updateTime The time the value was last updated
+     */
+    public Versioned(T value, Timestamp updateTime) {
+        this(value, updateTime, null, true);
+    }
+
+    /**
+     * Creates a versioned value from the last time one of its parts was updated and a discriminator that changes
+     * when parts are removed.
+     * The last modification date is not given since a removal does not move it forward.
+     *
+     * @param value The value
+     * @param updateTime The last time one of the parts of the value was updated
+     * @param discriminator The discriminator to add to the entity tag, e.g. the number of parts
+     */
+    public Versioned(T value, Timestamp updateTime, long discriminator) {
+        this(value, updateTime, discriminator, false);
+    }
+
+    /**
+     * Creates a versioned value.
+     *
+     * @param value The value
+     * @param updateTime The last time the value was updated
+     * @param discriminator The discriminator to add to the entity tag or null
+     * @param withLastModified True to give the last modification date
+     */
+    private Versioned(T value, Timestamp updateTime, @Nullable Long discriminator, boolean withLastModified) {
+        this.value = value;
+        long micros = updateTime.getSeconds() * 1_000_000L + updateTime.getNanos() / 1_000;
+        String tag = Long.toHexString(micros);
+        if (discriminator != null) {
+            tag += "-" + Long.toHexString(discriminator);
+        }
+        this.eTag = "\"" + tag + "\"";
+        this.lastModified = withLastModified ? micros / 1_000 : null;
+    }
+}
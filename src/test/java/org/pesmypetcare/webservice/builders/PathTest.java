@@ -16,6 +16,8 @@ class PathTest {
     private final String petName = "Rex";
     private final String messageId = "Gz72qaTq0Bv7oW5Fl9eX";
     private final String date = "2020-04-09T20:34:00";
+    private final String medalName = "Walker";
+    private final String entryUsername = "John";
 
     @Test
     public void buildGroupPath() {
@@ -79,6 +81,20 @@ class PathTest {
         assertEquals("users", path, "Should return the path to the users collection.");
     }
 
+    @Test
+    public void buildLeaderboardEntryPath() {
+        String path = Path.ofDocument(Collections.leaderboard, medalName, entryUsername);
+        assertEquals("medals/" + medalName + "/leaderboard/" + entryUsername, path,
+            "Should return the path to the leaderboard entry.");
+    }
+
+    @Test
+    public void buildLeaderboardCollectionPath() {
+        String path = Path.ofCollection(Collections.leaderboard, medalName);
+        assertEquals("medals/" + medalName + "/leaderboard", path,
+            "Should return the path to the leaderboard of a medal.");
+    }
+
     @Test
     public void buildForumPath() {
         String path = Path.ofDocument(Collections.forums, groupId, forumId);
@@ -243,6 +259,20 @@ class PathTest {
             "Should return the path to the vet visit entries collection.");
     }
 
+    @Test
+    public void buildEventPath() {
+        String path = Path.ofDocument(Collections.events, userId, petName, messageId);
+        assertEquals("users/" + userId + "/pets/" + petName + "/events/" + messageId, path,
+            "Should return the path to the stored calendar event.");
+    }
+
+    @Test
+    public void buildEventsCollectionPath() {
+        String path = Path.ofCollection(Collections.events, userId, petName);
+        assertEquals("users/" + userId + "/pets/" + petName + "/events", path,
+            "Should return the path to the stored calendar events collection.");
+    }
+
     @Test
     public void buildExerciseEntryPath() {
         String path = Path.ofDocument(Collections.exercises, userId, petName, date);
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.pesmypetcare.webservice.entity.appmanager.EventEntity;
+import org.pesmypetcare.webservice.entity.appmanager.EventWriteResult;
 import org.pesmypetcare.webservice.service.appmanager.GoogleCalendarService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -15,8 +16,10 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.BDDMockito.willDoNothing;
@@ -25,6 +28,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -108,6 +112,19 @@ public class GoogleCalendarRestControllerTest {
             .andExpect(status().isOk());
     }
 
+    @Test
+    public void createEventsShouldReturnTheResultOfEachEvent() throws Exception {
+        willReturn(Collections.singletonList(new EventWriteResult("idtest", null))).given(service)
+            .createEvents(anyString(), anyString(), anyString(), anyList());
+        mockMvc.perform(post(urlBase + "/events/" + owner + "/" + petName)
+            .header(TOKEN, accessToken)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[" + jsonEventEntity + "]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].eventId").value("idtest"))
+            .andExpect(jsonPath("$[0].successful").value(true));
+    }
+
     @Test
     public void retrieveEventShouldReturnStatusOk() throws Exception {
         willReturn(eventEntity).given(service).retrieveEvent(anyString(), anyString(), anyString(), anyString());
@@ -128,6 +145,19 @@ public class GoogleCalendarRestControllerTest {
             .andExpect(status().isOk());
     }
 
+    @Test
+    public void updateEventsShouldReturnTheResultOfEachEvent() throws Exception {
+        willReturn(Collections.singletonList(new EventWriteResult("idtest", "Not Found"))).given(service)
+            .updateEvents(anyString(), anyString(), anyString(), anyList());
+        mockMvc.perform(put(urlBase + "/events/" + owner + "/" + petName)
+            .header(TOKEN, accessToken)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("[" + jsonEventEntity + "]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].successful").value(false))
+            .andExpect(jsonPath("$[0].error").value("Not Found"));
+    }
+
     @Test
     public void deleteEventShouldReturnStatusOk() throws Exception {
         willDoNothing().given(service).deleteEvent(anyString(), anyString(), anyString(), anyString());
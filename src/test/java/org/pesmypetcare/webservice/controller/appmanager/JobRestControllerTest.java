@@ -0,0 +1,61 @@
+package org.pesmypetcare.webservice.controller.appmanager;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.entity.appmanager.JobStatus;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.service.appmanager.JobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * @author Santiago Del Rey
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ExtendWith(MockitoExtension.class)
+class JobRestControllerTest {
+    private static final String URL = "/jobs/job-id";
+    private static final String TOKEN = "token";
+    private static final String MY_TOKEN = "my-token";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private JobService service;
+
+    @Test
+    public void getJobShouldReturnTheJobAndStatusOk() throws Exception {
+        JobEntity job = new JobEntity("account-deletion", Collections.emptyMap());
+        job.setStatus(JobStatus.RUNNING);
+        job.setProgress(42);
+        given(service.getJob(MY_TOKEN, "job-id")).willReturn(job);
+
+        MvcResult result = mockMvc.perform(get(URL).header(TOKEN, MY_TOKEN)).andExpect(status().isOk()).andReturn();
+        String content = result.getResponse().getContentAsString();
+        assertTrue(content.contains("\"status\":\"RUNNING\"") && content.contains("\"progress\":42"),
+            "Should return the status and progress of the job");
+    }
+
+    @Test
+    public void getJobShouldReturnNotFoundWhenTheJobDoesNotExist() throws Exception {
+        given(service.getJob(MY_TOKEN, "job-id"))
+            .willThrow(new DocumentException("document-not-exists", "The job does not exist"));
+
+        mockMvc.perform(get(URL).header(TOKEN, MY_TOKEN)).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,31 @@
+package org.pesmypetcare.webservice.controller.appmanager;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * @author Santiago Del Rey
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MetricsRestControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void getMetricsShouldReturnTheUsernamesCacheMetrics() throws Exception {
+        MvcResult result = mockMvc.perform(get("/metrics"))
+            .andExpect(status().isOk()).andReturn();
+
+        assertTrue(result.getResponse().getContentAsString().contains("\"usernames-cache\""),
+            "Should return the metrics of the usernames cache");
+    }
+}
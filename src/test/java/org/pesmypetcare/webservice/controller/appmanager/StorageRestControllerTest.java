@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.pesmypetcare.webservice.entity.appmanager.ImageEntity;
+import org.pesmypetcare.webservice.entity.appmanager.ImageMetadata;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.form.StorageForm;
 import org.pesmypetcare.webservice.service.appmanager.StorageService;
@@ -16,23 +17,36 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.delete;
 import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
 import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.put;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -43,9 +57,13 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @ExtendWith(MockitoExtension.class)
 class StorageRestControllerTest {
     private static final String BASE_URL = "/storage/image";
+    private static final String BINARY_URL = "/storage/binary";
     private static final String TOKEN = "token";
     private static final String PETS_PICTURES_LOCATION = "/user/pets";
     private static final String ASSERT_MESSAGE = "Should return the image as a base64 encoded string";
+    private static final String MD5_HASH = "1B2M2Y8AsgTpgAmY7PhCfg==";
+    private static final String ETAG = "\"" + MD5_HASH + "\"";
+    private static final long UPDATE_TIME = 1_600_000_000_000L;
     private static String myToken;
     private static String json;
     private static String form;
@@ -95,7 +113,8 @@ class StorageRestControllerTest {
 
     @Test
     public void downloadUserImage() throws Exception {
-        given(service.getImage(any(StorageForm.class))).willReturn(downloadExpectedResult);
+        given(service.getImageMetadata(any(StorageForm.class))).willReturn(imageMetadata());
+        given(service.getImage(any(ImageMetadata.class))).willReturn(downloadExpectedResult);
         MvcResult response = mockMvc.perform(get(BASE_URL + "/user").header(TOKEN, myToken)
             .contentType(MediaType.APPLICATION_JSON).param("name", "profile.png")).andExpect(status().isOk())
             .andReturn();
@@ -105,22 +124,98 @@ class StorageRestControllerTest {
 
     @Test
     public void downloadPetImage() throws Exception {
-        given(service.getImage(any(StorageForm.class))).willReturn(downloadExpectedResult);
+        given(service.getImageMetadata(any(StorageForm.class))).willReturn(imageMetadata());
+        given(service.getImage(any(ImageMetadata.class))).willReturn(downloadExpectedResult);
         MvcResult response = mockMvc.perform(get(BASE_URL + "/user/pets/Toby-image.png").header(TOKEN, myToken)
             .contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk()).andReturn();
         String result = getContentAsString(response);
         assertEquals(downloadExpectedResult, result, ASSERT_MESSAGE);
+        assertEquals(ETAG, response.getResponse().getHeader(HttpHeaders.ETAG), "Should return the image ETag");
+    }
+
+    @Test
+    public void downloadPetImageShouldReturnNotModifiedWhenTheETagMatches() throws Exception {
+        given(service.getImageMetadata(any(StorageForm.class))).willReturn(imageMetadata());
+        mockMvc.perform(get(BASE_URL + "/user/pets/Toby-image.png").header(TOKEN, myToken)
+            .header(HttpHeaders.IF_NONE_MATCH, ETAG)).andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+        verify(service, never()).getImage(any(ImageMetadata.class));
     }
 
     @Test
     public void downloadGroupImage() throws Exception {
-        given(service.getImage(any(StorageForm.class))).willReturn(downloadExpectedResult);
+        given(service.getImageMetadata(any(StorageForm.class))).willReturn(imageMetadata());
+        given(service.getImage(any(ImageMetadata.class))).willReturn(downloadExpectedResult);
         MvcResult response = mockMvc.perform(get(BASE_URL + "/groups/Dogs").header(TOKEN, myToken)
             .param("name", "Dogs.png")).andExpect(status().isOk()).andReturn();
         String result = getContentAsString(response);
         assertEquals(downloadExpectedResult, result, ASSERT_MESSAGE);
     }
 
+    @Test
+    public void streamUserImage() throws Exception {
+        mockImageStream();
+        MvcResult started = mockMvc.perform(get(BINARY_URL + "/user").header(TOKEN, myToken)
+            .param("name", "profile.png")).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk())
+            .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, img.length))
+            .andExpect(content().contentType(MediaType.IMAGE_PNG)).andExpect(content().bytes(img));
+    }
+
+    @Test
+    public void streamUserImageShouldReturnNotModifiedWhenTheImageHasNotChanged() throws Exception {
+        given(service.getImageMetadata(any(StorageForm.class))).willReturn(imageMetadata());
+        mockMvc.perform(get(BINARY_URL + "/user").header(TOKEN, myToken).param("name", "profile.png")
+            .header(HttpHeaders.IF_MODIFIED_SINCE, UPDATE_TIME)).andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, ETAG)).andExpect(content().bytes(new byte[0]));
+        verify(service, never()).writeImage(any(ImageMetadata.class), anyLong(), anyLong(), any(OutputStream.class));
+    }
+
+    @Test
+    public void streamPetImageRange() throws Exception {
+        mockImageStream();
+        MvcResult started = mockMvc.perform(get(BINARY_URL + "/user/pets/Toby-image.png").header(TOKEN, myToken)
+            .header(HttpHeaders.RANGE, "bytes=5-")).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isPartialContent())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 5-" + (img.length - 1) + "/" + img.length))
+            .andExpect(content().bytes(Arrays.copyOfRange(img, 5, img.length)));
+    }
+
+    @Test
+    public void streamGroupImageShouldReturnRangeNotSatisfiableWhenTheRangeIsInvalid() throws Exception {
+        given(service.getImageMetadata(any(StorageForm.class))).willReturn(imageMetadata());
+        mockMvc.perform(get(BINARY_URL + "/groups/Dogs").param("name", "Dogs.png")
+            .header(HttpHeaders.RANGE, "bytes=100-200")).andExpect(status().isRequestedRangeNotSatisfiable())
+            .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + img.length));
+    }
+
+    @Test
+    public void streamAllPetsImages() throws Exception {
+        Map<String, String> paths = new HashMap<>();
+        paths.put("Linux", "user/pets/Linux-image.png");
+        given(service.getAllPetImagesPaths(anyString())).willReturn(paths);
+        willAnswer(invocation -> {
+            BiConsumer<String, String> consumer = invocation.getArgument(1);
+            consumer.accept("Linux", downloadExpectedResult);
+            return null;
+        }).given(service).fetchImages(same(paths), any());
+        MvcResult started = mockMvc.perform(get("/storage/stream/user/pets").header(TOKEN, myToken))
+            .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk())
+            .andExpect(content().contentType("application/x-ndjson"))
+            .andExpect(content().string("{\"key\":\"Linux\",\"image\":\"" + downloadExpectedResult + "\"}\n"));
+    }
+
+    @Test
+    public void streamAllPostsImages() throws Exception {
+        Map<String, String> paths = new HashMap<>();
+        given(service.getAllPostsImagesPaths(anyString(), anyString())).willReturn(paths);
+        MvcResult started = mockMvc.perform(get("/storage/stream/Dogs/Huskies").header(TOKEN, myToken))
+            .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+        verify(service).fetchImages(same(paths), any());
+    }
+
     @Test
     public void downloadAllPetsImages() throws Exception {
         given(service.getAllPetImages(anyString())).willReturn(images);
@@ -168,4 +263,26 @@ class StorageRestControllerTest {
     private String getContentAsString(MvcResult response) throws UnsupportedEncodingException {
         return response.getResponse().getContentAsString();
     }
+
+    private void mockImageStream() throws Exception {
+        given(service.getImageMetadata(any(StorageForm.class))).willReturn(imageMetadata());
+        willAnswer(invocation -> {
+            long offset = invocation.getArgument(1);
+            long length = invocation.getArgument(2);
+            OutputStream output = invocation.getArgument(3);
+            output.write(img, (int) offset, (int) length);
+            return null;
+        }).given(service).writeImage(any(ImageMetadata.class), anyLong(), anyLong(), any(OutputStream.class));
+    }
+
+    private ImageMetadata imageMetadata() {
+        ImageMetadata image = new ImageMetadata();
+        image.setPath("user/profile.png");
+        image.setSize(img.length);
+        image.setContentType("application/octet-stream");
+        image.setGeneration(1L);
+        image.setMd5Hash(MD5_HASH);
+        image.setUpdateTime(UPDATE_TIME);
+        return image;
+    }
 }
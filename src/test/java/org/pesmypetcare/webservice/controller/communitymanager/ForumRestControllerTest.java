@@ -9,6 +9,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.pesmypetcare.webservice.entity.communitymanager.ForumEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.Message;
 import org.pesmypetcare.webservice.entity.communitymanager.MessageEntity;
+import org.pesmypetcare.webservice.entity.communitymanager.MessagePage;
+import org.pesmypetcare.webservice.entity.communitymanager.MessagePreview;
 import org.pesmypetcare.webservice.service.communitymanager.ForumService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -23,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
@@ -96,6 +99,27 @@ class ForumRestControllerTest {
         assertEquals("Should return the requested forum.", json, result);
     }
 
+    @Test
+    public void getMessages() throws Exception {
+        MessagePreview preview = new MessagePreview();
+        preview.setCreator(creator);
+        preview.setPublicationDate(creationDate);
+        List<MessagePreview> messages = new ArrayList<>();
+        messages.add(preview);
+        MessagePage page = new MessagePage(messages, "cursor");
+        given(service.getMessagesPage(anyString(), anyString(), anyString(), anyInt())).willReturn(page);
+        MvcResult mvcResult = mockMvc.perform(get(BASE_URL + parentGroup + "/" + forumName + "/messages")
+            .param("limit", "10").param("cursor", "previous")).andExpect(status().isOk()).andReturn();
+        String result = mvcResult.getResponse().getContentAsString();
+        assertEquals("Should return the page of messages.", mapper.writeValueAsString(page), result);
+    }
+
+    @Test
+    public void getMessagesShouldFailWhenTheLimitIsTooBig() throws Exception {
+        mockMvc.perform(get(BASE_URL + parentGroup + "/" + forumName + "/messages").param("limit", "1000"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void getAllForums() throws Exception {
         List<ForumEntity> forums = new ArrayList<>();
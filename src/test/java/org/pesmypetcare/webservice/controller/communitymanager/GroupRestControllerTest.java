@@ -3,6 +3,7 @@ package org.pesmypetcare.webservice.controller.communitymanager;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.Timestamp;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,10 +13,12 @@ import org.pesmypetcare.webservice.entity.communitymanager.GroupEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.TagEntity;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.service.communitymanager.GroupService;
+import org.pesmypetcare.webservice.utilities.Versioned;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -24,6 +27,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
@@ -37,6 +41,9 @@ import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuild
 import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.put;
 import static org.springframework.test.util.AssertionErrors.assertEquals;
 import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -94,26 +101,38 @@ class GroupRestControllerTest {
 
     @Test
     public void getGroup() throws Exception {
-        given(service.getGroup(anyString())).willReturn(group);
+        Versioned<Group> versionedGroup = new Versioned<>(group, Timestamp.now(), 1);
+        given(service.getVersionedGroup(anyString())).willReturn(versionedGroup);
         MvcResult mvcResult = mockMvc.perform(get(BASE_URL).param(GROUP_FIELD, groupName)).andExpect(status().isOk())
-            .andReturn();
+            .andExpect(header().string(HttpHeaders.ETAG, versionedGroup.getETag())).andReturn();
         String result = mvcResult.getResponse().getContentAsString();
         assertEquals("Should return the requested group.", json, result);
     }
 
+    @Test
+    public void getGroupShouldReturnNotModifiedWhenTheETagMatches() throws Exception {
+        Versioned<Group> versionedGroup = new Versioned<>(group, Timestamp.now(), 1);
+        given(service.getVersionedGroup(anyString())).willReturn(versionedGroup);
+        MvcResult mvcResult = mockMvc.perform(get(BASE_URL).param(GROUP_FIELD, groupName)
+            .header(HttpHeaders.IF_NONE_MATCH, versionedGroup.getETag())).andExpect(status().isNotModified())
+            .andReturn();
+        assertTrue("Should not return the group.", mvcResult.getResponse().getContentAsString().isEmpty());
+    }
+
     @Test
     public void getAllGroups() throws Exception {
         List<Group> forums = new ArrayList<>();
         forums.add(group);
-        given(service.getAllGroups()).willReturn(forums);
-        MvcResult mvcResult = mockMvc.perform(get(BASE_URL)).andExpect(status().isOk()).andReturn();
+        given(service.getAllGroupsAsync()).willReturn(CompletableFuture.completedFuture(forums));
+        MvcResult started = mockMvc.perform(get(BASE_URL)).andExpect(request().asyncStarted()).andReturn();
+        MvcResult mvcResult = mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
         String result = mvcResult.getResponse().getContentAsString();
         assertEquals("Should return all the groups.", mapper.writeValueAsString(forums), result);
     }
 
     @Test
     public void getGroupShouldReturnNotFoundWhenTheGroupDoesNotExist() throws Exception {
-        willThrow(new DocumentException("document-not-exists", "")).given(service).getGroup(anyString());
+        willThrow(new DocumentException("document-not-exists", "")).given(service).getVersionedGroup(anyString());
         mockMvc.perform(get(BASE_URL).param(GROUP_FIELD, groupName)).andExpect(status().isNotFound());
     }
 
@@ -18,6 +18,8 @@ import java.util.Map;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.willReturn;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -36,6 +38,7 @@ public class MedalRestControllerTest {
     private static final String VALUE = "You have to walk a lot of kilometers!";
     private static final String URL_BASE = "/medal";
     private static final String SLASH = "/";
+    private static final String JOB_ID = "job-id";
 
     @Autowired
     private MockMvc mockMvc;
@@ -63,4 +66,12 @@ public class MedalRestControllerTest {
         mockMvc.perform(get(URL_BASE + SLASH + MEDAL_NAME + SLASH + FIELD))
             .andExpect(status().isOk());
     }
+
+    @Test
+    public void indexLeaderboardShouldReturnTheJobAndStatusAccepted() throws Exception {
+        willReturn(JOB_ID).given(service).indexLeaderboard(MEDAL_NAME);
+        mockMvc.perform(post(URL_BASE + SLASH + MEDAL_NAME + SLASH + "leaderboard"))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.job").value(JOB_ID));
+    }
 }
@@ -11,15 +11,19 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.BDDMockito.willReturn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 /**
  * @author Oriol Catalán
@@ -57,9 +61,11 @@ public class UserMedalRestControllerTest {
 
     @Test
     public void getAllUserMedalsDataShouldReturnMedalEntityListAndStatusOk() throws Exception {
-        willReturn(USER_MEDAL_LIST).given(service).getAllUserMedalsData(anyString());
-        mockMvc.perform(get(URL_BASE + SLASH + OWNER))
-            .andExpect(status().isOk());
+        willReturn(CompletableFuture.completedFuture(USER_MEDAL_LIST)).given(service)
+            .getAllUserMedalsDataAsync(anyString());
+        MvcResult started = mockMvc.perform(get(URL_BASE + SLASH + OWNER)).andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
     }
 
     @Test
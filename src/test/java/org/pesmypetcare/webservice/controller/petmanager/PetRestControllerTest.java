@@ -1,32 +1,43 @@
 package org.pesmypetcare.webservice.controller.petmanager;
 
+import com.google.cloud.Timestamp;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.pesmypetcare.webservice.entity.petmanager.GenderType;
 import org.pesmypetcare.webservice.entity.petmanager.PetEntity;
 import org.pesmypetcare.webservice.service.petmanager.PetService;
+import org.pesmypetcare.webservice.utilities.Versioned;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -52,6 +63,8 @@ class PetRestControllerTest {
         + "  \"mealName\": \"MaMeal\"\n"
         + "} ";
     private static final PetEntity PET_ENTITY = new PetEntity();
+    private static final Versioned<PetEntity> VERSIONED_PET = new Versioned<>(PET_ENTITY,
+        Timestamp.ofTimeSecondsAndNanos(1_600_000_000L, 0));
     private static final List< Map<String, Object>> PET_LIST = new ArrayList<>();
     private static final Map<String, Object> PET_FIELD_ELEMENT = new HashMap<>();
     private static final String KEY_1 = "1996-01-08T12:20:30";
@@ -95,16 +108,28 @@ class PetRestControllerTest {
 
     @Test
     public void getPetDataShouldReturnPetEntityAndStatusOk() throws Exception {
-        willReturn(PET_ENTITY).given(service).getPetData(anyString(), anyString());
+        willReturn(VERSIONED_PET).given(service).getVersionedPetData(anyString(), anyString());
         mockMvc.perform(get(urlBase + "/" + OWNER + "/" + PET_NAME))
-            .andExpect(status().isOk());
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, VERSIONED_PET.getETag()))
+            .andExpect(header().exists(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    public void getPetDataShouldReturnStatusNotModifiedWhenTheETagMatches() throws Exception {
+        willReturn(VERSIONED_PET).given(service).getVersionedPetData(anyString(), anyString());
+        mockMvc.perform(get(urlBase + "/" + OWNER + "/" + PET_NAME)
+            .header(HttpHeaders.IF_NONE_MATCH, VERSIONED_PET.getETag()))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
     }
 
     @Test
     public void getAllPetsDataShouldReturnPetEntityListAndStatusOk() throws Exception {
-        willReturn(PET_LIST).given(service).getAllPetsData(anyString());
-        mockMvc.perform(get(urlBase + "/" + OWNER))
-            .andExpect(status().isOk());
+        willReturn(CompletableFuture.completedFuture(PET_LIST)).given(service).getAllPetsDataAsync(anyString());
+        MvcResult started = mockMvc.perform(get(urlBase + "/" + OWNER)).andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
     }
 
     @Test
@@ -156,6 +181,25 @@ class PetRestControllerTest {
             .andExpect(status().isOk());
     }
 
+    @Test
+    public void getFieldCollectionElementsBetweenKeysPageShouldReturnStatusOk() throws Exception {
+        willReturn(PET_LIST).given(service).getFieldCollectionElementsBetweenKeys(anyString(), anyString(),
+            anyString(), anyString(), anyString(), anyString(), anyInt());
+        mockMvc.perform(get(urlBase + "/" + OWNER + "/" + PET_NAME + "/collection/" + COLLECTION_FIELD + "/" + KEY_1
+            + "/" + KEY_2).param("limit", "7").param("after", KEY_1))
+            .andExpect(status().isOk());
+        verify(service).getFieldCollectionElementsBetweenKeys(OWNER, PET_NAME, COLLECTION_FIELD, KEY_1, KEY_2, KEY_1,
+            7);
+    }
+
+    @Test
+    public void getFieldCollectionElementsBetweenKeysPageShouldReturnBadRequestWhenLimitIsNotPositive()
+        throws Exception {
+        mockMvc.perform(get(urlBase + "/" + OWNER + "/" + PET_NAME + "/collection/" + COLLECTION_FIELD + "/" + KEY_1
+            + "/" + KEY_2).param("limit", "0"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void addFieldCollectionElementShouldReturnStatusCreated() throws Exception {
         willDoNothing().given(service).addFieldCollectionElement(anyString(), anyString(), anyString(), anyString(),
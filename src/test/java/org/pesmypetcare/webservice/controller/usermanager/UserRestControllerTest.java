@@ -18,8 +18,11 @@ import org.springframework.test.web.servlet.MvcResult;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.verify;
@@ -59,15 +62,20 @@ class UserRestControllerTest {
     }
 
     @Test
-    public void deleteAccount() throws Exception {
-        willDoNothing().given(service).deleteById(anyString(), anyString());
-        mockMvc.perform(delete(URL).header(token, myToken)).andExpect(status().isNoContent());
+    public void deleteAccountShouldScheduleTheDeletionAndReturnStatusAccepted() throws Exception {
+        given(service.scheduleDeletion(anyString(), anyString(), anyBoolean())).willReturn("job-id");
+        MvcResult result = mockMvc.perform(delete(URL).header(token, myToken)).andExpect(status().isAccepted())
+            .andReturn();
+        verify(service).scheduleDeletion(eq(myToken), eq(username), eq(true));
+        assertEquals("Should return the job identifier", "{\"job\":\"job-id\"}",
+            result.getResponse().getContentAsString());
     }
 
     @Test
-    public void deleteUserFromDb() throws Exception {
-        willDoNothing().given(service).deleteFromDatabase(anyString(), anyString());
-        mockMvc.perform(delete(URL).header(token, myToken).param("db", "true")).andExpect(status().isNoContent());
+    public void deleteUserFromDbShouldNotDeleteTheAuthentication() throws Exception {
+        given(service.scheduleDeletion(anyString(), anyString(), anyBoolean())).willReturn("job-id");
+        mockMvc.perform(delete(URL).header(token, myToken).param("db", "true")).andExpect(status().isAccepted());
+        verify(service).scheduleDeletion(eq(myToken), eq(username), eq(false));
     }
 
     @Test
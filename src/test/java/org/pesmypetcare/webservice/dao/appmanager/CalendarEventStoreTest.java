@@ -0,0 +1,121 @@
+package org.pesmypetcare.webservice.dao.appmanager;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.WriteBatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.dao.usermanager.UsernameResolver;
+import org.pesmypetcare.webservice.entity.appmanager.EventChanges;
+import org.pesmypetcare.webservice.entity.appmanager.EventEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.BulkWriteBatch;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Marc Simó
+ */
+@ExtendWith(MockitoExtension.class)
+class CalendarEventStoreTest {
+    private static final String OWNER = "John";
+    private static final String OWNER_ID = "owner-id";
+    private static final String PET_NAME = "Rex";
+    private static final String EVENT_ID = "event-id";
+    private static final String PET_PATH = Path.ofDocument(Collections.pets, OWNER_ID, PET_NAME);
+
+    @Mock
+    private FirestoreCollection dbCol;
+    @Mock
+    private FirestoreDocument dbDoc;
+    @Mock
+    private FirestoreBulkWriter bulkWriter;
+    @Mock
+    private UsernameResolver usernameResolver;
+    @Mock
+    private DocumentReference staleEvent;
+    @Mock
+    private DocumentReference syncedEvent;
+    @Mock
+    private WriteBatch batch;
+
+    @InjectMocks
+    private CalendarEventStore eventStore = new CalendarEventStoreImpl();
+
+    private BulkWriteBatch bulkBatch;
+    private EventChanges changes;
+
+    @BeforeEach
+    public void setUp() throws DatabaseAccessException, DocumentException {
+        given(usernameResolver.getUid(OWNER)).willReturn(OWNER_ID);
+        bulkBatch = new BulkWriteBatch();
+        changes = new EventChanges();
+        changes.setNextSyncToken("next-token");
+    }
+
+    @Test
+    public void shouldReplaceTheStoredEventsOnAFullSync() throws DatabaseAccessException, DocumentException {
+        given(bulkWriter.batch()).willReturn(bulkBatch);
+        given(dbDoc.batch()).willReturn(batch);
+        given(dbCol.listAllCollectionDocuments(Path.ofCollection(Collections.events, OWNER_ID, PET_NAME)))
+            .willReturn(Arrays.asList(staleEvent, syncedEvent));
+        given(staleEvent.getId()).willReturn("stale-id");
+        given(syncedEvent.getId()).willReturn(EVENT_ID);
+        given(dbDoc.getDocumentReference(Path.ofDocument(Collections.events, OWNER_ID, PET_NAME, EVENT_ID)))
+            .willReturn(syncedEvent);
+        changes.setFullSync(true);
+        changes.getChangedEvents().add(new EventEntity(EVENT_ID, "Walk", null, null, null, null, null,
+            "2020-02-13T10:30:00.000+01:00", "2020-02-13T11:30:00.000+01:00").convertToEvent());
+
+        eventStore.saveChanges(OWNER, PET_NAME, changes);
+        assertEquals(2, bulkBatch.size(), "Should set the synchronized event and delete the stale one");
+        verify(bulkWriter).commitBatch(same(bulkBatch));
+        verify(dbDoc).updateDocumentFields(batch, PET_PATH, CalendarEventStoreImpl.SYNC_TOKEN_FIELD, "next-token");
+        verify(dbDoc).commitBatch(batch);
+    }
+
+    @Test
+    public void shouldOnlySaveTheSyncTokenWhenNothingChanged() throws DatabaseAccessException, DocumentException {
+        given(bulkWriter.batch()).willReturn(bulkBatch);
+        given(dbDoc.batch()).willReturn(batch);
+
+        eventStore.saveChanges(OWNER, PET_NAME, changes);
+        verify(bulkWriter, never()).commitBatch(same(bulkBatch));
+        verify(dbDoc).updateDocumentFields(batch, PET_PATH, CalendarEventStoreImpl.SYNC_TOKEN_FIELD, "next-token");
+    }
+
+    @Test
+    public void shouldDeleteTheEventsOfAnIncrementalSync() throws DatabaseAccessException, DocumentException {
+        given(bulkWriter.batch()).willReturn(bulkBatch);
+        given(dbDoc.batch()).willReturn(batch);
+        given(dbDoc.getDocumentReference(Path.ofDocument(Collections.events, OWNER_ID, PET_NAME, EVENT_ID)))
+            .willReturn(syncedEvent);
+        changes.getDeletedEventIds().add(EVENT_ID);
+
+        eventStore.saveChanges(OWNER, PET_NAME, changes);
+        assertEquals(1, bulkBatch.size(), "Should delete the event");
+        verify(dbCol, never()).listAllCollectionDocuments(Path.ofCollection(Collections.events, OWNER_ID, PET_NAME));
+    }
+
+    @Test
+    public void shouldReadTheSyncTokenFromThePet() throws DatabaseAccessException, DocumentException {
+        given(dbDoc.getStringFromDocument(PET_PATH, CalendarEventStoreImpl.SYNC_TOKEN_FIELD)).willReturn("token");
+
+        assertEquals("token", eventStore.getSyncToken(OWNER, PET_NAME), "Should return the sync token");
+    }
+}
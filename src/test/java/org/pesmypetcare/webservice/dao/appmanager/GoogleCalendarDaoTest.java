@@ -1,5 +1,9 @@
 package org.pesmypetcare.webservice.dao.appmanager;
 
+import com.google.api.client.json.Json;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
 import com.google.api.services.calendar.model.Calendar;
 import com.google.api.services.calendar.model.Event;
 import com.google.api.services.calendar.model.Events;
@@ -9,16 +13,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.entity.appmanager.EventChanges;
 import org.pesmypetcare.webservice.entity.appmanager.EventEntity;
+import org.pesmypetcare.webservice.entity.appmanager.EventWriteResult;
 import org.pesmypetcare.webservice.error.CalendarAccessException;
 import org.pesmypetcare.webservice.thirdpartyservices.CalendarServiceFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.ArgumentMatchers.same;
@@ -176,4 +185,84 @@ public class GoogleCalendarDaoTest {
         verify(factory).initializeService(same(accessToken));
         verify(events).delete(same(calendarId), same(eventId));
     }
+
+    @Test
+    public void shouldSplitTheChangedAndDeletedEventsWhenSynchronizing() throws CalendarAccessException {
+        given(factory.initializeService(anyString())).willReturn(stubService(200, "{\"items\": ["
+            + "{\"id\": \"id1\", \"status\": \"confirmed\"}, {\"id\": \"id2\", \"status\": \"cancelled\"}],"
+            + " \"nextSyncToken\": \"next-token\"}"));
+
+        EventChanges changes = googleCalendarDao.getEventChanges(accessToken, calendarId, "sync-token");
+
+        assertEquals("id1", changes.getChangedEvents().get(0).getId(), "Should return the changed event");
+        assertEquals(Collections.singletonList("id2"), changes.getDeletedEventIds(),
+            "Should return the cancelled event as deleted");
+        assertEquals("next-token", changes.getNextSyncToken(), "Should return the next sync token");
+        assertFalse(changes.isFullSync(), "Should not be a full synchronization");
+    }
+
+    @Test
+    public void shouldReportAnExpiredSyncToken() {
+        given(factory.initializeService(anyString())).willReturn(stubService(410,
+            "{\"error\": {\"code\": 410, \"message\": \"Sync token is no longer valid\"}}"));
+
+        CalendarAccessException exception = assertThrows(CalendarAccessException.class,
+            () -> googleCalendarDao.getEventChanges(accessToken, calendarId, "sync-token"),
+            "Should fail when the sync token has expired");
+        assertEquals(GoogleCalendarDao.SYNC_TOKEN_EXPIRED, exception.getErrorCode(),
+            "Should report that the sync token has expired");
+    }
+
+    @Test
+    public void shouldReturnTheResultOfEachEventOfABatch() throws CalendarAccessException {
+        String boundary = "batch_boundary";
+        String content = "--" + boundary + "\r\n"
+            + "Content-Type: application/http\r\n\r\n"
+            + "HTTP/1.1 200 OK\r\nContent-Type: application/json; charset=UTF-8\r\n\r\n"
+            + "{\"id\": \"id1\"}\r\n"
+            + "--" + boundary + "\r\n"
+            + "Content-Type: application/http\r\n\r\n"
+            + "HTTP/1.1 403 Forbidden\r\nContent-Type: application/json; charset=UTF-8\r\n\r\n"
+            + "{\"error\": {\"code\": 403, \"message\": \"Rate Limit Exceeded\"}}\r\n"
+            + "--" + boundary + "--\r\n";
+        MockHttpTransport transport = new MockHttpTransport.Builder().setLowLevelHttpResponse(
+            new MockLowLevelHttpResponse().setContentType("multipart/mixed; boundary=" + boundary)
+                .setContent(content)).build();
+        given(factory.initializeService(anyString())).willReturn(new com.google.api.services.calendar.Calendar
+            .Builder(transport, JacksonFactory.getDefaultInstance(), null).setApplicationName("My Pet Care").build());
+        List<Event> newEvents = new ArrayList<>();
+        newEvents.add(new Event().setSummary("First"));
+        newEvents.add(new Event().setId("id2").setSummary("Second"));
+
+        List<EventWriteResult> results = googleCalendarDao.createEvents(accessToken, calendarId, newEvents);
+
+        assertEquals(new EventWriteResult("id1", null), results.get(0), "Should return the created event");
+        assertEquals(new EventWriteResult("id2", "Rate Limit Exceeded"), results.get(1),
+            "Should return the error of the failed event");
+    }
+
+    @Test
+    public void shouldNotSendTheUpdateOfAnEventWithoutId() throws CalendarAccessException {
+        given(factory.initializeService(anyString())).willReturn(stubService(200, "{}"));
+
+        List<EventWriteResult> results = googleCalendarDao.updateEvents(accessToken, calendarId,
+            Collections.singletonList(new Event()));
+
+        assertFalse(results.get(0).isSuccessful(), "Should fail the event without id");
+    }
+
+    /**
+     * Builds a Google Calendar client whose requests are answered by a local stub.
+     *
+     * @param statusCode The status code of the responses
+     * @param content The JSON content of the responses
+     * @return The client
+     */
+    private static com.google.api.services.calendar.Calendar stubService(int statusCode, String content) {
+        MockHttpTransport transport = new MockHttpTransport.Builder().setLowLevelHttpResponse(
+            new MockLowLevelHttpResponse().setStatusCode(statusCode).setContentType(Json.MEDIA_TYPE)
+                .setContent(content)).build();
+        return new com.google.api.services.calendar.Calendar.Builder(transport, JacksonFactory.getDefaultInstance(),
+            null).setApplicationName("My Pet Care").build();
+    }
 }
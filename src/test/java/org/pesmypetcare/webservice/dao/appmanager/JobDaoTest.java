@@ -0,0 +1,182 @@
+package org.pesmypetcare.webservice.dao.appmanager;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.entity.appmanager.JobStatus;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class JobDaoTest {
+    private static final String ID = "job-id";
+    private static final String OWNER = "owner";
+    private static final String OTHER_OWNER = "other-owner";
+    private static final long LEASE_MILLIS = 60000;
+    private static final String JOB_PATH = Path.ofDocument(Collections.jobs, ID);
+
+    @Mock
+    private FirestoreCollection collectionAdapter;
+    @Mock
+    private FirestoreDocument documentAdapter;
+    @Mock
+    private DocumentSnapshot snapshot;
+
+    @InjectMocks
+    private JobDao dao = new JobDaoImpl();
+
+    private JobEntity job;
+
+    @BeforeEach
+    public void setUp() {
+        job = new JobEntity("type", java.util.Collections.emptyMap());
+    }
+
+    @Test
+    public void claimJobShouldTakeAJobWithoutOwner() throws DatabaseAccessException, DocumentException {
+        mockJob();
+        given(documentAdapter.updateDocumentFieldsIfNotModified(same(snapshot), anyMap())).willReturn(true);
+
+        JobEntity claimed = dao.claimJob(ID, OWNER, LEASE_MILLIS);
+        assertEquals(OWNER, claimed.getOwner(), "Should set the owner of the job");
+        assertEquals(ID, claimed.getId(), "Should set the identifier of the job");
+        verify(documentAdapter).updateDocumentFieldsIfNotModified(same(snapshot),
+            argThat(fields -> OWNER.equals(fields.get("owner")) && fields.containsKey("leaseExpiresAt")));
+    }
+
+    @Test
+    public void claimJobShouldTakeAJobWhoseLeaseExpired() throws DatabaseAccessException, DocumentException {
+        job.setOwner(OTHER_OWNER);
+        job.setLeaseExpiresAt(Instant.now().minusMillis(LEASE_MILLIS).toString());
+        mockJob();
+        given(documentAdapter.updateDocumentFieldsIfNotModified(same(snapshot), anyMap())).willReturn(true);
+
+        assertEquals(OWNER, dao.claimJob(ID, OWNER, LEASE_MILLIS).getOwner(), "Should take the job");
+    }
+
+    @Test
+    public void claimJobShouldNotTakeAJobLeasedToAnotherOwner() throws DatabaseAccessException, DocumentException {
+        job.setOwner(OTHER_OWNER);
+        job.setLeaseExpiresAt(Instant.now().plusMillis(LEASE_MILLIS).toString());
+        mockJob();
+
+        assertNull(dao.claimJob(ID, OWNER, LEASE_MILLIS), "Should not take the job");
+        verify(documentAdapter, never()).updateDocumentFieldsIfNotModified(same(snapshot), anyMap());
+    }
+
+    @Test
+    public void claimJobShouldNotTakeAFinishedJob() throws DatabaseAccessException, DocumentException {
+        job.setStatus(JobStatus.SUCCEEDED);
+        mockJob();
+
+        assertNull(dao.claimJob(ID, OWNER, LEASE_MILLIS), "Should not take the job");
+    }
+
+    @Test
+    public void claimJobShouldNotTakeAJobClaimedAtTheSameTime() throws DatabaseAccessException, DocumentException {
+        mockJob();
+        given(documentAdapter.updateDocumentFieldsIfNotModified(same(snapshot), anyMap())).willReturn(false);
+
+        assertNull(dao.claimJob(ID, OWNER, LEASE_MILLIS), "Should not take the job");
+    }
+
+    @Test
+    public void renewLeaseShouldExtendTheLeaseOfTheOwner() throws DatabaseAccessException, DocumentException {
+        mockOwner(OWNER);
+        given(documentAdapter.updateDocumentFieldsIfNotModified(same(snapshot), anyMap())).willReturn(true);
+
+        assertTrue(dao.renewLease(ID, OWNER, LEASE_MILLIS), "Should extend the lease");
+        verify(documentAdapter).updateDocumentFieldsIfNotModified(same(snapshot),
+            argThat(fields -> fields.containsKey("leaseExpiresAt")));
+    }
+
+    @Test
+    public void renewLeaseShouldNotExtendTheLeaseOfAnotherOwner() throws DatabaseAccessException, DocumentException {
+        mockOwner(OTHER_OWNER);
+
+        assertFalse(dao.renewLease(ID, OWNER, LEASE_MILLIS), "Should not extend the lease");
+        verify(documentAdapter, never()).updateDocumentFieldsIfNotModified(same(snapshot), anyMap());
+    }
+
+    @Test
+    public void renewLeaseShouldNotExtendALeaseTakenDuringTheRenewal()
+        throws DatabaseAccessException, DocumentException {
+        given(documentAdapter.getDocumentSnapshot(JOB_PATH)).willReturn(snapshot);
+        given(snapshot.getString("owner")).willReturn(OWNER, OTHER_OWNER);
+        given(documentAdapter.updateDocumentFieldsIfNotModified(same(snapshot), anyMap())).willReturn(false);
+
+        assertFalse(dao.renewLease(ID, OWNER, LEASE_MILLIS), "Should not extend the lease");
+        verify(documentAdapter).updateDocumentFieldsIfNotModified(same(snapshot), anyMap());
+    }
+
+    @Test
+    public void updateJobShouldUpdateAJobOfTheOwner() throws DatabaseAccessException, DocumentException {
+        mockOwner(OWNER);
+        given(documentAdapter.updateDocumentFieldsIfNotModified(same(snapshot), anyMap())).willReturn(false, true);
+        Map<String, Object> fields = java.util.Collections.singletonMap("status", JobStatus.RUNNING.name());
+
+        dao.updateJob(ID, OWNER, fields);
+        verify(documentAdapter, times(2)).updateDocumentFieldsIfNotModified(snapshot, fields);
+    }
+
+    @Test
+    public void updateJobShouldFailForAnotherOwner() throws DatabaseAccessException, DocumentException {
+        mockOwner(OTHER_OWNER);
+
+        DocumentException exception = assertThrows(DocumentException.class,
+            () -> dao.updateJob(ID, OWNER, java.util.Collections.emptyMap()), "Should not update the job");
+        assertEquals(JobDao.LEASE_LOST, exception.getErrorCode(), "Should report the lost lease");
+        verify(documentAdapter, never()).updateDocumentFieldsIfNotModified(same(snapshot), anyMap());
+    }
+
+    /**
+     * Mocks the owner stored in the document of the job.
+     *
+     * @param owner The identifier of the owner
+     * @throws DatabaseAccessException Never
+     * @throws DocumentException Never
+     */
+    private void mockOwner(String owner) throws DatabaseAccessException, DocumentException {
+        given(documentAdapter.getDocumentSnapshot(JOB_PATH)).willReturn(snapshot);
+        given(snapshot.getString("owner")).willReturn(owner);
+    }
+
+    /**
+     * Mocks the document of the job.
+     *
+     * @throws DatabaseAccessException Never
+     * @throws DocumentException Never
+     */
+    private void mockJob() throws DatabaseAccessException, DocumentException {
+        given(documentAdapter.getDocumentSnapshot(JOB_PATH)).willReturn(snapshot);
+        given(snapshot.toObject(JobEntity.class)).willReturn(job);
+    }
+}
@@ -1,8 +1,13 @@
 package org.pesmypetcare.webservice.dao.appmanager;
 
 import com.google.api.client.util.Base64;
+import com.google.cloud.ReadChannel;
 import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.Bucket;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,18 +18,36 @@ import org.pesmypetcare.webservice.dao.communitymanager.ForumDao;
 import org.pesmypetcare.webservice.dao.communitymanager.GroupDao;
 import org.pesmypetcare.webservice.dao.petmanager.PetDao;
 import org.pesmypetcare.webservice.entity.appmanager.ImageEntity;
+import org.pesmypetcare.webservice.entity.appmanager.ImageMetadata;
 import org.pesmypetcare.webservice.entity.petmanager.PetEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.form.StorageForm;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -34,6 +57,7 @@ import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -41,6 +65,7 @@ import static org.mockito.Mockito.verify;
  */
 @ExtendWith(MockitoExtension.class)
 class StorageDaoTest {
+    private static final Long GENERATION = 1589470213480000L;
     private ImageEntity imageEntity;
     private StorageForm storageForm;
     private byte[] img;
@@ -63,6 +88,10 @@ class StorageDaoTest {
     private ForumDao forumDao;
     @Mock
     private Blob blob;
+    @Mock
+    private Storage storage;
+    @Mock
+    private ReadChannel readChannel;
 
     @InjectMocks
     private StorageDao dao = new StorageDaoImpl();
@@ -82,6 +111,12 @@ class StorageDaoTest {
         images = new HashMap<>();
         images.put(petName, expectedDownload);
         initializePetsList();
+        ((StorageDaoImpl) dao).startDownloads();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ((StorageDaoImpl) dao).stopDownloads();
     }
 
     @Test
@@ -130,6 +165,66 @@ class StorageDaoTest {
         assertEquals(expectedDownload, result, "Should return the image as a base64 encoded string");
     }
 
+    @Test
+    public void downloadImageShouldReadTheGenerationOfTheMetadata() {
+        ImageMetadata image = new ImageMetadata();
+        image.setPath(formPath);
+        image.setGeneration(GENERATION);
+        given(bucket.getName()).willReturn("bucket");
+        given(bucket.getStorage()).willReturn(storage);
+        given(storage.readAllBytes(BlobId.of("bucket", formPath, GENERATION))).willReturn(img);
+
+        String result = dao.downloadImage(image);
+        assertEquals(expectedDownload, result, "Should return the image as a base64 encoded string");
+        verify(bucket, never()).get(formPath);
+    }
+
+    @Test
+    public void getImageMetadata() throws DocumentException {
+        given(bucket.get(formPath)).willReturn(blob);
+        given(blob.getContentType()).willReturn("image/png");
+        given(blob.getSize()).willReturn((long) img.length);
+        given(blob.getGeneration()).willReturn(GENERATION);
+        given(blob.getMd5()).willReturn("1B2M2Y8AsgTpgAmY7PhCfg==");
+
+        ImageMetadata result = dao.getImageMetadata(storageForm);
+        assertEquals(formPath, result.getPath(), "Should return the image path");
+        assertEquals("image/png", result.getContentType(), "Should return the image content type");
+        assertEquals(img.length, result.getSize(), "Should return the image size");
+        assertEquals(GENERATION, result.getGeneration(), "Should return the image generation");
+        assertEquals("1B2M2Y8AsgTpgAmY7PhCfg==", result.getMd5Hash(), "Should return the image MD5 hash");
+    }
+
+    @Test
+    public void getImageMetadataShouldFailWhenTheImageDoesNotExist() {
+        given(bucket.get(formPath)).willReturn(null);
+
+        assertThrows(DocumentException.class, () -> dao.getImageMetadata(storageForm),
+            "Should fail when the image does not exist");
+    }
+
+    @Test
+    public void writeImage() throws IOException {
+        ImageMetadata image = new ImageMetadata();
+        image.setPath(formPath);
+        image.setGeneration(GENERATION);
+        given(bucket.getName()).willReturn("bucket");
+        given(bucket.getStorage()).willReturn(storage);
+        given(storage.reader(BlobId.of("bucket", formPath, GENERATION))).willReturn(readChannel);
+        given(readChannel.read(any(ByteBuffer.class))).willAnswer(invocation -> {
+            ByteBuffer buffer = invocation.getArgument(0);
+            int length = buffer.remaining();
+            buffer.put(img, 2, length);
+            return length;
+        });
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        dao.writeImage(image, 2, 4, output);
+        verify(readChannel).seek(2);
+        verify(readChannel).close();
+        assertArrayEquals(Arrays.copyOfRange(img, 2, 6), output.toByteArray(), "Should write the requested range");
+    }
+
     @Test
     public void downloadAllPetImages() throws DatabaseAccessException, DocumentException {
         given(petDao.getAllPetsData(owner)).willReturn(pets);
@@ -156,6 +251,124 @@ class StorageDaoTest {
             "Should return a map with the posts paths and their images as a base64 encoded string");
     }
 
+    @Test
+    public void fetchImagesShouldHandEachImageToTheConsumerOnTheCallingThread() throws DatabaseAccessException {
+        Map<String, String> paths = new HashMap<>();
+        for (int i = 0; i < 20; ++i) {
+            paths.put("image" + i, "some/image/path" + i);
+        }
+        given(bucket.get(anyString())).willReturn(blob);
+        given(blob.getContent()).willReturn(img);
+        Thread caller = Thread.currentThread();
+        Map<String, String> result = new HashMap<>();
+
+        dao.fetchImages(paths, (key, image) -> {
+            assertSame(caller, Thread.currentThread(), "Should call the consumer from the calling thread");
+            result.put(key, image);
+        });
+        assertEquals(paths.keySet(), result.keySet(), "Should hand every image to the consumer");
+        assertEquals(expectedDownload, result.get("image0"), "Should hand the image as a base64 encoded string");
+    }
+
+    @Test
+    public void fetchImagesShouldNotExceedTheInFlightBytes() throws DatabaseAccessException {
+        ((StorageDaoImpl) dao).stopDownloads();
+        ReflectionTestUtils.setField(dao, "maxInFlightBytes", 2048L);
+        ((StorageDaoImpl) dao).startDownloads();
+        Map<String, String> paths = new HashMap<>();
+        for (int i = 0; i < 10; ++i) {
+            paths.put("image" + i, "some/image/path" + i);
+        }
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        given(bucket.get(anyString())).willReturn(blob);
+        given(blob.getSize()).willReturn(1500L);
+        given(blob.getContent()).willAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return img;
+        });
+
+        dao.fetchImages(paths, (key, image) -> inFlight.decrementAndGet());
+        assertEquals(1, maxInFlight.get(), "Should not download more images than fit in the in-flight bytes");
+    }
+
+    @Test
+    public void fetchImagesShouldShareTheInFlightBytesBetweenCalls()
+        throws ExecutionException, InterruptedException, TimeoutException {
+        ((StorageDaoImpl) dao).stopDownloads();
+        ReflectionTestUtils.setField(dao, "maxInFlightBytes", 2048L);
+        ((StorageDaoImpl) dao).startDownloads();
+        Map<String, String> paths = new HashMap<>();
+        for (int i = 0; i < 5; ++i) {
+            paths.put("image" + i, "some/image/path" + i);
+        }
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        given(bucket.get(anyString())).willReturn(blob);
+        given(blob.getSize()).willReturn(1500L);
+        given(blob.getContent()).willAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return img;
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Void>> calls = new ArrayList<>();
+            for (int i = 0; i < 2; ++i) {
+                calls.add(callers.submit(() -> {
+                    dao.fetchImages(paths, (key, image) -> inFlight.decrementAndGet());
+                    return null;
+                }));
+            }
+            for (Future<Void> call : calls) {
+                call.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, maxInFlight.get(), "Should share the in-flight bytes between the calls");
+    }
+
+    @Test
+    public void fetchImagesShouldFailWhenADownloadFails() {
+        Map<String, String> paths = new HashMap<>();
+        paths.put("image", "some/image/path");
+        given(bucket.get(anyString())).willReturn(blob);
+        willThrow(StorageException.class).given(blob).getContent();
+
+        assertThrows(DatabaseAccessException.class, () -> dao.fetchImages(paths, (key, image) -> { }),
+            "Should fail when a download fails");
+    }
+
+    @Test
+    public void fetchImagesShouldNotKeepTheInFlightBytesOfAFailedCall() throws DatabaseAccessException {
+        ((StorageDaoImpl) dao).stopDownloads();
+        ReflectionTestUtils.setField(dao, "maxInFlightBytes", 2048L);
+        ((StorageDaoImpl) dao).startDownloads();
+        Map<String, String> paths = new HashMap<>();
+        for (int i = 0; i < 10; ++i) {
+            paths.put("image" + i, "some/image/path" + i);
+        }
+        given(bucket.get(anyString())).willReturn(blob);
+        given(blob.getSize()).willReturn(1500L);
+        given(blob.getContent()).willReturn(img);
+        assertThrows(UncheckedIOException.class, () -> dao.fetchImages(paths, (key, image) -> {
+            throw new UncheckedIOException(new IOException());
+        }), "Should fail when the consumer fails");
+
+        Map<String, String> result = new HashMap<>();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> dao.fetchImages(paths, result::put),
+            "Should not wait for the in-flight bytes of the failed call");
+        assertEquals(paths.keySet(), result.keySet(), "Should hand every image to the consumer");
+    }
+
+    @Test
+    public void getAllPetImagesPaths() throws DatabaseAccessException, DocumentException {
+        given(petDao.getAllPetsData(owner)).willReturn(pets);
+
+        Map<String, String> result = dao.getAllPetImagesPaths(owner);
+        assertEquals(formPath, result.get(petName), "Should return the path of the pet profile image");
+    }
+
     @Test
     public void shouldThrowExceptionWhenDatabaseAccessFails() {
         assertThrows(DatabaseAccessException.class, () -> {
@@ -0,0 +1,166 @@
+package org.pesmypetcare.webservice.dao.communitymanager;
+
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class CommunityNameIndexTest {
+    private static final String GROUP_NAME = "Dogs";
+    private static final String GROUP_ID = "12daw3e23d";
+    private static final String FORUM_NAME = "Huskies";
+    private static final String FORUM_ID = "ad33i8jf93";
+
+    @Mock
+    private QuerySnapshot snapshot;
+    @Mock
+    private DocumentChange change;
+    @Mock
+    private QueryDocumentSnapshot document;
+
+    private CommunityNameIndexImpl index;
+    private List<DocumentChange> changes;
+
+    @BeforeEach
+    public void setUp() {
+        index = new CommunityNameIndexImpl();
+        changes = new ArrayList<>();
+        changes.add(change);
+    }
+
+    @Test
+    public void shouldIndexTheAddedGroupNames() {
+        mockGroupChange(DocumentChange.Type.ADDED);
+
+        index.onGroupNamesEvent(snapshot, null);
+        assertEquals(GROUP_ID, index.getGroupId(GROUP_NAME), "Should return the ID of the added group");
+    }
+
+    @Test
+    public void shouldRemoveTheDeletedGroupNames() {
+        index.onGroupNamesEvent(emptySnapshot(), null);
+        index.putGroup(GROUP_NAME, GROUP_ID);
+        given(snapshot.getDocumentChanges()).willReturn(changes);
+        given(change.getDocument()).willReturn(document);
+        given(change.getType()).willReturn(DocumentChange.Type.REMOVED);
+        given(document.getId()).willReturn(GROUP_NAME);
+
+        index.onGroupNamesEvent(snapshot, null);
+        assertNull(index.getGroupId(GROUP_NAME), "Should not return the ID of a deleted group");
+    }
+
+    @Test
+    public void shouldIndexTheAddedForumNames() {
+        given(snapshot.getDocumentChanges()).willReturn(changes);
+        given(change.getDocument()).willReturn(document);
+        given(change.getType()).willReturn(DocumentChange.Type.ADDED);
+        given(document.getId()).willReturn(FORUM_NAME);
+        given(document.getString("forum")).willReturn(FORUM_ID);
+        DocumentReference forumRef = mock(DocumentReference.class);
+        CollectionReference forumNames = mock(CollectionReference.class);
+        DocumentReference groupRef = mock(DocumentReference.class);
+        given(document.getReference()).willReturn(forumRef);
+        given(forumRef.getParent()).willReturn(forumNames);
+        given(forumNames.getParent()).willReturn(groupRef);
+        given(groupRef.getId()).willReturn(GROUP_NAME);
+
+        index.onForumNamesEvent(snapshot, null);
+        assertEquals(FORUM_ID, index.getForumId(GROUP_NAME, FORUM_NAME), "Should return the ID of the added forum");
+    }
+
+    @Test
+    public void shouldNotIndexLocalWritesWhileNotListening() {
+        index.putGroup(GROUP_NAME, GROUP_ID);
+        index.putForum(GROUP_NAME, FORUM_NAME, FORUM_ID);
+
+        assertNull(index.getGroupId(GROUP_NAME), "Should not index a group before the listener is ready");
+        assertNull(index.getForumId(GROUP_NAME, FORUM_NAME), "Should not index a forum before the listener is ready");
+    }
+
+    @Test
+    public void shouldIndexLocalWritesWhileListening() {
+        index.onGroupNamesEvent(emptySnapshot(), null);
+        index.putGroup(GROUP_NAME, GROUP_ID);
+
+        assertEquals(GROUP_ID, index.getGroupId(GROUP_NAME), "Should return the ID of the group written locally");
+    }
+
+    @Test
+    public void shouldClearTheIndexWhenTheListenerFails() {
+        mockGroupChange(DocumentChange.Type.ADDED);
+        index.onGroupNamesEvent(snapshot, null);
+
+        index.onGroupNamesEvent(null, mock(FirestoreException.class));
+        assertNull(index.getGroupId(GROUP_NAME), "Should fall back to the database when the listener fails");
+        index.putGroup(GROUP_NAME, GROUP_ID);
+        assertNull(index.getGroupId(GROUP_NAME), "Should not index local writes after the listener fails");
+    }
+
+    @Test
+    public void shouldListenAgainAfterTheListenerFails() {
+        FirestoreCollection collectionAdapter = mock(FirestoreCollection.class);
+        CollectionReference groupNames = mock(CollectionReference.class);
+        Query forumNames = mock(Query.class);
+        given(collectionAdapter.getCollectionReference(anyString())).willReturn(groupNames);
+        given(collectionAdapter.getCollectionGroup(anyString())).willReturn(forumNames);
+        ReflectionTestUtils.setField(index, "collectionAdapter", collectionAdapter);
+        ReflectionTestUtils.setField(index, "initialBackoffMillis", 1L);
+        index.startListening();
+        try {
+            index.onGroupNamesEvent(null, mock(FirestoreException.class));
+            verify(groupNames, timeout(1000).times(2)).addSnapshotListener(any());
+            verify(forumNames).addSnapshotListener(any());
+        } finally {
+            index.stopListening();
+        }
+    }
+
+    @Test
+    public void removeGroupShouldAlsoRemoveItsForums() {
+        index.onForumNamesEvent(emptySnapshot(), null);
+        index.putForum(GROUP_NAME, FORUM_NAME, FORUM_ID);
+
+        index.removeGroup(GROUP_NAME);
+        assertNull(index.getForumId(GROUP_NAME, FORUM_NAME), "Should remove the forums of the deleted group");
+    }
+
+    private void mockGroupChange(DocumentChange.Type type) {
+        given(snapshot.getDocumentChanges()).willReturn(changes);
+        given(change.getDocument()).willReturn(document);
+        given(change.getType()).willReturn(type);
+        given(document.getId()).willReturn(GROUP_NAME);
+        given(document.getString("group")).willReturn(GROUP_ID);
+    }
+
+    private QuerySnapshot emptySnapshot() {
+        QuerySnapshot empty = mock(QuerySnapshot.class);
+        given(empty.getDocumentChanges()).willReturn(new ArrayList<>());
+        return empty;
+    }
+}
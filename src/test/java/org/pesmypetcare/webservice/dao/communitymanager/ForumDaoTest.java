@@ -7,14 +7,12 @@ import com.google.cloud.firestore.FieldValue;
 import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.WriteBatch;
-import com.google.firebase.messaging.FirebaseMessaging;
-import com.google.firebase.messaging.FirebaseMessagingException;
-import com.google.firebase.messaging.MulticastMessage;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -22,36 +20,51 @@ import org.pesmypetcare.webservice.builders.Collections;
 import org.pesmypetcare.webservice.builders.Path;
 import org.pesmypetcare.webservice.dao.appmanager.StorageDao;
 import org.pesmypetcare.webservice.dao.usermanager.UserDao;
+import org.pesmypetcare.webservice.dao.usermanager.UsernameResolver;
 import org.pesmypetcare.webservice.entity.communitymanager.ForumEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.Message;
 import org.pesmypetcare.webservice.entity.communitymanager.MessageEntity;
+import org.pesmypetcare.webservice.entity.communitymanager.MessagePage;
+import org.pesmypetcare.webservice.entity.communitymanager.MessagePreview;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.error.InvalidOperationException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.BulkWriteBatch;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollectionAsync;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocumentAsync;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.messaging.NotificationDispatcher;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.messaging.NotificationDispatcher.RecipientsResolver;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -69,6 +82,7 @@ class ForumDaoTest {
     private static String username;
     private static String username2;
     private static String date;
+    private static String messageId;
     private static ForumEntity forumEntity;
     private static List<String> tags;
     private static List<String> usernameList;
@@ -80,16 +94,28 @@ class ForumDaoTest {
     @Mock
     private UserDao userDao;
     @Mock
+    private UsernameResolver usernameResolver;
+    @Mock
     private StorageDao storageDao;
     @Mock
-    private FirebaseMessaging firebaseMessaging;
+    private NotificationDispatcher notificationDispatcher;
     @Mock
     private FirestoreDocument documentAdapter;
     @Mock
     private FirestoreCollection collectionAdapter;
     @Mock
+    private FirestoreDocumentAsync documentAsync;
+    @Mock
+    private FirestoreCollectionAsync collectionAsync;
+    @Mock
+    private CommunityNameIndex nameIndex;
+    @Mock
     private WriteBatch batch;
     @Mock
+    private FirestoreBulkWriter bulkWriter;
+    @Mock
+    private BulkWriteBatch bulkBatch;
+    @Mock
     private DocumentReference documentReference;
     @Mock
     private ApiFuture<QuerySnapshot> query;
@@ -116,6 +142,7 @@ class ForumDaoTest {
         usernameList.add("Pedro");
         usernameList.add("Chang");
         date = "2020-05-01T17:48:15";
+        messageId = "k3dI93Jd0aS";
         forumEntity = new ForumEntity();
         forumEntity.setName(forumName);
         tags = new ArrayList<>();
@@ -155,6 +182,28 @@ class ForumDaoTest {
             "Should return false when the forum name is not in use in the specified group.");
     }
 
+    @Test
+    public void forumNameInUseShouldNotReadTheDatabaseWhenTheNameIsIndexed() throws DatabaseAccessException {
+        given(nameIndex.getForumId(anyString(), anyString())).willReturn(forumId);
+
+        assertTrue(dao.forumNameInUse(groupName, forumName),
+            "Should return true when the forum name is in the index.");
+        verify(documentAdapter, never()).documentExists(anyString());
+    }
+
+    @Test
+    public void getForumShouldUseTheIndexedForumId() throws DatabaseAccessException, DocumentException {
+        given(groupDao.getGroupId(anyString())).willReturn(groupId);
+        given(nameIndex.getForumId(anyString(), anyString())).willReturn(forumId);
+        given(documentAdapter.getDocumentDataAsObject(anyString(), any())).willReturn(forumEntity);
+
+        dao.getForum(groupName, forumName);
+        verify(nameIndex).getForumId(same(groupName), same(forumName));
+        verify(documentAdapter, never()).getStringFromDocument(anyString(), anyString());
+        verify(documentAdapter).getDocumentDataAsObject(eq(Path.ofDocument(Collections.forums, groupId, forumId)),
+            eq(ForumEntity.class));
+    }
+
     @Test
     public void getForum() throws DatabaseAccessException, DocumentException {
         mockGetGroupAndForumIds();
@@ -200,6 +249,55 @@ class ForumDaoTest {
         assertEquals(paths, result, "Should return all the path images of the forum posts.");
     }
 
+    @Test
+    public void getMessagesPageShouldReturnTheMessagesAndTheNextCursor()
+        throws DatabaseAccessException, DocumentException {
+        mockGetGroupAndForumIds();
+        List<DocumentSnapshot> snapshots = new ArrayList<>();
+        snapshots.add(documentSnapshot);
+        snapshots.add(documentSnapshot);
+        snapshots.add(documentSnapshot);
+        given(collectionAdapter.getDocumentSnapshotsPageOrderedBy(anyString(), eq("publicationDate"), eq(true),
+            isNull(), isNull(), eq(3), any(String.class))).willReturn(snapshots);
+        MessagePreview preview = new MessagePreview();
+        given(documentSnapshot.toObject(MessagePreview.class)).willReturn(preview);
+        given(documentSnapshot.getString("publicationDate")).willReturn(date);
+        given(documentSnapshot.getId()).willReturn(messageId);
+
+        MessagePage page = dao.getMessagesPage(groupName, forumName, null, 2);
+
+        assertEquals(2, page.getMessages().size(), "Should return only the requested number of messages");
+        assertNotNull(page.getNextCursor(), "Should return a cursor when there are more messages");
+    }
+
+    @Test
+    public void getMessagesPageShouldStartAfterTheCursor() throws DatabaseAccessException, DocumentException {
+        mockGetGroupAndForumIds();
+        List<DocumentSnapshot> snapshots = new ArrayList<>();
+        snapshots.add(documentSnapshot);
+        snapshots.add(documentSnapshot);
+        given(collectionAdapter.getDocumentSnapshotsPageOrderedBy(anyString(), anyString(), eq(true), any(), any(),
+            anyInt(), any(String.class))).willReturn(snapshots);
+        given(documentSnapshot.toObject(MessagePreview.class)).willReturn(new MessagePreview());
+        given(documentSnapshot.getString("publicationDate")).willReturn(date);
+        given(documentSnapshot.getId()).willReturn(messageId);
+        String cursor = dao.getMessagesPage(groupName, forumName, null, 1).getNextCursor();
+
+        MessagePage page = dao.getMessagesPage(groupName, forumName, cursor, 2);
+
+        verify(collectionAdapter).getDocumentSnapshotsPageOrderedBy(anyString(), anyString(), eq(true), eq(date),
+            eq(messageId), eq(3), any(String.class));
+        assertNull(page.getNextCursor(), "Should not return a cursor on the last page");
+    }
+
+    @Test
+    public void getMessagesPageShouldFailWhenTheCursorIsInvalid() throws DatabaseAccessException, DocumentException {
+        mockGetGroupAndForumIds();
+
+        assertThrows(IllegalArgumentException.class, () -> dao.getMessagesPage(groupName, forumName, "%%", 2),
+            "Should fail when the cursor is not valid");
+    }
+
     @Test
     public void updateNameShouldFailWhenTheNewNameIsInUse() {
         assertThrows(DocumentException.class, () -> {
@@ -208,6 +306,34 @@ class ForumDaoTest {
         }, "Should fail when the name is already in use.");
     }
 
+    @Test
+    public void getMessageShouldFailWhenTheMessageDoesNotExist() {
+        given(groupDao.getGroupIdAsync(anyString())).willReturn(CompletableFuture.completedFuture(groupId));
+        given(documentAsync.getStringFromDocument(anyString(), anyString()))
+            .willReturn(CompletableFuture.completedFuture(forumId));
+        given(collectionAsync.getDocumentsWhereEqualTo(anyString(), anyString(), any(), anyString(), any()))
+            .willReturn(CompletableFuture.completedFuture(new ArrayList<>()));
+
+        DatabaseAccessException exception = assertThrows(DatabaseAccessException.class,
+            () -> dao.deleteMessage(groupName, forumName, username, date),
+            "Should fail when the message does not exist");
+        assertEquals("404", exception.getErrorCode(), "Should report that the message was not found");
+    }
+
+    @Test
+    public void getMessageShouldFailWhenTheForumDoesNotExist() {
+        CompletableFuture<String> forumNotFound = new CompletableFuture<>();
+        forumNotFound.completeExceptionally(
+            new DocumentException("document-not-exists", "The document does not exist"));
+        given(groupDao.getGroupIdAsync(anyString())).willReturn(CompletableFuture.completedFuture(groupId));
+        given(documentAsync.getStringFromDocument(anyString(), anyString())).willReturn(forumNotFound);
+
+        assertThrows(DocumentException.class, () -> dao.deleteMessage(groupName, forumName, username, date),
+            "Should fail when the forum does not exist");
+        verify(collectionAsync, never())
+            .getDocumentsWhereEqualTo(anyString(), anyString(), any(), anyString(), any());
+    }
+
     private void mockGetGroupAndForumIds() throws DatabaseAccessException, DocumentException {
         given(groupDao.getGroupId(anyString())).willReturn(groupId);
         given(documentAdapter.getStringFromDocument(anyString(), anyString())).willReturn(forumId);
@@ -241,6 +367,32 @@ class ForumDaoTest {
         given(mockIterator.next()).willReturn(documentSnapshot);
     }
 
+    @Test
+    public void deleteForum()
+        throws DatabaseAccessException, DocumentException, ExecutionException, InterruptedException {
+        mockGetGroupAndForumIds();
+        given(bulkWriter.batch()).willReturn(bulkBatch);
+        given(collectionAdapter.getDocumentsWhereArrayContains(anyString(), anyString(), anyString(), any()))
+            .willReturn(query);
+        given(query.get()).willReturn(querySnapshot);
+        given(querySnapshot.getDocuments()).willReturn(queryDocumentSnapshots);
+        given(documentSnapshot.getReference()).willReturn(documentReference);
+
+        dao.deleteForum(groupName, forumName);
+        verify(groupDao).getGroupId(same(groupName));
+        String forumPath = Path.ofDocument(Collections.forums, groupId, forumId);
+        String forumNamePath = Path.ofDocument(Collections.forum_names, groupName, forumName);
+        verify(documentAdapter).getStringFromDocument(eq(forumNamePath), eq("forum"));
+        verify(documentAdapter).deleteDocument(eq(forumPath), same(bulkBatch));
+        verify(documentAdapter).deleteDocument(eq(forumNamePath), same(bulkBatch));
+        verify(collectionAdapter).getDocumentsWhereArrayContains(eq(tagsPath), eq("forums"), same(forumName));
+        Map<String, Object> data = new HashMap<>();
+        data.put("forums", FieldValue.arrayRemove(forumName));
+        verify(bulkBatch).update(same(documentReference), eq(data));
+        verify(bulkWriter).commitBatch(same(bulkBatch));
+        verify(nameIndex).removeForum(same(groupName), same(forumName));
+    }
+
     @Nested
     class UsesWriteBatch {
         private String forumsPath;
@@ -256,7 +408,7 @@ class ForumDaoTest {
         @Test
         public void createForumShouldThrowDocumentExceptionWhenTheGroupDoesNotExist()
             throws DatabaseAccessException, DocumentException {
-            willThrow(DocumentException.class).given(documentAdapter).getStringFromDocument(anyString(), anyString());
+            willThrow(DocumentException.class).given(groupDao).getGroupId(anyString());
             assertThrows(DocumentException.class, () -> dao.createForum(groupName, forumEntity),
                 "Create forum should fail when the group does not exist.");
         }
@@ -270,7 +422,7 @@ class ForumDaoTest {
 
             @Test
             public void createForum() throws DatabaseAccessException, DocumentException {
-                given(documentAdapter.getStringFromDocument(anyString(), anyString())).willReturn(groupId);
+                given(groupDao.getGroupId(anyString())).willReturn(groupId);
                 given(documentAdapter.createDocument(anyString(), any(ForumEntity.class), any(WriteBatch.class)))
                     .willReturn(documentReference);
                 given(documentAdapter.createDocumentWithId(anyString(), anyString(), anyMap(), any(WriteBatch.class)))
@@ -282,10 +434,10 @@ class ForumDaoTest {
 
                 verifyAddForumToTag(forumName);
 
-                String groupPath = Path.ofDocument(Collections.groups_names, groupName);
-                verify(documentAdapter).getStringFromDocument(eq(groupPath), eq("group"));
+                verify(groupDao).getGroupId(eq(groupName));
                 verify(documentAdapter).createDocument(eq(forumsPath), same(forumEntity), same(batch));
                 verifySaveForumName(forumName);
+                verify(nameIndex).putForum(eq(groupName), eq(forumName), eq(forumId));
             }
 
             @Test
@@ -309,7 +461,21 @@ class ForumDaoTest {
             }
 
             @Test
-            public void postMessage() throws DatabaseAccessException, DocumentException, FirebaseMessagingException {
+            public void postMessage() throws DatabaseAccessException, DocumentException {
+                mockGetGroupAndForumIds();
+                given(documentAdapter.createDocument(anyString(), any(MessageEntity.class), any(WriteBatch.class)))
+                    .willReturn(documentReference);
+                given(notificationDispatcher.dispatch(anyMap(), any(RecipientsResolver.class))).willReturn(true);
+
+                dao.postMessage(groupName, forumName, message);
+                verify(documentAdapter).createDocument(eq(messagePath), isA(MessageEntity.class), same(batch));
+                verify(notificationDispatcher).dispatch(anyMap(), any(RecipientsResolver.class));
+                verify(documentAdapter, never()).getDocumentField(anyString(), anyString());
+            }
+
+            @Test
+            public void postMessageShouldNotifyAllSubscribersButTheCreator()
+                throws DatabaseAccessException, DocumentException {
                 mockGetGroupAndForumIds();
                 given(documentAdapter.createDocument(anyString(), any(MessageEntity.class), any(WriteBatch.class)))
                     .willReturn(documentReference);
@@ -318,17 +484,23 @@ class ForumDaoTest {
                 devices.add(fcmToken);
                 devices.add("ffkjkke");
                 given(documentAdapter.getDocumentField(anyString(), anyString())).willReturn(devices);
-                given(firebaseMessaging.sendMulticast(any(MulticastMessage.class))).willReturn(null);
                 given(userDao.getUid(anyString())).willReturn(username);
                 given(userDao.getField(anyString(), anyString())).willReturn(fcmToken);
+                ArgumentCaptor<Map<String, String>> data = ArgumentCaptor.forClass(Map.class);
+                ArgumentCaptor<RecipientsResolver> recipients = ArgumentCaptor.forClass(RecipientsResolver.class);
+                given(notificationDispatcher.dispatch(data.capture(), recipients.capture())).willReturn(true);
 
                 dao.postMessage(groupName, forumName, message);
-                verify(documentAdapter).createDocument(eq(messagePath), isA(MessageEntity.class), same(batch));
+                List<String> tokens = recipients.getValue().getTokens();
+                assertEquals(2, devices.size(), "Should not modify the stored subscribers");
                 verify(documentAdapter)
                     .getDocumentField(eq(Path.ofDocument(Collections.groups, groupId)), eq("notification-tokens"));
-                verify(firebaseMessaging).sendMulticast(isA(MulticastMessage.class));
                 verify(userDao).getUid(eq(username));
                 verify(userDao).getField(eq(username), eq("FCM"));
+                devices.remove(fcmToken);
+                assertEquals(devices, tokens, "Should notify all the subscribers but the creator");
+                assertEquals(groupName, data.getValue().get("group"), "Should notify the group of the message");
+                assertEquals(forumName, data.getValue().get("forum"), "Should notify the forum of the message");
             }
 
             @Nested
@@ -340,29 +512,6 @@ class ForumDaoTest {
                     given(querySnapshot.getDocuments()).willReturn(queryDocumentSnapshots);
                 }
 
-                @Test
-                public void deleteForum() throws DatabaseAccessException, DocumentException {
-                    mockGetGroupAndForumIds();
-                    willDoNothing().given(documentAdapter).deleteDocument(anyString(), any(WriteBatch.class));
-                    given(
-                        collectionAdapter.getDocumentsWhereArrayContains(anyString(), anyString(), anyString(), any()))
-                        .willReturn(query);
-                    given(documentSnapshot.getReference()).willReturn(documentReference);
-                    given(batch.update(any(DocumentReference.class), anyMap())).willReturn(batch);
-
-                    dao.deleteForum(groupName, forumName);
-                    verify(groupDao).getGroupId(same(groupName));
-                    String forumNamePath = Path.ofDocument(Collections.forum_names, groupName, forumName);
-                    verify(documentAdapter).getStringFromDocument(eq(forumNamePath), eq("forum"));
-                    verify(documentAdapter).deleteDocument(eq(forumPath), same(batch));
-                    verify(documentAdapter).deleteDocument(eq(forumNamePath), same(batch));
-                    verify(collectionAdapter)
-                        .getDocumentsWhereArrayContains(eq(tagsPath), eq("forums"), same(forumName));
-                    Map<String, Object> data = new HashMap<>();
-                    data.put("forums", FieldValue.arrayRemove(forumName));
-                    verify(batch).update(same(documentReference), eq(data));
-                }
-
                 @Test
                 public void updateName() throws DatabaseAccessException, DocumentException {
                     mockGetGroupAndForumIds();
@@ -383,21 +532,36 @@ class ForumDaoTest {
                     dao.updateName(groupName, forumName, newName);
                     verifyAddForumToTag(newName);
                     verifySaveForumName(newName);
+                    verify(nameIndex).removeForum(same(groupName), same(forumName));
+                    verify(nameIndex).putForum(same(groupName), same(newName), same(forumId));
+                }
+            }
+
+            @Nested
+            class FindsMessage {
+
+                @BeforeEach
+                public void setUp() {
+                    given(groupDao.getGroupIdAsync(anyString())).willReturn(CompletableFuture.completedFuture(groupId));
+                    given(documentAsync.getStringFromDocument(anyString(), anyString()))
+                        .willReturn(CompletableFuture.completedFuture(forumId));
+                }
+
+                private void mockGetMessage() {
+                    given(collectionAsync.getDocumentsWhereEqualTo(anyString(), anyString(), any(), anyString(), any()))
+                        .willReturn(CompletableFuture.completedFuture(queryDocumentSnapshots));
                 }
 
                 @Test
                 public void deleteMessage() throws DatabaseAccessException, DocumentException {
-                    mockGetGroupAndForumIds();
-                    given(
-                        collectionAdapter.getDocumentsWhereEqualTo(anyString(), anyString(), any(), anyString(), any()))
-                        .willReturn(query);
+                    mockGetMessage();
                     given(documentSnapshot.getString(anyString())).willReturn("some-path");
                     given(documentSnapshot.getReference()).willReturn(documentReference);
                     given(batch.delete(any(DocumentReference.class))).willReturn(batch);
                     willDoNothing().given(storageDao).deleteImageByName(anyString());
 
                     dao.deleteMessage(groupName, forumName, username, date);
-                    verify(collectionAdapter)
+                    verify(collectionAsync)
                         .getDocumentsWhereEqualTo(eq(Path.ofCollection(Collections.messages, groupId, forumId)),
                             eq("creator"), eq(username), eq(publicationDate), eq(date));
                     verify(storageDao).deleteImageByName(eq("some-path"));
@@ -407,16 +571,14 @@ class ForumDaoTest {
                 @Test
                 public void reportMessage() throws DatabaseAccessException, DocumentException,
                     InvalidOperationException {
-                    mockGetGroupAndForumIds();
-                    given(
-                        collectionAdapter.getDocumentsWhereEqualTo(anyString(), anyString(), any(), anyString(), any()))
-                        .willReturn(query);
+                    mockGetMessage();
                     given(documentSnapshot.getReference()).willReturn(documentReference);
                     given(documentSnapshot.get(anyString())).willReturn(usernameList);
+                    given(usernameResolver.getUid(anyString())).willReturn("userUid");
                     given(batch.update(any(DocumentReference.class), anyString(), any())).willReturn(batch);
 
                     dao.reportMessage(groupName, forumName, username, username2, date);
-                    verify(collectionAdapter)
+                    verify(collectionAsync)
                         .getDocumentsWhereEqualTo(eq(Path.ofCollection(Collections.messages, groupId, forumId)),
                             eq("creator"), eq(username), eq(publicationDate), eq(date));
                     verify(batch).update(same(documentReference), eq("reportedBy"),
@@ -427,17 +589,15 @@ class ForumDaoTest {
                 @Test
                 public void unbanMessage() throws DatabaseAccessException, DocumentException,
                     InvalidOperationException {
-                    mockGetGroupAndForumIds();
-                    given(
-                        collectionAdapter.getDocumentsWhereEqualTo(anyString(), anyString(), any(), anyString(), any()))
-                        .willReturn(query);
+                    mockGetMessage();
                     given(documentSnapshot.getBoolean(anyString())).willReturn(true);
                     given(documentSnapshot.getReference()).willReturn(documentReference);
                     given(documentAdapter.getDocumentField(anyString(), anyString())).willReturn(1L);
+                    given(usernameResolver.getUid(anyString())).willReturn("userUid");
                     given(batch.update(any(DocumentReference.class), anyString(), any())).willReturn(batch);
 
                     dao.unbanMessage(groupName, forumName, username, date);
-                    verify(collectionAdapter)
+                    verify(collectionAsync)
                         .getDocumentsWhereEqualTo(eq(Path.ofCollection(Collections.messages, groupId, forumId)),
                             eq("creator"), eq(username), eq(publicationDate), eq(date));
                     verify(batch).update(same(documentReference), eq("reportedBy"),
@@ -448,16 +608,13 @@ class ForumDaoTest {
 
                 @Test
                 public void addUserToLikedByOfMessage() throws DatabaseAccessException, DocumentException {
-                    mockGetGroupAndForumIds();
-                    given(
-                        collectionAdapter.getDocumentsWhereEqualTo(anyString(), anyString(), any(), anyString(), any()))
-                        .willReturn(query);
+                    mockGetMessage();
                     given(documentSnapshot.getReference()).willReturn(documentReference);
                     given(batch.update(any(DocumentReference.class), anyString(), any(FieldValue.class)))
                         .willReturn(batch);
 
                     dao.addUserToLikedByOfMessage(username, groupName, forumName, username, date);
-                    verify(collectionAdapter)
+                    verify(collectionAsync)
                         .getDocumentsWhereEqualTo(eq(Path.ofCollection(Collections.messages, groupId, forumId)),
                             eq("creator"), eq(username), eq(publicationDate), eq(date));
                     verify(batch).update(same(documentReference), eq("likedBy"),
@@ -466,16 +623,13 @@ class ForumDaoTest {
 
                 @Test
                 public void removeUserFromLikedByOfMessage() throws DatabaseAccessException, DocumentException {
-                    mockGetGroupAndForumIds();
-                    given(
-                        collectionAdapter.getDocumentsWhereEqualTo(anyString(), anyString(), any(), anyString(), any()))
-                        .willReturn(query);
+                    mockGetMessage();
                     given(documentSnapshot.getReference()).willReturn(documentReference);
                     given(batch.update(any(DocumentReference.class), anyString(), any(FieldValue.class)))
                         .willReturn(batch);
 
                     dao.removeUserFromLikedByOfMessage(username, groupName, forumName, username, date);
-                    verify(collectionAdapter)
+                    verify(collectionAsync)
                         .getDocumentsWhereEqualTo(eq(Path.ofCollection(Collections.messages, groupId, forumId)),
                             eq("creator"), eq(username), eq(publicationDate), eq(date));
                     verify(batch).update(same(documentReference), eq("likedBy"),
@@ -1,6 +1,7 @@
 package org.pesmypetcare.webservice.dao.communitymanager;
 
 import com.google.api.core.ApiFuture;
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.FieldPath;
@@ -24,15 +25,23 @@ import org.pesmypetcare.webservice.entity.communitymanager.GroupEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.TagEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.BulkWriteBatch;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollectionAsync;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocumentAsync;
 import org.pesmypetcare.webservice.utilities.UTCLocalConverter;
+import org.pesmypetcare.webservice.utilities.Versioned;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -48,6 +57,7 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -84,8 +94,18 @@ class GroupDaoTest {
     @Mock
     private FirestoreCollection collectionAdapter;
     @Mock
+    private FirestoreDocumentAsync documentAsync;
+    @Mock
+    private FirestoreCollectionAsync collectionAsync;
+    @Mock
+    private CommunityNameIndex nameIndex;
+    @Mock
     private WriteBatch batch;
     @Mock
+    private FirestoreBulkWriter bulkWriter;
+    @Mock
+    private BulkWriteBatch bulkBatch;
+    @Mock
     private DocumentReference docRef;
     @Mock
     private ApiFuture<QuerySnapshot> query;
@@ -93,6 +113,8 @@ class GroupDaoTest {
     private QuerySnapshot querySnapshot;
     @Mock
     private QueryDocumentSnapshot documentSnapshot;
+    @Mock
+    private QueryDocumentSnapshot otherGroupSnapshot;
 
     @InjectMocks
     private GroupDao dao = new GroupDaoImpl();
@@ -128,6 +150,28 @@ class GroupDaoTest {
         assertEquals(group, result, "Should return the requested group.");
     }
 
+    @Test
+    public void getVersionedGroup() throws DatabaseAccessException, DocumentException {
+        Timestamp groupUpdateTime = Timestamp.ofTimeSecondsAndNanos(1_600_000_000L, 0);
+        Timestamp memberUpdateTime = Timestamp.ofTimeSecondsAndNanos(1_600_000_100L, 0);
+        DocumentSnapshot groupSnapshot = mock(DocumentSnapshot.class);
+        mockGetGroupId();
+        given(documentAdapter.getDocumentSnapshot(eq(groupPath))).willReturn(groupSnapshot);
+        given(groupSnapshot.toObject(same(Group.class))).willReturn(group);
+        given(groupSnapshot.getUpdateTime()).willReturn(groupUpdateTime);
+        mockListAllCollectionDocumentSnapshots();
+        given(documentSnapshot.getString(anyString())).willReturn(username, date);
+        given(documentSnapshot.getUpdateTime()).willReturn(memberUpdateTime);
+
+        Versioned<Group> result = dao.getVersionedGroup(groupName);
+        Map<String, String> members = new HashMap<>();
+        members.put(username, date);
+        group.setMembers(members);
+        assertEquals(group, result.getValue(), "Should return the requested group.");
+        assertEquals(new Versioned<>(group, memberUpdateTime, 1).getETag(), result.getETag(),
+            "Should return the version of the last updated member.");
+    }
+
     @Test
     public void getAllGroups() throws DatabaseAccessException {
         mockListAllCollectionDocumentSnapshots();
@@ -145,12 +189,63 @@ class GroupDaoTest {
         assertEquals(groupList, result, "Should return all the existing groups.");
     }
 
+    @Test
+    public void getAllGroupsAsync() {
+        List<DocumentSnapshot> snapshotList = new ArrayList<>();
+        snapshotList.add(documentSnapshot);
+        given(collectionAsync.listAllCollectionDocumentSnapshots(
+            or(eq(Path.ofCollection(Collections.members, groupId)), eq(Path.ofCollection(Collections.groups)))))
+            .willReturn(CompletableFuture.completedFuture(snapshotList));
+        given(documentSnapshot.toObject(any())).willReturn(group);
+        given(documentSnapshot.getString(anyString())).willReturn(username, date);
+        given(documentSnapshot.getId()).willReturn(groupId);
+
+        List<Group> result = dao.getAllGroupsAsync().join();
+        Map<String, String> members = new HashMap<>();
+        members.put(username, date);
+        group.setMembers(members);
+        List<Group> groupList = new ArrayList<>();
+        groupList.add(group);
+        assertEquals(groupList, result, "Should return all the existing groups.");
+        verify(collectionAdapter, never()).listAllCollectionDocumentSnapshots(anyString());
+    }
+
+    @Test
+    public void getAllGroupsAsyncShouldLimitTheMembersReadAtTheSameTime() {
+        ReflectionTestUtils.setField(dao, "membersReadConcurrency", 1);
+        String otherGroupId = "8sd7f6as9d";
+        given(collectionAsync.listAllCollectionDocumentSnapshots(Path.ofCollection(Collections.groups)))
+            .willReturn(CompletableFuture.completedFuture(Arrays.asList(documentSnapshot, otherGroupSnapshot)));
+        given(documentSnapshot.toObject(any())).willReturn(group);
+        given(documentSnapshot.getId()).willReturn(groupId);
+        given(otherGroupSnapshot.toObject(any())).willReturn(new Group());
+        given(otherGroupSnapshot.getId()).willReturn(otherGroupId);
+        CompletableFuture<List<DocumentSnapshot>> members = new CompletableFuture<>();
+        given(collectionAsync.listAllCollectionDocumentSnapshots(Path.ofCollection(Collections.members, groupId)))
+            .willReturn(members);
+        given(collectionAsync.listAllCollectionDocumentSnapshots(Path.ofCollection(Collections.members, otherGroupId)))
+            .willReturn(CompletableFuture.completedFuture(new ArrayList<>()));
+
+        CompletableFuture<List<Group>> result = dao.getAllGroupsAsync();
+        verify(collectionAsync, never())
+            .listAllCollectionDocumentSnapshots(Path.ofCollection(Collections.members, otherGroupId));
+        members.complete(new ArrayList<>());
+        assertEquals(2, result.join().size(), "Should return all the existing groups.");
+    }
+
     @Test
     public void groupNameInUse() throws DatabaseAccessException {
         lenient().when(documentAdapter.documentExists(eq(groupNamePath))).thenReturn(true);
         assertTrue(dao.groupNameInUse(groupName), "Should return true if the group name is already in use.");
     }
 
+    @Test
+    public void groupNameInUseShouldNotReadTheDatabaseWhenTheNameIsIndexed() throws DatabaseAccessException {
+        given(nameIndex.getGroupId(anyString())).willReturn(groupId);
+        assertTrue(dao.groupNameInUse(groupName), "Should return true if the group name is in the index.");
+        verify(documentAdapter, never()).documentExists(anyString());
+    }
+
     @Test
     public void getAllTags() throws DatabaseAccessException {
         List<DocumentSnapshot> snapshotList = new ArrayList<>();
@@ -172,6 +267,29 @@ class GroupDaoTest {
         assertEquals(groupId, dao.getGroupId(groupName), "Should return the group ID.");
     }
 
+    @Test
+    public void getGroupIdShouldReturnTheIndexedId() throws DatabaseAccessException, DocumentException {
+        given(nameIndex.getGroupId(anyString())).willReturn(groupId);
+        assertEquals(groupId, dao.getGroupId(groupName), "Should return the group ID from the index.");
+        verify(documentAdapter, never()).getStringFromDocument(anyString(), anyString());
+    }
+
+    @Test
+    public void getGroupIdAsyncShouldReturnTheIndexedId() {
+        given(nameIndex.getGroupId(anyString())).willReturn(groupId);
+        assertEquals(groupId, dao.getGroupIdAsync(groupName).join(), "Should return the group ID from the index.");
+        verify(documentAsync, never()).getStringFromDocument(anyString(), anyString());
+    }
+
+    @Test
+    public void getGroupIdAsyncShouldReadTheGroupNameWhenNotIndexed() {
+        given(documentAsync.getStringFromDocument(anyString(), anyString()))
+            .willReturn(CompletableFuture.completedFuture(groupId));
+        assertEquals(groupId, dao.getGroupIdAsync(groupName).join(), "Should return the group ID.");
+        verify(documentAsync).getStringFromDocument(eq(Path.ofDocument(Collections.groups_names, groupName)),
+            eq("group"));
+    }
+
     private void mockListAllCollectionDocumentSnapshots() throws DatabaseAccessException {
         List<DocumentSnapshot> snapshotList = new ArrayList<>();
         snapshotList.add(documentSnapshot);
@@ -205,6 +323,32 @@ class GroupDaoTest {
             "Update group name should fail if the new name is already in use.");
     }
 
+    @Test
+    public void deleteGroup()
+        throws ExecutionException, InterruptedException, DatabaseAccessException, DocumentException {
+        mockGetGroupId();
+        given(collectionAdapter.getDocumentsWhereArrayContains(anyString(), anyString(), any())).willReturn(query);
+        given(documentSnapshot.getReference()).willReturn(docRef);
+        given(bulkWriter.batch()).willReturn(bulkBatch);
+        mockQuery();
+        String imagePath = "some-image-path";
+        given(documentAdapter.getDocumentField(anyString(), any(FieldPath.class))).willReturn(imagePath);
+        willDoNothing().given(storageDao).deleteImageByName(anyString());
+
+        dao.deleteGroup(groupName);
+        verify(documentAdapter).getStringFromDocument(eq(groupNamePath), eq(GROUP_FIELD));
+        verify(collectionAdapter, times(2)).getDocumentsWhereArrayContains(or(eq(tagsPath), eq(usersPath)),
+            or(eq(GROUPS_FIELD), eq("groupSubscriptions")), eq(groupName));
+        verify(bulkBatch).update(same(docRef), or(eq(GROUPS_FIELD), eq("groupSubscriptions")),
+            eq(FieldValue.arrayRemove(groupName)));
+        String groupPath = Path.ofDocument(Collections.groups, groupId);
+        verify(documentAdapter, times(2)).deleteDocument(or(eq(groupPath), eq(groupNamePath)), same(bulkBatch));
+        verify(bulkWriter).commitBatch(same(bulkBatch));
+        verify(documentAdapter).getDocumentField(eq(groupPath), eq(FieldPath.of("icon", "path")));
+        verify(storageDao).deleteImageByName(same(imagePath));
+        verify(nameIndex).removeGroup(same(groupName));
+    }
+
     @Nested
     class UsesWriteBatch {
         private String groupNamesPath;
@@ -254,31 +398,7 @@ class GroupDaoTest {
                 or(eq(GROUPS_FIELD), eq(NOTIFICATIONS_FIELD)), any(FieldValue.class));
             verify(documentAdapter)
                 .getStringFromDocument(eq(Path.ofDocument(Collections.users, userId)), eq(FCM_FIELD));
-        }
-
-        @Test
-        public void deleteGroup()
-            throws ExecutionException, InterruptedException, DatabaseAccessException, DocumentException {
-            mockGetGroupId();
-            given(collectionAdapter.getDocumentsWhereArrayContains(anyString(), anyString(), any())).willReturn(query);
-            given(documentSnapshot.getReference()).willReturn(docRef);
-            lenient().when(batch.update(any(DocumentReference.class), anyString(), any())).thenReturn(batch);
-            willDoNothing().given(documentAdapter).deleteDocument(anyString(), any(WriteBatch.class));
-            mockQuery();
-            String imagePath = "some-image-path";
-            given(documentAdapter.getDocumentField(anyString(), any(FieldPath.class))).willReturn(imagePath);
-            willDoNothing().given(storageDao).deleteImageByName(anyString());
-
-            dao.deleteGroup(groupName);
-            verify(documentAdapter).getStringFromDocument(eq(groupNamePath), eq(GROUP_FIELD));
-            verify(collectionAdapter, times(2)).getDocumentsWhereArrayContains(or(eq(tagsPath), eq(usersPath)),
-                or(eq(GROUPS_FIELD), eq("groupSubscriptions")), eq(groupName));
-            verify(batch).update(same(docRef), or(eq(GROUPS_FIELD), eq("groupSubscriptions")),
-                eq(FieldValue.arrayRemove(groupName)));
-            String groupPath = Path.ofDocument(Collections.groups, groupId);
-            verify(documentAdapter, times(2)).deleteDocument(or(eq(groupPath), eq(groupNamePath)), same(batch));
-            verify(documentAdapter).getDocumentField(eq(groupPath), eq(FieldPath.of("icon", "path")));
-            verify(storageDao).deleteImageByName(same(imagePath));
+            verify(nameIndex).putGroup(same(groupName), same(groupId));
         }
 
         @Test
@@ -309,6 +429,8 @@ class GroupDaoTest {
             docData.put(GROUP_FIELD, groupId);
             verify(documentAdapter).createDocumentWithId(eq(groupNamesPath), same(newName), eq(docData), same(batch));
             verify(documentAdapter).commitBatch(same(batch));
+            verify(nameIndex).removeGroup(same(groupName));
+            verify(nameIndex).putGroup(same(newName), same(groupId));
         }
 
         @Test
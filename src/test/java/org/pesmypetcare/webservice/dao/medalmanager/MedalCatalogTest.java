@@ -0,0 +1,99 @@
+package org.pesmypetcare.webservice.dao.medalmanager;
+
+import com.google.cloud.firestore.DocumentSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.entity.medalmanager.MedalEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class MedalCatalogTest {
+    private static final String MEDALS_PATH = Path.ofCollection(Collections.medals);
+
+    @Mock
+    private FirestoreCollection dbCol;
+    @Mock
+    private DocumentSnapshot medalDocument;
+
+    @InjectMocks
+    private MedalCatalogImpl catalog = new MedalCatalogImpl();
+
+    @Test
+    public void shouldReadTheMedalsOnlyOnceWhileFresh() throws DatabaseAccessException {
+        MedalEntity medal = mockMedals();
+
+        catalog.getMedals();
+        List<MedalEntity> medals = catalog.getMedals();
+        assertEquals(1, medals.size(), "Should return all the medals");
+        assertSame(medal, medals.get(0), "Should return the stored medal");
+        verify(dbCol).listAllCollectionDocumentSnapshots(MEDALS_PATH);
+    }
+
+    @Test
+    public void shouldReadTheMedalsAgainAfterAnInvalidation() throws DatabaseAccessException {
+        mockMedals();
+
+        catalog.getMedals();
+        catalog.invalidate();
+        catalog.getMedals();
+        verify(dbCol, times(2)).listAllCollectionDocumentSnapshots(MEDALS_PATH);
+    }
+
+    @Test
+    public void shouldReadTheMedalsAgainOnceExpired() throws DatabaseAccessException {
+        ReflectionTestUtils.setField(catalog, "refreshMinutes", 0L);
+        mockMedals();
+
+        catalog.getMedals();
+        catalog.getMedals();
+        verify(dbCol, times(2)).listAllCollectionDocumentSnapshots(MEDALS_PATH);
+    }
+
+    @Test
+    public void shouldNotKeepALoadThatStartedBeforeAnInvalidation() throws DatabaseAccessException {
+        MedalEntity medal = new MedalEntity();
+        medal.setName("Walker");
+        given(dbCol.listAllCollectionDocumentSnapshots(MEDALS_PATH)).willAnswer(invocation -> {
+            catalog.invalidate();
+            return Arrays.asList(medalDocument);
+        }).willReturn(Arrays.asList(medalDocument));
+        given(medalDocument.toObject(MedalEntity.class)).willReturn(medal);
+
+        catalog.getMedals();
+        catalog.getMedals();
+        verify(dbCol, times(2)).listAllCollectionDocumentSnapshots(MEDALS_PATH);
+    }
+
+    /**
+     * Mocks the medals collection to contain a single medal.
+     *
+     * @return The medal
+     * @throws DatabaseAccessException Never
+     */
+    private MedalEntity mockMedals() throws DatabaseAccessException {
+        MedalEntity medal = new MedalEntity();
+        medal.setName("Walker");
+        given(dbCol.listAllCollectionDocumentSnapshots(MEDALS_PATH)).willReturn(Arrays.asList(medalDocument));
+        given(medalDocument.toObject(MedalEntity.class)).willReturn(medal);
+        return medal;
+    }
+}
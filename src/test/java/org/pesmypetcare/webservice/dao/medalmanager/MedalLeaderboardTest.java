@@ -0,0 +1,236 @@
+package org.pesmypetcare.webservice.dao.medalmanager;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.entity.medalmanager.LeaderboardEntry;
+import org.pesmypetcare.webservice.entity.medalmanager.UserMedalEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class MedalLeaderboardTest {
+    private static final String MEDAL = "Walker";
+    private static final String LEADERBOARD_PATH = Path.ofCollection(Collections.leaderboard, MEDAL);
+    private static final int SIZE = 2;
+
+    @Mock
+    private FirestoreCollection dbCol;
+    @Mock
+    private FirestoreDocument dbDoc;
+    @Mock
+    private DocumentSnapshot first;
+    @Mock
+    private DocumentSnapshot second;
+    @Mock
+    private DocumentSnapshot joining;
+    @Mock
+    private DocumentReference entryReference;
+    @Mock
+    private WriteBatch batch;
+    @Mock
+    private FirestoreBulkWriter bulkWriter;
+
+    @InjectMocks
+    private MedalLeaderboardImpl leaderboard = new MedalLeaderboardImpl();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(leaderboard, "size", SIZE);
+    }
+
+    @Test
+    public void shouldReadTheLeaderboardOnlyOnceWhileFresh() throws DatabaseAccessException {
+        mockIndex();
+
+        leaderboard.getTop(MEDAL, 1);
+        List<LeaderboardEntry> top = leaderboard.getTop(MEDAL, 10);
+        assertEquals(Arrays.asList("Alice", "Bob"), usernames(top), "Should return the users up to the size");
+        verify(dbCol).getDocumentSnapshotsPageOrderedBy(LEADERBOARD_PATH, UserMedalEntity.PROGRESS, true, null, null,
+            SIZE);
+    }
+
+    @Test
+    public void shouldRejectANonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> leaderboard.getTop(MEDAL, 0),
+            "Should reject a limit that is not positive");
+    }
+
+    @Test
+    public void shouldMoveARankedUserWhenItsProgressIncreases() throws DatabaseAccessException, DocumentException {
+        mockIndex();
+        leaderboard.getTop(MEDAL, SIZE);
+
+        leaderboard.updateEntry(MEDAL, "bob-id", "Bob", UserMedalEntity.PROGRESS, 20.);
+        assertEquals(Arrays.asList("Bob", "Alice"), usernames(leaderboard.getTop(MEDAL, SIZE)),
+            "Should rank the user by its new progress");
+        verify(dbDoc, never()).getDocumentSnapshot(anyString());
+    }
+
+    @Test
+    public void shouldIgnoreAnUnrankedUserThatStaysBelow() throws DatabaseAccessException, DocumentException {
+        mockIndex();
+        leaderboard.getTop(MEDAL, SIZE);
+
+        leaderboard.updateEntry(MEDAL, "carol-id", "Carol", UserMedalEntity.PROGRESS, 1.);
+        assertEquals(Arrays.asList("Alice", "Bob"), usernames(leaderboard.getTop(MEDAL, SIZE)),
+            "Should keep the leaderboard");
+        verify(dbDoc, never()).getDocumentSnapshot(anyString());
+    }
+
+    @Test
+    public void shouldAddAnUnrankedUserThatGetsAbove() throws DatabaseAccessException, DocumentException {
+        mockIndex();
+        given(dbDoc.getDocumentSnapshot(Path.ofDocument(Collections.leaderboard, MEDAL, "carol-id")))
+            .willReturn(joining);
+        given(joining.getDouble(UserMedalEntity.CURRENT_LEVEL)).willReturn(1.);
+        leaderboard.getTop(MEDAL, SIZE);
+
+        leaderboard.updateEntry(MEDAL, "carol-id", "Carol", UserMedalEntity.PROGRESS, 7.);
+        List<LeaderboardEntry> top = leaderboard.getTop(MEDAL, SIZE);
+        assertEquals(Arrays.asList("Alice", "Carol"), usernames(top), "Should drop the last user");
+        assertEquals(Double.valueOf(1.), top.get(1).getCurrentLevel(), "Should read the current level of the user");
+    }
+
+    @Test
+    public void shouldReadTheLeaderboardAgainWhenARankedUserFalls() throws DatabaseAccessException,
+        DocumentException {
+        mockIndex();
+        leaderboard.getTop(MEDAL, SIZE);
+
+        leaderboard.updateEntry(MEDAL, "alice-id", "Alice", UserMedalEntity.PROGRESS, 1.);
+        leaderboard.getTop(MEDAL, SIZE);
+        verify(dbCol, times(2)).getDocumentSnapshotsPageOrderedBy(LEADERBOARD_PATH, UserMedalEntity.PROGRESS, true,
+            null, null, SIZE);
+    }
+
+    @Test
+    public void shouldMergeTheUpdateIntoTheIndexEntry() {
+        given(dbDoc.getDocumentReference(Path.ofDocument(Collections.leaderboard, MEDAL, "alice-id")))
+            .willReturn(entryReference);
+
+        leaderboard.writeEntry(batch, MEDAL, "alice-id", "Alice", UserMedalEntity.PROGRESS, 10.);
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(MedalLeaderboardImpl.USERNAME_FIELD, "Alice");
+        fields.put(UserMedalEntity.PROGRESS, 10.);
+        verify(batch).set(entryReference, fields, SetOptions.merge());
+    }
+
+    @Test
+    public void shouldRenameARankedUserWithoutReadingTheLeaderboardAgain() throws DatabaseAccessException {
+        mockIndex();
+        leaderboard.getTop(MEDAL, SIZE);
+
+        leaderboard.renameUser("bob-id", "Robert");
+        assertEquals(Arrays.asList("Alice", "Robert"), usernames(leaderboard.getTop(MEDAL, SIZE)),
+            "Should show the new username");
+        verify(dbCol).getDocumentSnapshotsPageOrderedBy(LEADERBOARD_PATH, UserMedalEntity.PROGRESS, true, null, null,
+            SIZE);
+    }
+
+    @Test
+    public void shouldKeepTheLeaderboardWhenARemovedUserIsNotRanked() throws DatabaseAccessException {
+        mockIndex();
+        leaderboard.getTop(MEDAL, SIZE);
+
+        leaderboard.removeUser("carol-id");
+        leaderboard.getTop(MEDAL, SIZE);
+        verify(dbCol).getDocumentSnapshotsPageOrderedBy(LEADERBOARD_PATH, UserMedalEntity.PROGRESS, true, null, null,
+            SIZE);
+    }
+
+    @Test
+    public void shouldReadTheLeaderboardAgainWhenARankedUserIsRemoved() throws DatabaseAccessException {
+        mockIndex();
+        leaderboard.getTop(MEDAL, SIZE);
+
+        leaderboard.removeUser("alice-id");
+        leaderboard.getTop(MEDAL, SIZE);
+        verify(dbCol, times(2)).getDocumentSnapshotsPageOrderedBy(LEADERBOARD_PATH, UserMedalEntity.PROGRESS, true,
+            null, null, SIZE);
+    }
+
+    @Test
+    public void shouldCreateOnlyTheMissingIndexEntries() throws DatabaseAccessException, DocumentException {
+        given(dbDoc.getDocumentReference(Path.ofDocument(Collections.leaderboard, MEDAL, "alice-id")))
+            .willReturn(entryReference);
+        LeaderboardEntry entry = new LeaderboardEntry("Alice", 10., 1.);
+        Map<DocumentReference, Object> documents = new LinkedHashMap<>();
+        documents.put(entryReference, entry);
+        given(bulkWriter.createIfAbsent(documents)).willReturn(1);
+
+        int created = leaderboard.createMissingEntries(MEDAL, java.util.Collections.singletonMap("alice-id", entry));
+        assertEquals(1, created, "Should return the number of created entries");
+    }
+
+    /**
+     * Mocks the index of the medal to contain two users, which fill the leaderboard.
+     *
+     * @throws DatabaseAccessException Never
+     */
+    private void mockIndex() throws DatabaseAccessException {
+        mockEntry(first, "alice-id", "Alice", 10.);
+        mockEntry(second, "bob-id", "Bob", 5.);
+        given(dbCol.getDocumentSnapshotsPageOrderedBy(LEADERBOARD_PATH, UserMedalEntity.PROGRESS, true, null, null,
+            SIZE)).willReturn(Arrays.asList(first, second));
+    }
+
+    /**
+     * Mocks an entry of the index.
+     *
+     * @param entry The entry to mock
+     * @param uid The unique identifier of the user
+     * @param username The username of the user
+     * @param progress The progress of the user
+     */
+    private static void mockEntry(DocumentSnapshot entry, String uid, String username, double progress) {
+        given(entry.getId()).willReturn(uid);
+        given(entry.getString(MedalLeaderboardImpl.USERNAME_FIELD)).willReturn(username);
+        given(entry.getDouble(UserMedalEntity.PROGRESS)).willReturn(progress);
+        given(entry.getDouble(UserMedalEntity.CURRENT_LEVEL)).willReturn(0.);
+    }
+
+    /**
+     * Gets the usernames of some leaderboard entries.
+     *
+     * @param entries The entries
+     * @return The usernames in the same order
+     */
+    private static List<String> usernames(List<LeaderboardEntry> entries) {
+        String[] usernames = new String[entries.size()];
+        for (int i = 0; i < usernames.length; ++i) {
+            usernames[i] = entries.get(i).getUsername();
+        }
+        return Arrays.asList(usernames);
+    }
+}
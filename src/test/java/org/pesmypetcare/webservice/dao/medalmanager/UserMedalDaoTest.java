@@ -1,31 +1,57 @@
 package org.pesmypetcare.webservice.dao.medalmanager;
 
+import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.WriteBatch;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.dao.usermanager.UsernameResolver;
+import org.pesmypetcare.webservice.entity.medalmanager.LeaderboardEntry;
 import org.pesmypetcare.webservice.entity.medalmanager.Medal;
+import org.pesmypetcare.webservice.entity.medalmanager.MedalEntity;
 import org.pesmypetcare.webservice.entity.medalmanager.UserMedalEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollectionAsync;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocumentAsync;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -38,6 +64,8 @@ public class UserMedalDaoTest {
     private static final String USER_MEDAL_NAME = "UserMedalName";
     private static final String FIELD = "progress";
     private static final Double VALUE = 2.0;
+    private static final int CONCURRENT_CALLS = 200;
+    private static final int THREADS = 50;
 
     private static UserMedalEntity userMedalEntity;
     private static List<UserMedalEntity> userMedalList;
@@ -50,9 +78,23 @@ public class UserMedalDaoTest {
     @Mock
     private FirestoreDocument dbDoc;
     @Mock
+    private FirestoreCollectionAsync dbColAsync;
+    @Mock
+    private FirestoreDocumentAsync dbDocAsync;
+    @Mock
+    private UsernameResolver usernameResolver;
+    @Mock
     private WriteBatch batch;
     @Mock
     private DocumentSnapshot documentSnapshot;
+    @Mock
+    private MedalCatalog medalCatalog;
+    @Mock
+    private FirestoreBulkWriter bulkWriter;
+    @Mock
+    private MedalLeaderboard medalLeaderboard;
+    @Mock
+    private DocumentReference medalReference;
 
     @InjectMocks
     private UserMedalDao userMedalDao = new UserMedalDaoImpl();
@@ -77,7 +119,7 @@ public class UserMedalDaoTest {
     @Test
     public void shouldReturnUserMedalEntityFromDatabaseWhenRequested() throws DatabaseAccessException,
         DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
         given(dbDoc.getDocumentDataAsObject(anyString(), any())).willReturn(userMedalEntity);
 
@@ -90,7 +132,7 @@ public class UserMedalDaoTest {
     public void shouldReturnAllUserMedalsDataOnDatabaseWhenRequested() throws DatabaseAccessException,
         DocumentException {
         given(documentSnapshot.toObject(any())).willReturn(userMedalEntity);
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
         given(dbCol.listAllCollectionDocumentSnapshots(anyString())).willReturn(snapshotList);
 
@@ -99,10 +141,23 @@ public class UserMedalDaoTest {
         assertEquals(userMedalList, list, "Should return a List containing all userMedals Data");
     }
 
+    @Test
+    public void shouldReturnAllUserMedalsDataWithoutBlockingWhenRequested() throws DatabaseAccessException,
+        DocumentException {
+        given(documentSnapshot.toObject(any())).willReturn(userMedalEntity);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
+        given(dbColAsync.listAllCollectionDocumentSnapshots(Path.ofCollection(Collections.userMedals, OWNER_ID)))
+            .willReturn(CompletableFuture.completedFuture(snapshotList));
+
+        List<UserMedalEntity> list = userMedalDao.getAllUserMedalsDataAsync(OWNER).join();
+
+        assertEquals(userMedalList, list, "Should return a List containing all userMedals Data");
+    }
+
     @Test
     public void shouldReturnUserMedalFromDatabaseWhenRequested() throws DatabaseAccessException,
         DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbDoc.getDocumentField(anyString(), anyString())).willReturn(VALUE);
 
         Object userMedalValue = userMedalDao.getField(OWNER, USER_MEDAL_NAME, FIELD);
@@ -112,11 +167,137 @@ public class UserMedalDaoTest {
 
     @Test
     public void shouldUpdateFieldWhenRequested() throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
 
         userMedalDao.updateField(OWNER, USER_MEDAL_NAME, FIELD, userMedalEntity);
 
         verify(dbDoc).updateDocumentFields(same(batch), isA(String.class), same(FIELD), same(userMedalEntity));
+        verify(medalLeaderboard).writeEntry(same(batch), same(USER_MEDAL_NAME), same(OWNER_ID), same(OWNER),
+            same(FIELD), same(userMedalEntity));
+        verify(dbDoc).commitBatch(same(batch));
+        verify(medalLeaderboard).updateEntry(USER_MEDAL_NAME, OWNER_ID, OWNER, FIELD, userMedalEntity);
+    }
+
+    @Test
+    public void shouldNotRankTheUpdatesOfOtherFields() throws DatabaseAccessException, DocumentException {
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
+        given(dbCol.batch()).willReturn(batch);
+
+        userMedalDao.updateField(OWNER, USER_MEDAL_NAME, "completedLevelsDate", new ArrayList<>());
+        verify(medalLeaderboard, never()).writeEntry(any(), anyString(), anyString(), anyString(), anyString(), any());
+        verify(medalLeaderboard, never()).updateEntry(anyString(), anyString(), anyString(), anyString(), any());
+    }
+
+    @Test
+    public void shouldCreateAllTheUserMedalsThatDoNotExist() throws DatabaseAccessException, DocumentException {
+        MedalEntity walker = new MedalEntity();
+        walker.setName("Walker");
+        MedalEntity runner = new MedalEntity();
+        runner.setName("Runner");
+        DocumentReference runnerReference = mock(DocumentReference.class);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
+        given(medalCatalog.getMedals()).willReturn(Arrays.asList(walker, runner));
+        given(dbDoc.getDocumentReference(Path.ofDocument(Collections.userMedals, OWNER_ID, "Walker")))
+            .willReturn(medalReference);
+        given(dbDoc.getDocumentReference(Path.ofDocument(Collections.userMedals, OWNER_ID, "Runner")))
+            .willReturn(runnerReference);
+
+        userMedalDao.createAllUserMedals(OWNER);
+        ArgumentCaptor<Map<DocumentReference, Object>> userMedals = ArgumentCaptor.forClass(Map.class);
+        verify(bulkWriter).createIfAbsent(userMedals.capture());
+        assertEquals(new HashSet<>(Arrays.asList(medalReference, runnerReference)), userMedals.getValue().keySet(),
+            "Should create a user medal for each medal of the catalog");
+        verify(dbCol, never()).listAllCollectionDocumentSnapshots(anyString());
+    }
+
+    @Test
+    public void shouldGiveTheMedalToAPageOfUsersWithoutResettingIt()
+        throws DatabaseAccessException, DocumentException {
+        MedalEntity walker = new MedalEntity();
+        walker.setName("Walker");
+        given(dbCol.getDocumentSnapshotsPageBetweenIds(Path.ofCollection(Collections.used_usernames), null, null,
+            OWNER, 3)).willReturn(snapshotList);
+        given(documentSnapshot.getString("user")).willReturn(OWNER_ID);
+        given(documentSnapshot.getId()).willReturn(OWNER);
+        given(dbDoc.getDocumentReference(Path.ofDocument(Collections.userMedals, OWNER_ID, "Walker")))
+            .willReturn(medalReference);
+
+        List<String> usernames = userMedalDao.createUserMedalsPage(walker, OWNER, 3);
+        assertEquals(Arrays.asList(OWNER, OWNER, OWNER), usernames, "Should return the usernames of the page");
+        ArgumentCaptor<Map<DocumentReference, Object>> userMedals = ArgumentCaptor.forClass(Map.class);
+        verify(bulkWriter).createIfAbsent(userMedals.capture());
+        assertEquals(java.util.Collections.singleton(medalReference), userMedals.getValue().keySet(),
+            "Should create the user medal only if the user does not have it");
+        verify(bulkWriter, never()).commitBatch(any());
+    }
+
+    @Test
+    public void shouldIndexThePageOfUsersThatHaveTheMedal() throws DatabaseAccessException, DocumentException {
+        DocumentSnapshot otherUser = mock(DocumentSnapshot.class);
+        given(dbCol.getDocumentSnapshotsPageBetweenIds(Path.ofCollection(Collections.used_usernames), null, null,
+            null, 2)).willReturn(Arrays.asList(documentSnapshot, otherUser));
+        given(documentSnapshot.getString("user")).willReturn(OWNER_ID);
+        given(documentSnapshot.getId()).willReturn(OWNER);
+        given(otherUser.getString("user")).willReturn("OtherId");
+        given(otherUser.getId()).willReturn("Other");
+        DocumentSnapshot userMedal = mock(DocumentSnapshot.class);
+        given(userMedal.getDouble(UserMedalEntity.PROGRESS)).willReturn(VALUE);
+        given(userMedal.getDouble(UserMedalEntity.CURRENT_LEVEL)).willReturn(1.);
+        given(dbDocAsync.getDocumentSnapshot(Path.ofDocument(Collections.userMedals, OWNER_ID, USER_MEDAL_NAME)))
+            .willReturn(CompletableFuture.completedFuture(userMedal));
+        CompletableFuture<DocumentSnapshot> missing = new CompletableFuture<>();
+        missing.completeExceptionally(new DocumentException("document-not-exists", "The document does not exist"));
+        given(dbDocAsync.getDocumentSnapshot(Path.ofDocument(Collections.userMedals, "OtherId", USER_MEDAL_NAME)))
+            .willReturn(missing);
+
+        List<String> usernames = userMedalDao.indexUserMedalsPage(USER_MEDAL_NAME, null, 2);
+        assertEquals(Arrays.asList(OWNER, "Other"), usernames, "Should return the usernames of the page");
+        verify(medalLeaderboard).createMissingEntries(USER_MEDAL_NAME,
+            java.util.Collections.singletonMap(OWNER_ID, new LeaderboardEntry(OWNER, VALUE, 1.)));
+    }
+
+    @Test
+    public void concurrentCreationsShouldNotShareTheirPathsOrBatches() throws Exception {
+        Queue<WriteBatch> batches = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < CONCURRENT_CALLS; ++i) {
+            batches.add(mock(WriteBatch.class));
+        }
+        Map<WriteBatch, String> writes = new ConcurrentHashMap<>();
+        Set<String> committed = ConcurrentHashMap.newKeySet();
+        given(usernameResolver.getUid(anyString())).willAnswer(invocation -> invocation.getArgument(0) + "-id");
+        given(dbCol.batch()).willAnswer(invocation -> batches.poll());
+        given(dbDoc.createDocumentWithId(anyString(), anyString(), any(UserMedalEntity.class), any(WriteBatch.class)))
+            .willAnswer(invocation -> {
+                writes.merge(invocation.getArgument(3), invocation.getArgument(0) + "/" + invocation.getArgument(1),
+                    (previous, current) -> "shared batch");
+                return null;
+            });
+        willAnswer(invocation -> {
+            committed.add(writes.get(invocation.<WriteBatch>getArgument(0)));
+            return null;
+        }).given(dbDoc).commitBatch(any(WriteBatch.class));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < CONCURRENT_CALLS; ++i) {
+            String owner = OWNER + i;
+            String name = USER_MEDAL_NAME + i;
+            expected.add(Path.ofCollection(Collections.userMedals, owner + "-id") + "/" + name);
+            results.add(executor.submit(() -> {
+                start.await();
+                userMedalDao.createUserMedal(owner, name, userMedalEntity);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<Object> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(expected, committed, "Each call should commit only its own medal on its own path");
     }
 }
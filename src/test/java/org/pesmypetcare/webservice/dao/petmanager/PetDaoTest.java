@@ -1,5 +1,7 @@
 package org.pesmypetcare.webservice.dao.petmanager;
 
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.WriteBatch;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,28 +10,51 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
 import org.pesmypetcare.webservice.dao.appmanager.StorageDao;
+import org.pesmypetcare.webservice.dao.usermanager.UsernameResolver;
 import org.pesmypetcare.webservice.entity.petmanager.GenderType;
 import org.pesmypetcare.webservice.entity.petmanager.PetEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.BulkWriteBatch;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollectionAsync;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreTreeDeleter;
+import org.pesmypetcare.webservice.utilities.Versioned;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -46,6 +71,8 @@ class PetDaoTest {
     private static final String COLLECTION_FIELD = "illnesses";
     private static final String KEY_1 = "1996-01-08T12:20:30";
     private static final String KEY_2 = "1998-01-08T15:20:30";
+    private static final int CONCURRENT_CALLS = 200;
+    private static final int THREADS = 50;
     private static PetEntity petEntity;
     private static List<Map<String, Object>> petList;
     private static List<Map<String, Object>> mealList;
@@ -58,11 +85,23 @@ class PetDaoTest {
     @Mock
     private FirestoreDocument dbDoc;
     @Mock
+    private FirestoreCollectionAsync dbColAsync;
+    @Mock
+    private UsernameResolver usernameResolver;
+    @Mock
     private WriteBatch batch;
     @Mock
+    private FirestoreBulkWriter bulkWriter;
+    @Mock
+    private BulkWriteBatch bulkBatch;
+    @Mock
+    private FirestoreTreeDeleter treeDeleter;
+    @Mock
     private StorageDao storageDao;
     @Mock
     private DocumentSnapshot documentSnapshot;
+    @Mock
+    private DocumentReference documentReference;
 
     @InjectMocks
     private PetDao petDao = new PetDaoImpl();
@@ -97,7 +136,7 @@ class PetDaoTest {
 
     @Test
     public void shouldCreatePetOnDatabaseWhenRequested() throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
         given(dbDoc.createDocumentWithId(anyString(), anyString(), any(PetEntity.class),
             any(WriteBatch.class))).willReturn(null);
@@ -110,33 +149,31 @@ class PetDaoTest {
 
     @Test
     public void shouldDeletePetOnDatabaseWhenRequested() throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
         given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn("user/pets/pet-profile-image.png");
-        willDoNothing().given(dbDoc).commitBatch(batch);
         willDoNothing().given(storageDao).deleteImageByName(anyString());
 
         petDao.deleteByOwnerAndName(OWNER, PET_NAME);
 
-        verify(dbDoc).deleteDocument(isA(String.class), same(batch));
+        verify(treeDeleter).deleteDocument(isA(String.class), isNull());
         verify(storageDao).deleteImageByName(eq("user/pets/pet-profile-image.png"));
     }
 
     @Test
     public void shouldDeleteAllPetsOnDatabaseWhenRequested() throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
         given(dbCol.listAllCollectionDocumentSnapshots(anyString())).willReturn(snapshotList);
-        willDoNothing().given(dbDoc).commitBatch(batch);
 
         petDao.deleteAllPets(OWNER);
 
-        verify(dbCol).deleteCollection(anyString(), same(batch));
+        verify(treeDeleter).deleteCollection(anyString(), isNull());
     }
 
     @Test
     public void shouldReturnPetEntityFromDatabaseWhenRequested() throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
         given(dbDoc.getDocumentDataAsObject(anyString(), any())).willReturn(petEntity);
 
@@ -145,9 +182,27 @@ class PetDaoTest {
         assertSame(petEntity, result, "Should return Pet Entity");
     }
 
+    @Test
+    public void shouldReturnVersionedPetEntityFromDatabaseWhenRequested()
+        throws DatabaseAccessException, DocumentException {
+        Timestamp updateTime = Timestamp.ofTimeSecondsAndNanos(1_600_000_000L, 123_456_000);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
+        given(dbCol.batch()).willReturn(batch);
+        given(dbDoc.getDocumentSnapshot(anyString())).willReturn(documentSnapshot);
+        given(documentSnapshot.toObject(PetEntity.class)).willReturn(petEntity);
+        given(documentSnapshot.getUpdateTime()).willReturn(updateTime);
+
+        Versioned<PetEntity> result = petDao.getVersionedPetData(OWNER, PET_NAME);
+
+        assertSame(petEntity, result.getValue(), "Should return Pet Entity");
+        assertEquals(new Versioned<>(petEntity, updateTime).getETag(), result.getETag(),
+            "Should return the version of the pet");
+        assertEquals(1_600_000_000_123L, result.getLastModified(), "Should return the last modification date");
+    }
+
     @Test
     public void shouldReturnAllPetsDataOnDatabaseWhenRequested() throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
         given(dbCol.listAllCollectionDocumentSnapshots(anyString())).willReturn(snapshotList);
         given(documentSnapshot.getId()).willReturn(PET_NAME);
@@ -158,10 +213,24 @@ class PetDaoTest {
         assertEquals(petList, list, "Should return a List containing all pets Data");
     }
 
+    @Test
+    public void shouldReturnAllPetsDataWithoutBlockingWhenRequested()
+        throws DatabaseAccessException, DocumentException {
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
+        given(dbColAsync.listAllCollectionDocumentSnapshots(Path.ofCollection(Collections.pets, OWNER_ID)))
+            .willReturn(CompletableFuture.completedFuture(snapshotList));
+        given(documentSnapshot.getId()).willReturn(PET_NAME);
+        given(documentSnapshot.toObject(any())).willReturn(petEntity);
+
+        List<Map<String, Object>> list = petDao.getAllPetsDataAsync(OWNER).join();
+
+        assertEquals(petList, list, "Should return a List containing all pets Data");
+    }
+
     @Test
     public void shouldReturnPetSimpleFieldFromDatabaseWhenRequested() throws DatabaseAccessException,
         DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbDoc.getDocumentField(anyString(), anyString())).willReturn(VALUE);
 
         Object petValue = petDao.getSimpleField(OWNER, PET_NAME, SIMPLE_FIELD);
@@ -171,7 +240,7 @@ class PetDaoTest {
 
     @Test
     public void shouldUpdateSimpleFieldWhenRequested() throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
         willDoNothing().given(dbDoc).commitBatch(batch);
 
@@ -182,31 +251,34 @@ class PetDaoTest {
 
     @Test
     public void shouldDeleteFieldCollectionWhenRequested() throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
-        willDoNothing().given(dbDoc).commitBatch(batch);
+        given(bulkWriter.batch()).willReturn(bulkBatch);
 
         petDao.deleteFieldCollection(OWNER, PET_NAME, COLLECTION_FIELD);
 
-        verify(dbCol).deleteCollection(anyString(), same(batch));
+        verify(dbCol).deleteCollection(anyString(), same(bulkBatch));
+        verify(bulkWriter).commitBatch(same(bulkBatch));
     }
 
     @Test
     public void shouldDeleteFieldCollectionElementsPreviousToKeyWhenRequested() throws DatabaseAccessException,
         DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
-        given(dbCol.listAllCollectionDocumentSnapshots(anyString())).willReturn(new ArrayList<>());
-        willDoNothing().given(dbDoc).commitBatch(batch);
+        given(dbCol.listDocumentSnapshotsBeforeId(anyString(), same(KEY_1))).willReturn(snapshotList);
+        given(documentSnapshot.getReference()).willReturn(documentReference);
+        given(bulkWriter.batch()).willReturn(bulkBatch);
 
         petDao.deleteFieldCollectionElementsPreviousToKey(OWNER, PET_NAME, COLLECTION_FIELD, KEY_1);
 
-        verify(dbDoc).commitBatch(same(batch));
+        verify(bulkBatch, times(snapshotList.size())).delete(same(documentReference));
+        verify(bulkWriter).commitBatch(same(bulkBatch));
     }
 
     @Test
     public void shouldGetFieldCollectionWhenRequested() throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
         given(dbCol.listAllCollectionDocumentSnapshots(anyString())).willReturn(snapshotList);
         given(documentSnapshot.getId()).willReturn(MEAL_KEY);
@@ -220,9 +292,9 @@ class PetDaoTest {
     @Test
     public void shouldGetFieldCollectionElementsBetweenKeysWhenRequested()
         throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
-        given(dbCol.listAllCollectionDocumentSnapshots(anyString())).willReturn(snapshotList);
+        given(dbCol.listDocumentSnapshotsBetweenIds(anyString(), same(KEY_1), same(KEY_2))).willReturn(snapshotList);
         given(documentSnapshot.getId()).willReturn(MEAL_KEY);
         given(documentSnapshot.getData()).willReturn(mealMap);
 
@@ -233,9 +305,25 @@ class PetDaoTest {
             + "specified keys");
     }
 
+    @Test
+    public void shouldGetFieldCollectionElementsBetweenKeysPageWhenRequested()
+        throws DatabaseAccessException, DocumentException {
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
+        given(dbCol.batch()).willReturn(batch);
+        given(dbCol.getDocumentSnapshotsPageBetweenIds(anyString(), same(KEY_1), same(KEY_2), same(MEAL_KEY), eq(3)))
+            .willReturn(snapshotList);
+        given(documentSnapshot.getId()).willReturn(MEAL_KEY);
+        given(documentSnapshot.getData()).willReturn(mealMap);
+
+        List<Map<String, Object>> list = petDao.getFieldCollectionElementsBetweenKeys(OWNER, PET_NAME, COLLECTION_FIELD,
+            KEY_1, KEY_2, MEAL_KEY, 3);
+
+        assertEquals(mealList, list, "Should return the page of the field collection Data between the specified keys");
+    }
+
     @Test
     public void shouldAddFieldCollectionElementWhenRequested() throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
         given(dbDoc.createDocumentWithId(anyString(), anyString(), any(Map.class),
             any(WriteBatch.class)))
@@ -249,7 +337,7 @@ class PetDaoTest {
 
     @Test
     public void shouldDeleteFieldCollectionElementWhenRequested() throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
         willDoNothing().given(dbDoc).commitBatch(batch);
 
@@ -260,7 +348,7 @@ class PetDaoTest {
 
     @Test
     public void shouldUpdateFieldCollectionElementWhenRequested() throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
         willDoNothing().given(dbDoc).commitBatch(batch);
 
@@ -271,7 +359,7 @@ class PetDaoTest {
 
     @Test
     public void shouldGetFieldCollectionElementWhenRequested() throws DatabaseAccessException, DocumentException {
-        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(OWNER_ID);
+        given(usernameResolver.getUid(anyString())).willReturn(OWNER_ID);
         given(dbCol.batch()).willReturn(batch);
         given(dbDoc.getDocumentData(anyString())).willReturn(collectionElementBody);
 
@@ -279,4 +367,61 @@ class PetDaoTest {
 
         assertSame(collectionElementBody, result, "Should return elemnt data in a Map<String, Object>");
     }
+
+    @Test
+    public void concurrentCallsShouldNotShareTheirPathsOrBatches() throws Exception {
+        Queue<WriteBatch> batches = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < CONCURRENT_CALLS; ++i) {
+            batches.add(mock(WriteBatch.class));
+        }
+        Map<WriteBatch, String> writes = new ConcurrentHashMap<>();
+        Set<String> committed = ConcurrentHashMap.newKeySet();
+        given(usernameResolver.getUid(anyString())).willAnswer(invocation -> invocation.getArgument(0) + "-id");
+        given(dbCol.batch()).willAnswer(invocation -> batches.poll());
+        given(dbDoc.createDocumentWithId(anyString(), anyString(), any(PetEntity.class), any(WriteBatch.class)))
+            .willAnswer(invocation -> {
+                writes.merge(invocation.getArgument(3), invocation.getArgument(0) + "/" + invocation.getArgument(1),
+                    (previous, current) -> "shared batch");
+                return null;
+            });
+        willAnswer(invocation -> {
+            writes.merge(invocation.getArgument(0), invocation.getArgument(1), (previous, current) -> "shared batch");
+            return null;
+        }).given(dbDoc).updateDocumentFields(any(WriteBatch.class), anyString(), anyString(), any());
+        willAnswer(invocation -> {
+            committed.add(writes.get(invocation.<WriteBatch>getArgument(0)));
+            return null;
+        }).given(dbDoc).commitBatch(any(WriteBatch.class));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < CONCURRENT_CALLS; ++i) {
+            String owner = OWNER + i;
+            String pet = PET_NAME + i;
+            if (i % 2 == 0) {
+                expected.add(Path.ofCollection(Collections.pets, owner + "-id") + "/" + pet);
+                results.add(executor.submit(() -> {
+                    start.await();
+                    petDao.createPet(owner, pet, petEntity);
+                    return null;
+                }));
+            } else {
+                expected.add(Path.ofDocument(Collections.pets, owner + "-id", pet));
+                results.add(executor.submit(() -> {
+                    start.await();
+                    petDao.updateSimpleField(owner, pet, SIMPLE_FIELD, VALUE);
+                    return null;
+                }));
+            }
+        }
+        start.countDown();
+        for (Future<Object> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(expected, committed, "Each call should commit only its own write on its own path");
+    }
 }
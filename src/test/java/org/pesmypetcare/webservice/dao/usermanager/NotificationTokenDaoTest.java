@@ -0,0 +1,164 @@
+package org.pesmypetcare.webservice.dao.usermanager;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.BulkWriteBatch;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class NotificationTokenDaoTest {
+    private static final String TOKEN = "dkKd93-aD";
+    private static final String TOKEN_2 = "a9dK3-s";
+    private static final String NOTIFICATIONS_FIELD = "notification-tokens";
+    private static final String FCM_FIELD = "FCM";
+    private static final String GROUPS_PATH = Path.ofCollection(Collections.groups);
+    private static final String USERS_PATH = Path.ofCollection(Collections.users);
+
+    @Mock
+    private FirestoreCollection collectionAdapter;
+    @Mock
+    private FirestoreBulkWriter bulkWriter;
+    @Mock
+    private BulkWriteBatch batch;
+    @Mock
+    private ApiFuture<QuerySnapshot> groupsQuery;
+    @Mock
+    private ApiFuture<QuerySnapshot> usersQuery;
+    @Mock
+    private QuerySnapshot groupsSnapshot;
+    @Mock
+    private QuerySnapshot usersSnapshot;
+    @Mock
+    private QueryDocumentSnapshot group;
+    @Mock
+    private QueryDocumentSnapshot user;
+    @Mock
+    private DocumentReference groupReference;
+    @Mock
+    private DocumentReference userReference;
+
+    @InjectMocks
+    private NotificationTokenDao dao = new NotificationTokenDaoImpl();
+
+    @Test
+    public void shouldRemoveTheTokensFromTheGroupsAndTheUsers()
+        throws DatabaseAccessException, DocumentException, ExecutionException, InterruptedException {
+        given(bulkWriter.batch()).willReturn(batch);
+        mockQueries(java.util.Collections.singletonList(group), java.util.Collections.singletonList(user));
+        given(group.getReference()).willReturn(groupReference);
+        given(user.getReference()).willReturn(userReference);
+        given(batch.size()).willReturn(2);
+
+        int updated = dao.deleteTokens(java.util.Collections.singletonList(TOKEN));
+        assertEquals(2, updated, "Should return the number of updated documents");
+        verify(collectionAdapter).getDocumentsWhereArrayContains(eq(GROUPS_PATH), eq(NOTIFICATIONS_FIELD), eq(TOKEN));
+        verify(collectionAdapter).getDocumentsWhereEqualTo(eq(USERS_PATH), eq(FCM_FIELD), eq(TOKEN));
+        verify(batch).update(same(groupReference), eq(NOTIFICATIONS_FIELD), eq(FieldValue.arrayRemove(TOKEN)));
+        verify(batch).update(same(userReference), eq(FCM_FIELD), eq(FieldValue.delete()));
+        verify(bulkWriter).commitBatch(same(batch));
+    }
+
+    @Test
+    public void shouldNotCommitWhenNoDocumentHasTheTokens()
+        throws DatabaseAccessException, DocumentException, ExecutionException, InterruptedException {
+        given(bulkWriter.batch()).willReturn(batch);
+        mockQueries(new ArrayList<>(), new ArrayList<>());
+
+        int updated = dao.deleteTokens(java.util.Collections.singletonList(TOKEN));
+        assertEquals(0, updated, "Should not update any document");
+        verify(bulkWriter, never()).commitBatch(any(BulkWriteBatch.class));
+    }
+
+    @Test
+    public void shouldCommitTheWritesOfAllTheTokensTogether()
+        throws DatabaseAccessException, DocumentException, ExecutionException, InterruptedException {
+        given(bulkWriter.batch()).willReturn(batch);
+        mockQueries(java.util.Collections.singletonList(group), new ArrayList<>());
+        given(group.getReference()).willReturn(groupReference);
+        given(batch.size()).willReturn(2);
+
+        int updated = dao.deleteTokens(Arrays.asList(TOKEN, TOKEN_2));
+        assertEquals(2, updated, "Should return the number of updated documents");
+        verify(batch).update(same(groupReference), eq(NOTIFICATIONS_FIELD), eq(FieldValue.arrayRemove(TOKEN)));
+        verify(batch).update(same(groupReference), eq(NOTIFICATIONS_FIELD), eq(FieldValue.arrayRemove(TOKEN_2)));
+        verify(bulkWriter).commitBatch(same(batch));
+    }
+
+    @Test
+    public void shouldSendTheQueriesOfAllTheTokensBeforeWaitingForThem()
+        throws DatabaseAccessException, DocumentException, ExecutionException, InterruptedException {
+        given(bulkWriter.batch()).willReturn(batch);
+        mockQueries(new ArrayList<>(), new ArrayList<>());
+
+        dao.deleteTokens(Arrays.asList(TOKEN, TOKEN_2));
+        InOrder inOrder = inOrder(collectionAdapter, groupsQuery);
+        inOrder.verify(collectionAdapter).getDocumentsWhereEqualTo(eq(USERS_PATH), eq(FCM_FIELD), eq(TOKEN_2));
+        inOrder.verify(groupsQuery, times(2)).get();
+    }
+
+    @Test
+    public void shouldFailWhenTheQueryFails() throws ExecutionException, InterruptedException {
+        given(bulkWriter.batch()).willReturn(batch);
+        given(collectionAdapter.getDocumentsWhereArrayContains(anyString(), anyString(), anyString()))
+            .willReturn(groupsQuery);
+        given(groupsQuery.get()).willThrow(InterruptedException.class);
+
+        assertThrows(DatabaseAccessException.class,
+            () -> dao.deleteTokens(java.util.Collections.singletonList(TOKEN)),
+            "Should fail when the documents cannot be retrieved");
+    }
+
+    /**
+     * Mocks the queries of the groups and users that have a token.
+     *
+     * @param groups The groups that have the token
+     * @param users The users that have the token
+     * @throws ExecutionException Never
+     * @throws InterruptedException Never
+     */
+    private void mockQueries(List<QueryDocumentSnapshot> groups, List<QueryDocumentSnapshot> users)
+        throws ExecutionException, InterruptedException {
+        given(collectionAdapter.getDocumentsWhereArrayContains(anyString(), anyString(), anyString()))
+            .willReturn(groupsQuery);
+        given(collectionAdapter.getDocumentsWhereEqualTo(anyString(), anyString(), anyString()))
+            .willReturn(usersQuery);
+        given(groupsQuery.get()).willReturn(groupsSnapshot);
+        given(usersQuery.get()).willReturn(usersSnapshot);
+        given(groupsSnapshot.getDocuments()).willReturn(groups);
+        given(usersSnapshot.getDocuments()).willReturn(users);
+    }
+}
@@ -0,0 +1,90 @@
+package org.pesmypetcare.webservice.dao.usermanager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.error.ServiceOverloadedException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class PasswordHasherTest {
+    private static final String PASSWORD = "123456";
+    private static final String HASH = "$2a$10$hash";
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @InjectMocks
+    private PasswordHasherImpl hasher = new PasswordHasherImpl();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(hasher, "threads", 1);
+        ReflectionTestUtils.setField(hasher, "queueCapacity", 1);
+        hasher.startHashing();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        hasher.stopHashing();
+    }
+
+    @Test
+    public void shouldHashThePasswordWithTheEncoder() {
+        given(passwordEncoder.encode(PASSWORD)).willReturn(HASH);
+
+        assertEquals(HASH, hasher.encode(PASSWORD), "Should return the hashed password");
+    }
+
+    @Test
+    public void shouldRejectThePasswordWhenThePoolIsSaturated() throws InterruptedException {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(hasher, "executor");
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        started.await();
+        executor.execute(() -> awaitQuietly(release));
+
+        try {
+            assertThrows(ServiceOverloadedException.class, () -> hasher.encode(PASSWORD),
+                "Should reject the password when the queue is full");
+            verify(passwordEncoder, never()).encode(PASSWORD);
+            assertEquals(1L, hasher.getMetrics().get("rejected"), "Should count the rejection");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * Waits until the latch is released.
+     *
+     * @param latch The latch
+     */
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -21,12 +21,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.dao.appmanager.JobDao;
 import org.pesmypetcare.webservice.dao.appmanager.StorageDao;
+import org.pesmypetcare.webservice.dao.medalmanager.MedalLeaderboard;
 import org.pesmypetcare.webservice.dao.medalmanager.UserMedalDao;
 import org.pesmypetcare.webservice.dao.petmanager.PetDaoImpl;
 import org.pesmypetcare.webservice.entity.usermanager.UserEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.BulkWriteBatch;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreBulkWriter;
 import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
@@ -36,17 +40,23 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.AdditionalMatchers.not;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -65,7 +75,7 @@ class UserDaoTest {
     private String newUsername;
     private String password;
     private String email;
-    private Map<String, String> docData;
+    private Map<String, Object> docData;
     private List<QueryDocumentSnapshot> docList;
 
 
@@ -100,8 +110,6 @@ class UserDaoTest {
     @Mock
     private DocumentSnapshot snapshot;
     @Mock
-    private DocumentSnapshot oldSnapshot;
-    @Mock
     private QuerySnapshot querySnapshot;
     @Mock
     private UserRecord userRecord;
@@ -116,9 +124,25 @@ class UserDaoTest {
     @Mock
     private ApiFuture<List<WriteResult>> batchResult;
     @Mock
+    private ApiFuture<WriteResult> deletion;
+    @Mock
     private FirestoreCollection collectionAdapter;
     @Mock
     private QueryDocumentSnapshot queryDocumentSnapshot;
+    @Mock
+    private UsernameResolver usernameResolver;
+    @Mock
+    private FirestoreBulkWriter bulkWriter;
+    @Mock
+    private BulkWriteBatch bulkBatch;
+    @Mock
+    private PasswordHasher passwordHasher;
+    @Mock
+    private UsernameFilter usernameFilter;
+    @Mock
+    private MedalLeaderboard medalLeaderboard;
+    @Mock
+    private JobDao jobDao;
 
     @InjectMocks
     private final UserDao dao = new UserDaoImpl();
@@ -135,6 +159,7 @@ class UserDaoTest {
         userEntity = new UserEntity(username, password, email);
         docData = new HashMap<>();
         docData.put(USER_FIELD, uid);
+        docData.put(UsernameFilter.TAKEN_AT_FIELD, FieldValue.serverTimestamp());
         docList = new ArrayList<>();
         docList.add(queryDocumentSnapshot);
     }
@@ -155,6 +180,7 @@ class UserDaoTest {
         given(db.batch()).willReturn(batch);
         given(batch.commit()).willReturn(batchResult);
         given(batchResult.get()).willReturn(null);
+        given(passwordHasher.encode(password)).willReturn(encodedPassword);
 
         dao.createUser(uid, userEntity);
         verify(usedUsernames, times(2)).document(same(username));
@@ -165,6 +191,67 @@ class UserDaoTest {
         verify(myAuth).getUser(same(uid));
         verify(updateRequest).setDisplayName(same(username));
         verify(batch).commit();
+        verify(usernameResolver).invalidate(same(username));
+        verify(usernameFilter).add(same(username));
+    }
+
+    @Test
+    public void shouldDeleteTheUserLeaderboardEntries()
+        throws DatabaseAccessException, DocumentException, ExecutionException, InterruptedException {
+        given(collectionAdapter.getCollectionGroupDocumentsWhereEqualTo("leaderboard", USERNAME_FIELD, username))
+            .willReturn(queryFuture);
+        given(queryFuture.get()).willReturn(querySnapshot);
+        given(querySnapshot.getDocuments()).willReturn(docList);
+        given(queryDocumentSnapshot.getReference()).willReturn(groupRef);
+        given(queryDocumentSnapshot.getId()).willReturn(uid);
+        given(bulkWriter.batch()).willReturn(bulkBatch);
+
+        dao.deleteUserLeaderboardEntries(username);
+        verify(bulkBatch).delete(same(groupRef));
+        verify(bulkWriter).commitBatch(same(bulkBatch));
+        verify(medalLeaderboard).removeUser(uid);
+    }
+
+    @Test
+    public void existsUsernameShouldNotAccessTheDatabaseWhenTheFilterRulesItOut() throws DatabaseAccessException {
+        given(usernameFilter.mightBeTaken(username)).willReturn(false);
+
+        assertFalse(dao.existsUsername(username), "Should report the username as available");
+        verify(usedUsernames, never()).document(anyString());
+    }
+
+    @Test
+    public void existsUsernameShouldConfirmWithTheDatabaseWhenTheFilterMatches()
+        throws DatabaseAccessException, ExecutionException, InterruptedException {
+        given(usernameFilter.mightBeTaken(username)).willReturn(true);
+        given(usedUsernames.document(username)).willReturn(usernameRef);
+        given(usernameRef.get()).willReturn(future);
+        given(future.get()).willReturn(snapshot);
+        given(snapshot.exists()).willReturn(true);
+
+        assertTrue(dao.existsUsername(username), "Should report the username as taken");
+    }
+
+    @Test
+    public void deleteUserDocumentShouldFailWhenTheDeletionFails() throws ExecutionException, InterruptedException {
+        given(users.document(anyString())).willReturn(userRef);
+        given(userRef.delete()).willReturn(deletion);
+        given(deletion.get()).willThrow(new ExecutionException(new RuntimeException()));
+
+        assertThrows(DocumentException.class, () -> dao.deleteUserDocument(username),
+            "Should fail when the deletion fails");
+    }
+
+    @Test
+    public void deleteUserDocumentShouldKeepTheInterruptionWhenItIsInterrupted()
+        throws ExecutionException, InterruptedException {
+        given(users.document(anyString())).willReturn(userRef);
+        given(userRef.delete()).willReturn(deletion);
+        given(deletion.get()).willThrow(new InterruptedException());
+
+        assertThrows(DatabaseAccessException.class, () -> dao.deleteUserDocument(username),
+            "Should fail when the deletion is interrupted");
+        assertTrue(Thread.interrupted(), "Should restore the interrupt flag");
     }
 
     @Test
@@ -179,26 +266,26 @@ class UserDaoTest {
         given(snapshot.exists()).willReturn(true);
         given(snapshot.get(USERNAME_FIELD)).willReturn(username);
         given(usedUsernames.document(anyString())).willReturn(usernameRef);
-        given(usernameRef.delete()).willReturn(null);
+        given(usernameRef.delete()).willReturn(deletion);
+        given(userRef.delete()).willReturn(deletion);
         given(collectionAdapter.getCollectionGroupDocumentsWhereArrayContains(anyString(), anyString(), any()))
             .willReturn(queryFuture);
         given(queryFuture.get()).willReturn(querySnapshot);
         given(querySnapshot.getDocuments()).willReturn(docList);
         given(queryDocumentSnapshot.getReference()).willReturn(userRef);
-        given(collectionAdapter.batch()).willReturn(batch);
-        given(batch.update(any(DocumentReference.class), anyString(), any())).willReturn(batch);
-        willDoNothing().given(collectionAdapter).commitBatch(any(WriteBatch.class));
+        given(bulkWriter.batch()).willReturn(bulkBatch);
 
         dao.deleteById(username);
-        verify(petDao).deleteAllPets(same(username));
+        verify(petDao).deleteAllPets(same(username), isNull());
         verify(userRef).delete();
         verify(usernameRef).delete();
+        verify(usernameResolver).invalidate(same(username));
         verify(myAuth).deleteUser(same(username));
         verify(collectionAdapter)
             .getCollectionGroupDocumentsWhereArrayContains(eq(Collections.messages.name()), eq("likedBy"),
                 same(username));
-        verify(batch).update(same(userRef), eq("likedBy"), eq(FieldValue.arrayRemove(username)));
-        verify(collectionAdapter).commitBatch(same(batch));
+        verify(bulkBatch).update(same(userRef), eq("likedBy"), eq(FieldValue.arrayRemove(username)));
+        verify(bulkWriter).commitBatch(same(bulkBatch));
     }
 
     @Test
@@ -236,67 +323,80 @@ class UserDaoTest {
 
     @Test
     public void shouldUpdateUsername()
-        throws FirebaseAuthException, DatabaseAccessException, ExecutionException, InterruptedException {
+        throws FirebaseAuthException, DatabaseAccessException, ExecutionException, InterruptedException,
+        DocumentException {
+        mockUsernameUpdate();
         given(usedUsernames.document(username)).willReturn(usernameRef);
-        given(usernameRef.get()).willReturn(future);
-        given(future.get()).willReturn(oldSnapshot);
-        given(oldSnapshot.exists()).willReturn(true);
-        given(oldSnapshot.get(anyString())).willReturn(uid);
-        given(usedUsernames.document(newUsername)).willReturn(newUsernameRef);
-        given(newUsernameRef.get()).willReturn(newFuture);
-        given(newFuture.get()).willReturn(snapshot);
-        given(snapshot.exists()).willReturn(false);
-        given(myAuth.getUser(anyString())).willReturn(userRecord);
-        given(userRecord.getDisplayName()).willReturn(username);
-        given(userRecord.updateRequest()).willReturn(updateRequest);
-        given(updateRequest.setDisplayName(anyString())).willReturn(updateRequest);
-        given(myAuth.updateUserAsync(any(UserRecord.UpdateRequest.class))).willReturn(null);
-        given(users.document(anyString())).willReturn(userRef);
-        given(db.collectionGroup(anyString())).willReturn(query);
-        given(db.collection(anyString())).willReturn(groups);
-        given(query.whereEqualTo(anyString(), isA(String.class))).willReturn(query);
-        given(groups.whereEqualTo(anyString(), isA(String.class))).willReturn(query);
-        given(query.get()).willReturn(queryFuture);
-        given(queryFuture.get()).willReturn(querySnapshot);
-        given(querySnapshot.getDocuments()).willReturn(docList);
-        given(queryDocumentSnapshot.getReference()).willReturn(groupRef);
-        given(db.batch()).willReturn(batch);
-        given(batch.update(any(DocumentReference.class), any())).willReturn(batch);
-        given(batch.commit()).willReturn(batchResult);
-        given(batchResult.get()).willReturn(null);
-
 
         dao.updateField(username, USERNAME_FIELD, newUsername);
-        verify(usedUsernames, times(2)).document(same(username));
-        verify(oldSnapshot).get(same(USER_FIELD));
-        verify(myAuth, times(3)).getUser(same(uid));
-        verify(userRecord, times(2)).getDisplayName();
+        verify(usernameResolver).getUid(same(username));
+        verify(myAuth, times(2)).getUser(same(uid));
+        verify(userRecord).getDisplayName();
         verify(usedUsernames, times(2)).document(same(newUsername));
-        verify(userRecord).updateRequest();
         verify(updateRequest).setDisplayName(same(newUsername));
         verify(myAuth).updateUserAsync(same(updateRequest));
-        verify(users).document(same(uid));
         Map<String, Object> data = new HashMap<>();
         data.put(USER_FIELD, newUsername);
-        verify(batch).update(groupRef, data);
-        verify(batch).delete(same(usernameRef));
-        Map<String, String> data2 = new HashMap<>();
+        verify(bulkBatch).update(groupRef, data);
+        verify(bulkBatch).delete(same(usernameRef));
+        Map<String, Object> data2 = new HashMap<>();
         data2.put(USER_FIELD, uid);
-        verify(batch).set(newUsernameRef, data2);
+        data2.put(UsernameFilter.TAKEN_AT_FIELD, FieldValue.serverTimestamp());
+        verify(bulkBatch).set(newUsernameRef, data2);
         data = new HashMap<>();
         data.put(USERNAME_FIELD, newUsername);
+        verify(bulkBatch).update(userRef, data);
+        verify(bulkWriter).commitAtomically(same(bulkBatch));
+        verify(db, never()).batch();
+        verify(usernameResolver).invalidate(same(username));
+        verify(usernameResolver).invalidate(same(newUsername));
+        verify(usernameFilter).add(same(newUsername));
+        verify(medalLeaderboard).renameUser(uid, newUsername);
+    }
+
+    @Test
+    public void shouldLeaveTheCopiesThatDoNotFitInABatchToAJob()
+        throws FirebaseAuthException, DatabaseAccessException, ExecutionException, InterruptedException,
+        DocumentException {
+        mockUsernameUpdate();
+        given(bulkBatch.size()).willReturn(FirestoreBulkWriter.MAX_WRITES_PER_BATCH);
+        given(db.batch()).willReturn(batch);
+        given(batch.commit()).willReturn(batchResult);
+
+        dao.updateField(username, USERNAME_FIELD, newUsername);
+        Map<String, Object> data2 = new HashMap<>();
+        data2.put(USER_FIELD, uid);
+        data2.put(UsernameFilter.TAKEN_AT_FIELD, FieldValue.serverTimestamp());
+        verify(batch).set(newUsernameRef, data2);
+        Map<String, Object> data = new HashMap<>();
+        data.put(USERNAME_FIELD, newUsername);
         verify(batch).update(userRef, data);
-        verify(batch).commit();
+        verify(jobDao).createJob(argThat(job -> UserDao.USERNAME_UPDATE_JOB.equals(job.getType())
+            && username.equals(job.getParameters().get(UserDao.USERNAME_PARAMETER))
+            && newUsername.equals(job.getParameters().get(UserDao.NEW_USERNAME_PARAMETER))), same(batch));
+        verify(batchResult).get();
+        verify(usedUsernames, never()).document(same(username));
+        verify(bulkWriter, never()).commitAtomically(any(BulkWriteBatch.class));
+        verify(usernameResolver, never()).invalidate(same(username));
+        verify(usernameFilter).add(same(newUsername));
+    }
+
+    @Test
+    public void updateUsernameCopiesShouldCommitTheCopiesThatStillHoldTheUsername()
+        throws DatabaseAccessException, DocumentException, ExecutionException, InterruptedException {
+        mockUsernameCopies();
+        given(bulkBatch.size()).willReturn(5);
+        given(usernameResolver.getUid(newUsername)).willReturn(uid);
+
+        assertEquals(5, dao.updateUsernameCopies(username, newUsername), "Should report the updated copies");
+        verify(bulkWriter).commitBatch(same(bulkBatch));
+        verify(medalLeaderboard).renameUser(uid, newUsername);
     }
 
     @Test
     public void shouldUpdateEmail()
-        throws FirebaseAuthException, DatabaseAccessException, ExecutionException, InterruptedException {
-        given(usedUsernames.document(username)).willReturn(usernameRef);
-        given(usernameRef.get()).willReturn(future);
-        given(future.get()).willReturn(oldSnapshot);
-        given(oldSnapshot.exists()).willReturn(true);
-        given(oldSnapshot.get(anyString())).willReturn(uid);
+        throws FirebaseAuthException, DatabaseAccessException, DocumentException {
+        given(usernameResolver.getUid(username)).willReturn(uid);
         given(myAuth.getUser(anyString())).willReturn(userRecord);
         given(userRecord.updateRequest()).willReturn(updateRequest);
         given(updateRequest.setEmail(anyString())).willReturn(updateRequest);
@@ -305,8 +405,7 @@ class UserDaoTest {
         given(userRef.update(anyString(), anyString())).willReturn(null);
 
         dao.updateField(username, EMAIL_FIELD, email);
-        verify(usedUsernames).document(same(username));
-        verify(oldSnapshot).get(same(USER_FIELD));
+        verify(usernameResolver).getUid(same(username));
         verify(updateRequest).setEmail(same(email));
         verify(myAuth).updateUserAsync(same(updateRequest));
         verify(users).document(same(uid));
@@ -315,22 +414,19 @@ class UserDaoTest {
 
     @Test
     public void shouldUpdatePassword()
-        throws FirebaseAuthException, DatabaseAccessException, ExecutionException, InterruptedException {
-        given(usedUsernames.document(username)).willReturn(usernameRef);
-        given(usernameRef.get()).willReturn(future);
-        given(future.get()).willReturn(oldSnapshot);
-        given(oldSnapshot.exists()).willReturn(true);
-        given(oldSnapshot.get(anyString())).willReturn(uid);
+        throws FirebaseAuthException, DatabaseAccessException, DocumentException {
+        given(usernameResolver.getUid(username)).willReturn(uid);
         given(myAuth.getUser(anyString())).willReturn(userRecord);
         given(userRecord.updateRequest()).willReturn(updateRequest);
         given(updateRequest.setPassword(anyString())).willReturn(updateRequest);
         given(myAuth.updateUserAsync(any(UserRecord.UpdateRequest.class))).willReturn(null);
         given(users.document(anyString())).willReturn(userRef);
         given(userRef.update(anyString(), anyString())).willReturn(null);
+        given(passwordHasher.encode(password)).willReturn(encodedPassword);
 
         dao.updateField(username, PASSWORD_FIELD, password);
-        verify(usedUsernames).document(same(username));
-        verify(oldSnapshot).get(same(USER_FIELD));
+        verify(usernameResolver).getUid(same(username));
+        verify(passwordHasher).encode(same(password));
         verify(updateRequest).setPassword(not(eq(password)));
         verify(myAuth).updateUserAsync(same(updateRequest));
         verify(users).document(same(uid));
@@ -339,12 +435,8 @@ class UserDaoTest {
 
     @Test
     public void shouldFailIfAnErrorOccursWhileRetrievingUserDataWhenUpdatingField()
-        throws ExecutionException, InterruptedException {
-        given(usedUsernames.document(anyString())).willReturn(usernameRef);
-        given(usernameRef.get()).willReturn(future);
-        given(future.get()).willReturn(snapshot);
-        given(snapshot.exists()).willReturn(true);
-        given(snapshot.get(anyString())).willReturn(uid);
+        throws DatabaseAccessException, DocumentException {
+        given(usernameResolver.getUid(anyString())).willReturn(uid);
         assertThrows(FirebaseAuthException.class, () -> {
             willThrow(FirebaseAuthException.class).given(myAuth).getUser(uid);
             dao.updateField(username, EMAIL_FIELD, email);
@@ -352,12 +444,52 @@ class UserDaoTest {
     }
 
     @Test
-    public void shouldFailWhenUpdatingFieldIfTheUserDoesNotExist() throws ExecutionException, InterruptedException {
-        given(usedUsernames.document(anyString())).willReturn(usernameRef);
-        given(usernameRef.get()).willReturn(future);
-        given(future.get()).willReturn(snapshot);
-        given(snapshot.exists()).willReturn(false);
+    public void shouldFailWhenUpdatingFieldIfTheUserDoesNotExist()
+        throws DatabaseAccessException, DocumentException {
+        willThrow(DocumentException.class).given(usernameResolver).getUid(anyString());
         assertThrows(DatabaseAccessException.class, () -> dao.updateField(username, EMAIL_FIELD, email),
             "Should return DatabaseAccessException if the user does not exist");
     }
+
+    /**
+     * Mocks the update of a username that is not in use.
+     *
+     * @throws FirebaseAuthException Never
+     * @throws ExecutionException Never
+     * @throws InterruptedException Never
+     * @throws DocumentException Never
+     */
+    private void mockUsernameUpdate()
+        throws FirebaseAuthException, ExecutionException, InterruptedException, DocumentException {
+        given(usernameResolver.getUid(username)).willReturn(uid);
+        given(usedUsernames.document(newUsername)).willReturn(newUsernameRef);
+        given(newUsernameRef.get()).willReturn(newFuture);
+        given(newFuture.get()).willReturn(snapshot);
+        given(snapshot.exists()).willReturn(false);
+        given(myAuth.getUser(anyString())).willReturn(userRecord);
+        given(userRecord.getDisplayName()).willReturn(username);
+        given(userRecord.updateRequest()).willReturn(updateRequest);
+        given(updateRequest.setDisplayName(anyString())).willReturn(updateRequest);
+        given(myAuth.updateUserAsync(any(UserRecord.UpdateRequest.class))).willReturn(null);
+        given(users.document(anyString())).willReturn(userRef);
+        mockUsernameCopies();
+    }
+
+    /**
+     * Mocks the queries of the documents that hold a copy of the username.
+     *
+     * @throws ExecutionException Never
+     * @throws InterruptedException Never
+     */
+    private void mockUsernameCopies() throws ExecutionException, InterruptedException {
+        given(db.collectionGroup(anyString())).willReturn(query);
+        given(db.collection(anyString())).willReturn(groups);
+        given(query.whereEqualTo(anyString(), isA(String.class))).willReturn(query);
+        given(groups.whereEqualTo(anyString(), isA(String.class))).willReturn(query);
+        given(query.get()).willReturn(queryFuture);
+        given(queryFuture.get()).willReturn(querySnapshot);
+        given(querySnapshot.getDocuments()).willReturn(docList);
+        given(queryDocumentSnapshot.getReference()).willReturn(groupRef);
+        given(bulkWriter.batch()).willReturn(bulkBatch);
+    }
 }
@@ -0,0 +1,145 @@
+package org.pesmypetcare.webservice.dao.usermanager;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.EventListener;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreCollection;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class UsernameFilterTest {
+    private static final String TAKEN_USERNAME = "John";
+    private static final String FREE_USERNAME = "Jane";
+    private static final String USED_USERNAMES_PATH = Path.ofCollection(Collections.used_usernames);
+
+    @Mock
+    private FirestoreCollection collectionAdapter;
+    @Mock
+    private DocumentReference takenUsername;
+    @Mock
+    private CollectionReference usedUsernames;
+    @Mock
+    private Query newUsernames;
+    @Mock
+    private ListenerRegistration registration;
+    @Mock
+    private QuerySnapshot newUsernamesSnapshot;
+    @Mock
+    private DocumentChange newUsernameChange;
+    @Mock
+    private QueryDocumentSnapshot newUsername;
+    @Mock
+    private FirestoreException listenerError;
+    @Captor
+    private ArgumentCaptor<EventListener<QuerySnapshot>> listenerCaptor;
+
+    @InjectMocks
+    private UsernameFilterImpl filter = new UsernameFilterImpl();
+
+    @Test
+    public void shouldReportEveryUsernameAsPossiblyTakenBeforeTheFirstBuild() {
+        assertTrue(filter.mightBeTaken(FREE_USERNAME), "Should not rule out any username before the first build");
+    }
+
+    @Test
+    public void shouldRuleOutTheUsernamesThatAreNotStored() {
+        mockUsedUsernames();
+
+        filter.rebuild();
+        receiveNewUsernames();
+        assertTrue(filter.mightBeTaken(TAKEN_USERNAME), "Should report the stored usernames as possibly taken");
+        assertFalse(filter.mightBeTaken(FREE_USERNAME), "Should rule out the usernames that are not stored");
+    }
+
+    @Test
+    public void shouldReportTheAddedUsernamesAsPossiblyTaken() {
+        mockUsedUsernames();
+
+        filter.rebuild();
+        receiveNewUsernames();
+        filter.add(FREE_USERNAME);
+        assertTrue(filter.mightBeTaken(FREE_USERNAME), "Should report the added usernames as possibly taken");
+    }
+
+    @Test
+    public void shouldNotRuleOutAnyUsernameUntilTheListenerIsActive() {
+        mockUsedUsernames();
+
+        filter.rebuild();
+        assertTrue(filter.mightBeTaken(FREE_USERNAME),
+            "Should not rule out any username before the listener receives the first snapshot");
+    }
+
+    @Test
+    public void shouldReportTheUsernamesTakenThroughOtherInstancesAsPossiblyTaken() {
+        mockUsedUsernames();
+        given(newUsernameChange.getType()).willReturn(DocumentChange.Type.ADDED);
+        given(newUsernameChange.getDocument()).willReturn(newUsername);
+        given(newUsername.getId()).willReturn(FREE_USERNAME);
+
+        filter.rebuild();
+        receiveNewUsernames(newUsernameChange);
+        assertTrue(filter.mightBeTaken(FREE_USERNAME), "Should report the new usernames as possibly taken");
+    }
+
+    @Test
+    public void shouldNotRuleOutAnyUsernameAfterTheListenerFails() {
+        mockUsedUsernames();
+
+        filter.rebuild();
+        receiveNewUsernames();
+        listenerCaptor.getValue().onEvent(null, listenerError);
+        assertTrue(filter.mightBeTaken(FREE_USERNAME), "Should not rule out any username without the listener");
+        verify(registration).remove();
+    }
+
+    /**
+     * Mocks the used usernames collection to contain a single username and the listener of the new usernames.
+     */
+    private void mockUsedUsernames() {
+        given(takenUsername.getId()).willReturn(TAKEN_USERNAME);
+        given(collectionAdapter.listAllCollectionDocuments(USED_USERNAMES_PATH))
+            .willReturn(Arrays.asList(takenUsername));
+        given(collectionAdapter.getCollectionReference(USED_USERNAMES_PATH)).willReturn(usedUsernames);
+        given(usedUsernames.whereGreaterThanOrEqualTo(eq(UsernameFilter.TAKEN_AT_FIELD), any(Timestamp.class)))
+            .willReturn(newUsernames);
+        given(newUsernames.addSnapshotListener(listenerCaptor.capture())).willReturn(registration);
+    }
+
+    /**
+     * Delivers a snapshot of the new usernames to the listener.
+     *
+     * @param changes The changes of the snapshot
+     */
+    private void receiveNewUsernames(DocumentChange... changes) {
+        given(newUsernamesSnapshot.getDocumentChanges()).willReturn(Arrays.asList(changes));
+        listenerCaptor.getValue().onEvent(newUsernamesSnapshot, null);
+    }
+}
@@ -0,0 +1,94 @@
+package org.pesmypetcare.webservice.dao.usermanager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.builders.Collections;
+import org.pesmypetcare.webservice.builders.Path;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore.FirestoreDocument;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class UsernameResolverTest {
+    private static final String USERNAME = "John";
+    private static final String UID = "123eA2eA4";
+    private static final String USER_FIELD = "user";
+    private static final String USERNAME_PATH = Path.ofDocument(Collections.used_usernames, USERNAME);
+
+    @Mock
+    private FirestoreDocument dbDoc;
+
+    private UsernameResolverImpl resolver;
+
+    @BeforeEach
+    public void setUp() {
+        resolver = new UsernameResolverImpl(dbDoc, 100, 10);
+    }
+
+    @Test
+    public void shouldReturnTheUid() throws DatabaseAccessException, DocumentException {
+        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(UID);
+
+        String uid = resolver.getUid(USERNAME);
+        assertEquals(UID, uid, "Should return the user unique identifier");
+        verify(dbDoc).getStringFromDocument(eq(USERNAME_PATH), eq(USER_FIELD));
+    }
+
+    @Test
+    public void shouldReadTheUidOnlyOnceWhileCached() throws DatabaseAccessException, DocumentException {
+        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(UID);
+
+        resolver.getUid(USERNAME);
+        String uid = resolver.getUid(USERNAME);
+        assertEquals(UID, uid, "Should return the cached user unique identifier");
+        verify(dbDoc).getStringFromDocument(eq(USERNAME_PATH), eq(USER_FIELD));
+    }
+
+    @Test
+    public void shouldReadTheUidAgainAfterInvalidation() throws DatabaseAccessException, DocumentException {
+        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(UID);
+
+        resolver.getUid(USERNAME);
+        resolver.invalidate(USERNAME);
+        resolver.getUid(USERNAME);
+        verify(dbDoc, times(2)).getStringFromDocument(eq(USERNAME_PATH), eq(USER_FIELD));
+    }
+
+    @Test
+    public void shouldFailIfTheUsernameDoesNotExist() throws DatabaseAccessException, DocumentException {
+        willThrow(DocumentException.class).given(dbDoc).getStringFromDocument(anyString(), anyString());
+
+        assertThrows(DocumentException.class, () -> resolver.getUid(USERNAME),
+            "Should throw DocumentException when the username does not exist");
+    }
+
+    @Test
+    public void shouldExposeTheCacheMetrics() throws DatabaseAccessException, DocumentException {
+        given(dbDoc.getStringFromDocument(anyString(), anyString())).willReturn(UID);
+
+        resolver.getUid(USERNAME);
+        resolver.getUid(USERNAME);
+        Map<String, Object> metrics = resolver.getMetrics();
+        assertEquals(1L, metrics.get("size"), "Should return the number of cached usernames");
+        assertEquals(1L, metrics.get("hits"), "Should return the number of cache hits");
+        assertEquals(1L, metrics.get("misses"), "Should return the number of cache misses");
+        assertEquals(0.5, metrics.get("hitRate"), "Should return the cache hit rate");
+    }
+}
@@ -10,21 +10,30 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.dao.appmanager.CalendarEventStore;
 import org.pesmypetcare.webservice.dao.appmanager.GoogleCalendarDao;
 import org.pesmypetcare.webservice.dao.petmanager.PetDao;
+import org.pesmypetcare.webservice.entity.appmanager.EventChanges;
 import org.pesmypetcare.webservice.entity.appmanager.EventEntity;
+import org.pesmypetcare.webservice.entity.appmanager.EventWriteResult;
 import org.pesmypetcare.webservice.error.CalendarAccessException;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -48,6 +57,8 @@ public class GoogleCalendarServiceTest {
     private GoogleCalendarDao googleCalendarDao;
     @Mock
     private PetDao petDao;
+    @Mock
+    private CalendarEventStore eventStore;
 
     @InjectMocks
     private GoogleCalendarService service = new GoogleCalendarServiceImpl();
@@ -95,14 +106,73 @@ public class GoogleCalendarServiceTest {
         service.deleteSecondaryCalendar(accessToken, owner, petName);
         verify(googleCalendarDao).deleteSecondaryCalendar(isA(String.class), isA(String.class));
         verify(petDao).updateSimpleField(isA(String.class), isA(String.class), isA(String.class), isNull());
+        verify(eventStore).clear(owner, petName);
     }
 
     @Test
     public void shouldReturnAListOfEventsWhenAllEventsFromCalendarRetrieved() throws CalendarAccessException,
         DatabaseAccessException, DocumentException {
         given(petDao.getSimpleField(owner, petName, CALENDAR_ID_FIELD)).willReturn(calendarId);
+        EventChanges changes = new EventChanges();
+        changes.setFullSync(true);
+        given(googleCalendarDao.getEventChanges(accessToken, calendarId, null)).willReturn(changes);
         List<EventEntity> response = service.getAllEventsFromCalendar(accessToken, owner, petName);
         assertEquals(eventList, response, "Should return an array of Event");
+        verify(eventStore).saveChanges(owner, petName, changes);
+    }
+
+    @Test
+    public void shouldApplyTheChangesToTheStoredEventsWhenSynchronized() throws CalendarAccessException,
+        DatabaseAccessException, DocumentException {
+        given(petDao.getSimpleField(owner, petName, CALENDAR_ID_FIELD)).willReturn(calendarId);
+        given(eventStore.getSyncToken(owner, petName)).willReturn("sync-token");
+        EventEntity deletedEvent = new EventEntity();
+        deletedEvent.setId("deleted");
+        given(eventStore.getEvents(owner, petName)).willReturn(Collections.singletonList(deletedEvent));
+        EventChanges changes = new EventChanges();
+        changes.getChangedEvents().add(event);
+        changes.getDeletedEventIds().add("deleted");
+        changes.setNextSyncToken("next-token");
+        given(googleCalendarDao.getEventChanges(accessToken, calendarId, "sync-token")).willReturn(changes);
+
+        List<EventEntity> response = service.getAllEventsFromCalendar(accessToken, owner, petName);
+        assertEquals(Collections.singletonList(new EventEntity(event)), response,
+            "Should return the stored events with the changes applied");
+        verify(eventStore).saveChanges(owner, petName, changes);
+    }
+
+    @Test
+    public void shouldNotWriteWhenNothingChanged() throws CalendarAccessException, DatabaseAccessException,
+        DocumentException {
+        given(petDao.getSimpleField(owner, petName, CALENDAR_ID_FIELD)).willReturn(calendarId);
+        given(eventStore.getSyncToken(owner, petName)).willReturn("sync-token");
+        given(eventStore.getEvents(owner, petName)).willReturn(Collections.singletonList(eventEntity));
+        EventChanges changes = new EventChanges();
+        changes.setNextSyncToken("sync-token");
+        given(googleCalendarDao.getEventChanges(accessToken, calendarId, "sync-token")).willReturn(changes);
+
+        List<EventEntity> response = service.getAllEventsFromCalendar(accessToken, owner, petName);
+        assertEquals(Collections.singletonList(eventEntity), response, "Should return the stored events");
+        verify(eventStore, never()).saveChanges(owner, petName, changes);
+    }
+
+    @Test
+    public void shouldSynchronizeEverythingWhenTheSyncTokenExpired() throws CalendarAccessException,
+        DatabaseAccessException, DocumentException {
+        given(petDao.getSimpleField(owner, petName, CALENDAR_ID_FIELD)).willReturn(calendarId);
+        given(eventStore.getSyncToken(owner, petName)).willReturn("sync-token");
+        willThrow(new CalendarAccessException(GoogleCalendarDao.SYNC_TOKEN_EXPIRED, "Expired"))
+            .given(googleCalendarDao).getEventChanges(accessToken, calendarId, "sync-token");
+        EventChanges changes = new EventChanges();
+        changes.setFullSync(true);
+        changes.getChangedEvents().add(event);
+        willReturn(changes).given(googleCalendarDao).getEventChanges(accessToken, calendarId, null);
+
+        List<EventEntity> response = service.getAllEventsFromCalendar(accessToken, owner, petName);
+        assertEquals(Collections.singletonList(new EventEntity(event)), response,
+            "Should return all the events of the calendar");
+        verify(eventStore, never()).getEvents(owner, petName);
+        verify(eventStore).saveChanges(owner, petName, changes);
     }
 
     @Test
@@ -113,6 +183,17 @@ public class GoogleCalendarServiceTest {
         verify(googleCalendarDao).createEvent(isA(String.class), isA(String.class), isA(Event.class));
     }
 
+    @Test
+    public void shouldCreateAllTheEventsInTheCalendarOfThePet() throws CalendarAccessException,
+        DatabaseAccessException, DocumentException {
+        given(petDao.getSimpleField(owner, petName, CALENDAR_ID_FIELD)).willReturn(calendarId);
+        List<EventWriteResult> results = Collections.singletonList(new EventWriteResult(eventId, null));
+        given(googleCalendarDao.createEvents(eq(accessToken), eq(calendarId), anyList())).willReturn(results);
+
+        assertEquals(results, service.createEvents(accessToken, owner, petName,
+            Collections.singletonList(eventEntity)), "Should return the result of each event");
+    }
+
     @Test
     public void shouldReturnEventWhenEventRetrieved() throws CalendarAccessException,
         DatabaseAccessException, DocumentException {
@@ -132,6 +213,17 @@ public class GoogleCalendarServiceTest {
             isA(Event.class));
     }
 
+    @Test
+    public void shouldUpdateAllTheEventsInTheCalendarOfThePet() throws CalendarAccessException,
+        DatabaseAccessException, DocumentException {
+        given(petDao.getSimpleField(owner, petName, CALENDAR_ID_FIELD)).willReturn(calendarId);
+        List<EventWriteResult> results = Collections.singletonList(new EventWriteResult(eventId, null));
+        given(googleCalendarDao.updateEvents(eq(accessToken), eq(calendarId), anyList())).willReturn(results);
+
+        assertEquals(results, service.updateEvents(accessToken, owner, petName,
+            Collections.singletonList(eventEntity)), "Should return the result of each event");
+    }
+
     @Test
     public void shouldReturnNothingWhenEventDeleted() throws CalendarAccessException,
         DatabaseAccessException, DocumentException {
@@ -0,0 +1,235 @@
+package org.pesmypetcare.webservice.service.appmanager;
+
+import com.google.firebase.auth.FirebaseAuthException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.dao.appmanager.JobDao;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.entity.appmanager.JobStatus;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class JobServiceTest {
+    private static final String TYPE = "type";
+    private static final String ID = "job-id";
+    private static final String FIRST_STEP = "first";
+    private static final String SECOND_STEP = "second";
+
+    @Mock
+    private JobDao jobDao;
+    @Mock
+    private JobHandler handler;
+    @Mock
+    private ExecutorService executor;
+
+    @InjectMocks
+    private JobServiceImpl service = new JobServiceImpl();
+
+    private JobEntity job;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(service, "handlers", Collections.singletonList(handler));
+        ReflectionTestUtils.setField(service, "maxAttempts", 2);
+        ReflectionTestUtils.setField(service, "retryBackoffMillis", 0L);
+        job = new JobEntity(TYPE, Collections.emptyMap());
+    }
+
+    @Test
+    public void submitShouldStoreAPendingJobAndQueueIt() throws DatabaseAccessException, DocumentException {
+        given(handler.getType()).willReturn(TYPE);
+        given(jobDao.createJob(any(JobEntity.class))).willReturn(ID);
+
+        String id = service.submit(TYPE, Collections.singletonMap("key", "value"));
+        ArgumentCaptor<JobEntity> captor = ArgumentCaptor.forClass(JobEntity.class);
+        verify(jobDao).createJob(captor.capture());
+        assertEquals(JobStatus.PENDING, captor.getValue().getStatus(), "Should store a pending job");
+        assertEquals("value", captor.getValue().getParameters().get("key"), "Should store the parameters");
+        verify(executor).execute(any(Runnable.class));
+        assertEquals(ID, id, "Should return the job identifier");
+    }
+
+    @Test
+    public void submitShouldRejectTypesWithoutHandler() {
+        given(handler.getType()).willReturn(TYPE);
+
+        assertThrows(IllegalArgumentException.class, () -> service.submit("other", Collections.emptyMap()),
+            "Should reject a type without handler");
+    }
+
+    @Test
+    public void runShouldSkipTheCompletedStepsAndRecordTheProgress()
+        throws DatabaseAccessException, DocumentException, FirebaseAuthException {
+        job.getCompletedSteps().add(FIRST_STEP);
+        mockJob();
+        willAnswer(invocation -> {
+            invocation.<LongConsumer>getArgument(2).accept(5);
+            return null;
+        }).given(handler).runStep(same(job), eq(SECOND_STEP), any());
+
+        service.run(ID);
+        verify(handler, never()).runStep(any(), eq(FIRST_STEP), any());
+        verify(jobDao).updateJob(eq(ID), anyString(), argThat(fields -> fields.containsKey(JobServiceImpl.COMPLETED_STEPS_FIELD)
+            && Long.valueOf(5).equals(fields.get(JobServiceImpl.PROGRESS_FIELD))));
+        verify(jobDao).updateJob(eq(ID), anyString(), argThat(hasStatus(JobStatus.SUCCEEDED)));
+    }
+
+    @Test
+    public void runShouldRetryAFailedStep() throws DatabaseAccessException, DocumentException, FirebaseAuthException {
+        mockJob();
+        willThrow(new DocumentException("write-failed", "The write failed")).willAnswer(invocation -> null)
+            .given(handler).runStep(same(job), eq(FIRST_STEP), any());
+
+        service.run(ID);
+        verify(handler, times(2)).runStep(same(job), eq(FIRST_STEP), any());
+        verify(jobDao).updateJob(eq(ID), anyString(), argThat(hasStatus(JobStatus.SUCCEEDED)));
+    }
+
+    @Test
+    public void runShouldFailTheJobWhenAStepKeepsFailing()
+        throws DatabaseAccessException, DocumentException, FirebaseAuthException {
+        mockJob();
+        willThrow(new DocumentException("write-failed", "The write failed")).given(handler)
+            .runStep(same(job), eq(FIRST_STEP), any());
+
+        service.run(ID);
+        verify(handler, times(2)).runStep(same(job), eq(FIRST_STEP), any());
+        verify(handler, never()).runStep(any(), eq(SECOND_STEP), any());
+        verify(jobDao).updateJob(eq(ID), anyString(), argThat(fields -> hasStatus(JobStatus.FAILED).matches(fields)
+            && "The write failed".equals(fields.get(JobServiceImpl.ERROR_FIELD))));
+    }
+
+    @Test
+    public void runShouldIgnoreTheJobsItCannotClaim()
+        throws DatabaseAccessException, DocumentException, FirebaseAuthException {
+        given(jobDao.claimJob(eq(ID), anyString(), anyLong())).willReturn(null);
+
+        service.run(ID);
+        verify(handler, never()).runStep(any(), anyString(), any());
+        verify(jobDao, never()).updateJob(anyString(), anyString(), any());
+    }
+
+    @Test
+    public void resumeUnfinishedJobsShouldQueueEachJobOnce() throws DatabaseAccessException {
+        given(jobDao.getUnfinishedJobs()).willReturn(Collections.singletonList(ID));
+
+        service.resumeUnfinishedJobs();
+        service.resumeUnfinishedJobs();
+        verify(executor).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void renewLeasesShouldRenewTheLeasesOfTheRunningJobs()
+        throws DatabaseAccessException, DocumentException, FirebaseAuthException {
+        mockJob();
+        willAnswer(invocation -> {
+            service.renewLeases();
+            return null;
+        }).given(handler).runStep(same(job), eq(FIRST_STEP), any());
+        given(jobDao.renewLease(eq(ID), anyString(), anyLong())).willReturn(true);
+
+        service.run(ID);
+        verify(jobDao).renewLease(eq(ID), anyString(), anyLong());
+    }
+
+    @Test
+    public void runShouldStopAJobWhoseLeaseWasLostWithoutFailingIt()
+        throws DatabaseAccessException, DocumentException, FirebaseAuthException {
+        mockJob();
+        willThrow(new DocumentException(JobDao.LEASE_LOST, "The job is leased to another owner")).given(handler)
+            .runStep(same(job), eq(FIRST_STEP), any());
+
+        service.run(ID);
+        Thread.interrupted();
+        verify(handler).runStep(same(job), eq(FIRST_STEP), any());
+        verify(handler, never()).runStep(any(), eq(SECOND_STEP), any());
+        verify(jobDao, never()).updateJob(eq(ID), anyString(), argThat(hasStatus(JobStatus.FAILED)));
+        assertEquals(1L, service.getMetrics().get("lostLeases"), "Should count the lost lease");
+    }
+
+    @Test
+    public void renewLeasesShouldStopTheJobsWhoseLeaseWasLost()
+        throws DatabaseAccessException, DocumentException, FirebaseAuthException {
+        mockJob();
+        given(jobDao.renewLease(eq(ID), anyString(), anyLong())).willReturn(false);
+        willAnswer(invocation -> {
+            service.renewLeases();
+            assertTrue(Thread.currentThread().isInterrupted(), "Should interrupt the worker of the job");
+            throw new DatabaseAccessException("retrieval-failed", "The read was interrupted");
+        }).given(handler).runStep(same(job), eq(FIRST_STEP), any());
+
+        service.run(ID);
+        Thread.interrupted();
+        verify(handler).runStep(same(job), eq(FIRST_STEP), any());
+        verify(jobDao, never()).updateJob(eq(ID), anyString(), argThat(hasStatus(JobStatus.FAILED)));
+        assertEquals(1L, service.getMetrics().get("lostLeases"), "Should count the lost lease");
+    }
+
+    @Test
+    public void runShouldLeaveTheJobsInterruptedByAShutdownRunning()
+        throws DatabaseAccessException, DocumentException, FirebaseAuthException {
+        mockJob();
+        given(executor.isShutdown()).willReturn(true);
+        willThrow(new DatabaseAccessException("retrieval-failed", "The read was interrupted")).given(handler)
+            .runStep(same(job), eq(FIRST_STEP), any());
+
+        service.run(ID);
+        verify(handler).runStep(same(job), eq(FIRST_STEP), any());
+        verify(jobDao, never()).updateJob(eq(ID), anyString(), argThat(hasStatus(JobStatus.FAILED)));
+    }
+
+    /**
+     * Mocks a pending job with two steps.
+     *
+     * @throws DatabaseAccessException Never
+     * @throws DocumentException Never
+     */
+    private void mockJob() throws DatabaseAccessException, DocumentException {
+        given(jobDao.claimJob(eq(ID), anyString(), anyLong())).willReturn(job);
+        given(handler.getType()).willReturn(TYPE);
+        given(handler.getSteps(job)).willReturn(Arrays.asList(FIRST_STEP, SECOND_STEP));
+    }
+
+    /**
+     * Creates a matcher of the job updates that set the given status.
+     *
+     * @param status The status
+     * @return The matcher
+     */
+    private static ArgumentMatcher<Map<String, Object>> hasStatus(JobStatus status) {
+        return fields -> status.name().equals(fields.get(JobServiceImpl.STATUS_FIELD));
+    }
+}
@@ -10,17 +10,23 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.pesmypetcare.webservice.dao.appmanager.StorageDao;
 import org.pesmypetcare.webservice.dao.communitymanager.GroupDao;
 import org.pesmypetcare.webservice.entity.appmanager.ImageEntity;
+import org.pesmypetcare.webservice.entity.appmanager.ImageMetadata;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.form.StorageForm;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willDoNothing;
@@ -96,6 +102,14 @@ class StorageServiceTest {
         assertEquals(expectedDownload, result, "Should return the image as a base64 encoded string");
     }
 
+    @Test
+    public void getImageFromItsMetadata() {
+        ImageMetadata metadata = new ImageMetadata();
+        given(storageDao.downloadImage(same(metadata))).willReturn(expectedDownload);
+        String result = service.getImage(metadata);
+        assertEquals(expectedDownload, result, "Should return the image as a base64 encoded string");
+    }
+
     @Test
     public void getAllPetImages() throws DatabaseAccessException, DocumentException {
         given(storageDao.downloadAllPetImages(same(owner))).willReturn(images);
@@ -117,4 +131,46 @@ class StorageServiceTest {
         service.deleteImage(storageForm);
         verify(storageDao).deleteImage(storageForm);
     }
+
+    @Test
+    public void getImageMetadata() throws DocumentException {
+        ImageMetadata metadata = new ImageMetadata();
+        given(storageDao.getImageMetadata(any(StorageForm.class))).willReturn(metadata);
+
+        ImageMetadata result = service.getImageMetadata(storageForm);
+        assertEquals(metadata, result, "Should return the image metadata");
+    }
+
+    @Test
+    public void writeImage() throws IOException {
+        ImageMetadata metadata = new ImageMetadata();
+        OutputStream output = new ByteArrayOutputStream();
+
+        service.writeImage(metadata, 2, 10, output);
+        verify(storageDao).writeImage(same(metadata), eq(2L), eq(10L), same(output));
+    }
+
+    @Test
+    public void getAllPetImagesPaths() throws DatabaseAccessException, DocumentException {
+        given(storageDao.getAllPetImagesPaths(anyString())).willReturn(images);
+
+        Map<String, String> result = service.getAllPetImagesPaths(owner);
+        assertEquals(images, result, "Should return the paths of the pets images");
+    }
+
+    @Test
+    public void getAllPostsImagesPaths() throws DatabaseAccessException, DocumentException {
+        given(storageDao.getAllPostsImagesPaths(anyString(), anyString())).willReturn(images);
+
+        Map<String, String> result = service.getAllPostsImagesPaths(groupName, "Huskies");
+        assertEquals(images, result, "Should return the paths of the posts images");
+    }
+
+    @Test
+    public void fetchImages() throws DatabaseAccessException {
+        BiConsumer<String, String> consumer = (key, image) -> { };
+
+        service.fetchImages(images, consumer);
+        verify(storageDao).fetchImages(same(images), same(consumer));
+    }
 }
@@ -12,6 +12,7 @@ import org.pesmypetcare.webservice.dao.communitymanager.ForumDao;
 import org.pesmypetcare.webservice.dao.communitymanager.GroupDao;
 import org.pesmypetcare.webservice.entity.communitymanager.ForumEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.Message;
+import org.pesmypetcare.webservice.entity.communitymanager.MessagePage;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 import org.pesmypetcare.webservice.error.InvalidOperationException;
@@ -22,8 +23,10 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willDoNothing;
@@ -147,6 +150,11 @@ class ForumServiceTest {
             assertThrows(DocumentException.class,
                 () -> service.removeUserFromLikedByOfMessage(token, creator, groupName, forumName, creator, date));
         }
+
+        @Test
+        public void getMessagesPageShouldThrowDocumentExceptionWhenTheForumDoesNotExistInTheGroup() {
+            assertThrows(DocumentException.class, () -> service.getMessagesPage(groupName, forumName, null, 10));
+        }
     }
 
     @Nested
@@ -234,6 +242,15 @@ class ForumServiceTest {
                 verify(forumDao).unbanMessage(same(groupName), same(forumName), same(creator), same(date));
             }
 
+            @Test
+            public void getMessagesPage() throws DatabaseAccessException, DocumentException {
+                MessagePage page = new MessagePage();
+                given(forumDao.getMessagesPage(anyString(), anyString(), isNull(), anyInt())).willReturn(page);
+
+                MessagePage result = service.getMessagesPage(groupName, forumName, null, 10);
+                assertEquals(page, result, "Should return the page of messages.");
+            }
+
             @Test
             public void addUserToLikedByOfMessage() throws DatabaseAccessException, DocumentException {
                 willDoNothing().given(forumDao)
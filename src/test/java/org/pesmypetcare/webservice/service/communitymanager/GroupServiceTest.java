@@ -1,5 +1,6 @@
 package org.pesmypetcare.webservice.service.communitymanager;
 
+import com.google.cloud.Timestamp;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -14,6 +15,7 @@ import org.pesmypetcare.webservice.entity.communitymanager.GroupEntity;
 import org.pesmypetcare.webservice.entity.communitymanager.TagEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.utilities.Versioned;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -21,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyList;
@@ -127,6 +130,15 @@ class GroupServiceTest {
                 assertEquals(group, result, "Should return the requested group.");
             }
 
+            @Test
+            public void getVersionedGroup() throws DatabaseAccessException, DocumentException {
+                Versioned<Group> versionedGroup = new Versioned<>(group, Timestamp.now(), 0);
+                given(dao.getVersionedGroup(anyString())).willReturn(versionedGroup);
+
+                Versioned<Group> result = service.getVersionedGroup(groupName);
+                assertSame(versionedGroup, result, "Should return the requested group with its version.");
+            }
+
             @Test
             public void updateField() throws DatabaseAccessException, DocumentException {
                 willDoNothing().given(dao).updateField(anyString(), anyString(), anyString());
@@ -194,6 +206,12 @@ class GroupServiceTest {
                     "Should throw an exception when the group already exists.");
             }
 
+            @Test
+            public void getVersionedGroupShouldThrowDocumentExceptionWhenGroupDoesNotExist() {
+                assertThrows(DocumentException.class, () -> service.getVersionedGroup(groupName),
+                    "Should throw an exception when the group does not exist.");
+            }
+
             @Test
             public void updateFieldShouldThrowDocumentExceptionWhenGroupAlreadyExists() {
                 assertThrows(DocumentException.class, () -> service.updateField(groupName, field, newName),
@@ -0,0 +1,100 @@
+package org.pesmypetcare.webservice.service.medalmanager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.dao.appmanager.JobDao;
+import org.pesmypetcare.webservice.dao.medalmanager.MedalDao;
+import org.pesmypetcare.webservice.dao.medalmanager.UserMedalDao;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.entity.medalmanager.MedalEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class MedalBackfillJobHandlerTest {
+    private static final String JOB_ID = "job-id";
+    private static final String OWNER = "owner";
+    private static final String MEDAL_NAME = "Walker";
+    private static final int PAGE_SIZE = 2;
+
+    @Mock
+    private MedalDao medalDao;
+    @Mock
+    private UserMedalDao userMedalDao;
+    @Mock
+    private JobDao jobDao;
+
+    @InjectMocks
+    private MedalBackfillJobHandler handler = new MedalBackfillJobHandler();
+
+    private MedalEntity medal;
+    private JobEntity job;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(handler, "pageSize", PAGE_SIZE);
+        medal = new MedalEntity();
+        medal.setName(MEDAL_NAME);
+        job = new JobEntity(MedalBackfillJobHandler.TYPE,
+            Collections.singletonMap(MedalBackfillJobHandler.MEDAL_PARAMETER, MEDAL_NAME));
+        job.setId(JOB_ID);
+        job.setOwner(OWNER);
+    }
+
+    @Test
+    public void shouldGiveTheMedalPageByPageSavingTheCursor() throws DatabaseAccessException, DocumentException {
+        given(medalDao.getMedalData(MEDAL_NAME)).willReturn(medal);
+        given(userMedalDao.createUserMedalsPage(same(medal), isNull(), eq(PAGE_SIZE)))
+            .willReturn(Arrays.asList("Alice", "Bob"));
+        willReturn(Collections.singletonList("Carol")).given(userMedalDao)
+            .createUserMedalsPage(medal, "Bob", PAGE_SIZE);
+        LongConsumer progress = mock(LongConsumer.class);
+
+        handler.runStep(job, MedalBackfillJobHandler.USERS_STEP, progress);
+        verify(jobDao).saveCursor(JOB_ID, OWNER, "Bob");
+        verify(jobDao).saveCursor(JOB_ID, OWNER, "Carol");
+        verify(progress).accept(2);
+        verify(progress).accept(3);
+        assertEquals("Carol", job.getCursor(), "Should keep the last cursor in the job");
+    }
+
+    @Test
+    public void shouldResumeFromTheSavedCursor() throws DatabaseAccessException, DocumentException {
+        job.setCursor("Bob");
+        given(medalDao.getMedalData(MEDAL_NAME)).willReturn(medal);
+        given(userMedalDao.createUserMedalsPage(medal, "Bob", PAGE_SIZE)).willReturn(Collections.emptyList());
+
+        handler.runStep(job, MedalBackfillJobHandler.USERS_STEP, mock(LongConsumer.class));
+        verify(jobDao, never()).saveCursor(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void shouldRejectUnknownSteps() {
+        assertThrows(IllegalArgumentException.class,
+            () -> handler.runStep(job, "other", mock(LongConsumer.class)), "Should reject an unknown step");
+    }
+}
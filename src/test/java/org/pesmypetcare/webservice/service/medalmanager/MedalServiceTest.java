@@ -6,10 +6,15 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.pesmypetcare.webservice.dao.medalmanager.MedalDao;
+import org.pesmypetcare.webservice.dao.medalmanager.MedalLeaderboard;
+import org.pesmypetcare.webservice.entity.medalmanager.LeaderboardEntry;
 import org.pesmypetcare.webservice.entity.medalmanager.MedalEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.service.appmanager.JobService;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -25,15 +30,46 @@ public class MedalServiceTest {
     private static final List<Map<String, MedalEntity>> MEDAL_LIST = new ArrayList<>();
     private static final MedalEntity MEDAL_ENTITY = new MedalEntity();
     private static final String MEDAL_NAME = "Walker";
+    private static final String JOB_ID = "job-id";
     private static final String FIELD = "description";
     private static final String VALUE = "You have to walk a lot of kilometers!";
 
     @Mock
     private MedalDao medalDao;
+    @Mock
+    private JobService jobService;
+    @Mock
+    private MedalLeaderboard medalLeaderboard;
 
     @InjectMocks
     private MedalService service = new MedalServiceImpl();
 
+    @Test
+    public void shouldScheduleTheBackfillWhenMedalCreated() throws DatabaseAccessException, DocumentException {
+        when(jobService.submit(MedalBackfillJobHandler.TYPE,
+            Collections.singletonMap(MedalBackfillJobHandler.MEDAL_PARAMETER, MEDAL_NAME))).thenReturn(JOB_ID);
+        String jobId = service.createMedal(MEDAL_NAME, MEDAL_ENTITY);
+        verify(medalDao).createMedal(MEDAL_NAME, MEDAL_ENTITY);
+        assertSame(JOB_ID, jobId, "Should return the identifier of the backfill job");
+    }
+
+    @Test
+    public void shouldScheduleTheLeaderboardBackfillWhenRequested() throws DatabaseAccessException,
+        DocumentException {
+        when(jobService.submit(LeaderboardBackfillJobHandler.TYPE,
+            Collections.singletonMap(LeaderboardBackfillJobHandler.MEDAL_PARAMETER, MEDAL_NAME))).thenReturn(JOB_ID);
+        String jobId = service.indexLeaderboard(MEDAL_NAME);
+        assertSame(JOB_ID, jobId, "Should return the identifier of the backfill job");
+    }
+
+    @Test
+    public void shouldReturnTheLeaderboardWhenRequested() throws DatabaseAccessException {
+        List<LeaderboardEntry> leaderboard = new ArrayList<>();
+        when(medalLeaderboard.getTop(MEDAL_NAME, 10)).thenReturn(leaderboard);
+        List<LeaderboardEntry> result = service.getLeaderboard(MEDAL_NAME, 10);
+        assertSame(leaderboard, result, "Should return the leaderboard");
+    }
+
     @Test
     public void shouldReturnMedalEntityWhenMedalRetrieved() throws DatabaseAccessException, DocumentException {
         when(medalDao.getMedalData(MEDAL_NAME)).thenReturn(MEDAL_ENTITY);
@@ -1,5 +1,6 @@
 package org.pesmypetcare.webservice.service.petmanager;
 
+import com.google.cloud.Timestamp;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -9,6 +10,7 @@ import org.pesmypetcare.webservice.dao.petmanager.PetDao;
 import org.pesmypetcare.webservice.entity.petmanager.PetEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.utilities.Versioned;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -79,6 +81,14 @@ class PetServiceTest {
         assertSame(PET_ENTITY, entity, "Should return a pet entity");
     }
 
+    @Test
+    public void shouldReturnVersionedPetEntityWhenPetRetrieved() throws DatabaseAccessException, DocumentException {
+        Versioned<PetEntity> versioned = new Versioned<>(PET_ENTITY, Timestamp.now());
+        when(petDao.getVersionedPetData(OWNER, PET_NAME)).thenReturn(versioned);
+        Versioned<PetEntity> result = service.getVersionedPetData(OWNER, PET_NAME);
+        assertSame(versioned, result, "Should return the pet entity with its version");
+    }
+
     @Test
     public void shouldReturnDatabaseAccessExceptionWhenGetPetRequestFails() {
         assertThrows(DatabaseAccessException.class, () -> {
@@ -156,6 +166,16 @@ class PetServiceTest {
         assertSame(PET_LIST, list, "Should return a list of pet entities");
     }
 
+    @Test
+    public void shouldReturnListWhenFieldCollectionElementsBetweenKeysPageRetrieved()
+        throws DatabaseAccessException, DocumentException {
+        when(petDao.getFieldCollectionElementsBetweenKeys(OWNER, PET_NAME, FIELD, KEY_1, KEY_2, KEY_1, 10))
+            .thenReturn(PET_LIST);
+        List<Map<String, Object>> list = service
+            .getFieldCollectionElementsBetweenKeys(OWNER, PET_NAME, FIELD, KEY_1, KEY_2, KEY_1, 10);
+        assertSame(PET_LIST, list, "Should return the page of field collection elements");
+    }
+
     @Test
     public void shouldReturnNothingWhenFieldCollectionElementAdded() throws DatabaseAccessException, DocumentException {
         service.addFieldCollectionElement(OWNER, PET_NAME, FIELD, KEY_1, COLLECTION_ELEMENT_BODY);
@@ -0,0 +1,106 @@
+package org.pesmypetcare.webservice.service.usermanager;
+
+import com.google.firebase.auth.FirebaseAuthException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.dao.usermanager.UserDao;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class AccountDeletionJobHandlerTest {
+    private static final String UID = "uid";
+    private static final String USERNAME = "user";
+
+    @Mock
+    private UserDao userDao;
+
+    @InjectMocks
+    private AccountDeletionJobHandler handler = new AccountDeletionJobHandler();
+
+    private Map<String, String> parameters;
+
+    @BeforeEach
+    public void setUp() {
+        parameters = new HashMap<>();
+        parameters.put(AccountDeletionJobHandler.UID_PARAMETER, UID);
+        parameters.put(AccountDeletionJobHandler.USERNAME_PARAMETER, USERNAME);
+    }
+
+    @Test
+    public void shouldDeleteTheAuthenticationLastWhenRequested() {
+        parameters.put(AccountDeletionJobHandler.AUTHENTICATION_PARAMETER, "true");
+
+        JobEntity job = new JobEntity(AccountDeletionJobHandler.TYPE, parameters);
+        assertEquals(AccountDeletionJobHandler.AUTHENTICATION_STEP,
+            handler.getSteps(job).get(handler.getSteps(job).size() - 1),
+            "Should delete the authentication account last");
+    }
+
+    @Test
+    public void shouldKeepTheAuthenticationWhenNotRequested() {
+        parameters.put(AccountDeletionJobHandler.AUTHENTICATION_PARAMETER, "false");
+
+        JobEntity job = new JobEntity(AccountDeletionJobHandler.TYPE, parameters);
+        assertFalse(handler.getSteps(job).contains(AccountDeletionJobHandler.AUTHENTICATION_STEP),
+            "Should not delete the authentication account");
+    }
+
+    @Test
+    public void shouldDeleteThePetsReportingTheProgress() throws DatabaseAccessException, DocumentException,
+        FirebaseAuthException {
+        LongConsumer progress = mock(LongConsumer.class);
+
+        handler.runStep(new JobEntity(AccountDeletionJobHandler.TYPE, parameters),
+            AccountDeletionJobHandler.PETS_STEP, progress);
+        verify(userDao).deleteUserPets(USERNAME, progress);
+    }
+
+    @Test
+    public void shouldReportTheDeletedLikes() throws DatabaseAccessException, DocumentException,
+        FirebaseAuthException {
+        LongConsumer progress = mock(LongConsumer.class);
+        given(userDao.deleteUserLikes(USERNAME)).willReturn(3);
+
+        handler.runStep(new JobEntity(AccountDeletionJobHandler.TYPE, parameters),
+            AccountDeletionJobHandler.LIKES_STEP, progress);
+        verify(progress).accept(3);
+    }
+
+    @Test
+    public void shouldDeleteTheUserDocument() throws DatabaseAccessException, DocumentException,
+        FirebaseAuthException {
+        handler.runStep(new JobEntity(AccountDeletionJobHandler.TYPE, parameters),
+            AccountDeletionJobHandler.USER_STEP, mock(LongConsumer.class));
+        verify(userDao).deleteUserDocument(UID);
+    }
+
+    @Test
+    public void shouldReportTheDeletedLeaderboardEntries() throws DatabaseAccessException, DocumentException,
+        FirebaseAuthException {
+        LongConsumer progress = mock(LongConsumer.class);
+        given(userDao.deleteUserLeaderboardEntries(USERNAME)).willReturn(2);
+
+        handler.runStep(new JobEntity(AccountDeletionJobHandler.TYPE, parameters),
+            AccountDeletionJobHandler.LEADERBOARDS_STEP, progress);
+        verify(progress).accept(2);
+    }
+}
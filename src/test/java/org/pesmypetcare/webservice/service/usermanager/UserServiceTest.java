@@ -13,10 +13,13 @@ import org.pesmypetcare.webservice.dao.usermanager.UserDao;
 import org.pesmypetcare.webservice.entity.usermanager.UserEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.pesmypetcare.webservice.service.appmanager.JobService;
 import org.springframework.security.authentication.BadCredentialsException;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
@@ -48,6 +51,8 @@ class UserServiceTest {
     private UserDao userDao;
     @Mock
     private FirebaseAuth auth;
+    @Mock
+    private JobService jobService;
 
     @InjectMocks
     private final UserService service = new UserServiceImpl();
@@ -85,6 +90,20 @@ class UserServiceTest {
         verify(userDao).deleteFromDatabase(same(username));
     }
 
+    @Test
+    public void scheduleDeletion() throws DatabaseAccessException, DocumentException {
+        given(userDao.getUserData(uid)).willReturn(user);
+        given(jobService.submit(anyString(), any())).willReturn("job-id");
+
+        String jobId = service.scheduleDeletion(TOKEN, uid, true);
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(AccountDeletionJobHandler.UID_PARAMETER, uid);
+        parameters.put(AccountDeletionJobHandler.USERNAME_PARAMETER, username);
+        parameters.put(AccountDeletionJobHandler.AUTHENTICATION_PARAMETER, "true");
+        verify(jobService).submit(AccountDeletionJobHandler.TYPE, parameters);
+        assertEquals("job-id", jobId, "Should return the job identifier");
+    }
+
     @Test
     public void getUserData() throws DatabaseAccessException {
         given(userDao.getUserData(username)).willReturn(user);
@@ -0,0 +1,69 @@
+package org.pesmypetcare.webservice.service.usermanager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.dao.usermanager.UserDao;
+import org.pesmypetcare.webservice.entity.appmanager.JobEntity;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class UsernameUpdateJobHandlerTest {
+    private static final String USERNAME = "John";
+    private static final String NEW_USERNAME = "Michael";
+
+    @Mock
+    private UserDao userDao;
+
+    @InjectMocks
+    private UsernameUpdateJobHandler handler = new UsernameUpdateJobHandler();
+
+    private JobEntity job;
+
+    @BeforeEach
+    public void setUp() {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(UserDao.USERNAME_PARAMETER, USERNAME);
+        parameters.put(UserDao.NEW_USERNAME_PARAMETER, NEW_USERNAME);
+        job = new JobEntity(UserDao.USERNAME_UPDATE_JOB, parameters);
+    }
+
+    @Test
+    public void shouldReleaseTheUsernameAfterUpdatingTheCopies() {
+        List<String> steps = handler.getSteps(job);
+        assertEquals(UsernameUpdateJobHandler.USERNAME_STEP, steps.get(steps.size() - 1),
+            "Should release the previous username last");
+    }
+
+    @Test
+    public void shouldReportTheUpdatedCopies() throws DatabaseAccessException, DocumentException {
+        LongConsumer progress = mock(LongConsumer.class);
+        given(userDao.updateUsernameCopies(USERNAME, NEW_USERNAME)).willReturn(600);
+
+        handler.runStep(job, UsernameUpdateJobHandler.COPIES_STEP, progress);
+        verify(progress).accept(600);
+    }
+
+    @Test
+    public void shouldReleaseThePreviousUsername() throws DatabaseAccessException, DocumentException {
+        handler.runStep(job, UsernameUpdateJobHandler.USERNAME_STEP, mock(LongConsumer.class));
+        verify(userDao).deleteUsername(USERNAME);
+    }
+}
@@ -0,0 +1,50 @@
+package org.pesmypetcare.webservice.thirdpartyservices;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author Marc Simó
+ */
+class CalendarServiceFactoryTest {
+    private CalendarServiceFactory factory;
+
+    @BeforeEach
+    public void setUp() {
+        factory = new CalendarServiceFactory();
+        ReflectionTestUtils.setField(factory, "maximumClients", 1L);
+        factory.initialize();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        factory.shutdown();
+    }
+
+    @Test
+    public void shouldReuseTheClientOfAnAccessToken() {
+        com.google.api.services.calendar.Calendar client = factory.initializeService("token");
+        assertSame(client, factory.initializeService("token"), "Should return the same client for the same token");
+        assertEquals(1L, factory.getMetrics().get("hits"), "Should count the reuse as a hit");
+    }
+
+    @Test
+    public void shouldBuildADifferentClientForEachAccessToken() {
+        com.google.api.services.calendar.Calendar client = factory.initializeService("token");
+        assertNotSame(client, factory.initializeService("other-token"),
+            "Should return a different client for another token");
+    }
+
+    @Test
+    public void shouldKeepTheCacheBounded() {
+        factory.initializeService("token");
+        factory.initializeService("other-token");
+        assertEquals(1L, factory.getMetrics().get("size"), "Should evict the clients above the maximum size");
+    }
+}
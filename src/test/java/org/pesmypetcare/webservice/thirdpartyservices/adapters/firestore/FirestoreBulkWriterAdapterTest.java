@@ -0,0 +1,250 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class FirestoreBulkWriterAdapterTest {
+    private static final int UNLIMITED_RATE = 1_000_000;
+    private static final int SLOW_RATE = 10;
+
+    @Mock
+    private Firestore db;
+    @Mock
+    private DocumentReference documentReference;
+    @Mock
+    private DocumentReference existingReference;
+    @Mock
+    private WriteResult writeResult;
+    @Mock
+    private ApiException alreadyExists;
+    @Mock
+    private StatusCode statusCode;
+    @Mock
+    private WriteBatch firstBatch;
+    @Mock
+    private WriteBatch secondBatch;
+    @Mock
+    private WriteBatch thirdBatch;
+    @Mock
+    private ApiFuture<List<WriteResult>> firstResult;
+    @Mock
+    private ApiFuture<List<WriteResult>> secondResult;
+    @Mock
+    private ApiFuture<List<WriteResult>> thirdResult;
+
+    @InjectMocks
+    private FirestoreBulkWriter writer = new FirestoreBulkWriterAdapter();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(writer, "initialWritesPerSecond", UNLIMITED_RATE);
+        ReflectionTestUtils.setField(writer, "maxWritesPerSecond", UNLIMITED_RATE);
+        ((FirestoreBulkWriterAdapter) writer).startRamp();
+    }
+
+    @Test
+    public void shouldSplitTheWritesInBatchesOfTheMaximumSize()
+        throws DatabaseAccessException, ExecutionException, InterruptedException {
+        given(db.batch()).willReturn(firstBatch, secondBatch, thirdBatch);
+        given(firstBatch.commit()).willReturn(firstResult);
+        given(secondBatch.commit()).willReturn(secondResult);
+        given(thirdBatch.commit()).willReturn(thirdResult);
+        int writes = 2 * FirestoreBulkWriterAdapter.MAX_WRITES_PER_BATCH + 1;
+
+        BulkWriteResult result = writer.commit(deletes(writes));
+        verify(firstBatch, times(FirestoreBulkWriterAdapter.MAX_WRITES_PER_BATCH)).delete(documentReference);
+        verify(secondBatch, times(FirestoreBulkWriterAdapter.MAX_WRITES_PER_BATCH)).delete(documentReference);
+        verify(thirdBatch).delete(documentReference);
+        verify(thirdResult).get();
+        assertTrue(result.isSuccessful(), "Should commit all the batches");
+        assertEquals(3, result.getBatches(), "Should commit three batches");
+        assertEquals(writes, result.getWrites(), "Should apply all the writes");
+    }
+
+    @Test
+    public void shouldReportTheBatchesThatFail()
+        throws DatabaseAccessException, ExecutionException, InterruptedException {
+        mockTwoBatchesWithTheSecondFailing();
+
+        BulkWriteResult result = writer.commit(deletes(FirestoreBulkWriterAdapter.MAX_WRITES_PER_BATCH + 1));
+        assertFalse(result.isSuccessful(), "Should report the failure");
+        assertEquals(2, result.getBatches(), "Should commit the two batches");
+        assertEquals(FirestoreBulkWriterAdapter.MAX_WRITES_PER_BATCH, result.getWrites(),
+            "Should count the writes of the successful batch");
+        assertEquals(new BulkWriteResult.BatchFailure(1, 1, "java.lang.IllegalStateException: aborted"),
+            result.getFailures().get(0), "Should report the failed batch");
+    }
+
+    @Test
+    public void commitBatchShouldFailWhenAnyBatchFails() throws ExecutionException, InterruptedException {
+        mockTwoBatchesWithTheSecondFailing();
+
+        assertThrows(DocumentException.class,
+            () -> writer.commitBatch(deletes(FirestoreBulkWriterAdapter.MAX_WRITES_PER_BATCH + 1)),
+            "Should fail when a batch fails");
+    }
+
+    @Test
+    public void commitAtomicallyShouldCommitAllTheWritesInASingleBatch()
+        throws DatabaseAccessException, DocumentException, ExecutionException, InterruptedException {
+        given(db.batch()).willReturn(firstBatch);
+        given(firstBatch.commit()).willReturn(firstResult);
+
+        writer.commitAtomically(deletes(FirestoreBulkWriterAdapter.MAX_WRITES_PER_BATCH));
+        verify(firstBatch, times(FirestoreBulkWriterAdapter.MAX_WRITES_PER_BATCH)).delete(documentReference);
+        verify(firstResult).get();
+    }
+
+    @Test
+    public void commitAtomicallyShouldRejectTheWritesThatDoNotFitInASingleBatch() {
+        assertThrows(IllegalArgumentException.class,
+            () -> writer.commitAtomically(deletes(FirestoreBulkWriterAdapter.MAX_WRITES_PER_BATCH + 1)),
+            "Should reject more writes than a batch can hold");
+        verify(db, never()).batch();
+    }
+
+    @Test
+    public void shouldWaitForABatchBeforeExceedingTheConcurrentBatches()
+        throws DatabaseAccessException, ExecutionException, InterruptedException {
+        ReflectionTestUtils.setField(writer, "maxConcurrentBatches", 1);
+        given(db.batch()).willReturn(firstBatch, secondBatch);
+        given(firstBatch.commit()).willReturn(firstResult);
+        given(secondBatch.commit()).willReturn(secondResult);
+
+        writer.commit(deletes(FirestoreBulkWriterAdapter.MAX_WRITES_PER_BATCH + 1));
+        InOrder inOrder = inOrder(firstResult, secondBatch);
+        inOrder.verify(firstResult).get();
+        inOrder.verify(secondBatch).commit();
+    }
+
+    @Test
+    public void shouldFailWhenTheCommitIsInterrupted() throws ExecutionException, InterruptedException {
+        given(db.batch()).willReturn(firstBatch);
+        given(firstBatch.commit()).willReturn(firstResult);
+        given(firstResult.get()).willThrow(InterruptedException.class);
+
+        assertThrows(DatabaseAccessException.class, () -> writer.commit(deletes(1)),
+            "Should fail when the commit is interrupted");
+        assertTrue(Thread.interrupted(), "Should keep the interruption");
+    }
+
+    @Test
+    public void shouldIncreaseTheRateHalfEveryRampPeriod() {
+        long period = FirestoreBulkWriterAdapter.RAMP_PERIOD_NANOS;
+        assertEquals(500, FirestoreBulkWriterAdapter.rampedRate(500, 10000, period - 1), 0.001,
+            "Should keep the initial rate during the first period");
+        assertEquals(750, FirestoreBulkWriterAdapter.rampedRate(500, 10000, period), 0.001,
+            "Should increase the rate by a half after a period");
+        assertEquals(1125, FirestoreBulkWriterAdapter.rampedRate(500, 10000, 2 * period), 0.001,
+            "Should increase the rate by a half again after two periods");
+        assertEquals(10000, FirestoreBulkWriterAdapter.rampedRate(500, 10000, 100 * period), 0.001,
+            "Should not exceed the maximum rate");
+    }
+
+    /**
+     * Creates a bulk batch with the given number of deletions.
+     *
+     * @param writes The number of deletions
+     * @return The bulk batch
+     */
+    private BulkWriteBatch deletes(int writes) {
+        BulkWriteBatch batch = writer.batch();
+        for (int i = 0; i < writes; ++i) {
+            batch.delete(documentReference);
+        }
+        return batch;
+    }
+
+    /**
+     * Mocks two write batches where the commit of the second one fails.
+     *
+     * @throws ExecutionException Never
+     * @throws InterruptedException Never
+     */
+    private void mockTwoBatchesWithTheSecondFailing() throws ExecutionException, InterruptedException {
+        given(db.batch()).willReturn(firstBatch, secondBatch);
+        given(firstBatch.commit()).willReturn(firstResult);
+        given(secondBatch.commit()).willReturn(secondResult);
+        given(secondResult.get()).willThrow(new ExecutionException(new IllegalStateException("aborted")));
+    }
+
+    @Test
+    public void createIfAbsentShouldSkipTheDocumentsThatAlreadyExist()
+        throws DatabaseAccessException, DocumentException {
+        given(statusCode.getCode()).willReturn(StatusCode.Code.ALREADY_EXISTS);
+        given(alreadyExists.getStatusCode()).willReturn(statusCode);
+        given(documentReference.create(any())).willReturn(ApiFutures.immediateFuture(writeResult));
+        given(existingReference.create(any())).willReturn(ApiFutures.immediateFailedFuture(alreadyExists));
+        Map<DocumentReference, Object> documents = new LinkedHashMap<>();
+        documents.put(documentReference, "new");
+        documents.put(existingReference, "existing");
+
+        assertEquals(1, writer.createIfAbsent(documents), "Should only count the documents it created");
+        verify(existingReference, never()).set(any());
+    }
+
+    @Test
+    public void createIfAbsentShouldShareTheRateBetweenCalls() throws DatabaseAccessException, DocumentException {
+        ReflectionTestUtils.setField(writer, "initialWritesPerSecond", SLOW_RATE);
+        ReflectionTestUtils.setField(writer, "maxWritesPerSecond", SLOW_RATE);
+        ((FirestoreBulkWriterAdapter) writer).startRamp();
+        given(documentReference.create(any())).willReturn(ApiFutures.immediateFuture(writeResult));
+        Map<DocumentReference, Object> documents = new LinkedHashMap<>();
+        documents.put(documentReference, "new");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 2 * SLOW_RATE; ++i) {
+            writer.createIfAbsent(documents);
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(500),
+            "Should wait once the calls together exceed the rate");
+    }
+
+    @Test
+    public void createIfAbsentShouldFailWhenACreationFailsForAnotherReason() {
+        given(documentReference.create(any()))
+            .willReturn(ApiFutures.immediateFailedFuture(new IllegalStateException("aborted")));
+        Map<DocumentReference, Object> documents = new LinkedHashMap<>();
+        documents.put(documentReference, "new");
+
+        assertThrows(DocumentException.class, () -> writer.createIfAbsent(documents),
+            "Should fail when a creation fails");
+    }
+}
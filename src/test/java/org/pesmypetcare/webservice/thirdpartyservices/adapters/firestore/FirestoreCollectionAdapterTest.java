@@ -7,6 +7,7 @@ import com.google.cloud.firestore.DocumentSnapshot;
 import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
 import com.google.cloud.firestore.QuerySnapshot;
 import com.google.cloud.firestore.WriteBatch;
 import com.google.cloud.firestore.WriteResult;
@@ -19,6 +20,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -26,13 +28,17 @@ import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -43,6 +49,10 @@ class FirestoreCollectionAdapterTest {
     private static final String COLLECTION_ID = "as2asdh34hg";
     private static final String COLLECTION_PATH = "users";
     private static final String COLLECTION_GROUP = "forums";
+    private static final String START_ID = "2020-01-01T00:00:00";
+    private static final String AFTER_ID = "2020-01-03T00:00:00";
+    private static final String END_ID = "2020-01-07T23:59:59";
+    private static final int PAGE_SIZE = 7;
     private static final int VALUE = 2;
     private static final String FIELD = "number";
     private static final String VALUE_2 = "some text";
@@ -57,8 +67,6 @@ class FirestoreCollectionAdapterTest {
     @Mock
     private Firestore db;
     @Mock
-    private FirestoreDocument documentAdapter;
-    @Mock
     private CollectionReference collectionReference;
     @Mock
     private DocumentReference documentReference;
@@ -71,6 +79,10 @@ class FirestoreCollectionAdapterTest {
     @Mock
     private ApiFuture<QuerySnapshot> apiFuture;
     @Mock
+    private QuerySnapshot querySnapshot;
+    @Mock
+    private QueryDocumentSnapshot queryDocumentSnapshot;
+    @Mock
     private WriteBatch batch;
     @Mock
     private ApiFuture<List<WriteResult>> writeResult;
@@ -122,6 +134,22 @@ class FirestoreCollectionAdapterTest {
             () -> adapter.getDocumentsWhereEqualTo(COLLECTION_GROUP, ARRAY_PATH, VALUE, ARRAY_PATH));
     }
 
+    @Test
+    public void getNextChunkQueryShouldStopAfterAChunkSmallerThanTheChunkSize() {
+        ReflectionTestUtils.setField(adapter, "readChunkSize", 2);
+        given(query.limit(2)).willReturn(query);
+        given(query.startAfter(queryDocumentSnapshot)).willReturn(query);
+        List<QueryDocumentSnapshot> fullChunk = new ArrayList<>();
+        fullChunk.add(queryDocumentSnapshot);
+        fullChunk.add(queryDocumentSnapshot);
+
+        assertEquals(query, adapter.getNextChunkQuery(query, null), "Should limit the first chunk");
+        assertEquals(query, adapter.getNextChunkQuery(query, fullChunk),
+            "Should start the next chunk after a full chunk");
+        assertNull(adapter.getNextChunkQuery(query, fullChunk.subList(0, 1)),
+            "Should stop after a chunk smaller than the chunk size");
+    }
+
     @Nested
     class UseDbCollection {
 
@@ -159,23 +187,152 @@ class FirestoreCollectionAdapterTest {
         }
 
         @Test
-        public void listAllCollectionDocumentSnapshots() throws DatabaseAccessException, DocumentException {
-            given(collectionReference.listDocuments()).willReturn(documentReferences);
-            Iterator documentIterator = mock(Iterator.class);
-            given(documentReferences.iterator()).willReturn(documentIterator);
-            given(documentIterator.hasNext()).willReturn(true, false);
-            given(documentIterator.next()).willReturn(documentReference);
-            given(documentReference.getPath()).willReturn(COLLECTION_PATH);
-            DocumentSnapshot snapshot = mock(DocumentSnapshot.class);
-            given(documentAdapter.getDocumentSnapshot(anyString())).willReturn(snapshot);
+        public void listAllCollectionDocumentSnapshots()
+            throws DatabaseAccessException, ExecutionException, InterruptedException {
+            given(collectionReference.orderBy(any(FieldPath.class))).willReturn(query);
+            given(query.limit(anyInt())).willReturn(query);
+            given(query.get()).willReturn(apiFuture);
+            given(apiFuture.get()).willReturn(querySnapshot);
+            List<QueryDocumentSnapshot> documents = new ArrayList<>();
+            documents.add(queryDocumentSnapshot);
+            given(querySnapshot.getDocuments()).willReturn(documents);
 
             List<DocumentSnapshot> snapshots = adapter.listAllCollectionDocumentSnapshots(COLLECTION_PATH);
             List<DocumentSnapshot> expected = new ArrayList<>();
-            expected.add(snapshot);
+            expected.add(queryDocumentSnapshot);
 
             assertEquals(expected, snapshots, "Should return a list with all the document snapshots in the collection");
         }
 
+        @Test
+        public void listAllCollectionDocumentSnapshotsShouldReadInChunks()
+            throws DatabaseAccessException, ExecutionException, InterruptedException {
+            ReflectionTestUtils.setField(adapter, "readChunkSize", 1);
+            given(collectionReference.orderBy(any(FieldPath.class))).willReturn(query);
+            given(query.limit(anyInt())).willReturn(query);
+            given(query.startAfter(any(DocumentSnapshot.class))).willReturn(query);
+            given(query.get()).willReturn(apiFuture);
+            given(apiFuture.get()).willReturn(querySnapshot);
+            List<QueryDocumentSnapshot> documents = new ArrayList<>();
+            documents.add(queryDocumentSnapshot);
+            given(querySnapshot.getDocuments()).willReturn(documents, documents, new ArrayList<>());
+
+            List<DocumentSnapshot> snapshots = adapter.listAllCollectionDocumentSnapshots(COLLECTION_PATH);
+
+            assertEquals(2, snapshots.size(), "Should return the documents of all the chunks");
+            verify(query, times(3)).get();
+        }
+
+        @Test
+        public void listAllCollectionDocumentSnapshotsShouldFailWhenRetrievalFails()
+            throws ExecutionException, InterruptedException {
+            given(collectionReference.orderBy(any(FieldPath.class))).willReturn(query);
+            given(query.limit(anyInt())).willReturn(query);
+            given(query.get()).willReturn(apiFuture);
+            willThrow(ExecutionException.class).given(apiFuture).get();
+
+            assertThrows(DatabaseAccessException.class, () -> adapter.listAllCollectionDocumentSnapshots(COLLECTION_PATH),
+                "Should throw database access exception when the retrieval fails");
+        }
+
+        @Test
+        public void listDocumentSnapshotsBetweenIds()
+            throws DatabaseAccessException, ExecutionException, InterruptedException {
+            given(collectionReference.orderBy(any(FieldPath.class))).willReturn(query);
+            given(query.startAt(START_ID)).willReturn(query);
+            given(query.endAt(END_ID)).willReturn(query);
+            given(query.limit(anyInt())).willReturn(query);
+            given(query.get()).willReturn(apiFuture);
+            given(apiFuture.get()).willReturn(querySnapshot);
+            List<QueryDocumentSnapshot> documents = new ArrayList<>();
+            documents.add(queryDocumentSnapshot);
+            given(querySnapshot.getDocuments()).willReturn(documents);
+
+            List<DocumentSnapshot> snapshots = adapter.listDocumentSnapshotsBetweenIds(COLLECTION_PATH, START_ID,
+                END_ID);
+
+            assertEquals(documents, snapshots, "Should return the document snapshots in the range");
+            verify(query).startAt(START_ID);
+            verify(query).endAt(END_ID);
+        }
+
+        @Test
+        public void listDocumentSnapshotsBeforeId()
+            throws DatabaseAccessException, ExecutionException, InterruptedException {
+            given(collectionReference.orderBy(any(FieldPath.class))).willReturn(query);
+            given(query.endBefore(END_ID)).willReturn(query);
+            given(query.limit(anyInt())).willReturn(query);
+            given(query.get()).willReturn(apiFuture);
+            given(apiFuture.get()).willReturn(querySnapshot);
+            List<QueryDocumentSnapshot> documents = new ArrayList<>();
+            documents.add(queryDocumentSnapshot);
+            given(querySnapshot.getDocuments()).willReturn(documents);
+
+            List<DocumentSnapshot> snapshots = adapter.listDocumentSnapshotsBeforeId(COLLECTION_PATH, END_ID);
+
+            assertEquals(documents, snapshots, "Should return the document snapshots before the ID");
+            verify(query).endBefore(END_ID);
+        }
+
+        @Test
+        public void getDocumentSnapshotsPageBetweenIds()
+            throws DatabaseAccessException, ExecutionException, InterruptedException {
+            given(collectionReference.orderBy(any(FieldPath.class))).willReturn(query);
+            given(query.startAfter(AFTER_ID)).willReturn(query);
+            given(query.limit(PAGE_SIZE)).willReturn(query);
+            given(query.get()).willReturn(apiFuture);
+            given(apiFuture.get()).willReturn(querySnapshot);
+            List<QueryDocumentSnapshot> documents = new ArrayList<>();
+            documents.add(queryDocumentSnapshot);
+            given(querySnapshot.getDocuments()).willReturn(documents);
+
+            List<DocumentSnapshot> snapshots = adapter.getDocumentSnapshotsPageBetweenIds(COLLECTION_PATH, START_ID,
+                null, AFTER_ID, PAGE_SIZE);
+
+            assertEquals(documents, snapshots, "Should return the page of document snapshots");
+            verify(query).startAfter(AFTER_ID);
+            verify(query, never()).startAt(anyString());
+            verify(query).limit(PAGE_SIZE);
+        }
+
+        @Test
+        public void getDocumentSnapshotsPageBetweenIdsShouldNotStartBeforeTheRange()
+            throws DatabaseAccessException, ExecutionException, InterruptedException {
+            given(collectionReference.orderBy(any(FieldPath.class))).willReturn(query);
+            given(query.startAt(AFTER_ID)).willReturn(query);
+            given(query.endAt(END_ID)).willReturn(query);
+            given(query.limit(PAGE_SIZE)).willReturn(query);
+            given(query.get()).willReturn(apiFuture);
+            given(apiFuture.get()).willReturn(querySnapshot);
+            given(querySnapshot.getDocuments()).willReturn(new ArrayList<>());
+
+            adapter.getDocumentSnapshotsPageBetweenIds(COLLECTION_PATH, AFTER_ID, END_ID, START_ID, PAGE_SIZE);
+            verify(query).startAt(AFTER_ID);
+            verify(query, never()).startAfter(anyString());
+        }
+
+        @Test
+        public void getDocumentSnapshotsPageOrderedBy()
+            throws DatabaseAccessException, ExecutionException, InterruptedException {
+            given(collectionReference.orderBy(FIELD, Query.Direction.DESCENDING)).willReturn(query);
+            given(query.orderBy(any(FieldPath.class), same(Query.Direction.DESCENDING))).willReturn(query);
+            given(query.startAfter(VALUE_2, AFTER_ID)).willReturn(query);
+            given(query.select(FIELD, FIELD_2)).willReturn(query);
+            given(query.limit(PAGE_SIZE)).willReturn(query);
+            given(query.get()).willReturn(apiFuture);
+            given(apiFuture.get()).willReturn(querySnapshot);
+            List<QueryDocumentSnapshot> documents = new ArrayList<>();
+            documents.add(queryDocumentSnapshot);
+            given(querySnapshot.getDocuments()).willReturn(documents);
+
+            List<DocumentSnapshot> snapshots = adapter.getDocumentSnapshotsPageOrderedBy(COLLECTION_PATH, FIELD, true,
+                VALUE_2, AFTER_ID, PAGE_SIZE, FIELD, FIELD_2);
+
+            assertEquals(documents, snapshots, "Should return the page of document snapshots");
+            verify(query).select(FIELD, FIELD_2);
+            verify(query).startAfter(VALUE_2, AFTER_ID);
+        }
+
         @Test
         public void deleteCollection() {
             given(collectionReference.listDocuments()).willReturn(documentReferences);
@@ -189,8 +346,7 @@ class FirestoreCollectionAdapterTest {
             given(collectionIterator.hasNext()).willReturn(true, false);
             given(collectionIterator.next()).willReturn(collectionReference);
             given(collectionReference.getPath()).willReturn(COLLECTION_PATH);
-            WriteBatch mockBatch = mock(WriteBatch.class);
-            given(mockBatch.delete(any(DocumentReference.class))).willReturn(mockBatch);
+            BulkWriteBatch mockBatch = mock(BulkWriteBatch.class);
 
             adapter.deleteCollection(COLLECTION_PATH, mockBatch);
             verify(mockBatch).delete(documentReference);
@@ -0,0 +1,90 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class FirestoreCollectionAsyncAdapterTest {
+    private static final String COLLECTION_PATH = "users";
+    @Mock
+    private Firestore db;
+    @Mock
+    private CollectionReference collectionReference;
+    @Mock
+    private FirestoreCollection collectionAdapter;
+    @Mock
+    private Query query;
+    @Mock
+    private Query chunkQuery;
+    @Mock
+    private QuerySnapshot querySnapshot;
+    @Mock
+    private QueryDocumentSnapshot queryDocumentSnapshot;
+
+    @InjectMocks
+    private FirestoreCollectionAsync adapter = new FirestoreCollectionAsyncAdapter();
+
+    @BeforeEach
+    public void setUp() {
+        given(db.collection(COLLECTION_PATH)).willReturn(collectionReference);
+        given(collectionReference.orderBy(any(FieldPath.class))).willReturn(query);
+        given(collectionAdapter.getNextChunkQuery(same(query), isNull())).willReturn(chunkQuery);
+    }
+
+    @Test
+    public void listAllCollectionDocumentSnapshotsShouldReadTheChunksOfTheCollectionAdapter()
+        throws DatabaseAccessException, DocumentException {
+        given(chunkQuery.get()).willReturn(ApiFutures.immediateFuture(querySnapshot));
+        List<QueryDocumentSnapshot> documents = new ArrayList<>();
+        documents.add(queryDocumentSnapshot);
+        given(querySnapshot.getDocuments()).willReturn(documents);
+        given(collectionAdapter.getNextChunkQuery(same(query), anyList())).willReturn(chunkQuery, chunkQuery, null);
+
+        List<DocumentSnapshot> snapshots = FirestoreFutures
+            .join(adapter.listAllCollectionDocumentSnapshots(COLLECTION_PATH));
+
+        assertEquals(3, snapshots.size(), "Should return the documents of all the chunks");
+        verify(chunkQuery, times(3)).get();
+    }
+
+    @Test
+    public void listAllCollectionDocumentSnapshotsShouldFailWhenRetrievalFails() {
+        given(chunkQuery.get())
+            .willReturn(ApiFutures.immediateFailedFuture(new ExecutionException(new RuntimeException())));
+
+        assertThrows(DatabaseAccessException.class,
+            () -> FirestoreFutures.join(adapter.listAllCollectionDocumentSnapshots(COLLECTION_PATH)),
+            "Should fail when the retrieval fails");
+    }
+}
@@ -5,6 +5,7 @@ import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.CollectionReference;
 import com.google.cloud.firestore.DocumentReference;
 import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
 import com.google.cloud.firestore.FieldPath;
 import com.google.cloud.firestore.Firestore;
 import com.google.cloud.firestore.GeoPoint;
@@ -22,6 +23,7 @@ import org.pesmypetcare.webservice.entity.usermanager.UserEntity;
 import org.pesmypetcare.webservice.error.DatabaseAccessException;
 import org.pesmypetcare.webservice.error.DocumentException;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -39,6 +41,7 @@ import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.lenient;
 import static org.mockito.BDDMockito.mock;
+import static org.mockito.BDDMockito.never;
 import static org.mockito.BDDMockito.times;
 import static org.mockito.BDDMockito.verify;
 import static org.mockito.BDDMockito.willReturn;
@@ -68,6 +71,8 @@ class FirestoreDocumentAdapterTest {
     @Mock
     private ApiFuture<DocumentSnapshot> future;
     @Mock
+    private ApiFuture<List<DocumentSnapshot>> snapshots;
+    @Mock
     private ApiFuture<List<WriteResult>> writeResult;
     @Mock
     private WriteBatch batch;
@@ -413,6 +418,14 @@ class FirestoreDocumentAdapterTest {
                 verify(batch, times(2)).delete(documentReference);
             }
 
+            @Test
+            public void deleteDocumentWithBulkBatch() {
+                BulkWriteBatch bulkBatch = mock(BulkWriteBatch.class);
+
+                adapter.deleteDocument(documentPath, bulkBatch);
+                verify(bulkBatch, times(2)).delete(documentReference);
+            }
+
             @Test
             public void deleteDocumentWithoutBatch() {
                 given(documentReference.delete()).willReturn(null);
@@ -423,7 +436,7 @@ class FirestoreDocumentAdapterTest {
         }
 
         @Nested
-        class UsesFuture {
+        class UsesFieldMask {
             private double aDouble;
             private Date aDate;
             private boolean aBoolean;
@@ -432,9 +445,9 @@ class FirestoreDocumentAdapterTest {
 
             @BeforeEach
             public void setUp() throws DatabaseAccessException {
-                given(documentReference.get()).willReturn(future);
+                given(db.getAll(any(DocumentReference[].class), any(FieldMask.class))).willReturn(snapshots);
                 try {
-                    given(future.get()).willReturn(documentSnapshot);
+                    given(snapshots.get()).willReturn(Collections.singletonList(documentSnapshot));
                     given(documentSnapshot.exists()).willReturn(true);
                 } catch (InterruptedException | ExecutionException e) {
                     throw new DatabaseAccessException("retrieval-failed", "The document could not be retrieves");
@@ -445,13 +458,15 @@ class FirestoreDocumentAdapterTest {
                 aBoolean = true;
                 aGeoPoint = new GeoPoint(2.0, 1.0);
                 aTimestamp = Timestamp.now();
-                fieldPath = FieldPath.of(field);
             }
 
             @Test
-            public void getDocumentSnapshot() throws DatabaseAccessException, DocumentException {
-                DocumentSnapshot result = adapter.getDocumentSnapshot(documentPath);
-                assertEquals(documentSnapshot, result, "Should return the document snapshot");
+            public void shouldOnlyRetrieveTheRequestedField() throws DatabaseAccessException, DocumentException {
+                given(documentSnapshot.getString(anyString())).willReturn(aString);
+
+                adapter.getStringFromDocument(documentPath, field);
+                verify(db).getAll(any(DocumentReference[].class), any(FieldMask.class));
+                verify(documentReference, never()).get();
             }
 
             @Test
@@ -534,6 +549,42 @@ class FirestoreDocumentAdapterTest {
                         + "document located at " + documentPath);
             }
 
+            @Test
+            public void documentContains() throws DatabaseAccessException, DocumentException {
+                given(documentSnapshot.contains(anyString())).willReturn(true);
+
+                assertTrue(adapter.documentContains(documentPath, field),
+                    "Should return true if the document contains the field " + field);
+            }
+
+            @Test
+            public void documentContainsFieldPath() throws DatabaseAccessException, DocumentException {
+                lenient().when(documentSnapshot.contains(fieldPath)).thenReturn(true);
+
+                assertTrue(adapter.documentContains(documentPath, fieldPath),
+                    "Should return true if the document contains the field in " + fieldPath);
+            }
+        }
+
+        @Nested
+        class UsesFuture {
+            @BeforeEach
+            public void setUp() throws DatabaseAccessException {
+                given(documentReference.get()).willReturn(future);
+                try {
+                    given(future.get()).willReturn(documentSnapshot);
+                    given(documentSnapshot.exists()).willReturn(true);
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new DatabaseAccessException("retrieval-failed", "The document could not be retrieves");
+                }
+            }
+
+            @Test
+            public void getDocumentSnapshot() throws DatabaseAccessException, DocumentException {
+                DocumentSnapshot result = adapter.getDocumentSnapshot(documentPath);
+                assertEquals(documentSnapshot, result, "Should return the document snapshot");
+            }
+
             @Test
             public void getDocumentData() throws DatabaseAccessException, DocumentException {
                 given(documentSnapshot.getData()).willReturn(fields);
@@ -552,22 +603,6 @@ class FirestoreDocumentAdapterTest {
                     "Should return a pojo of type " + pojo.getClass().getSimpleName() + " as the data "
                         + "stored in the document located at " + documentPath);
             }
-
-            @Test
-            public void documentContains() throws DatabaseAccessException, DocumentException {
-                given(documentSnapshot.contains(anyString())).willReturn(true);
-
-                assertTrue(adapter.documentContains(documentPath, field),
-                    "Should return true if the document contains the field " + field);
-            }
-
-            @Test
-            public void documentContainsFieldPath() throws DatabaseAccessException, DocumentException {
-                lenient().when(documentSnapshot.contains(fieldPath)).thenReturn(true);
-
-                assertTrue(adapter.documentContains(documentPath, fieldPath),
-                    "Should return true if the document contains the field in " + fieldPath);
-            }
         }
     }
 }
@@ -0,0 +1,93 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldMask;
+import com.google.cloud.firestore.Firestore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class FirestoreDocumentAsyncAdapterTest {
+    private static final String DOCUMENT_PATH = "users/user-id";
+    private static final String FIELD = "username";
+    @Mock
+    private Firestore db;
+    @Mock
+    private DocumentReference documentReference;
+    @Mock
+    private DocumentSnapshot documentSnapshot;
+
+    @InjectMocks
+    private FirestoreDocumentAsync adapter = new FirestoreDocumentAsyncAdapter();
+
+    @BeforeEach
+    public void setUp() {
+        given(db.document(DOCUMENT_PATH)).willReturn(documentReference);
+    }
+
+    @Test
+    public void getStringFromDocument() throws DatabaseAccessException, DocumentException {
+        given(db.getAll(argThat(references -> references.length == 1 && references[0] == documentReference),
+            any(FieldMask.class)))
+            .willReturn(ApiFutures.immediateFuture(Collections.singletonList(documentSnapshot)));
+        given(documentSnapshot.exists()).willReturn(true);
+        given(documentSnapshot.getString(FIELD)).willReturn("John");
+
+        assertEquals("John", FirestoreFutures.join(adapter.getStringFromDocument(DOCUMENT_PATH, FIELD)),
+            "Should return the value of the field");
+        verify(documentReference, never()).get();
+    }
+
+    @Test
+    public void getDocumentFieldShouldFailWhenTheDocumentDoesNotExist() {
+        given(db.getAll(any(DocumentReference[].class), any(FieldMask.class)))
+            .willReturn(ApiFutures.immediateFuture(Collections.singletonList(documentSnapshot)));
+        given(documentSnapshot.exists()).willReturn(false);
+
+        assertThrows(DocumentException.class,
+            () -> FirestoreFutures.join(adapter.getDocumentField(DOCUMENT_PATH, FIELD)),
+            "Should fail when the document does not exist");
+    }
+
+    @Test
+    public void getDocumentSnapshotShouldFailWhenTheDocumentDoesNotExist() {
+        given(documentReference.get()).willReturn(ApiFutures.immediateFuture(documentSnapshot));
+        given(documentSnapshot.exists()).willReturn(false);
+
+        assertThrows(DocumentException.class, () -> FirestoreFutures.join(adapter.getDocumentSnapshot(DOCUMENT_PATH)),
+            "Should fail when the document does not exist");
+    }
+
+    @Test
+    public void getDocumentSnapshotShouldFailWhenTheRetrievalFails() {
+        given(documentReference.get())
+            .willReturn(ApiFutures.immediateFailedFuture(new ExecutionException(new RuntimeException())));
+
+        DatabaseAccessException exception = assertThrows(DatabaseAccessException.class,
+            () -> FirestoreFutures.join(adapter.getDocumentSnapshot(DOCUMENT_PATH)),
+            "Should fail when the retrieval fails");
+        assertEquals("retrieval-failed", exception.getErrorCode(), "Should report that the retrieval failed");
+    }
+}
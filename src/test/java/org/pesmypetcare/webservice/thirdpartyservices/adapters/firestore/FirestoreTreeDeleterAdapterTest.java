@@ -0,0 +1,177 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.firestore;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.WriteResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class FirestoreTreeDeleterAdapterTest {
+    private static final String DOCUMENT_PATH = "users/user";
+    private static final String COLLECTION_PATH = "users/user/pets";
+    private static final int PAGE_SIZE = 2;
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Mock
+    private Firestore db;
+    @Mock
+    private DocumentReference document;
+    @Mock
+    private CollectionReference collection;
+    @Mock
+    private DocumentReference child;
+    @Mock
+    private DocumentReference otherChild;
+    @Mock
+    private WriteResult writeResult;
+
+    @InjectMocks
+    private FirestoreTreeDeleterAdapter deleter = new FirestoreTreeDeleterAdapter();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(deleter, "pageSize", PAGE_SIZE);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        deleter.stopDeleting();
+    }
+
+    @Test
+    public void shouldDeleteTheInnerCollectionsBeforeTheDocument() throws DatabaseAccessException, DocumentException {
+        deleter.startDeleting();
+        given(db.document(DOCUMENT_PATH)).willReturn(document);
+        given(document.listCollections()).willReturn(Collections.singletonList(collection));
+        mockCollectionWithOneChild();
+        given(child.delete()).willReturn(ApiFutures.immediateFuture(writeResult));
+        given(document.delete()).willReturn(ApiFutures.immediateFuture(writeResult));
+        List<Long> progress = Collections.synchronizedList(new ArrayList<>());
+
+        long deleted = deleter.deleteDocument(DOCUMENT_PATH, progress::add);
+        assertEquals(2, deleted, "Should delete the document and its child");
+        assertEquals(Arrays.asList(1L, 2L), progress, "Should report each deletion");
+    }
+
+    @Test
+    public void shouldDeleteAllTheDocumentsOfACollection() throws DatabaseAccessException, DocumentException {
+        deleter.startDeleting();
+        given(db.collection(COLLECTION_PATH)).willReturn(collection);
+        mockCollectionWithOneChild();
+        given(child.delete()).willReturn(ApiFutures.immediateFuture(writeResult));
+
+        long deleted = deleter.deleteCollection(COLLECTION_PATH, null);
+        assertEquals(1, deleted, "Should delete the child");
+        verify(child).delete();
+    }
+
+    @Test
+    public void shouldDeleteTheDocumentsOfACollectionPageByPage() throws DatabaseAccessException, DocumentException {
+        deleter.startDeleting();
+        given(db.collection(COLLECTION_PATH)).willReturn(collection);
+        given(collection.listDocuments()).willReturn(Arrays.asList(child, child, child));
+        given(child.listCollections()).willReturn(Collections.emptyList());
+        given(child.delete()).willReturn(ApiFutures.immediateFuture(writeResult));
+
+        long deleted = deleter.deleteCollection(COLLECTION_PATH, null);
+        assertEquals(3, deleted, "Should delete the documents of every page");
+        verify(child, times(3)).delete();
+    }
+
+    @Test
+    public void shouldNotDeleteTheDocumentWhenAChildDeletionFails() {
+        deleter.startDeleting();
+        given(db.document(DOCUMENT_PATH)).willReturn(document);
+        given(document.listCollections()).willReturn(Collections.singletonList(collection));
+        mockCollectionWithOneChild();
+        given(child.delete()).willReturn(ApiFutures.immediateFailedFuture(new IllegalStateException("aborted")));
+
+        assertThrows(DocumentException.class, () -> deleter.deleteDocument(DOCUMENT_PATH, null),
+            "Should fail when a deletion fails");
+        verify(document, never()).delete();
+    }
+
+    @Test
+    public void shouldNotExceedTheMaximumPendingDeletions() throws InterruptedException {
+        ReflectionTestUtils.setField(deleter, "maxPendingDeletes", 1);
+        deleter.startDeleting();
+        given(db.collection(COLLECTION_PATH)).willReturn(collection);
+        given(collection.listDocuments()).willReturn(Arrays.asList(child, otherChild));
+        given(child.listCollections()).willReturn(Collections.emptyList());
+        given(otherChild.listCollections()).willReturn(Collections.emptyList());
+        SettableApiFuture<WriteResult> firstDeletion = SettableApiFuture.create();
+        AtomicInteger deletions = new AtomicInteger();
+        Answer<ApiFuture<WriteResult>> deletion = invocation -> deletions.incrementAndGet() == 1 ? firstDeletion
+            : ApiFutures.immediateFuture(writeResult);
+        given(child.delete()).willAnswer(deletion);
+        given(otherChild.delete()).willAnswer(deletion);
+
+        CompletableFuture<Long> deleted = CompletableFuture.supplyAsync(() -> {
+            try {
+                return deleter.deleteCollection(COLLECTION_PATH, null);
+            } catch (DatabaseAccessException | DocumentException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            while (deletions.get() == 0) {
+                Thread.sleep(10);
+            }
+        });
+        Thread.sleep(100);
+        assertEquals(1, deletions.get(), "Should wait for the pending deletion before sending another one");
+        firstDeletion.set(writeResult);
+        assertEquals(2L, assertTimeoutPreemptively(TIMEOUT, deleted::join), "Should delete both documents");
+    }
+
+    @Test
+    public void shouldFailWhenTheDeleterHasBeenStopped() {
+        deleter.startDeleting();
+        deleter.stopDeleting();
+        given(db.document(DOCUMENT_PATH)).willReturn(document);
+
+        assertThrows(DatabaseAccessException.class, () -> deleter.deleteDocument(DOCUMENT_PATH, null),
+            "Should fail when the deleter has been stopped");
+    }
+
+    /**
+     * Mocks the collection to contain a single child document without inner collections.
+     */
+    private void mockCollectionWithOneChild() {
+        given(collection.listDocuments()).willReturn(Collections.singletonList(child));
+        given(child.listCollections()).willReturn(Collections.emptyList());
+    }
+}
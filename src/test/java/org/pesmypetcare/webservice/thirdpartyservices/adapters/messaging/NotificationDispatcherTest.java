@@ -0,0 +1,244 @@
+package org.pesmypetcare.webservice.thirdpartyservices.adapters.messaging;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.SendResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.pesmypetcare.webservice.dao.usermanager.NotificationTokenDao;
+import org.pesmypetcare.webservice.error.DatabaseAccessException;
+import org.pesmypetcare.webservice.error.DocumentException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * @author Santiago Del Rey
+ */
+@ExtendWith(MockitoExtension.class)
+class NotificationDispatcherTest {
+    private Map<String, String> data;
+
+    @Mock
+    private FirebaseMessaging firebaseMessaging;
+    @Mock
+    private BatchResponse batchResponse;
+    @Mock
+    private NotificationTokenDao notificationTokenDao;
+
+    @InjectMocks
+    private NotificationDispatcher dispatcher = new NotificationDispatcherImpl();
+
+    @BeforeEach
+    public void setUp() {
+        data = new HashMap<>();
+        data.put("group", "Dogs");
+        ReflectionTestUtils.setField(dispatcher, "initialBackoffMillis", 1L);
+        ((NotificationDispatcherImpl) dispatcher).startDispatching();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ((NotificationDispatcherImpl) dispatcher).stopDispatching();
+    }
+
+    @Test
+    public void shouldSendTheTokensInChunksOfTheMulticastLimit() throws FirebaseMessagingException {
+        Queue<Integer> chunkSizes = new ConcurrentLinkedQueue<>();
+        willAnswer(invocation -> {
+            MulticastMessage message = invocation.getArgument(0);
+            chunkSizes.add(((List<?>) ReflectionTestUtils.getField(message, "tokens")).size());
+            return batchResponse;
+        }).given(firebaseMessaging).sendMulticast(any(MulticastMessage.class));
+        given(batchResponse.getResponses()).willReturn(Collections.emptyList());
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 2 * NotificationDispatcherImpl.MAX_TOKENS_PER_MULTICAST + 1; ++i) {
+            tokens.add("token" + i);
+        }
+
+        assertTrue(dispatcher.dispatch(data, () -> tokens), "Should queue the notification");
+        ((NotificationDispatcherImpl) dispatcher).stopDispatching();
+        verify(firebaseMessaging, times(3)).sendMulticast(any(MulticastMessage.class));
+        assertArrayEquals(new Integer[] {NotificationDispatcherImpl.MAX_TOKENS_PER_MULTICAST,
+            NotificationDispatcherImpl.MAX_TOKENS_PER_MULTICAST, 1}, chunkSizes.toArray(new Integer[0]),
+            "Should send the tokens in chunks of the multicast limit");
+    }
+
+    @Test
+    public void shouldRetryWhenTheMessagingServiceIsUnavailable() throws FirebaseMessagingException {
+        FirebaseMessagingException unavailable = mock(FirebaseMessagingException.class);
+        given(unavailable.getErrorCode()).willReturn("server-unavailable");
+        given(firebaseMessaging.sendMulticast(any(MulticastMessage.class))).willThrow(unavailable)
+            .willReturn(batchResponse);
+        given(batchResponse.getResponses()).willReturn(Collections.emptyList());
+
+        dispatcher.dispatch(data, () -> Collections.singletonList("token"));
+        verify(firebaseMessaging, timeout(2000).times(2)).sendMulticast(any(MulticastMessage.class));
+    }
+
+    @Test
+    public void shouldNotRetryTheTokensThatFailPermanently() throws FirebaseMessagingException {
+        FirebaseMessagingException mismatched = mock(FirebaseMessagingException.class);
+        given(mismatched.getErrorCode()).willReturn("mismatched-credential");
+        SendResponse failure = mock(SendResponse.class);
+        given(failure.isSuccessful()).willReturn(false);
+        given(failure.getException()).willReturn(mismatched);
+        SendResponse success = mock(SendResponse.class);
+        given(success.isSuccessful()).willReturn(true);
+        List<SendResponse> responses = new ArrayList<>();
+        responses.add(failure);
+        responses.add(success);
+        given(firebaseMessaging.sendMulticast(any(MulticastMessage.class))).willReturn(batchResponse);
+        given(batchResponse.getResponses()).willReturn(responses);
+        List<String> tokens = new ArrayList<>();
+        tokens.add("mismatched");
+        tokens.add("registered");
+
+        dispatcher.dispatch(data, () -> tokens);
+        ((NotificationDispatcherImpl) dispatcher).stopDispatching();
+        Map<String, Object> metrics = ((NotificationDispatcherImpl) dispatcher).getMetrics();
+        assertEquals(1L, metrics.get("sent"), "Should count the delivered notifications");
+        assertEquals(1L, metrics.get("failed"), "Should count the failed notifications");
+        assertEquals(0L, metrics.get("retried"), "Should not retry a permanent failure");
+        verifyNoInteractions(notificationTokenDao);
+    }
+
+    @Test
+    public void shouldPruneOnlyTheUnregisteredTokens()
+        throws FirebaseMessagingException, DatabaseAccessException, DocumentException {
+        List<SendResponse> responses = new ArrayList<>();
+        responses.add(failedResponse("registration-token-not-registered"));
+        responses.add(failedResponse("not-found"));
+        responses.add(failedResponse("invalid-argument"));
+        SendResponse success = mock(SendResponse.class);
+        given(success.isSuccessful()).willReturn(true);
+        responses.add(success);
+        given(firebaseMessaging.sendMulticast(any(MulticastMessage.class))).willReturn(batchResponse);
+        given(batchResponse.getResponses()).willReturn(responses);
+        given(notificationTokenDao.deleteTokens(anyCollection())).willReturn(3);
+        List<String> tokens = new ArrayList<>();
+        tokens.add("unregistered");
+        tokens.add("missing");
+        tokens.add("malformed");
+        tokens.add("registered");
+
+        dispatcher.dispatch(data, () -> tokens);
+        ((NotificationDispatcherImpl) dispatcher).stopDispatching();
+        verify(notificationTokenDao).deleteTokens(argThat(pruned -> pruned.size() == 2
+            && pruned.contains("unregistered") && pruned.contains("missing")));
+        Map<String, Object> metrics = ((NotificationDispatcherImpl) dispatcher).getMetrics();
+        assertEquals(2L, metrics.get("invalidTokens"), "Should count the unregistered tokens");
+        assertEquals(2L, metrics.get("prunedTokens"), "Should count the pruned tokens");
+        assertEquals(3L, metrics.get("prunedDocuments"), "Should count the updated documents");
+        assertEquals(1L, metrics.get("failed"), "Should count the invalid argument as a failure");
+    }
+
+    @Test
+    public void shouldKeepTheUnregisteredTokensWhenThePruningFails()
+        throws FirebaseMessagingException, DatabaseAccessException, DocumentException {
+        given(firebaseMessaging.sendMulticast(any(MulticastMessage.class))).willReturn(batchResponse);
+        given(batchResponse.getResponses())
+            .willReturn(Collections.singletonList(failedResponse("registration-token-not-registered")));
+        given(notificationTokenDao.deleteTokens(anyCollection()))
+            .willThrow(new DatabaseAccessException("retrieval-failed", "The documents could not be retrieved"))
+            .willReturn(1);
+
+        dispatcher.dispatch(data, () -> Collections.singletonList("unregistered"));
+        ((NotificationDispatcherImpl) dispatcher).stopDispatching();
+        ((NotificationDispatcherImpl) dispatcher).pruneInvalidTokens();
+        verify(notificationTokenDao, times(2)).deleteTokens(Collections.singletonList("unregistered"));
+        assertEquals(1L, ((NotificationDispatcherImpl) dispatcher).getMetrics().get("prunedTokens"),
+            "Should prune the tokens on the next attempt");
+    }
+
+    @Test
+    public void shouldRejectTheNotificationsWhenTheQueueIsFull() throws InterruptedException {
+        ((NotificationDispatcherImpl) dispatcher).stopDispatching();
+        ReflectionTestUtils.setField(dispatcher, "workers", 1);
+        ReflectionTestUtils.setField(dispatcher, "queueCapacity", 1);
+        ((NotificationDispatcherImpl) dispatcher).startDispatching();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertTrue(dispatcher.dispatch(data, () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return Collections.emptyList();
+        }), "Should run the first notification");
+        started.await();
+        assertTrue(dispatcher.dispatch(data, Collections::emptyList), "Should queue the second notification");
+        assertFalse(dispatcher.dispatch(data, Collections::emptyList), "Should reject the third notification");
+        release.countDown();
+        assertEquals(1L, ((NotificationDispatcherImpl) dispatcher).getMetrics().get("rejected"),
+            "Should count the rejected notifications");
+    }
+
+    @Test
+    public void shouldNotSendWhenTheRecipientsCannotBeResolved() throws FirebaseMessagingException {
+        dispatcher.dispatch(data, () -> {
+            throw new DatabaseAccessException("retrieval-failed", "The document could not be retrieved");
+        });
+        ((NotificationDispatcherImpl) dispatcher).stopDispatching();
+        verify(firebaseMessaging, never()).sendMulticast(any(MulticastMessage.class));
+        assertEquals(1L, ((NotificationDispatcherImpl) dispatcher).getMetrics().get("failed"),
+            "Should count the failed notifications");
+    }
+
+    /**
+     * Creates the response of a device whose notification failed.
+     *
+     * @param errorCode The error code of the failure
+     * @return The response of the device
+     */
+    private static SendResponse failedResponse(String errorCode) {
+        FirebaseMessagingException exception = mock(FirebaseMessagingException.class);
+        given(exception.getErrorCode()).willReturn(errorCode);
+        SendResponse response = mock(SendResponse.class);
+        given(response.isSuccessful()).willReturn(false);
+        given(response.getException()).willReturn(exception);
+        return response;
+    }
+
+    /**
+     * Waits for a latch ignoring the interruptions.
+     *
+     * @param latch The latch to wait for
+     */
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}